@@ -0,0 +1,29 @@
+package com.apigateway.config;
+
+import org.springframework.cloud.gateway.route.RouteLocator;
+import org.springframework.cloud.gateway.route.builder.RouteLocatorBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpStatus;
+
+/**
+ * Административный API сервисов наружу не публикуется
+ *
+ * <p>Запросы к {@code /api/v1/admin/**} (импорт и backfill пользователей, переотправка
+ * уведомлений из DLT) получают 404 на шлюзе, даже если маршрут из конфигурации покрывает
+ * весь {@code /api/v1/**}. Маршрут стоит раньше всех остальных (order -2) и никуда не проксирует.
+ */
+@Configuration
+public class AdminRoutesConfig {
+
+    @Bean
+    public RouteLocator adminRoutes(RouteLocatorBuilder builder) {
+        return builder.routes()
+                .route("admin-blocked", route -> route
+                        .order(-2)
+                        .path("/api/v1/admin", "/api/v1/admin/**")
+                        .filters(filters -> filters.setStatus(HttpStatus.NOT_FOUND))
+                        .uri("no://op"))
+                .build();
+    }
+}
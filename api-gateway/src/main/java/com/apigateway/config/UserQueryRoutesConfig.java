@@ -0,0 +1,37 @@
+package com.apigateway.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.gateway.route.RouteLocator;
+import org.springframework.cloud.gateway.route.builder.RouteLocatorBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
+
+/**
+ * Маршрут чтения пользователей в user-query-service
+ *
+ * <p>Включается свойством {@code gateway.user-query.enabled=true}. GET /api/v1/users
+ * (постранично, параметры {@code after} и {@code size}) и GET /api/v1/users/{id} уходят
+ * в read-модель, остальные запросы, в том числе
+ * проверка email, - по маршрутам из конфигурации в user-service. Маршрут стоит раньше
+ * маршрутов из конфигурации (order -1).
+ */
+@Configuration
+@ConditionalOnProperty(name = "gateway.user-query.enabled", havingValue = "true")
+public class UserQueryRoutesConfig {
+
+    @Bean
+    public RouteLocator userQueryRoutes(RouteLocatorBuilder builder) {
+        return builder.routes()
+                .route("user-query-service", route -> route
+                        .order(-1)
+                        .method(HttpMethod.GET)
+                        .and()
+                        .path("/api/v1/users", "/api/v1/users/{id:[0-9]+}")
+                        .filters(filters -> filters.circuitBreaker(config -> config
+                                .setName("user-query-service")
+                                .setFallbackUri("forward:/fallback/users")))
+                        .uri("lb://user-query-service"))
+                .build();
+    }
+}
@@ -0,0 +1,18 @@
+package com.eventcontracts.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * Изменение одного поля пользователя в событии UPDATED
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+public class FieldChange {
+
+    private String field;
+    private String oldValue;
+    private String newValue;
+}
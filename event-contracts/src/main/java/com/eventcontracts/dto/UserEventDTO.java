@@ -0,0 +1,93 @@
+package com.eventcontracts.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * DTO события пользователя, передаваемого через Kafka.
+ *
+ * <p>Схема сообщения - {@code schemas/user-event}, сериализация -
+ * {@link com.eventcontracts.serialization.UserEventSerializer}.
+ *
+ * <p>{@code eventId} уникален для каждого события и служит ключом дедупликации
+ * у получателей; у сообщений, записанных схемой v1, он и {@code occurredAt} равны null.
+ *
+ * <p>Начиная со схемы v3 событие несёт состояние пользователя: {@code userId}, снимок
+ * {@code user} (для DELETED - на момент удаления) и для UPDATED - список изменённых полей
+ * {@code changes}. В сообщениях старых версий {@code userId} и {@code user} равны null,
+ * {@code changes} пуст. Ключ записи в Kafka - {@code userId}, чтобы события одного
+ * пользователя оставались в одной партиции и после смены email.
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Getter
+public class UserEventDTO {
+
+    private EventType eventType;
+    private String email;
+    private UUID eventId;
+    private Instant occurredAt;
+    private Long userId;
+    private UserSnapshot user;
+    @Builder.Default
+    private List<FieldChange> changes = List.of();
+
+    /**
+     * Новое событие с уникальным идентификатором и текущим временем
+     */
+    public static UserEventDTO of(EventType eventType, String email) {
+        return builder()
+                .eventType(eventType)
+                .email(email)
+                .eventId(UUID.randomUUID())
+                .occurredAt(Instant.now())
+                .build();
+    }
+
+    /**
+     * Новое событие с состоянием пользователя; email берётся из снимка
+     */
+    public static UserEventDTO of(EventType eventType, Long userId, UserSnapshot user, List<FieldChange> changes) {
+        return builder()
+                .eventType(eventType)
+                .email(user.getEmail())
+                .eventId(UUID.randomUUID())
+                .occurredAt(Instant.now())
+                .userId(userId)
+                .user(user)
+                .changes(List.copyOf(changes))
+                .build();
+    }
+
+    /**
+     * Тип события пользователя
+     * Определяет, какое действие произошло с пользователем
+     */
+    public enum EventType {
+
+        /**
+         * Событие создания пользователя.
+         * Генерируется при добавлении нового пользователя
+         */
+        CREATED,
+
+        /**
+         * Событие удаления пользователя.
+         * Генерируется при удалении пользователя
+         */
+        DELETED,
+
+        /**
+         * Событие изменения данных пользователя.
+         * Генерируется, если при обновлении изменилось хотя бы одно поле
+         */
+        UPDATED
+    }
+}
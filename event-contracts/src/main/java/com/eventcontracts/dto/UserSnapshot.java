@@ -0,0 +1,49 @@
+package com.eventcontracts.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Состояние пользователя, переносимое в событии.
+ *
+ * <p>Получателям не нужно обращаться в user-service за именем или возрастом:
+ * всё, что известно о пользователе на момент события, приходит в самом событии.
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Getter
+public class UserSnapshot {
+
+    private String name;
+    private String email;
+    private Integer age;
+    private Instant createdAt;
+
+    /**
+     * Поля, отличающиеся у двух снимков одного пользователя, в порядке name, email, age.
+     * Значения передаются строками; отсутствующее значение - null.
+     */
+    public static List<FieldChange> diff(UserSnapshot before, UserSnapshot after) {
+        List<FieldChange> changes = new ArrayList<>(3);
+        compare("name", before.name, after.name, changes);
+        compare("email", before.email, after.email, changes);
+        compare("age", before.age, after.age, changes);
+        return changes;
+    }
+
+    private static void compare(String field, Object before, Object after, List<FieldChange> changes) {
+        if (!Objects.equals(before, after)) {
+            changes.add(new FieldChange(field,
+                    before != null ? before.toString() : null,
+                    after != null ? after.toString() : null));
+        }
+    }
+}
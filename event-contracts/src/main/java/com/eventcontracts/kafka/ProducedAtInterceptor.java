@@ -0,0 +1,37 @@
+package com.eventcontracts.kafka;
+
+import org.apache.kafka.clients.producer.ProducerInterceptor;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+
+import java.util.Map;
+
+/**
+ * Producer-interceptor, проставляющий {@link UserEventHeaders#PRODUCED_AT} каждой записи
+ *
+ * <p>Подключается через {@code interceptor.classes}. Уже заданный заголовок не перезаписывается:
+ * пересылка записи (повторы, DLT) сохраняет исходный момент публикации.
+ */
+public class ProducedAtInterceptor implements ProducerInterceptor<Object, Object> {
+
+    @Override
+    public ProducerRecord<Object, Object> onSend(ProducerRecord<Object, Object> record) {
+        if (record.headers().lastHeader(UserEventHeaders.PRODUCED_AT) == null) {
+            record.headers().add(UserEventHeaders.PRODUCED_AT,
+                    UserEventHeaders.encodeTimestamp(System.currentTimeMillis()));
+        }
+        return record;
+    }
+
+    @Override
+    public void onAcknowledgement(RecordMetadata metadata, Exception exception) {
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public void configure(Map<String, ?> configs) {
+    }
+}
@@ -0,0 +1,36 @@
+package com.eventcontracts.kafka;
+
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Заголовки Kafka-записей с событиями пользователей
+ */
+public final class UserEventHeaders {
+
+    /**
+     * Момент передачи записи producer'у, миллисекунды эпохи (8 байт, big-endian).
+     * Не зависит от {@code message.timestamp.type} топика, в отличие от timestamp записи.
+     */
+    public static final String PRODUCED_AT = "x-produced-at";
+
+    private UserEventHeaders() {
+    }
+
+    public static byte[] encodeTimestamp(long epochMillis) {
+        return ByteBuffer.allocate(Long.BYTES).putLong(epochMillis).array();
+    }
+
+    /**
+     * @return значение {@link #PRODUCED_AT} или -1, если заголовка нет или он повреждён
+     */
+    public static long producedAt(Headers headers) {
+        Header header = headers.lastHeader(PRODUCED_AT);
+        if (header == null || header.value() == null || header.value().length != Long.BYTES) {
+            return -1;
+        }
+        return ByteBuffer.wrap(header.value()).getLong();
+    }
+}
@@ -0,0 +1,99 @@
+package com.eventcontracts.schema;
+
+import org.apache.avro.Schema;
+import org.apache.kafka.common.errors.SerializationException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Реестр Avro-схем, загружаемый из classpath.
+ *
+ * <p>Заменяет внешний schema registry: индекс {@code schemas/registry.properties}
+ * сопоставляет идентификатор схемы файлу {@code <subject>/v<версия>.avsc}.
+ * Оба сервиса собираются с одним и тем же модулем, поэтому писатель и читатель
+ * видят одинаковый набор схем; старые версии остаются в реестре, чтобы читать
+ * сообщения, записанные до обновления.
+ */
+public final class FileSchemaRegistry {
+
+    public static final String DEFAULT_INDEX = "schemas/registry.properties";
+
+    private static final Pattern SCHEMA_FILE = Pattern.compile("([a-z0-9-]+)/v(\\d+)\\.avsc");
+
+    private final Map<Integer, RegisteredSchema> byId = new HashMap<>();
+    private final Map<String, RegisteredSchema> latestBySubject = new HashMap<>();
+
+    private FileSchemaRegistry(String index, ClassLoader classLoader) {
+        Properties entries = new Properties();
+        try (InputStream in = classLoader.getResourceAsStream(index)) {
+            if (in == null) {
+                throw new IllegalStateException("Schema registry index not found on classpath: " + index);
+            }
+            entries.load(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read schema registry index " + index, e);
+        }
+
+        String baseDir = index.substring(0, index.lastIndexOf('/') + 1);
+        entries.forEach((key, value) -> register(Integer.parseInt(key.toString().trim()),
+                value.toString().trim(), baseDir, classLoader));
+    }
+
+    /**
+     * Реестр из индекса по умолчанию; загружается один раз на JVM.
+     */
+    public static FileSchemaRegistry classpath() {
+        return Holder.INSTANCE;
+    }
+
+    public RegisteredSchema byId(int id) {
+        RegisteredSchema schema = byId.get(id);
+        if (schema == null) {
+            throw new SerializationException("Unknown schema id: " + id);
+        }
+        return schema;
+    }
+
+    public RegisteredSchema latest(String subject) {
+        RegisteredSchema schema = latestBySubject.get(subject);
+        if (schema == null) {
+            throw new SerializationException("No schemas registered for subject: " + subject);
+        }
+        return schema;
+    }
+
+    private void register(int id, String file, String baseDir, ClassLoader classLoader) {
+        Matcher matcher = SCHEMA_FILE.matcher(file);
+        if (!matcher.matches()) {
+            throw new IllegalStateException("Schema file must be named <subject>/v<version>.avsc: " + file);
+        }
+        Schema schema;
+        try (InputStream in = classLoader.getResourceAsStream(baseDir + file)) {
+            if (in == null) {
+                throw new IllegalStateException("Schema file not found on classpath: " + baseDir + file);
+            }
+            schema = new Schema.Parser().parse(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read schema " + file, e);
+        }
+
+        RegisteredSchema registered = new RegisteredSchema(id, matcher.group(1), Integer.parseInt(matcher.group(2)), schema);
+        if (byId.putIfAbsent(id, registered) != null) {
+            throw new IllegalStateException("Duplicate schema id " + id + " in " + file);
+        }
+        latestBySubject.merge(registered.subject(), registered,
+                (current, candidate) -> candidate.version() > current.version() ? candidate : current);
+    }
+
+    private static final class Holder {
+        private static final FileSchemaRegistry INSTANCE =
+                new FileSchemaRegistry(DEFAULT_INDEX, FileSchemaRegistry.class.getClassLoader());
+    }
+}
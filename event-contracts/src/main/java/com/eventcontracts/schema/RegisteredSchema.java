@@ -0,0 +1,13 @@
+package com.eventcontracts.schema;
+
+import org.apache.avro.Schema;
+
+/**
+ * Схема из реестра вместе с её идентификатором и версией.
+ *
+ * @param id      глобальный идентификатор, записывается в заголовок сообщения
+ * @param subject тип события, например {@code user-event}
+ * @param version номер версии внутри subject
+ */
+public record RegisteredSchema(int id, String subject, int version, Schema schema) {
+}
@@ -0,0 +1,355 @@
+package com.eventcontracts.serialization;
+
+import com.eventcontracts.dto.FieldChange;
+import com.eventcontracts.dto.UserEventDTO;
+import com.eventcontracts.dto.UserSnapshot;
+import com.eventcontracts.schema.FileSchemaRegistry;
+import com.eventcontracts.schema.RegisteredSchema;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericFixed;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.kafka.common.errors.SerializationException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Бинарное кодирование {@link UserEventDTO}.
+ *
+ * <p>Формат сообщения: магический байт {@code 0}, идентификатор схемы (int32, big-endian)
+ * и тело в Avro binary. При чтении схема писателя берётся по идентификатору из
+ * {@link FileSchemaRegistry} и приводится к последней версии по правилам эволюции Avro.
+ *
+ * <p>По умолчанию сообщения пишутся последней версией схемы, поэтому новую схему сначала
+ * выкатывают на всех читателей и только потом на писателей. Чтобы выкатывать модуль
+ * одновременно, писателю закрепляют версию схемы, которую уже знают все читатели
+ * ({@link UserEventSerializer#WRITER_SCHEMA_ID_CONFIG}), и снимают закрепление после
+ * обновления читателей. Поля, которых нет в закреплённой схеме, при записи отбрасываются.
+ *
+ * <p>Сообщения текущей версии кодируются и читаются напрямую через
+ * {@link BinaryEncoder}/{@link BinaryDecoder} в порядке полей схемы, без промежуточного
+ * {@link GenericRecord}: это в разы дешевле generic-пути. Generic-путь с приведением схем
+ * используется только для сообщений старых версий. При изменении схемы порядок
+ * полей в {@link #encode} и {@link #decodeCurrent} нужно обновить вместе с ней.
+ * Закреплённая старая версия пишется generic-путём.
+ */
+public final class UserEventCodec {
+
+    public static final String SUBJECT = "user-event";
+
+    static final byte MAGIC_BYTE = 0;
+    static final int HEADER_SIZE = 1 + Integer.BYTES;
+
+    /** Индексы ветвей union ["null", T] */
+    private static final int NULL_BRANCH = 0;
+    private static final int VALUE_BRANCH = 1;
+    private static final int EVENT_ID_SIZE = 16;
+
+    private final FileSchemaRegistry registry;
+    private final RegisteredSchema current;
+    private final RegisteredSchema writer;
+    private final GenericDatumWriter<GenericRecord> resolvedWriter;
+    private final Schema eventTypeSchema;
+    private final int[] schemaOrdinals;
+    private final Map<Integer, GenericDatumReader<GenericRecord>> readers = new ConcurrentHashMap<>();
+
+    public UserEventCodec() {
+        this(FileSchemaRegistry.classpath());
+    }
+
+    public UserEventCodec(FileSchemaRegistry registry) {
+        this(registry, registry.latest(SUBJECT).id());
+    }
+
+    /**
+     * @param writerSchemaId id схемы, которой пишутся сообщения; по умолчанию - последняя версия
+     */
+    public UserEventCodec(FileSchemaRegistry registry, int writerSchemaId) {
+        this.registry = registry;
+        this.current = registry.latest(SUBJECT);
+        this.writer = registry.byId(writerSchemaId);
+        if (!SUBJECT.equals(writer.subject())) {
+            throw new IllegalArgumentException("Schema " + writerSchemaId + " belongs to subject "
+                    + writer.subject() + ", not " + SUBJECT);
+        }
+        this.resolvedWriter = writer.id() == current.id() ? null : new GenericDatumWriter<>(writer.schema());
+        this.eventTypeSchema = current.schema().getField("eventType").schema();
+        UserEventDTO.EventType[] types = UserEventDTO.EventType.values();
+        this.schemaOrdinals = new int[types.length];
+        for (UserEventDTO.EventType type : types) {
+            schemaOrdinals[type.ordinal()] = eventTypeSchema.getEnumOrdinal(type.name());
+        }
+    }
+
+    public byte[] encode(UserEventDTO event) {
+        if (event.getEmail() == null) {
+            throw new SerializationException("Failed to encode user event " + event.getEventId() + ": email is null");
+        }
+        if (resolvedWriter != null) {
+            return encodeResolved(event);
+        }
+        List<FieldChange> changes = event.getChanges() != null ? event.getChanges() : List.of();
+        int emailSize = event.getEmail().length() * 2;
+        ByteArrayOutputStream out = new ByteArrayOutputStream(HEADER_SIZE + 2 + emailSize + 2 + EVENT_ID_SIZE + 20
+                + (event.getUser() != null ? 32 + emailSize : 1) + 2 + changes.size() * 32);
+        out.write(MAGIC_BYTE);
+        writeInt(out, current.id());
+        try {
+            BinaryEncoder encoder = EncoderFactory.get().directBinaryEncoder(out, null);
+            encoder.writeEnum(schemaOrdinals[event.getEventType().ordinal()]);
+            encoder.writeString(event.getEmail());
+            UUID eventId = event.getEventId();
+            if (eventId == null) {
+                encoder.writeIndex(NULL_BRANCH);
+            } else {
+                encoder.writeIndex(VALUE_BRANCH);
+                encoder.writeFixed(toBytes(eventId));
+            }
+            writeTimestamp(encoder, event.getOccurredAt());
+            if (event.getUserId() == null) {
+                encoder.writeIndex(NULL_BRANCH);
+            } else {
+                encoder.writeIndex(VALUE_BRANCH);
+                encoder.writeLong(event.getUserId());
+            }
+            writeUser(encoder, event.getUser());
+            writeChanges(encoder, changes);
+            encoder.flush();
+        } catch (IOException | RuntimeException e) {
+            throw new SerializationException("Failed to encode user event", e);
+        }
+        return out.toByteArray();
+    }
+
+    private byte[] encodeResolved(UserEventDTO event) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64);
+        out.write(MAGIC_BYTE);
+        writeInt(out, writer.id());
+        try {
+            Schema schema = writer.schema();
+            GenericRecord record = new GenericData.Record(schema);
+            record.put("eventType", new GenericData.EnumSymbol(schema.getField("eventType").schema(),
+                    event.getEventType().name()));
+            record.put("email", event.getEmail());
+            if (schema.getField("eventId") != null && event.getEventId() != null) {
+                record.put("eventId", new GenericData.Fixed(valueSchema(schema.getField("eventId")),
+                        toBytes(event.getEventId())));
+            }
+            if (schema.getField("occurredAt") != null && event.getOccurredAt() != null) {
+                record.put("occurredAt", event.getOccurredAt().toEpochMilli());
+            }
+            if (schema.getField("userId") != null) {
+                record.put("userId", event.getUserId());
+            }
+            if (schema.getField("user") != null && event.getUser() != null) {
+                record.put("user", toRecord(valueSchema(schema.getField("user")), event.getUser()));
+            }
+            if (schema.getField("changes") != null) {
+                record.put("changes", toRecords(schema.getField("changes").schema().getElementType(),
+                        event.getChanges() != null ? event.getChanges() : List.of()));
+            }
+            BinaryEncoder encoder = EncoderFactory.get().directBinaryEncoder(out, null);
+            resolvedWriter.write(record, encoder);
+            encoder.flush();
+        } catch (IOException | RuntimeException e) {
+            throw new SerializationException("Failed to encode user event with schema id " + writer.id(), e);
+        }
+        return out.toByteArray();
+    }
+
+    public UserEventDTO decode(byte[] data) {
+        if (data.length < HEADER_SIZE || data[0] != MAGIC_BYTE) {
+            throw new SerializationException("Not a user event: unknown magic byte or truncated header");
+        }
+        int schemaId = ByteBuffer.wrap(data, 1, Integer.BYTES).getInt();
+        try {
+            BinaryDecoder decoder = DecoderFactory.get().binaryDecoder(data, HEADER_SIZE, data.length - HEADER_SIZE, null);
+            return schemaId == current.id() ? decodeCurrent(decoder) : decodeResolved(schemaId, decoder);
+        } catch (IOException | RuntimeException e) {
+            throw new SerializationException("Failed to decode user event with schema id " + schemaId, e);
+        }
+    }
+
+    private UserEventDTO decodeCurrent(BinaryDecoder decoder) throws IOException {
+        String eventType = eventTypeSchema.getEnumSymbols().get(decoder.readEnum());
+        String email = decoder.readString();
+        UUID eventId = null;
+        if (decoder.readIndex() == VALUE_BRANCH) {
+            byte[] bytes = new byte[EVENT_ID_SIZE];
+            decoder.readFixed(bytes);
+            eventId = toUuid(bytes);
+        }
+        Instant occurredAt = readTimestamp(decoder);
+        Long userId = decoder.readIndex() == VALUE_BRANCH ? decoder.readLong() : null;
+        UserSnapshot user = null;
+        if (decoder.readIndex() == VALUE_BRANCH) {
+            user = UserSnapshot.builder()
+                    .name(readNullableString(decoder))
+                    .email(decoder.readString())
+                    .age(decoder.readIndex() == VALUE_BRANCH ? decoder.readInt() : null)
+                    .createdAt(readTimestamp(decoder))
+                    .build();
+        }
+        List<FieldChange> changes = new ArrayList<>();
+        for (long n = decoder.readArrayStart(); n != 0; n = decoder.arrayNext()) {
+            for (long i = 0; i < n; i++) {
+                changes.add(new FieldChange(decoder.readString(), readNullableString(decoder), readNullableString(decoder)));
+            }
+        }
+        return UserEventDTO.builder()
+                .eventType(UserEventDTO.EventType.valueOf(eventType))
+                .email(email)
+                .eventId(eventId)
+                .occurredAt(occurredAt)
+                .userId(userId)
+                .user(user)
+                .changes(changes)
+                .build();
+    }
+
+    private UserEventDTO decodeResolved(int schemaId, BinaryDecoder decoder) throws IOException {
+        GenericDatumReader<GenericRecord> reader = readers.computeIfAbsent(schemaId,
+                id -> new GenericDatumReader<>(registry.byId(id).schema(), current.schema()));
+        GenericRecord record = reader.read(null, decoder);
+        GenericFixed eventId = (GenericFixed) record.get("eventId");
+        Long occurredAt = (Long) record.get("occurredAt");
+        GenericRecord user = (GenericRecord) record.get("user");
+        List<FieldChange> changes = new ArrayList<>();
+        for (Object item : (List<?>) record.get("changes")) {
+            GenericRecord change = (GenericRecord) item;
+            changes.add(new FieldChange(change.get("field").toString(),
+                    toStringOrNull(change.get("oldValue")), toStringOrNull(change.get("newValue"))));
+        }
+        return UserEventDTO.builder()
+                .eventType(UserEventDTO.EventType.valueOf(record.get("eventType").toString()))
+                .email(record.get("email").toString())
+                .eventId(eventId == null ? null : toUuid(eventId.bytes()))
+                .occurredAt(occurredAt == null ? null : Instant.ofEpochMilli(occurredAt))
+                .userId((Long) record.get("userId"))
+                .user(user == null ? null : UserSnapshot.builder()
+                        .name(toStringOrNull(user.get("name")))
+                        .email(user.get("email").toString())
+                        .age((Integer) user.get("age"))
+                        .createdAt(user.get("createdAt") == null ? null : Instant.ofEpochMilli((Long) user.get("createdAt")))
+                        .build())
+                .changes(changes)
+                .build();
+    }
+
+    private static Schema valueSchema(Schema.Field nullableField) {
+        return nullableField.schema().getTypes().get(VALUE_BRANCH);
+    }
+
+    private static GenericRecord toRecord(Schema schema, UserSnapshot user) {
+        GenericRecord record = new GenericData.Record(schema);
+        record.put("name", user.getName());
+        record.put("email", user.getEmail());
+        record.put("age", user.getAge());
+        record.put("createdAt", user.getCreatedAt() != null ? user.getCreatedAt().toEpochMilli() : null);
+        return record;
+    }
+
+    private static List<GenericRecord> toRecords(Schema schema, List<FieldChange> changes) {
+        List<GenericRecord> records = new ArrayList<>(changes.size());
+        for (FieldChange change : changes) {
+            GenericRecord record = new GenericData.Record(schema);
+            record.put("field", change.getField());
+            record.put("oldValue", change.getOldValue());
+            record.put("newValue", change.getNewValue());
+            records.add(record);
+        }
+        return records;
+    }
+
+    private static void writeUser(BinaryEncoder encoder, UserSnapshot user) throws IOException {
+        if (user == null) {
+            encoder.writeIndex(NULL_BRANCH);
+            return;
+        }
+        encoder.writeIndex(VALUE_BRANCH);
+        writeNullableString(encoder, user.getName());
+        encoder.writeString(user.getEmail());
+        if (user.getAge() == null) {
+            encoder.writeIndex(NULL_BRANCH);
+        } else {
+            encoder.writeIndex(VALUE_BRANCH);
+            encoder.writeInt(user.getAge());
+        }
+        writeTimestamp(encoder, user.getCreatedAt());
+    }
+
+    private static void writeChanges(BinaryEncoder encoder, List<FieldChange> changes) throws IOException {
+        encoder.writeArrayStart();
+        encoder.setItemCount(changes.size());
+        for (FieldChange change : changes) {
+            encoder.startItem();
+            encoder.writeString(change.getField());
+            writeNullableString(encoder, change.getOldValue());
+            writeNullableString(encoder, change.getNewValue());
+        }
+        encoder.writeArrayEnd();
+    }
+
+    private static void writeNullableString(BinaryEncoder encoder, String value) throws IOException {
+        if (value == null) {
+            encoder.writeIndex(NULL_BRANCH);
+        } else {
+            encoder.writeIndex(VALUE_BRANCH);
+            encoder.writeString(value);
+        }
+    }
+
+    private static void writeTimestamp(BinaryEncoder encoder, Instant value) throws IOException {
+        if (value == null) {
+            encoder.writeIndex(NULL_BRANCH);
+        } else {
+            encoder.writeIndex(VALUE_BRANCH);
+            encoder.writeLong(value.toEpochMilli());
+        }
+    }
+
+    private static String readNullableString(BinaryDecoder decoder) throws IOException {
+        return decoder.readIndex() == VALUE_BRANCH ? decoder.readString() : null;
+    }
+
+    private static Instant readTimestamp(BinaryDecoder decoder) throws IOException {
+        return decoder.readIndex() == VALUE_BRANCH ? Instant.ofEpochMilli(decoder.readLong()) : null;
+    }
+
+    private static String toStringOrNull(Object value) {
+        return value != null ? value.toString() : null;
+    }
+
+    private static byte[] toBytes(UUID uuid) {
+        return ByteBuffer.allocate(EVENT_ID_SIZE)
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits())
+                .array();
+    }
+
+    private static UUID toUuid(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, int value) {
+        out.write(value >>> 24);
+        out.write(value >>> 16);
+        out.write(value >>> 8);
+        out.write(value);
+    }
+}
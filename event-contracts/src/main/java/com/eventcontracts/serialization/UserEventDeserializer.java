@@ -0,0 +1,17 @@
+package com.eventcontracts.serialization;
+
+import com.eventcontracts.dto.UserEventDTO;
+import org.apache.kafka.common.serialization.Deserializer;
+
+/**
+ * Kafka-десериализатор {@link UserEventDTO}, см. {@link UserEventCodec}.
+ */
+public class UserEventDeserializer implements Deserializer<UserEventDTO> {
+
+    private final UserEventCodec codec = new UserEventCodec();
+
+    @Override
+    public UserEventDTO deserialize(String topic, byte[] data) {
+        return data == null ? null : codec.decode(data);
+    }
+}
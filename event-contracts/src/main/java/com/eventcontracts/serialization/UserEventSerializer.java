@@ -0,0 +1,33 @@
+package com.eventcontracts.serialization;
+
+import com.eventcontracts.dto.UserEventDTO;
+import com.eventcontracts.schema.FileSchemaRegistry;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.util.Map;
+
+/**
+ * Kafka-сериализатор {@link UserEventDTO}, см. {@link UserEventCodec}.
+ */
+public class UserEventSerializer implements Serializer<UserEventDTO> {
+
+    /**
+     * Свойство producer'а: id схемы, которой пишутся сообщения. Не задано - последняя версия.
+     */
+    public static final String WRITER_SCHEMA_ID_CONFIG = "user-event.writer.schema.id";
+
+    private UserEventCodec codec = new UserEventCodec();
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        Object writerSchemaId = configs.get(WRITER_SCHEMA_ID_CONFIG);
+        if (writerSchemaId != null && !writerSchemaId.toString().isBlank()) {
+            codec = new UserEventCodec(FileSchemaRegistry.classpath(), Integer.parseInt(writerSchemaId.toString().trim()));
+        }
+    }
+
+    @Override
+    public byte[] serialize(String topic, UserEventDTO data) {
+        return data == null ? null : codec.encode(data);
+    }
+}
@@ -0,0 +1,36 @@
+package com.eventcontracts.kafka;
+
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("ProducedAtInterceptor Tests")
+class ProducedAtInterceptorTest {
+
+    private final ProducedAtInterceptor interceptor = new ProducedAtInterceptor();
+
+    @Test
+    @DisplayName("onSend: запись получает текущее время публикации")
+    void onSend_StampsCurrentTime() {
+        long before = System.currentTimeMillis();
+
+        ProducerRecord<Object, Object> record = interceptor.onSend(new ProducerRecord<>("user-events", "key", "value"));
+
+        assertThat(UserEventHeaders.producedAt(record.headers()))
+                .isBetween(before, System.currentTimeMillis());
+    }
+
+    @Test
+    @DisplayName("onSend: уже проставленное время при пересылке сохраняется")
+    void onSend_KeepsExistingTimestamp() {
+        ProducerRecord<Object, Object> record = new ProducerRecord<>("user-events", "key", "value");
+        record.headers().add(UserEventHeaders.PRODUCED_AT, UserEventHeaders.encodeTimestamp(42L));
+
+        interceptor.onSend(record);
+
+        assertThat(record.headers().headers(UserEventHeaders.PRODUCED_AT)).hasSize(1);
+        assertThat(UserEventHeaders.producedAt(record.headers())).isEqualTo(42L);
+    }
+}
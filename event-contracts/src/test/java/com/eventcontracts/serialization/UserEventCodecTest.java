@@ -0,0 +1,177 @@
+package com.eventcontracts.serialization;
+
+import com.eventcontracts.dto.FieldChange;
+import com.eventcontracts.dto.UserEventDTO;
+import com.eventcontracts.dto.UserSnapshot;
+import com.eventcontracts.schema.FileSchemaRegistry;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.kafka.common.errors.SerializationException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+@DisplayName("UserEventCodec Unit Tests")
+class UserEventCodecTest {
+
+    private final UserEventSerializer serializer = new UserEventSerializer();
+    private final UserEventDeserializer deserializer = new UserEventDeserializer();
+
+    @Test
+    @DisplayName("serialize/deserialize: событие восстанавливается без потерь")
+    void roundTrip() {
+        UserEventDTO event = UserEventDTO.of(UserEventDTO.EventType.DELETED, "john@example.com");
+
+        UserEventDTO restored = deserializer.deserialize("user.events", serializer.serialize("user.events", event));
+
+        assertThat(restored.getEventType()).isEqualTo(UserEventDTO.EventType.DELETED);
+        assertThat(restored.getEmail()).isEqualTo("john@example.com");
+        assertThat(restored.getEventId()).isEqualTo(event.getEventId());
+        assertThat(restored.getOccurredAt()).isEqualTo(event.getOccurredAt().truncatedTo(ChronoUnit.MILLIS));
+    }
+
+    @Test
+    @DisplayName("serialize/deserialize: UPDATED переносит снимок пользователя и изменённые поля")
+    void roundTrip_UpdatedWithSnapshotAndChanges() {
+        UserSnapshot before = new UserSnapshot("John", "john@example.com", 30, Instant.parse("2025-01-01T10:00:00Z"));
+        UserSnapshot after = new UserSnapshot("John", "john.doe@example.com", null, before.getCreatedAt());
+        UserEventDTO event = UserEventDTO.of(UserEventDTO.EventType.UPDATED, 42L, after, UserSnapshot.diff(before, after));
+
+        UserEventDTO restored = deserializer.deserialize("user.events", serializer.serialize("user.events", event));
+
+        assertThat(restored.getEventType()).isEqualTo(UserEventDTO.EventType.UPDATED);
+        assertThat(restored.getEmail()).isEqualTo("john.doe@example.com");
+        assertThat(restored.getUserId()).isEqualTo(42L);
+        assertThat(restored.getUser()).usingRecursiveComparison().isEqualTo(after);
+        assertThat(restored.getChanges())
+                .extracting(FieldChange::getField, FieldChange::getOldValue, FieldChange::getNewValue)
+                .containsExactly(
+                        tuple("email", "john@example.com", "john.doe@example.com"),
+                        tuple("age", "30", null));
+    }
+
+    @Test
+    @DisplayName("deserialize: сообщение схемы v2 читается без состояния пользователя")
+    void deserialize_V2Message() throws IOException {
+        Schema v2 = FileSchemaRegistry.classpath().byId(2).schema();
+        GenericRecord record = new GenericData.Record(v2);
+        record.put("eventType", new GenericData.EnumSymbol(v2.getField("eventType").schema(), "DELETED"));
+        record.put("email", "v2@example.com");
+        record.put("occurredAt", 1_700_000_000_000L);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(new byte[]{UserEventCodec.MAGIC_BYTE, 0, 0, 0, 2});
+        BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+        new GenericDatumWriter<GenericRecord>(v2).write(record, encoder);
+        encoder.flush();
+
+        UserEventDTO restored = deserializer.deserialize("user.events", out.toByteArray());
+
+        assertThat(restored.getEventType()).isEqualTo(UserEventDTO.EventType.DELETED);
+        assertThat(restored.getOccurredAt()).isEqualTo(Instant.ofEpochMilli(1_700_000_000_000L));
+        assertThat(restored.getUserId()).isNull();
+        assertThat(restored.getUser()).isNull();
+        assertThat(restored.getChanges()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("deserialize: сообщение схемы v1 читается с пустыми eventId и occurredAt")
+    void deserialize_V1Message() throws IOException {
+        Schema v1 = FileSchemaRegistry.classpath().byId(1).schema();
+        GenericRecord record = new GenericData.Record(v1);
+        record.put("eventType", new GenericData.EnumSymbol(v1.getField("eventType").schema(), "CREATED"));
+        record.put("email", "legacy@example.com");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(new byte[]{UserEventCodec.MAGIC_BYTE, 0, 0, 0, 1});
+        BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+        new GenericDatumWriter<GenericRecord>(v1).write(record, encoder);
+        encoder.flush();
+
+        UserEventDTO restored = deserializer.deserialize("user.events", out.toByteArray());
+
+        assertThat(restored.getEventType()).isEqualTo(UserEventDTO.EventType.CREATED);
+        assertThat(restored.getEmail()).isEqualTo("legacy@example.com");
+        assertThat(restored.getEventId()).isNull();
+        assertThat(restored.getOccurredAt()).isNull();
+    }
+
+    @Test
+    @DisplayName("serialize: сообщение начинается с магического байта и id схемы")
+    void serialize_WritesHeader() {
+        byte[] data = serializer.serialize("user.events", UserEventDTO.of(UserEventDTO.EventType.CREATED, "a@b.c"));
+
+        assertThat(data[0]).isEqualTo(UserEventCodec.MAGIC_BYTE);
+        assertThat(ByteBuffer.wrap(data, 1, Integer.BYTES).getInt()).isEqualTo(3);
+        assertThat(data.length).isLessThan(40);
+    }
+
+    @Test
+    @DisplayName("serialize: закреплённая схема v2 пишется её id и читается без полей v3")
+    void serialize_PinnedWriterSchema() {
+        UserEventSerializer pinned = new UserEventSerializer();
+        pinned.configure(Map.of(UserEventSerializer.WRITER_SCHEMA_ID_CONFIG, "2"), false);
+        UserSnapshot user = new UserSnapshot("John", "john@example.com", 30, Instant.parse("2025-01-01T10:00:00Z"));
+        UserEventDTO event = UserEventDTO.of(UserEventDTO.EventType.CREATED, 42L, user, List.of());
+
+        byte[] data = pinned.serialize("user.events", event);
+        UserEventDTO restored = deserializer.deserialize("user.events", data);
+
+        assertThat(ByteBuffer.wrap(data, 1, Integer.BYTES).getInt()).isEqualTo(2);
+        assertThat(restored.getEventType()).isEqualTo(UserEventDTO.EventType.CREATED);
+        assertThat(restored.getEmail()).isEqualTo("john@example.com");
+        assertThat(restored.getEventId()).isEqualTo(event.getEventId());
+        assertThat(restored.getOccurredAt()).isEqualTo(event.getOccurredAt().truncatedTo(ChronoUnit.MILLIS));
+        assertThat(restored.getUserId()).isNull();
+        assertThat(restored.getUser()).isNull();
+        assertThatThrownBy(() -> pinned.serialize("user.events",
+                UserEventDTO.of(UserEventDTO.EventType.UPDATED, 42L, user, List.of())))
+                .isInstanceOf(SerializationException.class);
+    }
+
+    @Test
+    @DisplayName("serialize: событие без email отклоняется SerializationException")
+    void serialize_NullEmail_Rejected() {
+        UserEventDTO event = UserEventDTO.builder().eventType(UserEventDTO.EventType.CREATED).build();
+
+        assertThatThrownBy(() -> serializer.serialize("user.events", event))
+                .isInstanceOf(SerializationException.class)
+                .hasMessageContaining("email");
+    }
+
+    @Test
+    @DisplayName("null передаётся как null (tombstone)")
+    void nullPassesThrough() {
+        assertThat(serializer.serialize("user.events", null)).isNull();
+        assertThat(deserializer.deserialize("user.events", null)).isNull();
+    }
+
+    @Test
+    @DisplayName("deserialize: JSON и неизвестный id схемы отклоняются")
+    void deserialize_RejectsForeignPayloads() {
+        byte[] json = "{\"eventType\":\"CREATED\",\"email\":\"a@b.c\"}".getBytes();
+        byte[] unknownSchema = serializer.serialize("user.events", UserEventDTO.of(UserEventDTO.EventType.CREATED, "a@b.c"));
+        unknownSchema[4] = 99;
+
+        assertThatThrownBy(() -> deserializer.deserialize("user.events", json))
+                .isInstanceOf(SerializationException.class);
+        assertThatThrownBy(() -> deserializer.deserialize("user.events", unknownSchema))
+                .isInstanceOf(SerializationException.class)
+                .hasMessageContaining("99");
+    }
+}
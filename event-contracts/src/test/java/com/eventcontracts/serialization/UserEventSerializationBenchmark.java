@@ -0,0 +1,90 @@
+package com.eventcontracts.serialization;
+
+import com.eventcontracts.dto.UserEventDTO;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.Serializer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.util.Locale;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Размер сообщения и стоимость (де)сериализации: JsonSerializer против {@link UserEventCodec}.
+ *
+ * <p>Не входит в обычную сборку (шаблон surefire {@code *Test}). Запуск:
+ * <pre>
+ * mvn -pl event-contracts test -Dtest=UserEventSerializationBenchmark -Dbench.iterations=5000000
+ * </pre>
+ */
+@DisplayName("UserEvent Serialization Benchmark")
+class UserEventSerializationBenchmark {
+
+    private static final int ITERATIONS = Integer.getInteger("bench.iterations", 2_000_000);
+    private static final int EVENTS = 1024;
+
+    @Test
+    @DisplayName("JSON vs Avro binary")
+    void compareEncodings() {
+        UserEventDTO[] events = new UserEventDTO[EVENTS];
+        for (int i = 0; i < EVENTS; i++) {
+            events[i] = UserEventDTO.of(i % 2 == 0 ? UserEventDTO.EventType.CREATED : UserEventDTO.EventType.DELETED,
+                    "user" + i + "@example.com");
+        }
+
+        JsonSerializer<UserEventDTO> jsonSerializer = new JsonSerializer<>();
+        jsonSerializer.configure(Map.of(JsonSerializer.ADD_TYPE_INFO_HEADERS, false), false);
+        JsonDeserializer<UserEventDTO> jsonDeserializer = new JsonDeserializer<>(UserEventDTO.class, false);
+        jsonDeserializer.addTrustedPackages("*");
+
+        StringBuilder report = new StringBuilder("\n| encoding | avg bytes | serialize ns/op | deserialize ns/op |\n|---|---:|---:|---:|\n");
+        report.append(run("JSON (JsonSerializer)", jsonSerializer, jsonDeserializer, events));
+        report.append(run("Avro binary (UserEventCodec)", new UserEventSerializer(), new UserEventDeserializer(), events));
+        System.out.println(report);
+    }
+
+    private static String run(String name, Serializer<UserEventDTO> serializer,
+                              Deserializer<UserEventDTO> deserializer, UserEventDTO[] events) {
+        byte[][] encoded = new byte[EVENTS][];
+        long totalBytes = 0;
+        for (int i = 0; i < EVENTS; i++) {
+            encoded[i] = serializer.serialize("user.events", events[i]);
+            totalBytes += encoded[i].length;
+        }
+
+        // Прогрев JIT тем же циклом, что и замер
+        measureSerialize(serializer, events, ITERATIONS / 4);
+        long serializeNanos = measureSerialize(serializer, events, ITERATIONS);
+        measureDeserialize(deserializer, encoded, ITERATIONS / 4);
+        long deserializeNanos = measureDeserialize(deserializer, encoded, ITERATIONS);
+
+        return String.format(Locale.ROOT, "| %s | %.1f | %.1f | %.1f |%n", name, (double) totalBytes / EVENTS,
+                (double) serializeNanos / ITERATIONS, (double) deserializeNanos / ITERATIONS);
+    }
+
+    private static long measureSerialize(Serializer<UserEventDTO> serializer, UserEventDTO[] events, int iterations) {
+        long sink = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sink += serializer.serialize("user.events", events[i & (EVENTS - 1)]).length;
+        }
+        long elapsed = System.nanoTime() - start;
+        assertThat(sink).isPositive();
+        return elapsed;
+    }
+
+    private static long measureDeserialize(Deserializer<UserEventDTO> deserializer, byte[][] encoded, int iterations) {
+        long sink = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sink += deserializer.deserialize("user.events", encoded[i & (EVENTS - 1)]).getEmail().length();
+        }
+        long elapsed = System.nanoTime() - start;
+        assertThat(sink).isPositive();
+        return elapsed;
+    }
+}
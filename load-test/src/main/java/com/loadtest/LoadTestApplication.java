@@ -0,0 +1,57 @@
+package com.loadtest;
+
+import com.loadtest.config.LoadTestProperties;
+import com.loadtest.infrastructure.LocalInfrastructure;
+import com.loadtest.infrastructure.ServiceStack;
+import com.loadtest.report.LoadTestReport;
+import com.loadtest.traffic.OpenModelDriver;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+
+import java.nio.file.Path;
+
+/**
+ * Нагрузочный стенд: поднимает всю систему на одной машине и гоняет через api-gateway
+ * смесь запросов по открытой модели.
+ *
+ * <p>Запуск из корня репозитория:
+ * <pre>
+ * mvn -Pload-test -DskipTests package
+ * java -jar load-test/target/load-test-1.0.0.jar --load-test.project-dir=. --load-test.rate=300
+ * </pre>
+ */
+@SpringBootApplication
+@EnableConfigurationProperties(LoadTestProperties.class)
+@RequiredArgsConstructor
+@Slf4j
+public class LoadTestApplication implements CommandLineRunner {
+
+    private final LoadTestProperties properties;
+
+    public static void main(String[] args) {
+        SpringApplication.run(LoadTestApplication.class, args);
+    }
+
+    @Override
+    public void run(String... args) throws Exception {
+        try (LocalInfrastructure infrastructure = new LocalInfrastructure(properties.getPorts().getSmtp());
+             ServiceStack stack = new ServiceStack(properties, infrastructure)) {
+
+            infrastructure.start();
+            stack.start();
+
+            OpenModelDriver driver = new OpenModelDriver(properties, stack.gatewayBaseUrl());
+            driver.seed();
+            LoadTestReport report = driver.run();
+
+            log.info("\n{}", report.toMarkdown());
+            log.info("Emails accepted by SMTP stand-in: {}", infrastructure.receivedEmails());
+            Path json = report.writeTo(properties.getReportDir());
+            log.info("Report written to {}", json.toAbsolutePath());
+        }
+    }
+}
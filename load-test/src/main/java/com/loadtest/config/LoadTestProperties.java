@@ -0,0 +1,109 @@
+package com.loadtest.config;
+
+import com.loadtest.traffic.Operation;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Параметры нагрузочного прогона.
+ *
+ * <p>Все значения можно переопределить аргументами командной строки,
+ * например {@code --load-test.rate=500 --load-test.mix.CREATE=5}.
+ */
+@ConfigurationProperties(prefix = "load-test")
+@Getter
+@Setter
+public class LoadTestProperties {
+
+    /**
+     * Корень репозитория: из него берутся собранные jar-файлы сервисов.
+     */
+    private Path projectDir = Path.of("..");
+
+    /**
+     * Целевая интенсивность открытой модели, запросов в секунду.
+     */
+    private double rate = 200;
+
+    /**
+     * Прогрев: запросы отправляются, но в отчёт не попадают.
+     */
+    private Duration warmup = Duration.ofSeconds(30);
+
+    /**
+     * Длительность измеряемой фазы.
+     */
+    private Duration duration = Duration.ofMinutes(2);
+
+    /**
+     * Число пользователей, создаваемых до начала прогона.
+     */
+    private int seedUsers = 1_000;
+
+    /**
+     * Seed генератора случайных чисел - для воспроизводимости прогонов.
+     */
+    private long randomSeed = 42;
+
+    /**
+     * Таймаут одного HTTP-запроса.
+     */
+    private Duration requestTimeout = Duration.ofSeconds(10);
+
+    /**
+     * Сколько ждать готовности всех сервисов после запуска.
+     */
+    private Duration startupTimeout = Duration.ofMinutes(3);
+
+    /**
+     * Каталог для отчётов.
+     */
+    private Path reportDir = Path.of("target", "load-test-report");
+
+    /**
+     * Метка прогона (например, версия релиза) - попадает в имя отчёта.
+     */
+    private String label = "local";
+
+    /**
+     * Доля операций в смеси трафика (веса, не обязаны давать в сумме 100).
+     */
+    private Map<Operation, Integer> mix = defaultMix();
+
+    /**
+     * Опции JVM для каждого запускаемого сервиса.
+     */
+    private String serviceJvmOptions = "-Xms256m -Xmx512m";
+
+    /**
+     * Порты сервисов на локальной машине.
+     */
+    private Ports ports = new Ports();
+
+    @Getter
+    @Setter
+    public static class Ports {
+        private int discovery = 18761;
+        private int gateway = 18080;
+        private int userService = 18888;
+        private int notificationService = 18890;
+        private int smtp = 13025;
+    }
+
+    private static Map<Operation, Integer> defaultMix() {
+        Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+        mix.put(Operation.CREATE, 10);
+        mix.put(Operation.GET, 50);
+        mix.put(Operation.LIST, 5);
+        mix.put(Operation.UPDATE, 15);
+        mix.put(Operation.DELETE, 5);
+        mix.put(Operation.EXISTS, 15);
+        return mix;
+    }
+}
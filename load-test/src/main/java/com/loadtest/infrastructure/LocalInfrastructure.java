@@ -0,0 +1,74 @@
+package com.loadtest.infrastructure;
+
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.ServerSetup;
+import lombok.extern.slf4j.Slf4j;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.kafka.ConfluentKafkaContainer;
+import org.testcontainers.utility.DockerImageName;
+
+/**
+ * Локальные заглушки внешних зависимостей: PostgreSQL и Kafka в Testcontainers,
+ * SMTP - встроенный GreenMail. Образы те же, что в docker-compose.yml.
+ */
+@Slf4j
+public class LocalInfrastructure implements AutoCloseable {
+
+    private final PostgreSQLContainer<?> postgres =
+            new PostgreSQLContainer<>("postgres:15-alpine")
+                    .withDatabaseName("userdb")
+                    .withUsername("admin")
+                    .withPassword("admin123");
+
+    private final ConfluentKafkaContainer kafka =
+            new ConfluentKafkaContainer(DockerImageName.parse("confluentinc/cp-kafka:7.6.1"));
+
+    private final GreenMail smtp;
+
+    public LocalInfrastructure(int smtpPort) {
+        this.smtp = new GreenMail(new ServerSetup(smtpPort, "127.0.0.1", ServerSetup.PROTOCOL_SMTP));
+    }
+
+    public void start() {
+        log.info("Starting PostgreSQL, Kafka and GreenMail");
+        postgres.start();
+        kafka.start();
+        smtp.start();
+        log.info("Infrastructure is up: postgres={}, kafka={}, smtp=127.0.0.1:{}",
+                postgres.getJdbcUrl(), kafka.getBootstrapServers(), smtp.getSmtp().getPort());
+    }
+
+    public String jdbcUrl() {
+        return postgres.getJdbcUrl();
+    }
+
+    public String dbUsername() {
+        return postgres.getUsername();
+    }
+
+    public String dbPassword() {
+        return postgres.getPassword();
+    }
+
+    public String kafkaBootstrapServers() {
+        return kafka.getBootstrapServers();
+    }
+
+    public int smtpPort() {
+        return smtp.getSmtp().getPort();
+    }
+
+    /**
+     * Число писем, принятых SMTP-заглушкой, - показывает, дошли ли события до notification-service.
+     */
+    public int receivedEmails() {
+        return smtp.getReceivedMessages().length;
+    }
+
+    @Override
+    public void close() {
+        smtp.stop();
+        kafka.stop();
+        postgres.stop();
+    }
+}
@@ -0,0 +1,141 @@
+package com.loadtest.infrastructure;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сервис, запущенный отдельным процессом JVM из собранного jar.
+ *
+ * <p>Отдельные процессы, а не контексты в одной JVM, - чтобы сервисы не делили
+ * heap и пулы потоков с генератором нагрузки, как и в реальном развёртывании.
+ */
+@Slf4j
+public class ServiceProcess implements AutoCloseable {
+
+    private static final HttpClient PROBE_CLIENT = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(2))
+            .build();
+
+    @Getter
+    private final String name;
+    @Getter
+    private final int port;
+    private final Path jar;
+    private final String jvmOptions;
+    private final List<String> arguments;
+    private final Path logFile;
+    private Process process;
+
+    public ServiceProcess(String name, int port, Path jar, String jvmOptions, List<String> arguments, Path logDir) {
+        this.name = name;
+        this.port = port;
+        this.jar = jar;
+        this.jvmOptions = jvmOptions;
+        this.arguments = arguments;
+        this.logFile = logDir.resolve(name + ".log");
+    }
+
+    public void start() throws IOException {
+        if (!Files.isRegularFile(jar)) {
+            throw new IllegalStateException("Jar not found for " + name + ": " + jar.toAbsolutePath()
+                    + ". Build the services first: mvn -DskipTests package");
+        }
+        Files.createDirectories(logFile.getParent());
+
+        List<String> command = new ArrayList<>();
+        command.add(javaExecutable());
+        if (!jvmOptions.isBlank()) {
+            command.addAll(List.of(jvmOptions.trim().split("\\s+")));
+        }
+        command.add("-jar");
+        command.add(jar.toAbsolutePath().toString());
+        command.add("--server.port=" + port);
+        command.addAll(arguments);
+
+        log.info("Starting {} on port {} (log: {})", name, port, logFile.toAbsolutePath());
+        process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(logFile.toFile())
+                .start();
+    }
+
+    /**
+     * Ожидает, пока сервис начнёт принимать соединения и (если задан) ответит 2xx на probePath.
+     */
+    public void awaitReady(String probePath, Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException(name + " exited with code " + process.exitValue()
+                        + ", see " + logFile.toAbsolutePath());
+            }
+            if (probePath == null ? portOpen() : probeOk(probePath)) {
+                log.info("{} is ready", name);
+                return;
+            }
+            TimeUnit.MILLISECONDS.sleep(500);
+        }
+        throw new IllegalStateException(name + " did not become ready within " + timeout
+                + ", see " + logFile.toAbsolutePath());
+    }
+
+    private boolean portOpen() {
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress("127.0.0.1", port), 500);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private boolean probeOk(String path) {
+        try {
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + path))
+                    .timeout(Duration.ofSeconds(2))
+                    .GET()
+                    .build();
+            int status = PROBE_CLIENT.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+            return status >= 200 && status < 300;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static String javaExecutable() {
+        return ProcessHandle.current().info().command().orElse("java");
+    }
+
+    @Override
+    public void close() {
+        if (process == null || !process.isAlive()) {
+            return;
+        }
+        log.info("Stopping {}", name);
+        process.destroy();
+        try {
+            if (!process.waitFor(20, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            process.destroyForcibly();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.loadtest.infrastructure;
+
+import com.loadtest.config.LoadTestProperties;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Поднимает discovery-service, user-service, notification-service и api-gateway
+ * поверх {@link LocalInfrastructure}. Конфигурация передаётся аргументами командной строки,
+ * config-server не нужен.
+ */
+@Slf4j
+public class ServiceStack implements AutoCloseable {
+
+    private static final String USER_EVENTS_TOPIC = "user.events";
+    private static final String ARTIFACT_VERSION = "1.0.0";
+    private static final String PROBE_EMAIL = "/api/v1/users/exists?email=probe@load.test";
+
+    private final LoadTestProperties properties;
+    private final LocalInfrastructure infrastructure;
+    private final List<ServiceProcess> started = new ArrayList<>();
+
+    public ServiceStack(LoadTestProperties properties, LocalInfrastructure infrastructure) {
+        this.properties = properties;
+        this.infrastructure = infrastructure;
+    }
+
+    public void start() throws IOException, InterruptedException {
+        LoadTestProperties.Ports ports = properties.getPorts();
+        String eurekaUrl = "http://127.0.0.1:" + ports.getDiscovery() + "/eureka/";
+
+        ServiceProcess discovery = launch("discovery-service", ports.getDiscovery(), List.of(
+                "--eureka.server.enable-self-preservation=false"));
+        discovery.awaitReady("/eureka/apps", properties.getStartupTimeout());
+
+        ServiceProcess userService = launch("user-service", ports.getUserService(), withCommon(eurekaUrl, List.of(
+                "--spring.datasource.url=" + infrastructure.jdbcUrl(),
+                "--spring.datasource.username=" + infrastructure.dbUsername(),
+                "--spring.datasource.password=" + infrastructure.dbPassword(),
+                "--spring.jpa.hibernate.ddl-auto=update",
+                "--kafka.topic.user-events=" + USER_EVENTS_TOPIC,
+                "--kafka.topic.user-events.partitions=3",
+                "--kafka.topic.user-events.replication-factor=1")));
+
+        ServiceProcess notificationService = launch("notification-service", ports.getNotificationService(),
+                withCommon(eurekaUrl, List.of(
+                        "--kafka.topic.user-events=" + USER_EVENTS_TOPIC,
+                        "--spring.kafka.consumer.group-id=notification-service",
+                        "--spring.mail.host=127.0.0.1",
+                        "--spring.mail.port=" + infrastructure.smtpPort(),
+                        "--spring.mail.properties.mail.smtp.auth=false",
+                        "--spring.mail.properties.mail.smtp.starttls.enable=false",
+                        "--notification.from-email=noreply@load.test")));
+
+        ServiceProcess gateway = launch("api-gateway", ports.getGateway(), withCommon(eurekaUrl, List.of(
+                "--spring.cloud.gateway.server.webflux.routes[0].id=user-service",
+                "--spring.cloud.gateway.server.webflux.routes[0].uri=lb://user-service",
+                "--spring.cloud.gateway.server.webflux.routes[0].predicates[0]=Path=/api/v1/users/**",
+                "--spring.cloud.loadbalancer.cache.ttl=5s",
+                "--management.endpoints.web.exposure.include=health")));
+
+        userService.awaitReady(PROBE_EMAIL, properties.getStartupTimeout());
+        notificationService.awaitReady(null, properties.getStartupTimeout());
+        gateway.awaitReady("/actuator/health", properties.getStartupTimeout());
+        // Маршрут через lb:// появляется только после того, как gateway получит реестр из Eureka
+        gateway.awaitReady(PROBE_EMAIL, properties.getStartupTimeout());
+    }
+
+    public String gatewayBaseUrl() {
+        return "http://127.0.0.1:" + properties.getPorts().getGateway();
+    }
+
+    private List<String> withCommon(String eurekaUrl, List<String> arguments) {
+        List<String> all = new ArrayList<>(arguments);
+        all.add("--spring.cloud.config.enabled=false");
+        all.add("--spring.kafka.bootstrap-servers=" + infrastructure.kafkaBootstrapServers());
+        all.add("--eureka.client.service-url.defaultZone=" + eurekaUrl);
+        all.add("--eureka.client.registry-fetch-interval-seconds=5");
+        all.add("--eureka.instance.prefer-ip-address=true");
+        all.add("--eureka.instance.ip-address=127.0.0.1");
+        all.add("--eureka.instance.lease-renewal-interval-in-seconds=5");
+        return all;
+    }
+
+    private ServiceProcess launch(String module, int port, List<String> arguments) throws IOException {
+        Path jar = properties.getProjectDir()
+                .resolve(module)
+                .resolve("target")
+                .resolve(module + "-" + ARTIFACT_VERSION + ".jar");
+        ServiceProcess process = new ServiceProcess(module, port, jar, properties.getServiceJvmOptions(),
+                arguments, properties.getReportDir().resolve("logs"));
+        started.add(process);
+        process.start();
+        return process;
+    }
+
+    @Override
+    public void close() {
+        // Останавливаем в обратном порядке: сначала gateway, последним - discovery
+        for (int i = started.size() - 1; i >= 0; i--) {
+            started.get(i).close();
+        }
+    }
+}
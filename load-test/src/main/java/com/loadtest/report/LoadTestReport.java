@@ -0,0 +1,102 @@
+package com.loadtest.report;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Итоговый отчёт прогона: пропускная способность, перцентили задержек и доля ошибок по маршрутам.
+ * Пишется в консоль, в markdown (для сравнения глазами) и в JSON (для сравнения релизов скриптом).
+ */
+public record LoadTestReport(String label,
+                             Instant finishedAt,
+                             double targetRate,
+                             Duration measuredDuration,
+                             long droppedArrivals,
+                             List<RouteResult> routes) {
+
+    public record RouteResult(String route,
+                              long requests,
+                              long errors,
+                              double throughputPerSec,
+                              double errorRate,
+                              double p50Millis,
+                              double p90Millis,
+                              double p99Millis,
+                              double p999Millis,
+                              double maxMillis,
+                              Map<String, Long> errorsByReason) {
+    }
+
+    public static LoadTestReport of(String label, double targetRate, Duration measured,
+                                    long droppedArrivals, Collection<RouteStats> stats) {
+        double seconds = measured.toNanos() / 1e9;
+        List<RouteResult> routes = stats.stream()
+                .map(s -> {
+                    Histogram h = s.snapshot();
+                    long total = s.getSuccesses() + s.getErrors();
+                    return new RouteResult(
+                            s.getOperation().getRoute(),
+                            total,
+                            s.getErrors(),
+                            total / seconds,
+                            total == 0 ? 0 : (double) s.getErrors() / total,
+                            millis(h.getValueAtPercentile(50)),
+                            millis(h.getValueAtPercentile(90)),
+                            millis(h.getValueAtPercentile(99)),
+                            millis(h.getValueAtPercentile(99.9)),
+                            millis(h.getMaxValue()),
+                            s.getErrorsByReason());
+                })
+                .toList();
+        return new LoadTestReport(label, Instant.now(), targetRate, measured, droppedArrivals, routes);
+    }
+
+    public String toMarkdown() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("# Load test: ").append(label).append("\n\n");
+        sb.append(String.format(Locale.ROOT, "Target rate: %.1f req/s, measured for %ds, dropped arrivals: %d%n%n",
+                targetRate, measuredDuration.toSeconds(), droppedArrivals));
+        sb.append("| route | requests | req/s | errors | p50 ms | p90 ms | p99 ms | p99.9 ms | max ms |\n");
+        sb.append("|---|---:|---:|---:|---:|---:|---:|---:|---:|\n");
+        for (RouteResult r : routes) {
+            sb.append(String.format(Locale.ROOT, "| %s | %d | %.1f | %.2f%% | %.2f | %.2f | %.2f | %.2f | %.2f |%n",
+                    r.route(), r.requests(), r.throughputPerSec(), r.errorRate() * 100,
+                    r.p50Millis(), r.p90Millis(), r.p99Millis(), r.p999Millis(), r.maxMillis()));
+        }
+        routes.stream()
+                .filter(r -> !r.errorsByReason().isEmpty())
+                .forEach(r -> sb.append("\nErrors for ").append(r.route()).append(": ")
+                        .append(r.errorsByReason()).append('\n'));
+        return sb.toString();
+    }
+
+    public Path writeTo(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        String baseName = label + "-" + finishedAt.toEpochMilli();
+
+        Files.writeString(dir.resolve(baseName + ".md"), toMarkdown());
+
+        ObjectMapper mapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .enable(SerializationFeature.INDENT_OUTPUT);
+        Path json = dir.resolve(baseName + ".json");
+        mapper.writeValue(json.toFile(), this);
+        return json;
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
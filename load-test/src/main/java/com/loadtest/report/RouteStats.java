@@ -0,0 +1,80 @@
+package com.loadtest.report;
+
+import com.loadtest.traffic.Operation;
+import lombok.Getter;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Статистика одного маршрута: гистограмма задержек и счётчики ответов.
+ *
+ * <p>Задержка считается от запланированного момента отправки,
+ * поэтому очередь на стороне генератора не скрывает деградацию сервиса
+ * (coordinated omission).
+ */
+public class RouteStats {
+
+    private static final long MAX_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(2);
+
+    @Getter
+    private final Operation operation;
+    private final Recorder recorder = new Recorder(MAX_TRACKABLE_NANOS, 3);
+    private final Histogram accumulated = new Histogram(MAX_TRACKABLE_NANOS, 3);
+    private final LongAdder successes = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final Map<String, LongAdder> errorsByReason = new ConcurrentHashMap<>();
+
+    public RouteStats(Operation operation) {
+        this.operation = operation;
+    }
+
+    public void recordSuccess(long latencyNanos) {
+        recorder.recordValue(Math.min(latencyNanos, MAX_TRACKABLE_NANOS));
+        successes.increment();
+    }
+
+    /**
+     * @param reason HTTP-статус либо имя исключения клиента (таймаут, отказ соединения)
+     */
+    public void recordError(long latencyNanos, String reason) {
+        recorder.recordValue(Math.min(latencyNanos, MAX_TRACKABLE_NANOS));
+        errors.increment();
+        errorsByReason.computeIfAbsent(reason, r -> new LongAdder()).increment();
+    }
+
+    /**
+     * Сбрасывает накопленные данные - вызывается по окончании прогрева.
+     */
+    public synchronized void reset() {
+        recorder.reset();
+        accumulated.reset();
+        successes.reset();
+        errors.reset();
+        errorsByReason.clear();
+    }
+
+    public synchronized Histogram snapshot() {
+        accumulated.add(recorder.getIntervalHistogram());
+        return accumulated.copy();
+    }
+
+    public long getSuccesses() {
+        return successes.sum();
+    }
+
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    public Map<String, Long> getErrorsByReason() {
+        Map<String, Long> result = new TreeMap<>();
+        errorsByReason.forEach((reason, count) -> result.put(reason, count.sum()));
+        return result;
+    }
+}
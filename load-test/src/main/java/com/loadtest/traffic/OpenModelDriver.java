@@ -0,0 +1,216 @@
+package com.loadtest.traffic;
+
+import com.loadtest.config.LoadTestProperties;
+import com.loadtest.report.LoadTestReport;
+import com.loadtest.report.RouteStats;
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Генератор трафика по открытой модели.
+ *
+ * <p>Запросы приходят пуассоновским потоком с заданной интенсивностью независимо от того,
+ * успевает ли сервис отвечать. Если сервис тормозит, растёт число одновременных запросов,
+ * а не снижается нагрузка, как было бы в закрытой модели с фиксированным числом клиентов.
+ */
+@Slf4j
+public class OpenModelDriver {
+
+    private static final Pattern ID_PATTERN = Pattern.compile("\"id\"\\s*:\\s*(\\d+)");
+    private static final String USERS_PATH = "/api/v1/users";
+
+    /**
+     * Защита генератора от исчерпания памяти при полной остановке сервиса.
+     * Прибытия сверх лимита не отправляются, а учитываются в отчёте как dropped.
+     */
+    private static final int MAX_IN_FLIGHT = 10_000;
+
+    private final LoadTestProperties properties;
+    private final String baseUrl;
+    private final HttpClient client;
+    private final OperationMix mix;
+    private final UserIdPool userIds = new UserIdPool();
+    private final Map<Operation, RouteStats> stats = new EnumMap<>(Operation.class);
+    private final Semaphore inFlight = new Semaphore(MAX_IN_FLIGHT);
+    private final AtomicLong emailSequence = new AtomicLong();
+    private final AtomicLong droppedArrivals = new AtomicLong();
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+
+    public OpenModelDriver(LoadTestProperties properties, String baseUrl) {
+        this.properties = properties;
+        this.baseUrl = baseUrl;
+        this.mix = new OperationMix(properties.getMix());
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        for (Operation operation : Operation.values()) {
+            stats.put(operation, new RouteStats(operation));
+        }
+    }
+
+    /**
+     * Создаёт стартовый набор пользователей, чтобы GET/UPDATE/DELETE сразу били по существующим записям.
+     */
+    public void seed() {
+        SplittableRandom random = new SplittableRandom(properties.getRandomSeed());
+        log.info("Seeding {} users", properties.getSeedUsers());
+        CompletableFuture<?>[] pending = new CompletableFuture<?>[properties.getSeedUsers()];
+        for (int i = 0; i < pending.length; i++) {
+            pending[i] = execute(Operation.CREATE, random, System.nanoTime());
+        }
+        CompletableFuture.allOf(pending).join();
+        log.info("Seeded users available: {}", userIds.size());
+    }
+
+    public LoadTestReport run() {
+        SplittableRandom random = new SplittableRandom(properties.getRandomSeed() + 1);
+
+        log.info("Warmup for {} at {} req/s", properties.getWarmup(), properties.getRate());
+        drive(random, properties.getWarmup());
+        stats.values().forEach(RouteStats::reset);
+        droppedArrivals.set(0);
+
+        log.info("Measuring for {} at {} req/s", properties.getDuration(), properties.getRate());
+        long measuredStart = System.nanoTime();
+        drive(random, properties.getDuration());
+        awaitInFlight();
+        Duration measured = Duration.ofNanos(System.nanoTime() - measuredStart);
+
+        return LoadTestReport.of(properties.getLabel(), properties.getRate(), measured,
+                droppedArrivals.get(), stats.values());
+    }
+
+    private void drive(SplittableRandom random, Duration phase) {
+        double meanIntervalNanos = 1e9 / properties.getRate();
+        long start = System.nanoTime();
+        long end = start + phase.toNanos();
+        long intended = start;
+
+        while (intended < end) {
+            // Экспоненциальные интервалы между прибытиями - пуассоновский поток
+            intended += (long) (-Math.log(1 - random.nextDouble()) * meanIntervalNanos);
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            if (!inFlight.tryAcquire()) {
+                droppedArrivals.incrementAndGet();
+                continue;
+            }
+            execute(mix.next(random), random.split(), intended)
+                    .whenComplete((ignored, ex) -> inFlight.release());
+        }
+    }
+
+    private void awaitInFlight() {
+        inFlight.acquireUninterruptibly(MAX_IN_FLIGHT);
+        inFlight.release(MAX_IN_FLIGHT);
+    }
+
+    private CompletableFuture<Void> execute(Operation operation, SplittableRandom random, long intendedStart) {
+        HttpRequest request;
+        long targetId = -1;
+
+        switch (operation) {
+            case CREATE -> request = post(USERS_PATH, newUserJson(random));
+            case LIST -> request = get(USERS_PATH);
+            case EXISTS -> request = get(USERS_PATH + "/exists?email=" + randomEmail(random));
+            case GET, UPDATE, DELETE -> {
+                OptionalLong id = operation == Operation.DELETE ? userIds.take(random) : userIds.random(random);
+                if (id.isEmpty()) {
+                    // Пул пуст (всех удалили) - подменяем операцию созданием, чтобы не терять прибытие
+                    return execute(Operation.CREATE, random, intendedStart);
+                }
+                targetId = id.getAsLong();
+                request = switch (operation) {
+                    case GET -> get(USERS_PATH + "/" + targetId);
+                    case UPDATE -> put(USERS_PATH + "/" + targetId,
+                            "{\"name\":\"Updated " + random.nextInt(1_000_000) + "\"}");
+                    default -> delete(USERS_PATH + "/" + targetId);
+                };
+            }
+            default -> throw new IllegalStateException("Unexpected operation: " + operation);
+        }
+
+        RouteStats routeStats = stats.get(operation);
+        return client.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .handle((response, ex) -> {
+                    long latency = System.nanoTime() - intendedStart;
+                    if (ex != null) {
+                        Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                        routeStats.recordError(latency, cause.getClass().getSimpleName());
+                    } else if (response.statusCode() >= 200 && response.statusCode() < 300) {
+                        routeStats.recordSuccess(latency);
+                        if (operation == Operation.CREATE) {
+                            rememberCreatedId(response.body());
+                        }
+                    } else {
+                        routeStats.recordError(latency, "HTTP " + response.statusCode());
+                    }
+                    return null;
+                });
+    }
+
+    private void rememberCreatedId(String body) {
+        Matcher matcher = ID_PATTERN.matcher(body);
+        if (matcher.find()) {
+            userIds.add(Long.parseLong(matcher.group(1)));
+        }
+    }
+
+    private String newUserJson(SplittableRandom random) {
+        long n = emailSequence.incrementAndGet();
+        return "{\"name\":\"Load User " + n + "\",\"email\":\"lt-" + runId + "-" + n
+                + "@load.test\",\"age\":" + (18 + random.nextInt(60)) + "}";
+    }
+
+    private String randomEmail(SplittableRandom random) {
+        long upper = Math.max(1, emailSequence.get());
+        return "lt-" + runId + "-" + (1 + random.nextLong(upper)) + "@load.test";
+    }
+
+    private HttpRequest get(String path) {
+        return builder(path).GET().build();
+    }
+
+    private HttpRequest delete(String path) {
+        return builder(path).DELETE().build();
+    }
+
+    private HttpRequest post(String path, String json) {
+        return builder(path)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+
+    private HttpRequest put(String path, String json) {
+        return builder(path)
+                .header("Content-Type", "application/json")
+                .PUT(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+
+    private HttpRequest.Builder builder(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(properties.getRequestTimeout());
+    }
+}
@@ -0,0 +1,22 @@
+package com.loadtest.traffic;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Операции user-service API, из которых составляется смесь трафика.
+ * Имя маршрута используется как ключ в отчёте.
+ */
+@Getter
+@RequiredArgsConstructor
+public enum Operation {
+
+    CREATE("POST /api/v1/users"),
+    GET("GET /api/v1/users/{id}"),
+    LIST("GET /api/v1/users"),
+    UPDATE("PUT /api/v1/users/{id}"),
+    DELETE("DELETE /api/v1/users/{id}"),
+    EXISTS("GET /api/v1/users/exists");
+
+    private final String route;
+}
@@ -0,0 +1,42 @@
+package com.loadtest.traffic;
+
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Взвешенный выбор операции по заданной смеси трафика.
+ */
+public class OperationMix {
+
+    private final Operation[] operations;
+    private final int[] cumulativeWeights;
+    private final int totalWeight;
+
+    public OperationMix(Map<Operation, Integer> weights) {
+        this.operations = weights.entrySet().stream()
+                .filter(e -> e.getValue() != null && e.getValue() > 0)
+                .map(Map.Entry::getKey)
+                .toArray(Operation[]::new);
+        if (operations.length == 0) {
+            throw new IllegalArgumentException("Traffic mix must contain at least one operation with positive weight");
+        }
+
+        this.cumulativeWeights = new int[operations.length];
+        int sum = 0;
+        for (int i = 0; i < operations.length; i++) {
+            sum += weights.get(operations[i]);
+            cumulativeWeights[i] = sum;
+        }
+        this.totalWeight = sum;
+    }
+
+    public Operation next(SplittableRandom random) {
+        int point = random.nextInt(totalWeight);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (point < cumulativeWeights[i]) {
+                return operations[i];
+            }
+        }
+        return operations[operations.length - 1];
+    }
+}
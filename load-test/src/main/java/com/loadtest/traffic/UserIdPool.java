@@ -0,0 +1,70 @@
+package com.loadtest.traffic;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.SplittableRandom;
+
+/**
+ * Пул идентификаторов существующих пользователей.
+ *
+ * <p>Нужен операциям GET/UPDATE/DELETE, чтобы они били по реальным записям,
+ * а не получали 404. Удаление - swap-remove, выбор случайного id - O(1).
+ */
+public class UserIdPool {
+
+    private long[] ids = new long[1024];
+    private int size;
+    private final Map<Long, Integer> positions = new HashMap<>();
+
+    public synchronized void add(long id) {
+        if (positions.containsKey(id)) {
+            return;
+        }
+        if (size == ids.length) {
+            long[] grown = new long[ids.length * 2];
+            System.arraycopy(ids, 0, grown, 0, size);
+            ids = grown;
+        }
+        ids[size] = id;
+        positions.put(id, size);
+        size++;
+    }
+
+    public synchronized OptionalLong random(SplittableRandom random) {
+        if (size == 0) {
+            return OptionalLong.empty();
+        }
+        return OptionalLong.of(ids[random.nextInt(size)]);
+    }
+
+    /**
+     * Извлекает случайный id, чтобы две параллельные операции DELETE не удаляли одного пользователя.
+     */
+    public synchronized OptionalLong take(SplittableRandom random) {
+        if (size == 0) {
+            return OptionalLong.empty();
+        }
+        long id = ids[random.nextInt(size)];
+        remove(id);
+        return OptionalLong.of(id);
+    }
+
+    public synchronized void remove(long id) {
+        Integer position = positions.remove(id);
+        if (position == null) {
+            return;
+        }
+        int last = size - 1;
+        if (position != last) {
+            long moved = ids[last];
+            ids[position] = moved;
+            positions.put(moved, position);
+        }
+        size--;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+}
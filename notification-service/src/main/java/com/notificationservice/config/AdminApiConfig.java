@@ -0,0 +1,56 @@
+package com.notificationservice.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Доступ к административному API {@code /api/v1/admin/**} (переотправка из DLT)
+ *
+ * <p>Как в user-service: запрос должен нести заголовок {@value #TOKEN_HEADER} со значением
+ * {@code admin.api-token}, пока токен не задан, административный API закрыт целиком.
+ * Через api-gateway эти пути не маршрутизируются, вызывать их нужно напрямую из внутренней сети.
+ */
+@Configuration
+public class AdminApiConfig implements WebMvcConfigurer {
+
+    static final String TOKEN_HEADER = "X-Admin-Token";
+
+    private final byte[] token;
+
+    public AdminApiConfig(@Value("${admin.api-token:}") String token) {
+        this.token = token.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new TokenInterceptor()).addPathPatterns("/api/v1/admin/**");
+    }
+
+    private final class TokenInterceptor implements HandlerInterceptor {
+
+        @Override
+        public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+                throws IOException {
+            if (token.length == 0) {
+                response.sendError(HttpServletResponse.SC_FORBIDDEN, "Admin API is disabled: admin.api-token is not set");
+                return false;
+            }
+            String presented = request.getHeader(TOKEN_HEADER);
+            // Сравнение за постоянное время, чтобы токен нельзя было подобрать по задержке ответа
+            if (presented == null || !MessageDigest.isEqual(token, presented.getBytes(StandardCharsets.UTF_8))) {
+                response.sendError(HttpServletResponse.SC_FORBIDDEN, "Missing or invalid " + TOKEN_HEADER + " header");
+                return false;
+            }
+            return true;
+        }
+    }
+}
@@ -1,20 +1,45 @@
 package com.notificationservice.config;
 
-import com.notificationservice.dto.UserEventDTO;
+import com.eventcontracts.dto.UserEventDTO;
+import com.eventcontracts.serialization.UserEventDeserializer;
+import com.notificationservice.debounce.CreatedDeletedDebouncer;
+import com.notificationservice.digest.DigestAggregator;
+import com.notificationservice.kafka.BatchedOffsetCommitter;
+import com.notificationservice.kafka.MeteredRebalanceListener;
+import com.notificationservice.kafka.PartitionOffsetTracker;
+import com.notificationservice.kafka.PoisonPillQuarantine;
+import com.notificationservice.metrics.NotificationLatencyMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.CooperativeStickyAssignor;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.annotation.EnableKafka;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.ContainerCustomizer;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
-import org.springframework.kafka.support.serializer.JsonDeserializer;
-import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.MicrometerConsumerListener;
+import org.springframework.kafka.listener.CompositeBatchInterceptor;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.retrytopic.RetryTopicConfiguration;
+import org.springframework.kafka.retrytopic.RetryTopicConfigurationBuilder;
+import org.springframework.kafka.retrytopic.RetryTopicSchedulerWrapper;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.util.StringUtils;
+import org.springframework.util.backoff.FixedBackOff;
 
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Properties;
 
 /**
  * Конфигурация Kafka consumer
@@ -29,27 +54,289 @@ public class KafkaConsumerConfig {
     @Value("${spring.kafka.consumer.group-id}")
     private String groupId;
 
+    @Value("${notification.consumer.cooperative-rebalance:true}")
+    private boolean cooperativeRebalance;
+
+    @Value("${notification.consumer.group-instance-id:}")
+    private String groupInstanceId;
+
+    @Value("${notification.consumer.session-timeout:PT45S}")
+    private Duration sessionTimeout;
+
+    @Value("${notification.consumer.batch.max-records:500}")
+    private int batchMaxRecords;
+
+    @Value("${notification.consumer.parallel.commit-interval:PT1S}")
+    private Duration parallelCommitInterval;
+
+    @Value("${notification.consumer.parallel.revoke-timeout:PT5S}")
+    private Duration parallelRevokeTimeout;
+
+    @Value("${notification.consumer.commit.revoke-timeout:PT5S}")
+    private Duration commitRevokeTimeout;
+
+    @Value("${notification.retry.topic:${kafka.topic.user-events}.failed}")
+    private String retryTopic;
+
+    @Value("${notification.retry.max-attempts:4}")
+    private int retryMaxAttempts;
+
+    @Value("${notification.retry.initial-interval:PT1S}")
+    private Duration retryInitialInterval;
+
+    @Value("${notification.retry.multiplier:4.0}")
+    private double retryMultiplier;
+
+    @Value("${notification.retry.max-interval:PT1M}")
+    private Duration retryMaxInterval;
+
+    @Value("${notification.retry.partitions:3}")
+    private int retryPartitions;
+
+    @Value("${notification.retry.replication-factor:1}")
+    private short retryReplicationFactor;
+
+    /**
+     * Десериализаторы обёрнуты в ErrorHandlingDeserializer: нечитаемая запись не роняет poll()
+     * в цикл, а доходит до контейнера с заголовком исключения и уходит в {@link PoisonPillQuarantine}.
+     * Метрики клиента, в том числе отставание по партициям (kafka.consumer.fetch.manager.records.lag),
+     * публикуются в Micrometer.
+     *
+     * <p>При {@code notification.consumer.cooperative-rebalance=true} партиции распределяет
+     * {@link CooperativeStickyAssignor}: при ребалансировке отзываются только переезжающие партиции,
+     * остальные consumer'ы группы продолжают обработку. Переход с eager-протокола в работающей
+     * группе - два rolling restart'а, как описано в документации Kafka.
+     */
     @Bean
-    public ConsumerFactory<String, UserEventDTO> consumerFactory() {
+    public ConsumerFactory<String, UserEventDTO> consumerFactory(MeterRegistry meterRegistry) {
         Map<String, Object> config = new HashMap<>();
         config.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         config.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
-        config.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
-        config.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, JsonDeserializer.class);
-        config.put(JsonSerializer.ADD_TYPE_INFO_HEADERS, false);
-        config.put(JsonDeserializer.TRUSTED_PACKAGES, "*");
-        config.put(JsonDeserializer.VALUE_DEFAULT_TYPE, UserEventDTO.class);
+        config.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, ErrorHandlingDeserializer.class);
+        config.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ErrorHandlingDeserializer.class);
+        config.put(ErrorHandlingDeserializer.KEY_DESERIALIZER_CLASS, StringDeserializer.class);
+        config.put(ErrorHandlingDeserializer.VALUE_DESERIALIZER_CLASS, UserEventDeserializer.class);
         config.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        config.put(ConsumerConfig.SESSION_TIMEOUT_MS_CONFIG, (int) sessionTimeout.toMillis());
+        if (cooperativeRebalance) {
+            config.put(ConsumerConfig.PARTITION_ASSIGNMENT_STRATEGY_CONFIG, CooperativeStickyAssignor.class.getName());
+        }
+
+        DefaultKafkaConsumerFactory<String, UserEventDTO> factory = new DefaultKafkaConsumerFactory<>(config);
+        factory.addListener(new MicrometerConsumerListener<>(meterRegistry));
+        return factory;
+    }
 
-        return new DefaultKafkaConsumerFactory<>(config);
+    /**
+     * Ошибки десериализации не повторяются: запись сразу уходит в карантин и пропускается.
+     * Во всех фабриках {@link NotificationLatencyMetrics} замеряет задержку от публикации до получения,
+     * а контейнеры настраивает {@link #rebalanceCustomizer}.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, UserEventDTO> kafkaListenerContainerFactory(
+            ConsumerFactory<String, UserEventDTO> consumerFactory, PoisonPillQuarantine quarantine,
+            NotificationLatencyMetrics latencyMetrics, MeterRegistry meterRegistry) {
+        ConcurrentKafkaListenerContainerFactory<String, UserEventDTO> factory =
+                recordListenerFactory(consumerFactory, latencyMetrics);
+        factory.setCommonErrorHandler(new DefaultErrorHandler(quarantine, new FixedBackOff(0L, 0L)));
+        factory.setContainerCustomizer(rebalanceCustomizer(meterRegistry, null, Duration.ZERO, null));
+        return factory;
     }
 
+    /**
+     * Фабрика для {@link com.notificationservice.kafka.UserEventConsumer}. При включённом
+     * {@link BatchedOffsetCommitter} контейнер сам offset'ы не коммитит (AckMode.MANUAL без подтверждений):
+     * их коммитит listener пакетами, по событию простоя раз в interval и при отзыве партиций.
+     * Запись из карантина тоже не подтверждается обработчиком ошибок, иначе её offset
+     * закоммитил бы и ещё не отправленные записи перед ней: она отмечается завершённой
+     * в {@link BatchedOffsetCommitter}, как и обработанные listener'ом.
+     *
+     * <p>Окна debounce и сводок ({@code notification.digest.window}, по умолчанию минута) длиннее
+     * {@code notification.consumer.commit.revoke-timeout}: отложенные письма при отзыве партиций
+     * отправляются сразу, и revoke-timeout должен покрывать только их отправку через SMTP.
+     * Записи, не завершённые за это время, новый владелец партиции получит повторно.
+     */
     @Bean
-    public ConcurrentKafkaListenerContainerFactory<String, UserEventDTO> kafkaListenerContainerFactory() {
+    public ConcurrentKafkaListenerContainerFactory<String, UserEventDTO> userEventsKafkaListenerContainerFactory(
+            ConsumerFactory<String, UserEventDTO> consumerFactory, PoisonPillQuarantine quarantine,
+            NotificationLatencyMetrics latencyMetrics, MeterRegistry meterRegistry, BatchedOffsetCommitter offsetCommitter,
+            CreatedDeletedDebouncer debouncer, DigestAggregator digestAggregator) {
+        ConcurrentKafkaListenerContainerFactory<String, UserEventDTO> factory =
+                recordListenerFactory(consumerFactory, latencyMetrics);
+        DefaultErrorHandler errorHandler = new DefaultErrorHandler((record, e) -> {
+            quarantine.accept(record, e);
+            // Нечитаемая запись не доходит до listener'а: без этого offset в конце партиции не продвинется
+            offsetCommitter.register(record);
+            offsetCommitter.complete(record);
+        }, new FixedBackOff(0L, 0L));
+        factory.setCommonErrorHandler(errorHandler);
+        if (!offsetCommitter.isEnabled()) {
+            factory.setContainerCustomizer(rebalanceCustomizer(meterRegistry, null, Duration.ZERO, null));
+            return factory;
+        }
+
+        errorHandler.setAckAfterHandle(false);
+        ContainerProperties containerProperties = factory.getContainerProperties();
+        containerProperties.setAckMode(ContainerProperties.AckMode.MANUAL);
+        containerProperties.setIdleEventInterval(offsetCommitter.interval().toMillis());
+        factory.setContainerCustomizer(rebalanceCustomizer(meterRegistry, offsetCommitter.offsetTracker(),
+                commitRevokeTimeout, releaseHeld(debouncer, digestAggregator)));
+        return factory;
+    }
+
+    /**
+     * Фабрика для пакетного режима ({@code notification.consumer.mode=batch}).
+     * Listener получает все записи одного poll(). При включённом {@link BatchedOffsetCommitter}
+     * offset'ы коммитит listener, как в {@link #userEventsKafkaListenerContainerFactory}, иначе
+     * пакет подтверждается одним коммитом.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, UserEventDTO> batchKafkaListenerContainerFactory(
+            ConsumerFactory<String, UserEventDTO> consumerFactory, PoisonPillQuarantine quarantine,
+            NotificationLatencyMetrics latencyMetrics, MeterRegistry meterRegistry, BatchedOffsetCommitter offsetCommitter,
+            CreatedDeletedDebouncer debouncer, DigestAggregator digestAggregator) {
         ConcurrentKafkaListenerContainerFactory<String, UserEventDTO> factory =
                 new ConcurrentKafkaListenerContainerFactory<>();
-        factory.setConsumerFactory(consumerFactory());
+        factory.setConsumerFactory(consumerFactory);
+        factory.setBatchListener(true);
+        factory.setBatchInterceptor(new CompositeBatchInterceptor<>(quarantine, latencyMetrics));
+        ContainerProperties containerProperties = factory.getContainerProperties();
+        containerProperties.setAckMode(ContainerProperties.AckMode.MANUAL);
+        if (offsetCommitter.isEnabled()) {
+            containerProperties.setIdleEventInterval(offsetCommitter.interval().toMillis());
+            factory.setContainerCustomizer(rebalanceCustomizer(meterRegistry, offsetCommitter.offsetTracker(),
+                    commitRevokeTimeout, releaseHeld(debouncer, digestAggregator)));
+        } else {
+            factory.setContainerCustomizer(rebalanceCustomizer(meterRegistry, null, Duration.ZERO, null));
+        }
+
+        Properties overrides = new Properties();
+        overrides.setProperty(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, String.valueOf(batchMaxRecords));
+        containerProperties.setKafkaConsumerProperties(overrides);
+        return factory;
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "notification.consumer.mode", havingValue = "parallel")
+    public PartitionOffsetTracker partitionOffsetTracker() {
+        return new PartitionOffsetTracker();
+    }
+
+    /**
+     * Фабрика для параллельного режима ({@code notification.consumer.mode=parallel}).
+     * Offset'ы коммитит сам listener через {@link PartitionOffsetTracker}: на каждом poll()
+     * и по событию простоя раз в commit-interval. При отзыве партиций отправляем письма,
+     * отложенные debounce и сводками, ждём завершения записей не дольше revoke-timeout
+     * и коммитим синхронно.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "notification.consumer.mode", havingValue = "parallel")
+    public ConcurrentKafkaListenerContainerFactory<String, UserEventDTO> parallelKafkaListenerContainerFactory(
+            ConsumerFactory<String, UserEventDTO> consumerFactory, PartitionOffsetTracker offsetTracker,
+            PoisonPillQuarantine quarantine, NotificationLatencyMetrics latencyMetrics, MeterRegistry meterRegistry,
+            CreatedDeletedDebouncer debouncer, DigestAggregator digestAggregator) {
+        ConcurrentKafkaListenerContainerFactory<String, UserEventDTO> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory);
+        factory.setBatchListener(true);
+        factory.setBatchInterceptor(new CompositeBatchInterceptor<>(quarantine, latencyMetrics));
+
+        ContainerProperties containerProperties = factory.getContainerProperties();
+        containerProperties.setAckMode(ContainerProperties.AckMode.MANUAL);
+        containerProperties.setIdleEventInterval(parallelCommitInterval.toMillis());
+        factory.setContainerCustomizer(rebalanceCustomizer(meterRegistry, offsetTracker, parallelRevokeTimeout,
+                releaseHeld(debouncer, digestAggregator)));
+        return factory;
+    }
+
+    /**
+     * Фабрика для {@link com.notificationservice.kafka.UserStateConsumer}. Offset'ы не коммитятся
+     * (AckMode.MANUAL без подтверждений): позиции чтения хранит снимок
+     * {@link com.notificationservice.userstate.UserStateStore}. Нечитаемая запись логируется
+     * и пропускается, в карантин не попадает: топик состояния - не источник писем.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, UserEventDTO> userStateKafkaListenerContainerFactory(
+            ConsumerFactory<String, UserEventDTO> consumerFactory) {
+        ConcurrentKafkaListenerContainerFactory<String, UserEventDTO> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory);
+        factory.setCommonErrorHandler(new DefaultErrorHandler(new FixedBackOff(0L, 0L)));
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        return factory;
+    }
+
+    private ConcurrentKafkaListenerContainerFactory<String, UserEventDTO> recordListenerFactory(
+            ConsumerFactory<String, UserEventDTO> consumerFactory, NotificationLatencyMetrics latencyMetrics) {
+        ConcurrentKafkaListenerContainerFactory<String, UserEventDTO> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory);
+        factory.setRecordInterceptor(latencyMetrics);
         return factory;
     }
-}
 
+    /**
+     * Настройка контейнеров под ребалансировки: {@link MeteredRebalanceListener} и статическое
+     * членство в группе, если задан {@code notification.consumer.group-instance-id}.
+     *
+     * <p>Статический участник при перезапуске не покидает группу: пока он возвращается быстрее
+     * session-timeout, его партиции не переназначаются и остальные экземпляры не ребалансируются.
+     * group.instance.id должен быть уникален для каждого consumer'а, поэтому задаётся на контейнер
+     * ({@code <group-instance-id>-<id listener'а>}, дочерним контейнерам Spring добавляет {@code -n}),
+     * а не в фабрике: иначе его получили бы и разовые consumer'ы {@link com.notificationservice.service.DltReplayService}.
+     */
+    private ContainerCustomizer<String, UserEventDTO, ConcurrentMessageListenerContainer<String, UserEventDTO>> rebalanceCustomizer(
+            MeterRegistry meterRegistry, PartitionOffsetTracker offsetTracker, Duration revokeTimeout, Runnable releaseHeld) {
+        return container -> {
+            String listenerId = container.getListenerId();
+            ContainerProperties properties = container.getContainerProperties();
+            properties.setConsumerRebalanceListener(offsetTracker != null
+                    ? new MeteredRebalanceListener(meterRegistry, listenerId, offsetTracker, revokeTimeout, releaseHeld)
+                    : new MeteredRebalanceListener(meterRegistry, listenerId));
+
+            if (StringUtils.hasText(groupInstanceId)) {
+                // Свойства скопированы из фабрики по ссылке и общие для всех её контейнеров
+                Properties overrides = new Properties();
+                overrides.putAll(properties.getKafkaConsumerProperties());
+                overrides.setProperty(ConsumerConfig.GROUP_INSTANCE_ID_CONFIG, groupInstanceId + "-" + listenerId);
+                properties.setKafkaConsumerProperties(overrides);
+            }
+        };
+    }
+
+    private static Runnable releaseHeld(CreatedDeletedDebouncer debouncer, DigestAggregator digestAggregator) {
+        return () -> {
+            debouncer.flush();
+            digestAggregator.flush();
+        };
+    }
+
+    /**
+     * Неблокирующие повторы неудачных уведомлений.
+     *
+     * <p>Основной топик повторы не задерживают: любой режим consumer'а публикует неудачное
+     * событие в {@code notification.retry.topic}. Его listener при ошибке пересылает запись
+     * по уровням {@code <topic>-retry-0..N} с экспоненциально растущей задержкой
+     * (каждому уровню свой топик), после max-attempts попыток - в {@code <topic>-dlt}.
+     */
+    @Bean
+    public RetryTopicConfiguration notificationRetryTopicConfiguration(KafkaTemplate<String, UserEventDTO> kafkaTemplate) {
+        return RetryTopicConfigurationBuilder.newInstance()
+                .includeTopic(retryTopic)
+                .maxAttempts(retryMaxAttempts)
+                .exponentialBackoff(retryInitialInterval.toMillis(), retryMultiplier, retryMaxInterval.toMillis())
+                .suffixTopicsWithIndexValues()
+                .autoCreateTopicsWith(retryPartitions, retryReplicationFactor)
+                .create(kafkaTemplate);
+    }
+
+    /**
+     * Планировщик, которым retry-топики возобновляют контейнеры после задержки.
+     */
+    @Bean
+    public RetryTopicSchedulerWrapper retryTopicSchedulerWrapper() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setThreadNamePrefix("retry-topic-");
+        return new RetryTopicSchedulerWrapper(scheduler);
+    }
+}
@@ -0,0 +1,70 @@
+package com.notificationservice.config;
+
+import com.notificationservice.mail.PooledJavaMailSender;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.mail.MailProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
+
+import java.time.Duration;
+import java.util.Properties;
+
+/**
+ * Конфигурация отправки почты
+ * Заменяет JavaMailSender из автоконфигурации Spring Boot на {@link PooledJavaMailSender}
+ * с теми же свойствами {@code spring.mail.*}
+ */
+@Configuration
+@EnableConfigurationProperties(MailProperties.class)
+public class MailConfig {
+
+    @Value("${notification.mail.pool.max-size:8}")
+    private int poolMaxSize;
+
+    @Value("${notification.mail.pool.max-messages-per-connection:100}")
+    private int maxMessagesPerConnection;
+
+    @Value("${notification.mail.pool.idle-timeout:PT30S}")
+    private Duration idleTimeout;
+
+    @Value("${notification.mail.pool.validate-after-idle:PT2S}")
+    private Duration validateAfterIdle;
+
+    @Value("${notification.mail.pool.borrow-timeout:PT10S}")
+    private Duration borrowTimeout;
+
+    @Bean
+    public PooledJavaMailSender mailSender(MailProperties properties, MeterRegistry meterRegistry) {
+        PooledJavaMailSender sender = new PooledJavaMailSender(
+                poolMaxSize, maxMessagesPerConnection, idleTimeout, validateAfterIdle, borrowTimeout);
+        sender.setSendTimer(Timer.builder("notification.smtp.send")
+                .description("Time to transmit one email over SMTP")
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+        sender.setHost(properties.getHost());
+        if (properties.getPort() != null) {
+            sender.setPort(properties.getPort());
+        }
+        sender.setUsername(properties.getUsername());
+        sender.setPassword(properties.getPassword());
+        sender.setProtocol(properties.getProtocol());
+        if (properties.getDefaultEncoding() != null) {
+            sender.setDefaultEncoding(properties.getDefaultEncoding().name());
+        }
+
+        Properties javaMailProperties = new Properties();
+        javaMailProperties.putAll(properties.getProperties());
+        String protocol = StringUtils.hasLength(properties.getProtocol()) ? properties.getProtocol() : "smtp";
+        if (properties.getSsl().isEnabled()) {
+            javaMailProperties.setProperty("mail." + protocol + ".ssl.enable", "true");
+        }
+        if (!javaMailProperties.isEmpty()) {
+            sender.setJavaMailProperties(javaMailProperties);
+        }
+        return sender;
+    }
+}
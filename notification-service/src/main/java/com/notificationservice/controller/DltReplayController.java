@@ -0,0 +1,42 @@
+package com.notificationservice.controller;
+
+import com.notificationservice.dto.DltReplayResultDTO;
+import com.notificationservice.service.DltReplayService;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Административный API для повторной отправки уведомлений из DLT
+ * Доступен только с токеном, см. {@link com.notificationservice.config.AdminApiConfig}
+ */
+@RestController
+@RequestMapping("/api/v1/admin/notifications/dlt")
+@RequiredArgsConstructor
+@Validated
+@Slf4j
+public class DltReplayController {
+
+    private final DltReplayService dltReplayService;
+
+    /**
+     * Переотправить записи из DLT
+     *
+     * @param limit  максимальное число записей за вызов
+     * @param target RETRY - в топик повторов, MAIN - в основной топик
+     */
+    @PostMapping("/replay")
+    public ResponseEntity<DltReplayResultDTO> replay(
+            @RequestParam(defaultValue = "100") @Min(1) @Max(10000) int limit,
+            @RequestParam(defaultValue = "RETRY") DltReplayService.ReplayTarget target) {
+        log.debug("REST request to replay DLT: limit={}, target={}", limit, target);
+        return ResponseEntity.ok(dltReplayService.replay(limit, target));
+    }
+}
@@ -0,0 +1,301 @@
+package com.notificationservice.debounce;
+
+import com.eventcontracts.dto.UserEventDTO;
+import com.notificationservice.dedup.ProcessedEventStore;
+import com.notificationservice.kafka.FailedNotificationPublisher;
+import com.notificationservice.metrics.NotificationLatencyMetrics;
+import com.notificationservice.service.EmailSender;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Окно подавления пар CREATED/DELETED для одного email
+ *
+ * <p>Письмо о создании аккаунта задерживается на {@code notification.debounce.window}.
+ * Если за это время приходит DELETED для того же email, оба письма не отправляются:
+ * тестовые и QA-аккаунты, созданные и удалённые за секунды, больше не дают двух писем.
+ * Иначе отложенное событие отправляется по истечении окна.
+ *
+ * <p>Отложенные события хранятся в {@link TimerWheel} (постановка и отмена за O(1))
+ * и в таблице по email. Число отложенных ограничено {@code max-pending}: сверх лимита
+ * CREATED отправляется сразу, без окна. Окно {@code PT0S} выключает задержку.
+ *
+ * <p>Отложенные события живут только в памяти и при остановке сервиса или отзыве партиций
+ * ({@link #flush}) отправляются сразу.
+ * Вызывающий передаёт future, который завершается после отправки письма отложенного события
+ * (или передачи его в топик повторов, или подавления парой): с ручным коммитом
+ * ({@link com.notificationservice.kafka.BatchedOffsetCommitter}) offset такого события
+ * коммитится только после этого, и при аварийном завершении оно придёт повторно.
+ * Без ручного коммита событие уже подтверждено в Kafka, и теряются письма не более чем за одно окно.
+ */
+@Component
+@Slf4j
+public class CreatedDeletedDebouncer {
+
+    /**
+     * Что сделал debouncer с событием
+     */
+    public enum Decision {
+        /** Событие не задерживается: обработать как обычно */
+        PASS,
+        /** CREATED отложен, отправит сам debouncer */
+        HELD,
+        /** DELETED отменил отложенный CREATED: оба письма подавлены */
+        CANCELLED
+    }
+
+    private final EmailSender emailSender;
+    private final FailedNotificationPublisher failedNotificationPublisher;
+    private final ProcessedEventStore processedEventStore;
+    private final NotificationLatencyMetrics latencyMetrics;
+    private final long windowNanos;
+    private final Duration tick;
+    private final int maxPending;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final TimerWheel<Held> wheel;
+    private final Map<String, TimerWheel.Timeout<Held>> pending = new HashMap<>();
+    private final Thread ticker;
+    private volatile boolean running;
+
+    private final Counter cancelled;
+    private final Counter overflow;
+
+    public CreatedDeletedDebouncer(EmailSender emailSender,
+                                   FailedNotificationPublisher failedNotificationPublisher,
+                                   ProcessedEventStore processedEventStore,
+                                   NotificationLatencyMetrics latencyMetrics,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${notification.debounce.window:PT5S}") Duration window,
+                                   @Value("${notification.debounce.tick:PT0.1S}") Duration tick,
+                                   @Value("${notification.debounce.max-pending:200000}") int maxPending) {
+        this.emailSender = emailSender;
+        this.failedNotificationPublisher = failedNotificationPublisher;
+        this.processedEventStore = processedEventStore;
+        this.latencyMetrics = latencyMetrics;
+        this.windowNanos = window.toNanos();
+        this.tick = tick;
+        this.maxPending = maxPending;
+        // Колесо на один оборот за окно: таймеру не нужны лишние обороты
+        int wheelSize = (int) Math.min(1 << 16, Math.max(16, window.toNanos() / tick.toNanos() + 1));
+        this.wheel = new TimerWheel<>(tick, wheelSize, System.nanoTime());
+        this.ticker = Thread.ofPlatform().name("notification-debounce").daemon().unstarted(this::runTicker);
+
+        this.cancelled = Counter.builder("notification.debounce.cancelled")
+                .description("CREATED/DELETED pairs suppressed within the window")
+                .register(meterRegistry);
+        this.overflow = Counter.builder("notification.debounce.overflow")
+                .description("CREATED events sent without delay because max-pending was reached")
+                .register(meterRegistry);
+        Gauge.builder("notification.debounce.pending", this, CreatedDeletedDebouncer::pending).register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (windowNanos > 0) {
+            running = true;
+            ticker.start();
+            log.info("CREATED/DELETED debounce enabled: window={}ms, maxPending={}",
+                    windowNanos / 1_000_000, maxPending);
+        }
+    }
+
+    /**
+     * Решение по событию без отслеживания его завершения
+     */
+    public Decision offer(UserEventDTO event) {
+        return offer(event, CompletableFuture.completedFuture(null));
+    }
+
+    /**
+     * Решение по событию. При HELD и CANCELLED вызывающий больше ничего с событием не делает.
+     *
+     * @param done при HELD завершается, когда событие отправлено, передано в топик повторов или подавлено;
+     *             при CANCELLED - сразу; при PASS не трогается
+     */
+    public Decision offer(UserEventDTO event, CompletableFuture<Void> done) {
+        if (windowNanos <= 0) {
+            return Decision.PASS;
+        }
+        String key = key(event);
+        Held suppressed;
+        lock.lock();
+        try {
+            TimerWheel.Timeout<Held> held = pending.get(key);
+            switch (event.getEventType()) {
+                case CREATED -> {
+                    if (held != null) {
+                        // Повторная доставка того же события, уже ждущего в окне
+                        if (!sameEvent(held.value().event(), event)) {
+                            return Decision.PASS;
+                        }
+                        if (!done.isDone()) {
+                            held.value().done().whenComplete((result, e) -> done.complete(null));
+                        }
+                        return Decision.HELD;
+                    }
+                    if (pending.size() >= maxPending) {
+                        overflow.increment();
+                        return Decision.PASS;
+                    }
+                    pending.put(key, wheel.schedule(new Held(event, done), System.nanoTime() + windowNanos));
+                    return Decision.HELD;
+                }
+                case DELETED -> {
+                    if (held == null) {
+                        return Decision.PASS;
+                    }
+                    wheel.cancel(held);
+                    pending.remove(key);
+                    suppressed = held.value();
+                }
+                default -> {
+                    return Decision.PASS;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        // Пара подавлена: помечаем оба события, чтобы повторная доставка не отправила письма
+        cancelled.increment();
+        log.info("Suppressed CREATED/DELETED pair for user: {}", event.getEmail());
+        processedEventStore.markProcessed(suppressed.event());
+        processedEventStore.markProcessed(event);
+        suppressed.done().complete(null);
+        done.complete(null);
+        return Decision.CANCELLED;
+    }
+
+    public int pending() {
+        lock.lock();
+        try {
+            return pending.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (!running) {
+            return;
+        }
+        running = false;
+        ticker.interrupt();
+        ticker.join(tick.toMillis() * 10);
+        releaseAll("on shutdown");
+    }
+
+    /**
+     * Отправляет все отложенные события, не дожидаясь окна. Вызывается при отзыве партиций,
+     * чтобы их offset'ы успели закоммититься и новый владелец партиции не отправил письма повторно.
+     */
+    public void flush() {
+        releaseAll("on partition revoke");
+    }
+
+    private void releaseAll(String reason) {
+        List<Held> remaining;
+        lock.lock();
+        try {
+            remaining = new ArrayList<>(pending.size());
+            for (TimerWheel.Timeout<Held> timeout : pending.values()) {
+                wheel.cancel(timeout);
+                remaining.add(timeout.value());
+            }
+            pending.clear();
+        } finally {
+            lock.unlock();
+        }
+        if (!remaining.isEmpty()) {
+            log.info("Releasing {} held CREATED events {}", remaining.size(), reason);
+            remaining.forEach(this::release);
+        }
+    }
+
+    /**
+     * Продвигает колесо до текущего момента. Вызывается потоком тактов; открыт для тестов.
+     */
+    void advance(long nowNanos) {
+        List<Held> expired = new ArrayList<>();
+        lock.lock();
+        try {
+            wheel.advance(nowNanos, held -> {
+                pending.remove(key(held.event()));
+                expired.add(held);
+            });
+        } finally {
+            lock.unlock();
+        }
+        // Отправка вне блокировки: SMTP не должен задерживать consumer'ов
+        expired.forEach(this::release);
+    }
+
+    private void runTicker() {
+        while (running) {
+            try {
+                Thread.sleep(tick);
+                advance(System.nanoTime());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Unexpected error in debounce ticker", e);
+            }
+        }
+    }
+
+    private void release(Held held) {
+        UserEventDTO event = held.event();
+        CompletableFuture<Void> sent;
+        try {
+            sent = emailSender.sendUserEventEmailAsync(event);
+        } catch (RuntimeException e) {
+            sent = CompletableFuture.failedFuture(e);
+        }
+        sent.whenComplete((result, e) -> {
+            try {
+                if (e != null) {
+                    log.error("Failed to process event: {}", event, e);
+                    failedNotificationPublisher.publish(event, e);
+                } else {
+                    processedEventStore.markProcessed(event);
+                    latencyMetrics.sent(event);
+                }
+            } finally {
+                held.done().complete(null);
+            }
+        });
+    }
+
+    private static boolean sameEvent(UserEventDTO held, UserEventDTO event) {
+        return held.getEventId() != null && Objects.equals(held.getEventId(), event.getEventId());
+    }
+
+    private static String key(UserEventDTO event) {
+        return event.getEmail().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Отложенное событие и future вызывающего
+     */
+    private record Held(UserEventDTO event, CompletableFuture<Void> done) {
+    }
+}
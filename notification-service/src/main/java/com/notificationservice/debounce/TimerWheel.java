@@ -0,0 +1,144 @@
+package com.notificationservice.debounce;
+
+import java.time.Duration;
+import java.util.function.Consumer;
+
+/**
+ * Хешированное колесо таймеров
+ *
+ * <p>Время делится на такты длиной tick; колесо из wheel-size ячеек, у каждой -
+ * двусвязный список таймеров. Таймер попадает в ячейку {@code deadlineTick % wheelSize}
+ * и хранит число полных оборотов до срабатывания. Постановка и отмена - O(1),
+ * продвижение на такт - O(таймеров в ячейке), память - один узел на таймер.
+ * Точность срабатывания - один такт.
+ *
+ * <p>Не потокобезопасно: вызывающий сам синхронизирует доступ. Время передаётся
+ * явно (System.nanoTime()), что позволяет проверять колесо без ожидания.
+ *
+ * @param <V> значение таймера
+ */
+public final class TimerWheel<V> {
+
+    private final long tickNanos;
+    private final Timeout<V>[] wheel;
+    private final int mask;
+    private final long startNanos;
+    /** Следующий непройденный такт */
+    private long nextTick;
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    public TimerWheel(Duration tick, int wheelSize, long startNanos) {
+        if (tick.isZero() || tick.isNegative()) {
+            throw new IllegalArgumentException("tick must be positive");
+        }
+        int capacity = Integer.highestOneBit(Math.max(2, wheelSize - 1)) << 1;
+        this.tickNanos = tick.toNanos();
+        this.wheel = new Timeout[capacity];
+        this.mask = capacity - 1;
+        this.startNanos = startNanos;
+    }
+
+    /**
+     * Ставит таймер; сработает при первом advance() с моментом не раньше deadlineNanos
+     */
+    public Timeout<V> schedule(V value, long deadlineNanos) {
+        // Округление вверх: таймер никогда не срабатывает раньше срока
+        long deadlineTick = Math.max(nextTick, ceilDiv(deadlineNanos - startNanos, tickNanos));
+        Timeout<V> timeout = new Timeout<>(value);
+        int slot = (int) (deadlineTick & mask);
+        timeout.remainingRounds = (deadlineTick - nextTick) / wheel.length;
+        timeout.slot = slot;
+        Timeout<V> head = wheel[slot];
+        timeout.next = head;
+        if (head != null) {
+            head.prev = timeout;
+        }
+        wheel[slot] = timeout;
+        size++;
+        return timeout;
+    }
+
+    /**
+     * @return false, если таймер уже сработал или отменён
+     */
+    public boolean cancel(Timeout<V> timeout) {
+        if (timeout.slot < 0) {
+            return false;
+        }
+        unlink(timeout);
+        return true;
+    }
+
+    /**
+     * Проходит такты до момента nowNanos включительно и передаёт значения сработавших таймеров
+     */
+    public void advance(long nowNanos, Consumer<? super V> expired) {
+        long targetTick = Math.floorDiv(nowNanos - startNanos, tickNanos);
+        // Пустое колесо незачем прокручивать потактово после долгого простоя
+        if (size == 0 && targetTick >= nextTick) {
+            nextTick = targetTick + 1;
+            return;
+        }
+        for (; nextTick <= targetTick; nextTick++) {
+            Timeout<V> timeout = wheel[(int) (nextTick & mask)];
+            while (timeout != null) {
+                Timeout<V> next = timeout.next;
+                if (timeout.remainingRounds <= 0) {
+                    unlink(timeout);
+                    expired.accept(timeout.value);
+                } else {
+                    timeout.remainingRounds--;
+                }
+                timeout = next;
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void unlink(Timeout<V> timeout) {
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            wheel[timeout.slot] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.prev = null;
+        timeout.next = null;
+        timeout.slot = -1;
+        size--;
+    }
+
+    private static long ceilDiv(long x, long y) {
+        return -Math.floorDiv(-x, y);
+    }
+
+    /**
+     * Узел таймера; он же дескриптор для отмены
+     */
+    public static final class Timeout<V> {
+
+        private final V value;
+        private long remainingRounds;
+        private int slot;
+        private Timeout<V> prev;
+        private Timeout<V> next;
+
+        private Timeout(V value) {
+            this.value = value;
+        }
+
+        public V value() {
+            return value;
+        }
+
+        public boolean isPending() {
+            return slot >= 0;
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package com.notificationservice.dedup;
+
+import com.eventcontracts.dto.UserEventDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Идентификаторы уже обработанных событий для идемпотентного consumer'а
+ *
+ * <p>Идентификаторы хранятся по временным корзинам шириной bucket-width: каждая корзина -
+ * компактное множество {@link UuidSet} в памяти и append-only файл сегмента
+ * {@code segment-<начало корзины>.dedup} по 16 байт на id. Корзины старше retention
+ * удаляются целиком вместе с файлом, поэтому память ограничена числом событий
+ * за окно хранения. При старте сегменты в пределах окна загружаются заново,
+ * и повторная доставка после перезапуска тоже отсекается.
+ *
+ * <p>События без eventId (записанные схемой v1) дубликатами не считаются.
+ */
+@Component
+@Slf4j
+public class ProcessedEventStore {
+
+    private static final Pattern SEGMENT_FILE = Pattern.compile("segment-(\\d+)\\.dedup");
+    private static final int ID_SIZE = 2 * Long.BYTES;
+
+    private final Path directory;
+    private final long retentionMillis;
+    private final long bucketMillis;
+    private final Clock clock;
+    private final Deque<Bucket> buckets = new ArrayDeque<>();
+    private final ByteBuffer writeBuffer = ByteBuffer.allocate(ID_SIZE);
+
+    private Counter duplicates;
+
+    @Autowired
+    public ProcessedEventStore(@Value("${notification.dedup.directory:${java.io.tmpdir}/notification-service/dedup}") Path directory,
+                               @Value("${notification.dedup.retention:PT24H}") Duration retention,
+                               @Value("${notification.dedup.bucket-width:PT1H}") Duration bucketWidth,
+                               MeterRegistry meterRegistry) {
+        this(directory, retention, bucketWidth, Clock.systemUTC());
+        this.duplicates = Counter.builder("notification.events.duplicates").register(meterRegistry);
+        Gauge.builder("notification.dedup.entries", this, ProcessedEventStore::size).register(meterRegistry);
+    }
+
+    ProcessedEventStore(Path directory, Duration retention, Duration bucketWidth, Clock clock) {
+        if (bucketWidth.isZero() || bucketWidth.isNegative() || bucketWidth.compareTo(retention) > 0) {
+            throw new IllegalArgumentException("bucket-width must be positive and not greater than retention");
+        }
+        this.directory = directory;
+        this.retentionMillis = retention.toMillis();
+        this.bucketMillis = bucketWidth.toMillis();
+        this.clock = clock;
+    }
+
+    @PostConstruct
+    public synchronized void load() {
+        try {
+            Files.createDirectories(directory);
+            long oldestKept = oldestKeptBucketStart();
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "segment-*.dedup")) {
+                for (Path file : files) {
+                    Matcher matcher = SEGMENT_FILE.matcher(file.getFileName().toString());
+                    if (!matcher.matches()) {
+                        continue;
+                    }
+                    long start = Long.parseLong(matcher.group(1));
+                    if (start < oldestKept) {
+                        Files.deleteIfExists(file);
+                    } else {
+                        insertSorted(Bucket.load(file, start));
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load dedup segments from " + directory, e);
+        }
+        log.info("Loaded {} processed event ids from {} segments in {}", size(), buckets.size(), directory);
+    }
+
+    /**
+     * Событие уже было успешно обработано в пределах окна хранения
+     */
+    public synchronized boolean isDuplicate(UserEventDTO event) {
+        UUID eventId = event.getEventId();
+        if (eventId == null) {
+            return false;
+        }
+        expire();
+        long msb = eventId.getMostSignificantBits();
+        long lsb = eventId.getLeastSignificantBits();
+        // Повторы обычно приходят вскоре после оригинала, поэтому сначала свежие корзины
+        for (Iterator<Bucket> it = buckets.descendingIterator(); it.hasNext(); ) {
+            if (it.next().ids.contains(msb, lsb)) {
+                if (duplicates != null) {
+                    duplicates.increment();
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Запоминает событие как обработанное. Вызывается после успешной отправки письма,
+     * чтобы неудачная попытка не помешала повтору.
+     */
+    public synchronized void markProcessed(UserEventDTO event) {
+        UUID eventId = event.getEventId();
+        if (eventId == null) {
+            return;
+        }
+        expire();
+        Bucket bucket = currentBucket();
+        long msb = eventId.getMostSignificantBits();
+        long lsb = eventId.getLeastSignificantBits();
+        if (!bucket.ids.add(msb, lsb)) {
+            return;
+        }
+        writeBuffer.clear();
+        writeBuffer.putLong(msb).putLong(lsb).flip();
+        try {
+            while (writeBuffer.hasRemaining()) {
+                bucket.channel().write(writeBuffer);
+            }
+        } catch (IOException e) {
+            // Id остаётся в памяти; после перезапуска повтор этого события не будет отсечён
+            log.error("Failed to persist processed event id {} to {}", eventId, bucket.file, e);
+        }
+    }
+
+    public synchronized int size() {
+        int size = 0;
+        for (Bucket bucket : buckets) {
+            size += bucket.ids.size();
+        }
+        return size;
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        for (Bucket bucket : buckets) {
+            bucket.close();
+        }
+    }
+
+    private Bucket currentBucket() {
+        long start = Math.floorDiv(clock.millis(), bucketMillis) * bucketMillis;
+        Bucket last = buckets.peekLast();
+        if (last != null && last.start >= start) {
+            // При переводе часов назад продолжаем писать в самую свежую корзину
+            return last;
+        }
+        Bucket bucket = new Bucket(directory.resolve("segment-" + start + ".dedup"), start, new UuidSet());
+        buckets.addLast(bucket);
+        return bucket;
+    }
+
+    private void expire() {
+        long oldestKept = oldestKeptBucketStart();
+        while (!buckets.isEmpty() && buckets.peekFirst().start < oldestKept) {
+            Bucket expired = buckets.pollFirst();
+            expired.close();
+            try {
+                Files.deleteIfExists(expired.file);
+            } catch (IOException e) {
+                log.warn("Failed to delete expired dedup segment {}", expired.file, e);
+            }
+        }
+    }
+
+    /**
+     * Корзина хранится, пока её конец не вышел за окно retention
+     */
+    private long oldestKeptBucketStart() {
+        return Math.floorDiv(clock.millis() - retentionMillis, bucketMillis) * bucketMillis;
+    }
+
+    private void insertSorted(Bucket bucket) {
+        Deque<Bucket> newer = new ArrayDeque<>();
+        while (!buckets.isEmpty() && buckets.peekLast().start > bucket.start) {
+            newer.addFirst(buckets.pollLast());
+        }
+        buckets.addLast(bucket);
+        buckets.addAll(newer);
+    }
+
+    private static final class Bucket {
+
+        private final Path file;
+        private final long start;
+        private final UuidSet ids;
+        private FileChannel channel;
+
+        private Bucket(Path file, long start, UuidSet ids) {
+            this.file = file;
+            this.start = start;
+            this.ids = ids;
+        }
+
+        static Bucket load(Path file, long start) throws IOException {
+            byte[] content = Files.readAllBytes(file);
+            int complete = content.length / ID_SIZE;
+            if (content.length % ID_SIZE != 0) {
+                // Запись оборвалась при остановке процесса: неполный хвост отбрасываем
+                log.warn("Truncating torn record at the end of dedup segment {}", file);
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                    channel.truncate((long) complete * ID_SIZE);
+                }
+            }
+            UuidSet ids = new UuidSet(complete);
+            ByteBuffer buffer = ByteBuffer.wrap(content, 0, complete * ID_SIZE);
+            while (buffer.hasRemaining()) {
+                ids.add(buffer.getLong(), buffer.getLong());
+            }
+            return new Bucket(file, start, ids);
+        }
+
+        FileChannel channel() throws IOException {
+            if (channel == null) {
+                channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.APPEND);
+            }
+            return channel;
+        }
+
+        void close() {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    log.warn("Failed to close dedup segment {}", file, e);
+                }
+                channel = null;
+            }
+        }
+    }
+}
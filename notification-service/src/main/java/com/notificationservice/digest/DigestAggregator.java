@@ -0,0 +1,370 @@
+package com.notificationservice.digest;
+
+import com.eventcontracts.dto.UserEventDTO;
+import com.notificationservice.debounce.TimerWheel;
+import com.notificationservice.dedup.ProcessedEventStore;
+import com.notificationservice.kafka.FailedNotificationPublisher;
+import com.notificationservice.metrics.NotificationLatencyMetrics;
+import com.notificationservice.service.EmailSender;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Сводные письма: события одного получателя за окно уходят одним письмом
+ *
+ * <p>Включается свойством {@code notification.digest.enabled=true}. Первое событие
+ * получателя открывает сводку на {@code notification.digest.window}; сводка отправляется
+ * по истечении окна или сразу, когда в ней набралось {@code max-events} событий.
+ * Сводка из одного события отправляется обычным письмом.
+ *
+ * <p>Массовые операции в user-service дают всплеск событий по одним и тем же адресатам;
+ * вместо письма на событие уходит одно письмо на адресата за окно.
+ *
+ * <p>Сводка хранит события не объектами, а в примитивных массивах (тип, время, id) -
+ * около 40 байт на событие плюс запись в таблице по email (при ручном коммите offset'ов - ещё
+ * ожидающий отправки future вызывающего). Сроки окон ведёт тот же
+ * {@link TimerWheel}, что и у debounce. Число открытых сводок ограничено
+ * {@code max-recipients}: сверх лимита события отправляются как обычно.
+ *
+ * <p>Как и у debounce, события в сводке живут только в памяти: при остановке сервиса
+ * и при отзыве партиций ({@link #flush}) сводки отправляются сразу, а future вызывающего завершается только после отправки сводки,
+ * чтобы при ручном коммите offset события не коммитился раньше письма.
+ * Если сводка не отправилась, её события по одному уходят в топик повторов.
+ */
+@Component
+@Slf4j
+public class DigestAggregator {
+
+    private static final UserEventDTO.EventType[] EVENT_TYPES = UserEventDTO.EventType.values();
+    private static final long NO_TIME = Long.MIN_VALUE;
+
+    private final EmailSender emailSender;
+    private final FailedNotificationPublisher failedNotificationPublisher;
+    private final ProcessedEventStore processedEventStore;
+    private final NotificationLatencyMetrics latencyMetrics;
+    private final boolean enabled;
+    private final long windowNanos;
+    private final Duration tick;
+    private final int maxEvents;
+    private final int maxRecipients;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final TimerWheel<Digest> wheel;
+    private final Map<String, Digest> open = new HashMap<>();
+    /** События в открытых сводках; уменьшается, когда сводка уходит на отправку */
+    private final AtomicInteger heldEvents = new AtomicInteger();
+    private final Thread ticker;
+    private volatile boolean running;
+
+    private final Counter digests;
+    private final Counter aggregated;
+    private final Counter overflow;
+
+    public DigestAggregator(EmailSender emailSender,
+                            FailedNotificationPublisher failedNotificationPublisher,
+                            ProcessedEventStore processedEventStore,
+                            NotificationLatencyMetrics latencyMetrics,
+                            MeterRegistry meterRegistry,
+                            @Value("${notification.digest.enabled:false}") boolean enabled,
+                            @Value("${notification.digest.window:PT1M}") Duration window,
+                            @Value("${notification.digest.tick:PT1S}") Duration tick,
+                            @Value("${notification.digest.max-events:50}") int maxEvents,
+                            @Value("${notification.digest.max-recipients:1000000}") int maxRecipients) {
+        this.emailSender = emailSender;
+        this.failedNotificationPublisher = failedNotificationPublisher;
+        this.processedEventStore = processedEventStore;
+        this.latencyMetrics = latencyMetrics;
+        this.enabled = enabled && window.toNanos() > 0;
+        this.windowNanos = window.toNanos();
+        this.tick = tick;
+        this.maxEvents = maxEvents;
+        this.maxRecipients = maxRecipients;
+        int wheelSize = (int) Math.min(1 << 16, Math.max(16, window.toNanos() / tick.toNanos() + 1));
+        this.wheel = new TimerWheel<>(tick, wheelSize, System.nanoTime());
+        this.ticker = Thread.ofPlatform().name("notification-digest").daemon().unstarted(this::runTicker);
+
+        this.digests = Counter.builder("notification.digest.sent")
+                .description("Digest emails sent")
+                .register(meterRegistry);
+        this.aggregated = Counter.builder("notification.digest.events")
+                .description("Events delivered as part of a digest")
+                .register(meterRegistry);
+        this.overflow = Counter.builder("notification.digest.overflow")
+                .description("Events sent individually because max-recipients was reached")
+                .register(meterRegistry);
+        Gauge.builder("notification.digest.recipients", this, DigestAggregator::openDigests).register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (enabled) {
+            running = true;
+            ticker.start();
+            log.info("Notification digest enabled: window={}ms, maxEvents={}, maxRecipients={}",
+                    windowNanos / 1_000_000, maxEvents, maxRecipients);
+        }
+    }
+
+    /**
+     * Добавляет событие в сводку получателя без отслеживания её отправки
+     */
+    public boolean offer(UserEventDTO event) {
+        return offer(event, CompletableFuture.completedFuture(null));
+    }
+
+    /**
+     * Добавляет событие в сводку получателя
+     *
+     * @param done завершается после отправки сводки (или передачи её событий в топик повторов);
+     *             если событие не принято, не трогается
+     * @return true, если событие принято и отправит его сводка; false - обработать как обычно
+     */
+    public boolean offer(UserEventDTO event, CompletableFuture<Void> done) {
+        if (!enabled) {
+            return false;
+        }
+        String key = event.getEmail().toLowerCase(Locale.ROOT);
+        Digest full;
+        lock.lock();
+        try {
+            Digest digest = open.get(key);
+            if (digest == null) {
+                if (open.size() >= maxRecipients) {
+                    overflow.increment();
+                    return false;
+                }
+                digest = new Digest(event.getEmail());
+                digest.timeout = wheel.schedule(digest, System.nanoTime() + windowNanos);
+                open.put(key, digest);
+            } else if (digest.contains(event.getEventId())) {
+                // Повторная доставка события, уже ждущего в сводке
+                digest.onSent(done);
+                return true;
+            }
+            digest.add(event);
+            heldEvents.incrementAndGet();
+            digest.onSent(done);
+            if (digest.size < maxEvents) {
+                return true;
+            }
+            wheel.cancel(digest.timeout);
+            open.remove(key);
+            full = digest;
+        } finally {
+            lock.unlock();
+        }
+        send(full);
+        return true;
+    }
+
+    public int openDigests() {
+        lock.lock();
+        try {
+            return open.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Число событий, ждущих отправки в открытых сводках
+     */
+    public int heldEvents() {
+        return heldEvents.get();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (!running) {
+            return;
+        }
+        running = false;
+        ticker.interrupt();
+        ticker.join(tick.toMillis() * 10);
+        sendOpen("on shutdown");
+    }
+
+    /**
+     * Отправляет все открытые сводки, не дожидаясь окна. Вызывается при отзыве партиций:
+     * окно длиннее revoke-timeout, и без этого offset'ы событий в сводках не закоммитились бы,
+     * новый владелец партиции прочитал бы их повторно, а эта сводка всё равно ушла бы - письма дважды.
+     */
+    public void flush() {
+        sendOpen("on partition revoke");
+    }
+
+    private void sendOpen(String reason) {
+        List<Digest> remaining;
+        lock.lock();
+        try {
+            remaining = new ArrayList<>(open.values());
+            remaining.forEach(digest -> wheel.cancel(digest.timeout));
+            open.clear();
+        } finally {
+            lock.unlock();
+        }
+        if (!remaining.isEmpty()) {
+            log.info("Sending {} open digests {}", remaining.size(), reason);
+            remaining.forEach(this::send);
+        }
+    }
+
+    /**
+     * Продвигает колесо до текущего момента. Вызывается потоком тактов; открыт для тестов.
+     */
+    void advance(long nowNanos) {
+        List<Digest> expired = new ArrayList<>();
+        lock.lock();
+        try {
+            wheel.advance(nowNanos, digest -> {
+                open.remove(digest.email.toLowerCase(Locale.ROOT));
+                expired.add(digest);
+            });
+        } finally {
+            lock.unlock();
+        }
+        expired.forEach(this::send);
+    }
+
+    private void runTicker() {
+        while (running) {
+            try {
+                Thread.sleep(tick);
+                advance(System.nanoTime());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Unexpected error in digest ticker", e);
+            }
+        }
+    }
+
+    private void send(Digest digest) {
+        List<UserEventDTO> events = digest.events();
+        heldEvents.addAndGet(-events.size());
+        CompletableFuture<Void> sent;
+        try {
+            sent = events.size() == 1
+                    ? emailSender.sendUserEventEmailAsync(events.get(0))
+                    : emailSender.sendDigestEmailAsync(digest.email, events);
+        } catch (RuntimeException e) {
+            sent = CompletableFuture.failedFuture(e);
+        }
+        sent.whenComplete((result, e) -> {
+            try {
+                if (e != null) {
+                    log.error("Failed to send digest of {} events to: {}", events.size(), digest.email, e);
+                    events.forEach(event -> failedNotificationPublisher.publish(event, e));
+                    return;
+                }
+                if (events.size() > 1) {
+                    digests.increment();
+                    aggregated.increment(events.size());
+                }
+                for (UserEventDTO event : events) {
+                    processedEventStore.markProcessed(event);
+                    latencyMetrics.sent(event);
+                }
+            } finally {
+                digest.sent.complete(null);
+            }
+        });
+    }
+
+    /**
+     * Открытая сводка одного получателя. Поля событий - параллельные массивы:
+     * тип, время в миллисекундах и две половины id; объекты событий создаются только при отправке.
+     * Состояние пользователя (userId, снимок, изменения) не хранится: письму сводки оно не нужно.
+     * Изменяется только под блокировкой агрегатора.
+     */
+    private static final class Digest {
+
+        private static final int INITIAL_CAPACITY = 2;
+
+        final String email;
+        /** Завершается после отправки сводки; на нём ждут future вызывающих */
+        final CompletableFuture<Void> sent = new CompletableFuture<>();
+        TimerWheel.Timeout<Digest> timeout;
+        int size;
+        private byte[] types = new byte[INITIAL_CAPACITY];
+        private long[] times = new long[INITIAL_CAPACITY];
+        /** Пары (старшие, младшие) 64 бита id; нулевой UUID означает отсутствие id */
+        private long[] ids = new long[2 * INITIAL_CAPACITY];
+
+        Digest(String email) {
+            this.email = email;
+        }
+
+        void add(UserEventDTO event) {
+            if (size == types.length) {
+                int capacity = types.length * 2;
+                types = Arrays.copyOf(types, capacity);
+                times = Arrays.copyOf(times, capacity);
+                ids = Arrays.copyOf(ids, 2 * capacity);
+            }
+            types[size] = (byte) event.getEventType().ordinal();
+            times[size] = event.getOccurredAt() != null ? event.getOccurredAt().toEpochMilli() : NO_TIME;
+            UUID id = event.getEventId();
+            if (id != null) {
+                ids[2 * size] = id.getMostSignificantBits();
+                ids[2 * size + 1] = id.getLeastSignificantBits();
+            }
+            size++;
+        }
+
+        void onSent(CompletableFuture<Void> done) {
+            if (!done.isDone()) {
+                sent.whenComplete((result, e) -> done.complete(null));
+            }
+        }
+
+        boolean contains(UUID id) {
+            if (id == null) {
+                return false;
+            }
+            long msb = id.getMostSignificantBits();
+            long lsb = id.getLeastSignificantBits();
+            for (int i = 0; i < size; i++) {
+                if (ids[2 * i] == msb && ids[2 * i + 1] == lsb) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        List<UserEventDTO> events() {
+            List<UserEventDTO> events = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                long msb = ids[2 * i];
+                long lsb = ids[2 * i + 1];
+                events.add(UserEventDTO.builder()
+                        .eventType(EVENT_TYPES[types[i]])
+                        .email(email)
+                        .eventId(msb == 0 && lsb == 0 ? null : new UUID(msb, lsb))
+                        .occurredAt(times[i] == NO_TIME ? null : Instant.ofEpochMilli(times[i]))
+                        .build());
+            }
+            return events;
+        }
+    }
+}
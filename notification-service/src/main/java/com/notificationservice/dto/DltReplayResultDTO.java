@@ -0,0 +1,21 @@
+package com.notificationservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * Результат повторной публикации уведомлений из DLT
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Getter
+public class DltReplayResultDTO {
+
+    private String dltTopic;
+    private String targetTopic;
+    private int replayed;
+    private long remaining;
+}
@@ -0,0 +1,165 @@
+package com.notificationservice.kafka;
+
+import com.notificationservice.debounce.CreatedDeletedDebouncer;
+import com.notificationservice.digest.DigestAggregator;
+import com.notificationservice.mail.MailDispatcher;
+import com.notificationservice.mail.MailSpool;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Обратное давление: пауза партиций основного топика при большом хвосте писем
+ *
+ * <p>Хвост - письма, принятые {@link MailDispatcher} и ещё не отправленные, письма в журнале
+ * {@link MailSpool}, события, отложенные {@link CreatedDeletedDebouncer} и ждущие в сводках
+ * {@link DigestAggregator}, плюс записи в обработке у {@link ParallelUserEventConsumer}.
+ * С включённым журналом диспетчер почти пуст, и расти будет именно журнал: без его учёта
+ * чтение не остановится, пока журнал не переполнится. Когда SMTP замедляется, хвост растёт:
+ * без паузы consumer продолжает читать, и письма либо отклоняются сверх max-pending,
+ * либо поток consumer'а блокируется и превышает {@code max.poll.interval.ms}, что
+ * вызывает ребалансировку группы.
+ *
+ * <p>Раз в {@code check-interval} хвост сравнивается с порогами: при достижении
+ * {@code high-watermark} контейнеры основного топика ставятся на паузу, при снижении
+ * до {@code low-watermark} - возобновляются. На паузе consumer продолжает poll() без записей,
+ * поэтому остаётся в группе. Топики повторов не трогаются: ими управляет retry-механизм.
+ */
+@Component
+@Slf4j
+public class BackpressureController {
+
+    private final KafkaListenerEndpointRegistry registry;
+    private final MailDispatcher mailDispatcher;
+    private final MailSpool mailSpool;
+    private final CreatedDeletedDebouncer debouncer;
+    private final DigestAggregator digestAggregator;
+    private final ObjectProvider<ParallelUserEventConsumer> parallelConsumer;
+    private final String topic;
+    private final int highWatermark;
+    private final int lowWatermark;
+    private final Duration checkInterval;
+
+    private final MeterRegistry meterRegistry;
+    private final Timer pauseTime;
+    private final Thread monitor;
+    private volatile boolean running;
+    private volatile boolean paused;
+    private Timer.Sample pausedSince;
+
+    public BackpressureController(KafkaListenerEndpointRegistry registry,
+                                  MailDispatcher mailDispatcher,
+                                  MailSpool mailSpool,
+                                  CreatedDeletedDebouncer debouncer,
+                                  DigestAggregator digestAggregator,
+                                  ObjectProvider<ParallelUserEventConsumer> parallelConsumer,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${kafka.topic.user-events}") String topic,
+                                  @Value("${notification.backpressure.high-watermark:800}") int highWatermark,
+                                  @Value("${notification.backpressure.low-watermark:200}") int lowWatermark,
+                                  @Value("${notification.backpressure.check-interval:PT0.1S}") Duration checkInterval) {
+        if (lowWatermark < 0 || lowWatermark >= highWatermark) {
+            throw new IllegalArgumentException("low-watermark must be non-negative and below high-watermark");
+        }
+        this.registry = registry;
+        this.mailDispatcher = mailDispatcher;
+        this.mailSpool = mailSpool;
+        this.debouncer = debouncer;
+        this.digestAggregator = digestAggregator;
+        this.parallelConsumer = parallelConsumer;
+        this.topic = topic;
+        this.highWatermark = highWatermark;
+        this.lowWatermark = lowWatermark;
+        this.checkInterval = checkInterval;
+
+        this.meterRegistry = meterRegistry;
+        this.pauseTime = Timer.builder("notification.backpressure.pause.time")
+                .description("Time the main topic consumers spent paused by backpressure")
+                .register(meterRegistry);
+        Gauge.builder("notification.backpressure.backlog", this, BackpressureController::backlog)
+                .description("Emails and events accepted but not yet sent")
+                .register(meterRegistry);
+        Gauge.builder("notification.backpressure.paused", this, controller -> controller.paused ? 1 : 0)
+                .register(meterRegistry);
+        this.monitor = Thread.ofPlatform().name("notification-backpressure").daemon().unstarted(this::runMonitor);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        monitor.start();
+        log.info("Backpressure enabled: highWatermark={}, lowWatermark={}", highWatermark, lowWatermark);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        monitor.interrupt();
+        monitor.join(checkInterval.toMillis() * 10);
+    }
+
+    public int backlog() {
+        ParallelUserEventConsumer parallel = parallelConsumer.getIfAvailable();
+        long backlog = mailDispatcher.pending() + mailSpool.pending() + debouncer.pending()
+                + digestAggregator.heldEvents() + (parallel != null ? parallel.inFlight() : 0);
+        return (int) Math.min(backlog, Integer.MAX_VALUE);
+    }
+
+    public boolean isPaused() {
+        return paused;
+    }
+
+    /**
+     * Сравнивает хвост с порогами и ставит или снимает паузу. Вызывается потоком монитора; открыт для тестов.
+     */
+    void check() {
+        int backlog = backlog();
+        if (!paused && backlog >= highWatermark) {
+            containers().forEach(MessageListenerContainer::pause);
+            paused = true;
+            pausedSince = Timer.start(meterRegistry);
+            log.warn("Mail backlog {} reached high watermark {}, pausing consumption of {}", backlog, highWatermark, topic);
+        } else if (paused && backlog <= lowWatermark) {
+            containers().forEach(MessageListenerContainer::resume);
+            paused = false;
+            long nanos = pausedSince.stop(pauseTime);
+            log.info("Mail backlog {} dropped to low watermark {}, resuming consumption of {} after {} ms",
+                    backlog, lowWatermark, topic, nanos / 1_000_000);
+        }
+    }
+
+    private List<MessageListenerContainer> containers() {
+        return registry.getListenerContainers().stream()
+                .filter(container -> {
+                    String[] topics = container.getContainerProperties().getTopics();
+                    return topics != null && Arrays.asList(topics).contains(topic);
+                })
+                .toList();
+    }
+
+    private void runMonitor() {
+        while (running) {
+            try {
+                Thread.sleep(checkInterval);
+                check();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Unexpected error in backpressure monitor", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.notificationservice.kafka;
+
+import com.eventcontracts.dto.UserEventDTO;
+import com.notificationservice.debounce.CreatedDeletedDebouncer;
+import com.notificationservice.dedup.ProcessedEventStore;
+import com.notificationservice.digest.DigestAggregator;
+import com.notificationservice.metrics.NotificationLatencyMetrics;
+import com.notificationservice.service.EmailSender;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.event.ListenerContainerIdleEvent;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Kafka consumer для пакетной обработки событий пользователей
+ * Включается свойством {@code notification.consumer.mode=batch}
+ * По умолчанию offset'ы коммитит {@link BatchedOffsetCommitter}, как в {@link UserEventConsumer}:
+ * запись, отложенная debounce или сводкой, не даёт закоммитить offset'ы партиции начиная с неё,
+ * пока её письмо не отправлено. При {@code notification.consumer.commit.manual=false} пакет
+ * подтверждается целиком, и отложенные события при падении сервиса теряются
+ */
+@Component
+@ConditionalOnProperty(name = "notification.consumer.mode", havingValue = "batch")
+@RequiredArgsConstructor
+@Slf4j
+public class BatchUserEventConsumer {
+
+    static final String LISTENER_ID = "batch-user-events";
+
+    private final EmailSender emailSender;
+    private final FailedNotificationPublisher failedNotificationPublisher;
+    private final ProcessedEventStore processedEventStore;
+    private final CreatedDeletedDebouncer debouncer;
+    private final DigestAggregator digestAggregator;
+    private final NotificationLatencyMetrics latencyMetrics;
+    private final BatchedOffsetCommitter offsetCommitter;
+
+    /**
+     * Письма всего пакета уходят через одно SMTP-соединение.
+     * Ошибка отдельного письма не останавливает пакет: событие уходит в топик повторов.
+     * Уже обработанные события и повторы внутри пакета пропускаются, CREATED, отложенные
+     * {@link CreatedDeletedDebouncer}, и события в сводках {@link DigestAggregator} отправляются
+     * ими самими и завершают свои записи после отправки. Остальные записи пакета завершаются
+     * после его обработки. Записи без значения - нечитаемые, уже отправленные в карантин:
+     * они пропускаются, но завершаются вместе с пакетом.
+     */
+    @KafkaListener(
+            id = LISTENER_ID,
+            idIsGroup = false,
+            topics = "${kafka.topic.user-events}",
+            groupId = "${spring.kafka.consumer.group-id}",
+            containerFactory = "batchKafkaListenerContainerFactory"
+    )
+    public void consumeUserEvents(List<ConsumerRecord<String, UserEventDTO>> records, Acknowledgment acknowledgment,
+                                  Consumer<?, ?> consumer) {
+        log.info("Received batch of {} user events from Kafka", records.size());
+        records.forEach(offsetCommitter::register);
+
+        List<ConsumerRecord<String, UserEventDTO>> unheld;
+        try {
+            unheld = process(records, System.nanoTime());
+        } catch (RuntimeException e) {
+            // Пакет повторит контейнер, записи зарегистрируются заново
+            records.forEach(offsetCommitter::complete);
+            throw e;
+        }
+        if (!offsetCommitter.isEnabled()) {
+            acknowledgment.acknowledge();
+            return;
+        }
+        unheld.forEach(offsetCommitter::complete);
+        offsetCommitter.commitIfDue(consumer);
+    }
+
+    /**
+     * Коммит по интервалу, когда записей нет. Событие публикуется в потоке consumer'а
+     * и только при включённом {@link BatchedOffsetCommitter}.
+     */
+    @EventListener(condition = "event.listenerId.startsWith('" + LISTENER_ID + "')")
+    public void onIdle(ListenerContainerIdleEvent event) {
+        offsetCommitter.commitIfDue(event.getConsumer());
+    }
+
+    /**
+     * @return записи, которые можно завершить сразу: всё, кроме отложенных debounce и сводкой
+     */
+    private List<ConsumerRecord<String, UserEventDTO>> process(List<ConsumerRecord<String, UserEventDTO>> records,
+                                                               long receivedAt) {
+        List<ConsumerRecord<String, UserEventDTO>> unheld = new ArrayList<>(records.size());
+        List<UserEventDTO> fresh = new ArrayList<>(records.size());
+        Set<UUID> seen = new HashSet<>();
+        for (ConsumerRecord<String, UserEventDTO> record : records) {
+            UserEventDTO event = record.value();
+            if (event == null) {
+                unheld.add(record);
+                continue;
+            }
+            UUID eventId = event.getEventId();
+            if (processedEventStore.isDuplicate(event) || (eventId != null && !seen.add(eventId))) {
+                log.info("Skipping already processed event: {}", eventId);
+                unheld.add(record);
+            } else if (!hold(record)) {
+                fresh.add(event);
+                unheld.add(record);
+            }
+        }
+
+        List<UserEventDTO> failed;
+        Exception cause = null;
+        try {
+            failed = emailSender.sendUserEventEmails(fresh);
+        } catch (Exception e) {
+            log.error("Failed to process batch of {} events", fresh.size(), e);
+            failed = fresh;
+            cause = e;
+        }
+
+        Set<UserEventDTO> failedSet = Collections.newSetFromMap(new IdentityHashMap<>());
+        failedSet.addAll(failed);
+        for (UserEventDTO event : fresh) {
+            if (!failedSet.contains(event)) {
+                processedEventStore.markProcessed(event);
+                latencyMetrics.sent(event, receivedAt);
+            }
+        }
+        for (UserEventDTO event : failed) {
+            log.error("Failed to process event: {} for user: {}", event.getEventType(), event.getEmail());
+            failedNotificationPublisher.publish(event,
+                    cause != null ? cause : new IllegalStateException("Email was rejected by SMTP server"));
+        }
+        return unheld;
+    }
+
+    /**
+     * Передаёт событие debounce или сводке. С ручным коммитом отложенная запись
+     * завершается, когда её письмо отправлено или передано в топик повторов.
+     *
+     * @return true, если событие отложено
+     */
+    private boolean hold(ConsumerRecord<String, UserEventDTO> record) {
+        CompletableFuture<Void> held = offsetCommitter.isEnabled()
+                ? new CompletableFuture<>()
+                : CompletableFuture.completedFuture(null);
+        UserEventDTO event = record.value();
+        if (debouncer.offer(event, held) == CreatedDeletedDebouncer.Decision.PASS
+                && !digestAggregator.offer(event, held)) {
+            return false;
+        }
+        held.whenComplete((result, e) -> offsetCommitter.complete(record));
+        return true;
+    }
+}
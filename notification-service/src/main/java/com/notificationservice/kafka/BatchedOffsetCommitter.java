@@ -0,0 +1,101 @@
+package com.notificationservice.kafka;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Пакетный ручной коммит offset'ов для {@link UserEventConsumer}
+ *
+ * <p>Включён по умолчанию; {@code notification.consumer.commit.manual=false} возвращает коммит
+ * контейнером, и тогда listener ждёт отправки каждого письма. Здесь письма уходят асинхронно,
+ * запись считается завершённой, только когда SMTP подтвердил отправку (или событие передано
+ * в топик повторов), а коммитится наименьший незавершённый offset партиции
+ * через {@link PartitionOffsetTracker}.
+ *
+ * <p>Коммит выполняется раз в {@code max-records} полученных записей или раз в {@code interval},
+ * в том числе по событию простоя контейнера, а при отзыве партиций - синхронно. Доставка остаётся
+ * at-least-once: после перезапуска незакоммиченные записи придут повторно и отсеются
+ * {@link com.notificationservice.dedup.ProcessedEventStore}.
+ *
+ * <p>События, принятые debounce или сводкой, завершаются, когда отложенное письмо отправлено:
+ * до этого их offset не коммитится, и после падения сервиса они придут повторно.
+ */
+@Component
+@Slf4j
+public class BatchedOffsetCommitter {
+
+    private final PartitionOffsetTracker offsetTracker = new PartitionOffsetTracker();
+    private final boolean enabled;
+    private final int maxRecords;
+    private final Duration interval;
+
+    private final AtomicInteger received = new AtomicInteger();
+    private final AtomicLong lastCommit = new AtomicLong(System.nanoTime());
+
+    public BatchedOffsetCommitter(@Value("${notification.consumer.commit.manual:true}") boolean enabled,
+                                  @Value("${notification.consumer.commit.max-records:500}") int maxRecords,
+                                  @Value("${notification.consumer.commit.interval:PT1S}") Duration interval) {
+        this.enabled = enabled;
+        this.maxRecords = maxRecords;
+        this.interval = interval;
+        if (enabled) {
+            log.info("Manual batched offset commits enabled: maxRecords={}, interval={}ms", maxRecords, interval.toMillis());
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Duration interval() {
+        return interval;
+    }
+
+    public PartitionOffsetTracker offsetTracker() {
+        return offsetTracker;
+    }
+
+    /**
+     * Запись получена listener'ом; её offset не будет закоммичен до {@link #complete}
+     */
+    public void register(ConsumerRecord<?, ?> record) {
+        if (enabled) {
+            offsetTracker.register(new TopicPartition(record.topic(), record.partition()), record.offset());
+            received.incrementAndGet();
+        }
+    }
+
+    /**
+     * Обработка записи завершена. Вызывается из любого потока.
+     */
+    public void complete(ConsumerRecord<?, ?> record) {
+        if (enabled) {
+            offsetTracker.complete(new TopicPartition(record.topic(), record.partition()), record.offset());
+        }
+    }
+
+    /**
+     * Коммитит завершённые offset'ы, если набралось max-records записей или прошёл interval.
+     * Вызывается только из потока consumer'а.
+     */
+    public void commitIfDue(Consumer<?, ?> consumer) {
+        if (!enabled) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (received.get() < maxRecords && now - lastCommit.get() < interval.toNanos()) {
+            return;
+        }
+        received.set(0);
+        lastCommit.set(now);
+        offsetTracker.commit(consumer);
+    }
+}
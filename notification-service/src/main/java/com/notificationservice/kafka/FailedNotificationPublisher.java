@@ -0,0 +1,45 @@
+package com.notificationservice.kafka;
+
+import com.eventcontracts.dto.UserEventDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Публикация событий, письмо по которым отправить не удалось, в топик повторов
+ * Дальнейшие попытки и DLT - см. {@link RetryUserEventConsumer}
+ */
+@Component
+@Slf4j
+public class FailedNotificationPublisher {
+
+    static final String FAILURE_REASON_HEADER = "x-notification-failure";
+
+    private final KafkaTemplate<String, UserEventDTO> kafkaTemplate;
+    private final String retryTopic;
+
+    public FailedNotificationPublisher(KafkaTemplate<String, UserEventDTO> kafkaTemplate,
+                                       @Value("${notification.retry.topic:${kafka.topic.user-events}.failed}") String retryTopic) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.retryTopic = retryTopic;
+    }
+
+    public void publish(UserEventDTO event, Throwable cause) {
+        ProducerRecord<String, UserEventDTO> record = new ProducerRecord<>(retryTopic, event.getEmail(), event);
+        String reason = cause.getClass().getName() + ": " + cause.getMessage();
+        record.headers().add(FAILURE_REASON_HEADER, reason.getBytes(StandardCharsets.UTF_8));
+
+        kafkaTemplate.send(record).whenComplete((result, ex) -> {
+            if (ex != null) {
+                log.error("Failed to publish event for retry, notification is lost: {} for user: {}",
+                        event.getEventType(), event.getEmail(), ex);
+            } else {
+                log.warn("Event scheduled for retry: {} for user: {}", event.getEventType(), event.getEmail());
+            }
+        });
+    }
+}
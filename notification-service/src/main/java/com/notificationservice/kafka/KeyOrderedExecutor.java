@@ -0,0 +1,77 @@
+package com.notificationservice.kafka;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Исполнитель, сохраняющий порядок задач с одинаковым ключом.
+ *
+ * <p>Задачи одного ключа выстраиваются в цепочку и выполняются строго друг за другом,
+ * задачи разных ключей - параллельно на виртуальных потоках. Число одновременно
+ * выполняемых задач ограничено {@code workers}; ожидающие задачи держат только
+ * виртуальный поток, а не поток ОС.
+ */
+public class KeyOrderedExecutor implements AutoCloseable {
+
+    private static final CompletableFuture<Void> DONE = CompletableFuture.completedFuture(null);
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore workers;
+    private final ConcurrentHashMap<String, CompletableFuture<Void>> tails = new ConcurrentHashMap<>();
+
+    public KeyOrderedExecutor(int workers) {
+        this.workers = new Semaphore(workers);
+    }
+
+    /**
+     * Ставит задачу в очередь ключа. Ошибка предыдущей задачи ключа не отменяет следующую.
+     *
+     * @return future, завершающийся вместе с задачей (исключительно - если задача упала)
+     */
+    public CompletableFuture<Void> submit(String key, Runnable task) {
+        CompletableFuture<Void> next = tails.compute(key, (k, tail) ->
+                (tail == null ? DONE : tail).handleAsync((result, previousError) -> {
+                    runWithPermit(task);
+                    return null;
+                }, executor));
+        // Хвост удаляется, только если за ним не встали новые задачи этого ключа
+        next.whenComplete((result, error) -> tails.remove(key, next));
+        return next;
+    }
+
+    /**
+     * Число ключей, у которых есть невыполненные задачи.
+     */
+    public int activeKeys() {
+        return tails.size();
+    }
+
+    public boolean awaitTermination(Duration timeout) throws InterruptedException {
+        executor.shutdown();
+        return executor.awaitTermination(timeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void close() {
+        executor.close();
+    }
+
+    private void runWithPermit(Runnable task) {
+        try {
+            workers.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a worker", e);
+        }
+        try {
+            task.run();
+        } finally {
+            workers.release();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.notificationservice.kafka;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+
+import java.time.Duration;
+import java.util.Collection;
+
+/**
+ * Rebalance listener контейнеров уведомлений: доводит работу по отзываемым партициям и считает ребалансировки
+ *
+ * <p>При отзыве партиций listener с {@link PartitionOffsetTracker} (ручной коммит offset'ов) сначала
+ * отправляет письма, отложенные debounce и сводками, затем ждёт завершения записей партиций
+ * не дольше revoke-timeout и синхронно коммитит обработанные offset'ы. Иначе окна длиннее
+ * revoke-timeout не дали бы закоммитить отложенные записи, новый владелец партиции прочитал бы их
+ * повторно, и письма ушли бы дважды. С контейнерным коммитом ожидающие подтверждения
+ * offset'ы коммитит сам контейнер сразу после
+ * {@link #onPartitionsRevokedBeforeCommit}. Потерянные партиции (истёк session timeout) забываются
+ * без коммита: они уже назначены другому consumer'у.
+ *
+ * <p>Метрики (тег listener - id контейнера):
+ * <ul>
+ *   <li>{@code notification.consumer.rebalances} - завершённые ребалансировки;</li>
+ *   <li>{@code notification.consumer.rebalance.partitions} (тег change=assigned|revoked|lost) - затронутые партиции;</li>
+ *   <li>{@code notification.consumer.rebalance.revoke} - время отзыва партиций вместе с коммитом.</li>
+ * </ul>
+ * Полная длительность ребалансировки - метрики клиента
+ * {@code kafka.consumer.coordinator.rebalance.latency.*}.
+ */
+@Slf4j
+public class MeteredRebalanceListener implements ConsumerAwareRebalanceListener {
+
+    private final String listener;
+    private final PartitionOffsetTracker offsetTracker;
+    private final Duration revokeTimeout;
+    private final Runnable releaseHeld;
+    private final MeterRegistry meterRegistry;
+
+    private final Counter rebalances;
+    private final Counter assigned;
+    private final Counter revoked;
+    private final Counter lost;
+    private final Timer revokeTime;
+    private Timer.Sample revoking;
+
+    public MeteredRebalanceListener(MeterRegistry meterRegistry, String listener) {
+        this(meterRegistry, listener, null, Duration.ZERO, () -> { });
+    }
+
+    /**
+     * @param releaseHeld отправляет письма, отложенные debounce и сводками; вызывается перед коммитом отзываемых партиций
+     */
+    public MeteredRebalanceListener(MeterRegistry meterRegistry, String listener,
+                                    PartitionOffsetTracker offsetTracker, Duration revokeTimeout, Runnable releaseHeld) {
+        this.listener = listener;
+        this.offsetTracker = offsetTracker;
+        this.revokeTimeout = revokeTimeout;
+        this.releaseHeld = releaseHeld;
+        this.meterRegistry = meterRegistry;
+
+        this.rebalances = Counter.builder("notification.consumer.rebalances")
+                .description("Completed consumer group rebalances")
+                .tag("listener", listener)
+                .register(meterRegistry);
+        this.assigned = partitions(meterRegistry, listener, "assigned");
+        this.revoked = partitions(meterRegistry, listener, "revoked");
+        this.lost = partitions(meterRegistry, listener, "lost");
+        this.revokeTime = Timer.builder("notification.consumer.rebalance.revoke")
+                .description("Time to finish in-flight work and commit offsets of revoked partitions")
+                .tag("listener", listener)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void onPartitionsRevokedBeforeCommit(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        if (partitions.isEmpty()) {
+            return;
+        }
+        revoking = Timer.start(meterRegistry);
+        if (offsetTracker != null) {
+            // Отложенные события разных партиций не различаются: уходят все, письма лишь отправятся раньше окна
+            releaseHeld.run();
+            offsetTracker.commitAndForget(consumer, partitions, revokeTimeout);
+        }
+    }
+
+    @Override
+    public void onPartitionsRevokedAfterCommit(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        if (partitions.isEmpty()) {
+            return;
+        }
+        revoked.increment(partitions.size());
+        if (revoking != null) {
+            long nanos = revoking.stop(revokeTime);
+            revoking = null;
+            log.info("Listener {}: {} partitions revoked in {} ms: {}", listener, partitions.size(), nanos / 1_000_000, partitions);
+        }
+    }
+
+    @Override
+    public void onPartitionsLost(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        // По умолчанию потеря обрабатывается как отзыв, но коммитить offset'ы чужих партиций нельзя
+        lost.increment(partitions.size());
+        if (offsetTracker != null) {
+            offsetTracker.forget(partitions);
+        }
+        log.warn("Listener {}: {} partitions lost without commit: {}", listener, partitions.size(), partitions);
+    }
+
+    @Override
+    public void onPartitionsAssigned(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        // Вызывается после каждой ребалансировки, при cooperative-протоколе - и с пустым набором
+        rebalances.increment();
+        assigned.increment(partitions.size());
+        if (!partitions.isEmpty()) {
+            log.info("Listener {}: {} partitions assigned: {}", listener, partitions.size(), partitions);
+        }
+    }
+
+    private static Counter partitions(MeterRegistry meterRegistry, String listener, String change) {
+        return Counter.builder("notification.consumer.rebalance.partitions")
+                .description("Partitions affected by consumer group rebalances")
+                .tag("listener", listener)
+                .tag("change", change)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,163 @@
+package com.notificationservice.kafka;
+
+import com.eventcontracts.dto.UserEventDTO;
+import com.notificationservice.debounce.CreatedDeletedDebouncer;
+import com.notificationservice.dedup.ProcessedEventStore;
+import com.notificationservice.digest.DigestAggregator;
+import com.notificationservice.metrics.NotificationLatencyMetrics;
+import com.notificationservice.service.EmailSender;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.event.ListenerContainerIdleEvent;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Kafka consumer с параллельной обработкой записей внутри партиции
+ * Включается свойством {@code notification.consumer.mode=parallel}
+ *
+ * <p>Записи раздаются {@link KeyOrderedExecutor}: письма одному адресату уходят по порядку,
+ * разным адресатам - параллельно, до {@code workers} одновременно. Пропускная способность
+ * растёт с числом workers, а не с числом партиций. Число записей в обработке ограничено
+ * {@code max-in-flight}: при его достижении поток consumer'а ждёт освобождения места.
+ * События, отложенные debounce или сводкой, место не занимают, но их offset'ы
+ * не коммитятся до отправки отложенных писем.
+ */
+@Component
+@ConditionalOnProperty(name = "notification.consumer.mode", havingValue = "parallel")
+@Slf4j
+public class ParallelUserEventConsumer {
+
+    static final String LISTENER_ID = "parallel-user-events";
+
+    private final EmailSender emailSender;
+    private final PartitionOffsetTracker offsetTracker;
+    private final FailedNotificationPublisher failedNotificationPublisher;
+    private final ProcessedEventStore processedEventStore;
+    private final CreatedDeletedDebouncer debouncer;
+    private final DigestAggregator digestAggregator;
+    private final NotificationLatencyMetrics latencyMetrics;
+    private final KeyOrderedExecutor executor;
+    private final Semaphore inFlight;
+    private final int maxInFlight;
+
+    public ParallelUserEventConsumer(EmailSender emailSender,
+                                     PartitionOffsetTracker offsetTracker,
+                                     FailedNotificationPublisher failedNotificationPublisher,
+                                     ProcessedEventStore processedEventStore,
+                                     CreatedDeletedDebouncer debouncer,
+                                     DigestAggregator digestAggregator,
+                                     NotificationLatencyMetrics latencyMetrics,
+                                     @Value("${notification.consumer.parallel.workers:64}") int workers,
+                                     @Value("${notification.consumer.parallel.max-in-flight:1000}") int maxInFlight) {
+        this.emailSender = emailSender;
+        this.offsetTracker = offsetTracker;
+        this.failedNotificationPublisher = failedNotificationPublisher;
+        this.processedEventStore = processedEventStore;
+        this.debouncer = debouncer;
+        this.digestAggregator = digestAggregator;
+        this.latencyMetrics = latencyMetrics;
+        this.executor = new KeyOrderedExecutor(workers);
+        this.inFlight = new Semaphore(maxInFlight);
+        this.maxInFlight = maxInFlight;
+    }
+
+    @KafkaListener(
+            id = LISTENER_ID,
+            idIsGroup = false,
+            topics = "${kafka.topic.user-events}",
+            groupId = "${spring.kafka.consumer.group-id}",
+            containerFactory = "parallelKafkaListenerContainerFactory"
+    )
+    public void consumeUserEvents(List<ConsumerRecord<String, UserEventDTO>> records, Consumer<?, ?> consumer)
+            throws InterruptedException {
+        for (ConsumerRecord<String, UserEventDTO> record : records) {
+            TopicPartition partition = new TopicPartition(record.topic(), record.partition());
+            if (record.value() == null) {
+                // Нечитаемая запись уже в карантине: завершена, как и обработанные
+                offsetTracker.register(partition, record.offset());
+                offsetTracker.complete(partition, record.offset());
+                continue;
+            }
+            inFlight.acquire();
+            offsetTracker.register(partition, record.offset());
+
+            UserEventDTO event = record.value();
+            long receivedAt = System.nanoTime();
+            String key = record.key() != null ? record.key() : event.getEmail();
+            CompletableFuture<Void> done = new CompletableFuture<>();
+            done.whenComplete((result, error) -> offsetTracker.complete(partition, record.offset()));
+            executor.submit(key, () -> process(event, receivedAt, done))
+                    .whenComplete((result, error) -> {
+                        inFlight.release();
+                        if (error != null) {
+                            done.complete(null);
+                        }
+                    });
+        }
+        offsetTracker.commit(consumer);
+    }
+
+    /**
+     * Коммит offset'ов, завершившихся после последнего poll(). Событие публикуется
+     * в потоке consumer'а, поэтому обращаться к consumer здесь безопасно.
+     */
+    @EventListener(condition = "event.listenerId.startsWith('" + LISTENER_ID + "')")
+    public void onIdle(ListenerContainerIdleEvent event) {
+        offsetTracker.commit(event.getConsumer());
+    }
+
+    /**
+     * Число записей, принятых в обработку и ещё не завершённых.
+     */
+    public int inFlight() {
+        return maxInFlight - inFlight.availablePermits();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (!executor.awaitTermination(Duration.ofSeconds(10))) {
+            log.warn("Parallel user event workers did not finish in time");
+        }
+        executor.close();
+    }
+
+    /**
+     * @param done завершается, когда запись обработана; для отложенных событий - после отправки их писем
+     */
+    private void process(UserEventDTO event, long receivedAt, CompletableFuture<Void> done) {
+        log.info("Received user event from Kafka: {} for user: {}",
+                event.getEventType(), event.getEmail());
+        // События одного ключа идут последовательно, поэтому проверка и отметка не гоняются между собой
+        if (processedEventStore.isDuplicate(event)) {
+            log.info("Skipping already processed event: {}", event.getEventId());
+            done.complete(null);
+            return;
+        }
+        if (debouncer.offer(event, done) != CreatedDeletedDebouncer.Decision.PASS
+                || digestAggregator.offer(event, done)) {
+            return;
+        }
+        try {
+            emailSender.sendUserEventEmail(event);
+            processedEventStore.markProcessed(event);
+            latencyMetrics.sent(event, receivedAt);
+        } catch (Exception e) {
+            log.error("Failed to process event: {}", event, e);
+            failedNotificationPublisher.publish(event, e);
+        } finally {
+            done.complete(null);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.notificationservice.kafka;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Учёт обработанных offset'ов при параллельной обработке записей одной партиции.
+ *
+ * <p>Записи завершаются не по порядку, поэтому коммитить можно только offset,
+ * перед которым всё уже обработано: наименьший незавершённый offset партиции,
+ * либо следующий за последним полученным, если незавершённых нет.
+ * Offset считается закоммиченным только после подтверждения брокером: при ошибке
+ * асинхронного коммита он уйдёт снова со следующим коммитом.
+ * Потокобезопасен: регистрирует и коммитит поток consumer'а, завершают рабочие потоки.
+ */
+@Slf4j
+public class PartitionOffsetTracker {
+
+    private final ConcurrentHashMap<TopicPartition, PartitionState> partitions = new ConcurrentHashMap<>();
+
+    public void register(TopicPartition partition, long offset) {
+        partitions.computeIfAbsent(partition, p -> new PartitionState()).register(offset);
+    }
+
+    public void complete(TopicPartition partition, long offset) {
+        PartitionState state = partitions.get(partition);
+        if (state != null) {
+            state.complete(offset);
+        }
+    }
+
+    /**
+     * Offset'ы, которые можно закоммитить для указанных партиций и которые ещё не подтверждены брокером.
+     */
+    public Map<TopicPartition, OffsetAndMetadata> committable(Collection<TopicPartition> assigned) {
+        Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+        for (TopicPartition partition : assigned) {
+            PartitionState state = partitions.get(partition);
+            if (state != null) {
+                long offset = state.committable();
+                if (offset >= 0) {
+                    offsets.put(partition, new OffsetAndMetadata(offset));
+                }
+            }
+        }
+        return offsets;
+    }
+
+    /**
+     * Асинхронный коммит продвинувшихся offset'ов. Вызывается только из потока consumer'а.
+     */
+    public void commit(Consumer<?, ?> consumer) {
+        Map<TopicPartition, OffsetAndMetadata> offsets = committable(consumer.assignment());
+        if (!offsets.isEmpty()) {
+            consumer.commitAsync(offsets, (committed, e) -> {
+                if (e != null) {
+                    log.warn("Failed to commit offsets {}", committed, e);
+                } else {
+                    committed(committed);
+                }
+            });
+        }
+    }
+
+    /**
+     * Брокер подтвердил коммит offset'ов
+     */
+    void committed(Map<TopicPartition, OffsetAndMetadata> offsets) {
+        offsets.forEach((partition, offset) -> {
+            PartitionState state = partitions.get(partition);
+            if (state != null) {
+                state.committed(offset.offset());
+            }
+        });
+    }
+
+    /**
+     * Ждёт завершения записей партиций (не дольше timeout), синхронно коммитит
+     * и забывает партиции. Используется при их отзыве.
+     */
+    public void commitAndForget(Consumer<?, ?> consumer, Collection<TopicPartition> revoked, Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (pending(revoked) > 0 && System.nanoTime() < deadline) {
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        long unfinished = pending(revoked);
+        if (unfinished > 0) {
+            log.warn("{} records of revoked partitions are still in progress and will be redelivered", unfinished);
+        }
+
+        Map<TopicPartition, OffsetAndMetadata> offsets = committable(revoked);
+        if (!offsets.isEmpty()) {
+            consumer.commitSync(offsets);
+        }
+        revoked.forEach(partitions::remove);
+    }
+
+    /**
+     * Забывает партиции без коммита. Используется при их потере: партиции уже
+     * могут принадлежать другому consumer'у, и коммит с этого consumer'а будет отклонён.
+     */
+    public void forget(Collection<TopicPartition> lost) {
+        lost.forEach(partitions::remove);
+    }
+
+    public long pending(Collection<TopicPartition> selected) {
+        long pending = 0;
+        for (TopicPartition partition : selected) {
+            PartitionState state = partitions.get(partition);
+            if (state != null) {
+                pending += state.pending();
+            }
+        }
+        return pending;
+    }
+
+    private static final class PartitionState {
+        private final TreeSet<Long> inProgress = new TreeSet<>();
+        private long nextOffset = -1;
+        private long committed = -1;
+
+        synchronized void register(long offset) {
+            inProgress.add(offset);
+            nextOffset = Math.max(nextOffset, offset + 1);
+        }
+
+        synchronized void complete(long offset) {
+            inProgress.remove(offset);
+        }
+
+        synchronized long committable() {
+            long safe = inProgress.isEmpty() ? nextOffset : inProgress.first();
+            return safe > committed ? safe : -1;
+        }
+
+        synchronized void committed(long offset) {
+            committed = Math.max(committed, offset);
+        }
+
+        synchronized int pending() {
+            return inProgress.size();
+        }
+    }
+}
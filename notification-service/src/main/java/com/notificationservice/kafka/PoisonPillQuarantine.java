@@ -0,0 +1,297 @@
+package com.notificationservice.kafka;
+
+import com.eventcontracts.dto.UserEventDTO;
+import com.eventcontracts.serialization.UserEventSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Header;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.log.LogAccessor;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.BatchInterceptor;
+import org.springframework.kafka.listener.ConsumerRecordRecoverer;
+import org.springframework.kafka.support.serializer.DeserializationException;
+import org.springframework.kafka.support.serializer.SerializationUtils;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Карантин для записей, которые не удалось десериализовать
+ *
+ * <p>Значение и ключ читаются через ErrorHandlingDeserializer: вместо бесконечного цикла
+ * на ошибке десериализации запись приходит с заголовком исключения. Такая запись
+ * с исходными байтами и заголовками откладывается в карантинный топик (или файл, если
+ * топик недоступен или выбран {@code notification.quarantine.target=FILE})
+ * и пропускается, партиция продолжает обрабатываться.
+ *
+ * <p>ErrorHandlingDeserializer сохраняет в заголовке байты только нечитаемой части записи.
+ * Если не разобрался один ключ, значение откладывается повторно сериализованным
+ * через {@link UserEventSerializer}.
+ *
+ * <p>Одиночный режим подключает карантин как recoverer обработчика ошибок,
+ * пакетный и параллельный - как {@link BatchInterceptor}, который заменяет такие записи
+ * в пакете записями без значения: listener их пропускает, но подтверждает вместе
+ * с остальными, и offset партиции продвигается и за записью из карантина в конце пакета.
+ */
+@Component
+@Slf4j
+public class PoisonPillQuarantine implements ConsumerRecordRecoverer, BatchInterceptor<String, UserEventDTO> {
+
+    /**
+     * Куда откладывать нечитаемые записи
+     */
+    public enum Target {
+        TOPIC,
+        FILE
+    }
+
+    static final String ORIGINAL_TOPIC_HEADER = "x-quarantine-original-topic";
+    static final String ORIGINAL_PARTITION_HEADER = "x-quarantine-original-partition";
+    static final String ORIGINAL_OFFSET_HEADER = "x-quarantine-original-offset";
+    static final String REASON_HEADER = "x-quarantine-reason";
+
+    private static final LogAccessor LOG_ACCESSOR = new LogAccessor(PoisonPillQuarantine.class);
+    private static final UserEventSerializer VALUE_SERIALIZER = new UserEventSerializer();
+
+    private final KafkaTemplate<byte[], byte[]> quarantineKafkaTemplate;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final Target target;
+    private final String topic;
+    private final Path file;
+    private final Duration sendTimeout;
+
+    public PoisonPillQuarantine(KafkaTemplate<byte[], byte[]> quarantineKafkaTemplate,
+                                ObjectMapper objectMapper,
+                                MeterRegistry meterRegistry,
+                                @Value("${notification.quarantine.target:TOPIC}") Target target,
+                                @Value("${notification.quarantine.topic:${kafka.topic.user-events}.quarantine}") String topic,
+                                @Value("${notification.quarantine.file:${java.io.tmpdir}/notification-service/user-events.quarantine}") Path file,
+                                @Value("${notification.quarantine.send-timeout:PT10S}") Duration sendTimeout) {
+        this.quarantineKafkaTemplate = quarantineKafkaTemplate;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.target = target;
+        this.topic = topic;
+        this.file = file;
+        this.sendTimeout = sendTimeout;
+    }
+
+    /**
+     * Recoverer для DefaultErrorHandler одиночного режима
+     */
+    @Override
+    public void accept(ConsumerRecord<?, ?> record, Exception exception) {
+        PoisonPill pill = PoisonPill.of(record, exception);
+        if (pill == null) {
+            // Не ошибка десериализации: запись читаемая, но listener упал на ней
+            log.error("Skipping record {}-{}@{} after listener failure", record.topic(), record.partition(),
+                    record.offset(), exception);
+            return;
+        }
+        quarantine(record, pill);
+    }
+
+    /**
+     * Отправляет нечитаемые записи пакета в карантин и оставляет вместо них записи без значения
+     */
+    @Override
+    public ConsumerRecords<String, UserEventDTO> intercept(ConsumerRecords<String, UserEventDTO> records,
+                                                           Consumer<String, UserEventDTO> consumer) {
+        Map<TopicPartition, List<ConsumerRecord<String, UserEventDTO>>> readable = null;
+        for (TopicPartition partition : records.partitions()) {
+            List<ConsumerRecord<String, UserEventDTO>> partitionRecords = records.records(partition);
+            List<ConsumerRecord<String, UserEventDTO>> kept = new ArrayList<>(partitionRecords.size());
+            for (ConsumerRecord<String, UserEventDTO> record : partitionRecords) {
+                PoisonPill pill = PoisonPill.of(record, null);
+                if (pill == null) {
+                    kept.add(record);
+                    continue;
+                }
+                quarantine(record, pill);
+                if (record.value() != null) {
+                    // Не разобрался только ключ: значение не должно дойти до listener'а
+                    kept.add(withoutValue(record));
+                    if (readable == null) {
+                        readable = copyPartitionsBefore(records, partition);
+                    }
+                } else {
+                    kept.add(record);
+                }
+            }
+            if (readable != null) {
+                readable.put(partition, kept);
+            }
+        }
+        // Если значения не заменялись, возвращаем исходный пакет без копирования
+        return readable == null ? records : new ConsumerRecords<>(readable);
+    }
+
+    private static ConsumerRecord<String, UserEventDTO> withoutValue(ConsumerRecord<String, UserEventDTO> record) {
+        return new ConsumerRecord<>(record.topic(), record.partition(), record.offset(), record.timestamp(),
+                record.timestampType(), record.serializedKeySize(), record.serializedValueSize(), record.key(), null,
+                record.headers(), record.leaderEpoch());
+    }
+
+    private static Map<TopicPartition, List<ConsumerRecord<String, UserEventDTO>>> copyPartitionsBefore(
+            ConsumerRecords<String, UserEventDTO> records, TopicPartition current) {
+        Map<TopicPartition, List<ConsumerRecord<String, UserEventDTO>>> copy = new LinkedHashMap<>();
+        for (TopicPartition partition : records.partitions()) {
+            if (partition.equals(current)) {
+                break;
+            }
+            copy.put(partition, records.records(partition));
+        }
+        return copy;
+    }
+
+    private void quarantine(ConsumerRecord<?, ?> record, PoisonPill pill) {
+        String part = pill.key() ? "key" : "value";
+        log.warn("Quarantining undeserializable {} of record {}-{}@{}: {}", part, record.topic(), record.partition(),
+                record.offset(), pill.reason());
+
+        Target written = target;
+        if (target == Target.TOPIC && !sendToTopic(record, pill)) {
+            written = Target.FILE;
+        }
+        if (written == Target.FILE && !writeToFile(record, pill)) {
+            meterRegistry.counter("notification.events.quarantine.failures").increment();
+            return;
+        }
+        meterRegistry.counter("notification.events.quarantined",
+                "target", written.name().toLowerCase(), "part", part).increment();
+    }
+
+    private boolean sendToTopic(ConsumerRecord<?, ?> record, PoisonPill pill) {
+        Long timestamp = record.timestamp() >= 0 ? record.timestamp() : null;
+        ProducerRecord<byte[], byte[]> quarantined = new ProducerRecord<>(topic, null, timestamp,
+                pill.rawKey(), pill.rawValue());
+        for (Header header : originalHeaders(record)) {
+            quarantined.headers().add(header);
+        }
+        quarantined.headers()
+                .add(ORIGINAL_TOPIC_HEADER, record.topic().getBytes(StandardCharsets.UTF_8))
+                .add(ORIGINAL_PARTITION_HEADER, String.valueOf(record.partition()).getBytes(StandardCharsets.UTF_8))
+                .add(ORIGINAL_OFFSET_HEADER, String.valueOf(record.offset()).getBytes(StandardCharsets.UTF_8))
+                .add(REASON_HEADER, pill.reason().getBytes(StandardCharsets.UTF_8));
+        try {
+            quarantineKafkaTemplate.send(quarantined).get(sendTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("Interrupted while quarantining record to {}, falling back to file", topic, e);
+            return false;
+        } catch (Exception e) {
+            log.error("Failed to quarantine record to {}, falling back to file", topic, e);
+            return false;
+        }
+    }
+
+    private synchronized boolean writeToFile(ConsumerRecord<?, ?> record, PoisonPill pill) {
+        Base64.Encoder base64 = Base64.getEncoder();
+        Map<String, String> headers = new LinkedHashMap<>();
+        for (Header header : originalHeaders(record)) {
+            headers.put(header.key(), header.value() == null ? null : base64.encodeToString(header.value()));
+        }
+        Map<String, Object> line = new LinkedHashMap<>();
+        line.put("topic", record.topic());
+        line.put("partition", record.partition());
+        line.put("offset", record.offset());
+        line.put("timestamp", record.timestamp());
+        line.put("reason", pill.reason());
+        line.put("key", pill.rawKey() == null ? null : base64.encodeToString(pill.rawKey()));
+        line.put("value", pill.rawValue() == null ? null : base64.encodeToString(pill.rawValue()));
+        line.put("headers", headers);
+        try {
+            Files.createDirectories(file.getParent());
+            Files.write(file, (objectMapper.writeValueAsString(line) + "\n").getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            return true;
+        } catch (IOException | UncheckedIOException e) {
+            log.error("Failed to quarantine record {}-{}@{} to {}, record is skipped", record.topic(),
+                    record.partition(), record.offset(), file, e);
+            return false;
+        }
+    }
+
+    /**
+     * Заголовки исходной записи без служебных заголовков ErrorHandlingDeserializer
+     */
+    private static List<Header> originalHeaders(ConsumerRecord<?, ?> record) {
+        List<Header> headers = new ArrayList<>();
+        for (Header header : record.headers()) {
+            if (!header.key().startsWith(SerializationUtils.DESERIALIZER_EXCEPTION_HEADER_PREFIX)) {
+                headers.add(header);
+            }
+        }
+        return headers;
+    }
+
+    /**
+     * Исходные байты нечитаемой записи
+     */
+    private record PoisonPill(byte[] rawKey, byte[] rawValue, boolean key, String reason) {
+
+        /**
+         * @param exception исключение обработчика ошибок; DeserializationException ищется в цепочке
+         *                  причин, иначе - в заголовках ErrorHandlingDeserializer
+         */
+        static PoisonPill of(ConsumerRecord<?, ?> record, Exception exception) {
+            DeserializationException thrown = findDeserializationException(exception);
+            DeserializationException valueError = thrown != null && !thrown.isKey() ? thrown
+                    : headerException(record, record.value(), SerializationUtils.VALUE_DESERIALIZER_EXCEPTION_HEADER);
+            DeserializationException keyError = thrown != null && thrown.isKey() ? thrown
+                    : headerException(record, record.key(), SerializationUtils.KEY_DESERIALIZER_EXCEPTION_HEADER);
+            if (valueError == null && keyError == null) {
+                return null;
+            }
+            byte[] rawKey = keyError != null ? keyError.getData() : toBytes(record.key());
+            byte[] rawValue = valueError != null ? valueError.getData() : toBytes(record.topic(), record.value());
+            DeserializationException error = valueError != null ? valueError : keyError;
+            Throwable cause = error.getCause() != null ? error.getCause() : error;
+            return new PoisonPill(rawKey, rawValue, valueError == null,
+                    cause.getClass().getName() + ": " + cause.getMessage());
+        }
+
+        private static DeserializationException headerException(ConsumerRecord<?, ?> record, Object deserialized,
+                                                                String header) {
+            return deserialized == null ? SerializationUtils.getExceptionFromHeader(record, header, LOG_ACCESSOR) : null;
+        }
+
+        private static DeserializationException findDeserializationException(Throwable exception) {
+            for (Throwable current = exception; current != null; current = current.getCause()) {
+                if (current instanceof DeserializationException deserializationException) {
+                    return deserializationException;
+                }
+            }
+            return null;
+        }
+
+        private static byte[] toBytes(Object key) {
+            return key == null ? null : key.toString().getBytes(StandardCharsets.UTF_8);
+        }
+
+        private static byte[] toBytes(String topic, Object value) {
+            return value instanceof UserEventDTO event ? VALUE_SERIALIZER.serialize(topic, event) : null;
+        }
+    }
+}
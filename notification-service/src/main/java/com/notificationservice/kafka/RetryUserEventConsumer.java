@@ -0,0 +1,54 @@
+package com.notificationservice.kafka;
+
+import com.eventcontracts.dto.UserEventDTO;
+import com.notificationservice.dedup.ProcessedEventStore;
+import com.notificationservice.metrics.NotificationLatencyMetrics;
+import com.notificationservice.service.EmailSender;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.annotation.DltHandler;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.stereotype.Component;
+
+/**
+ * Kafka consumer для повторной отправки неудачных уведомлений
+ *
+ * <p>Слушает топик повторов и его уровни {@code -retry-N}, которые создаёт
+ * RetryTopicConfiguration из {@code KafkaConsumerConfig}. Ошибка отправки
+ * пробрасывается, чтобы запись ушла на следующий уровень или в DLT.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RetryUserEventConsumer {
+
+    private final EmailSender emailSender;
+    private final ProcessedEventStore processedEventStore;
+    private final NotificationLatencyMetrics latencyMetrics;
+
+    @KafkaListener(
+            id = "notification-retry",
+            idIsGroup = false,
+            topics = "${notification.retry.topic:${kafka.topic.user-events}.failed}",
+            groupId = "${spring.kafka.consumer.group-id}"
+    )
+    public void retryUserEvent(UserEventDTO event, @Header(KafkaHeaders.RECEIVED_TOPIC) String topic) {
+        long receivedAt = System.nanoTime();
+        log.info("Retrying user event from {}: {} for user: {}", topic, event.getEventType(), event.getEmail());
+        if (processedEventStore.isDuplicate(event)) {
+            log.info("Skipping already processed event: {}", event.getEventId());
+            return;
+        }
+        emailSender.sendUserEventEmail(event);
+        processedEventStore.markProcessed(event);
+        latencyMetrics.sent(event, receivedAt);
+    }
+
+    @DltHandler
+    public void onDeadLetter(UserEventDTO event, @Header(KafkaHeaders.RECEIVED_TOPIC) String topic) {
+        log.error("Notification moved to {} after all retries: {} for user: {}",
+                topic, event.getEventType(), event.getEmail());
+    }
+}
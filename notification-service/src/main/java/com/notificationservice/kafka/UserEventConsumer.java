@@ -1,35 +1,113 @@
 package com.notificationservice.kafka;
 
-import com.notificationservice.dto.UserEventDTO;
+import com.eventcontracts.dto.UserEventDTO;
+import com.notificationservice.debounce.CreatedDeletedDebouncer;
+import com.notificationservice.dedup.ProcessedEventStore;
+import com.notificationservice.digest.DigestAggregator;
+import com.notificationservice.metrics.NotificationLatencyMetrics;
 import com.notificationservice.service.EmailSender;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.event.ListenerContainerIdleEvent;
 import org.springframework.stereotype.Component;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Kafka consumer для получения событий пользователей
+ * Обрабатывает записи по одной; другие режимы - {@link BatchUserEventConsumer}, {@link ParallelUserEventConsumer}
+ * По умолчанию письма уходят асинхронно, а offset'ы коммитятся только после отправки писем,
+ * см. {@link BatchedOffsetCommitter}; при большом хвосте неотправленных писем
+ * чтение приостанавливает {@link BackpressureController}
+ * При {@code notification.consumer.commit.manual=false} контейнер коммитит offset после возврата
+ * из listener'а, поэтому listener ждёт отправки письма (или передачи события в топик повторов)
  */
 @Component
+@ConditionalOnProperty(name = "notification.consumer.mode", havingValue = "single", matchIfMissing = true)
 @RequiredArgsConstructor
 @Slf4j
 public class UserEventConsumer {
 
+    static final String LISTENER_ID = "user-events";
+
     private final EmailSender emailSender;
+    private final FailedNotificationPublisher failedNotificationPublisher;
+    private final ProcessedEventStore processedEventStore;
+    private final CreatedDeletedDebouncer debouncer;
+    private final DigestAggregator digestAggregator;
+    private final NotificationLatencyMetrics latencyMetrics;
+    private final BatchedOffsetCommitter offsetCommitter;
 
     @KafkaListener(
+            id = LISTENER_ID,
+            idIsGroup = false,
             topics = "${kafka.topic.user-events}",
-            groupId = "${spring.kafka.consumer.group-id}"
+            groupId = "${spring.kafka.consumer.group-id}",
+            containerFactory = "userEventsKafkaListenerContainerFactory"
     )
-    public void consumeUserEvent(UserEventDTO event) {
+    public void consumeUserEvent(ConsumerRecord<String, UserEventDTO> record, Consumer<?, ?> consumer) {
+        offsetCommitter.register(record);
+        CompletableFuture<Void> processed;
+        try {
+            processed = process(record.value(), System.nanoTime());
+        } catch (RuntimeException e) {
+            offsetCommitter.complete(record);
+            throw e;
+        }
+        if (!offsetCommitter.isEnabled()) {
+            // Ошибка здесь - не доставленное и не переданное в топик повторов событие: его повторит контейнер
+            processed.join();
+            return;
+        }
+        processed.whenComplete((result, e) -> offsetCommitter.complete(record));
+        offsetCommitter.commitIfDue(consumer);
+    }
+
+    /**
+     * Коммит по интервалу, когда записей нет. Событие публикуется в потоке consumer'а
+     * и только при включённом {@link BatchedOffsetCommitter}.
+     */
+    @EventListener(condition = "event.listenerId.startsWith('" + LISTENER_ID + "')")
+    public void onIdle(ListenerContainerIdleEvent event) {
+        offsetCommitter.commitIfDue(event.getConsumer());
+    }
+
+    /**
+     * @return future, завершающийся после отправки письма или публикации события в топик повторов
+     */
+    private CompletableFuture<Void> process(UserEventDTO event, long receivedAt) {
         log.info("Received user event from Kafka: {} for user: {}",
                 event.getEventType(), event.getEmail());
-
-        try {
-            emailSender.sendUserEventEmail(event);
-        } catch (Exception e) {
-            log.error("Failed to process event: {}", event, e);
+        if (processedEventStore.isDuplicate(event)) {
+            log.info("Skipping already processed event: {}", event.getEventId());
+            return CompletableFuture.completedFuture(null);
         }
+        // С ручным коммитом отложенное событие завершается, когда его письмо отправят debounce или сводка
+        CompletableFuture<Void> held = offsetCommitter.isEnabled()
+                ? new CompletableFuture<>()
+                : CompletableFuture.completedFuture(null);
+        if (debouncer.offer(event, held) != CreatedDeletedDebouncer.Decision.PASS
+                || digestAggregator.offer(event, held)) {
+            return held;
+        }
+
+        // Письмо отправляется через пул SMTP-соединений; ошибка отправки завершает future
+        // нормально, если событие передано в топик повторов
+        return emailSender.sendUserEventEmailAsync(event)
+                .handle((result, e) -> {
+                    if (e != null) {
+                        log.error("Failed to process event: {}", event, e);
+                        failedNotificationPublisher.publish(event, e);
+                    } else {
+                        processedEventStore.markProcessed(event);
+                        latencyMetrics.sent(event, receivedAt);
+                    }
+                    return null;
+                });
     }
 }
-
@@ -0,0 +1,72 @@
+package com.notificationservice.kafka;
+
+import com.eventcontracts.dto.UserEventDTO;
+import com.notificationservice.userstate.UserStateStore;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Kafka consumer компактируемого топика состояния пользователей, наполняющий {@link UserStateStore}
+ *
+ * <p>Каждому экземпляру сервиса нужна полная копия, поэтому группа у consumer'а своя
+ * на каждый запуск и offset'ы в Kafka не коммитятся: при назначении партиции чтение
+ * продолжается с позиции из снимка хранилища, а без снимка - с начала топика.
+ */
+@Component
+@ConditionalOnProperty(name = "notification.user-state.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class UserStateConsumer implements ConsumerSeekAware {
+
+    static final String LISTENER_ID = "user-state";
+
+    private final UserStateStore store;
+
+    @KafkaListener(
+            id = LISTENER_ID,
+            idIsGroup = false,
+            topics = "${notification.user-state.topic:user-state}",
+            groupId = "${spring.kafka.consumer.group-id}-user-state-${random.uuid}",
+            containerFactory = "userStateKafkaListenerContainerFactory"
+    )
+    public void consumeUserState(ConsumerRecord<String, UserEventDTO> record) {
+        long userId;
+        try {
+            userId = Long.parseLong(record.key());
+        } catch (NumberFormatException e) {
+            log.warn("Skipping user state record with invalid key {} at {}-{}@{}",
+                    record.key(), record.topic(), record.partition(), record.offset());
+            store.skip(record.partition(), record.offset());
+            return;
+        }
+        UserEventDTO state = record.value();
+        if (state != null && state.getUser() == null) {
+            // Запись старой схемы без снимка: прежнее состояние пользователя остаётся в силе
+            store.skip(record.partition(), record.offset());
+            return;
+        }
+        store.apply(record.partition(), record.offset(), userId, state != null ? state.getUser() : null);
+        store.snapshotIfDue();
+    }
+
+    @Override
+    public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        for (TopicPartition partition : assignments.keySet()) {
+            long offset = store.nextOffset(partition.partition());
+            if (offset >= 0) {
+                callback.seek(partition.topic(), partition.partition(), offset);
+            } else {
+                callback.seekToBeginning(partition.topic(), partition.partition());
+            }
+        }
+        log.info("User state consumer assigned {} partitions, {} users loaded", assignments.size(), store.size());
+    }
+}
@@ -0,0 +1,103 @@
+package com.notificationservice.mail;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Асинхронная отправка писем с ограниченным параллелизмом.
+ *
+ * <p>Письма отправляются на виртуальных потоках, одновременно - не больше
+ * {@code max-concurrency} (обычно равно размеру пула SMTP-соединений). Принятых,
+ * но ещё не отправленных писем - не больше {@code max-pending}; сверх лимита
+ * вызывающий поток ждёт освобождения места до {@code offer-timeout}, так что
+ * consumer притормаживает вместе с SMTP. Если место так и не освободилось,
+ * future завершается {@link RejectedExecutionException} и письмо уходит в топик повторов.
+ */
+@Component
+@Slf4j
+public class MailDispatcher {
+
+    private final JavaMailSender mailSender;
+    private final Semaphore concurrency;
+    private final Semaphore pending;
+    private final int maxPending;
+    private final Duration offerTimeout;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public MailDispatcher(JavaMailSender mailSender,
+                          @Value("${notification.mail.async.max-concurrency:8}") int maxConcurrency,
+                          @Value("${notification.mail.async.max-pending:1000}") int maxPending,
+                          @Value("${notification.mail.async.offer-timeout:PT10S}") Duration offerTimeout) {
+        this.mailSender = mailSender;
+        this.concurrency = new Semaphore(maxConcurrency);
+        this.pending = new Semaphore(maxPending);
+        this.maxPending = maxPending;
+        this.offerTimeout = offerTimeout;
+    }
+
+    /**
+     * Принимает письмо к отправке; при {@code max-pending} неотправленных ждёт свободного места
+     */
+    public CompletableFuture<Void> dispatch(SimpleMailMessage message) {
+        try {
+            if (!pending.tryAcquire(offerTimeout.toNanos(), TimeUnit.NANOSECONDS)) {
+                return CompletableFuture.failedFuture(new RejectedExecutionException(
+                        "Too many pending emails for " + offerTimeout.toMillis() + " ms, rejecting message to "
+                                + recipient(message)));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(
+                    new RejectedExecutionException("Interrupted while waiting to send message to " + recipient(message), e));
+        }
+        try {
+            return CompletableFuture.runAsync(() -> send(message), executor);
+        } catch (RejectedExecutionException e) {
+            pending.release();
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Число писем, принятых к отправке и ещё не отправленных.
+     */
+    public int pending() {
+        return maxPending - pending.availablePermits();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // close() дожидается отправки уже принятых писем
+        executor.close();
+    }
+
+    private void send(SimpleMailMessage message) {
+        try {
+            concurrency.acquireUninterruptibly();
+            try {
+                mailSender.send(message);
+                log.debug("Email sent successfully to: {}", recipient(message));
+            } finally {
+                concurrency.release();
+            }
+        } finally {
+            pending.release();
+        }
+    }
+
+    private static String recipient(SimpleMailMessage message) {
+        return message.getTo() != null && message.getTo().length > 0 ? message.getTo()[0] : "<none>";
+    }
+}
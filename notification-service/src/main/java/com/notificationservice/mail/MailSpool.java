@@ -0,0 +1,629 @@
+package com.notificationservice.mail;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.SendFailedException;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.angus.mail.smtp.SMTPAddressFailedException;
+import org.eclipse.angus.mail.smtp.SMTPSendFailedException;
+import org.eclipse.angus.mail.smtp.SMTPSenderFailedException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailParseException;
+import org.springframework.mail.MailPreparationException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32C;
+
+/**
+ * Локальная очередь исходящих писем на диске
+ *
+ * <p>Включается свойством {@code notification.mail.spool.enabled=true}. Принятое письмо
+ * дописывается в журнал и считается принятым к доставке: consumer подтверждает offset
+ * сразу, не дожидаясь SMTP. Отдельный поток доставки отправляет письма из журнала
+ * по порядку; при ошибке SMTP повторяет то же письмо с экспоненциальной задержкой
+ * до {@code max-backoff}. Письма, которые нельзя собрать ({@link MailParseException},
+ * {@link MailPreparationException}), и письма, отклонённые сервером окончательно
+ * ({@link SendFailedException} без временного кода 4xx, например несуществующий адрес),
+ * отбрасываются: повтор их не исправит. Письмо, не доставленное за {@code max-attempts}
+ * попыток подряд, тоже отбрасывается, чтобы один адресат не останавливал весь журнал.
+ * Журнал хранит готовые письма, а не события, поэтому отброшенные письма только считаются
+ * метрикой {@code notification.mail.spool.discarded} и пишутся в лог.
+ *
+ * <p>Журнал - сегменты {@code segment-<номер>.spool} фиксированного размера, отображённые
+ * в память. Запись: длина, CRC32C и тело; длина пишется последней, поэтому оборванная
+ * запись читается как конец журнала, а испорченная - отсекается по CRC при старте.
+ * Позиция доставки хранится в файле {@code checkpoint}. Сегмент удаляется целиком,
+ * когда доставлены все его письма и запись перешла в следующий.
+ *
+ * <p>Доставка - не менее одного раза: позиция сбрасывается на диск не после каждого письма,
+ * и после аварийного завершения последние доставленные письма могут уйти повторно.
+ * Если журнал заполнен ({@code max-segments}), письмо отправляется напрямую, как без журнала.
+ */
+@Component
+@Slf4j
+public class MailSpool {
+
+    private static final Pattern SEGMENT_FILE = Pattern.compile("segment-(\\d+)\\.spool");
+    private static final String CHECKPOINT_FILE = "checkpoint";
+    private static final int HEADER_SIZE = 2 * Integer.BYTES;
+    private static final int CHECKPOINT_SIZE = Long.BYTES + 2 * Integer.BYTES;
+    private static final Duration INITIAL_BACKOFF = Duration.ofSeconds(1);
+    static final int DEFAULT_MAX_ATTEMPTS = 10;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final boolean forceOnAppend;
+    private final boolean enabled;
+
+    private final Object writeLock = new Object();
+    /** Сегменты от читаемого до записываемого; изменяется под writeLock */
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private final AtomicLong pending = new AtomicLong();
+    private ByteBuffer encodeBuffer = ByteBuffer.allocate(4096);
+    private MappedByteBuffer checkpoint;
+    private FileChannel checkpointChannel;
+
+    /** Позиция доставки; изменяется только потоком доставки */
+    private Segment readSegment;
+    private int readOffset;
+    /** Неудачные попытки доставить первое письмо; изменяется только потоком доставки */
+    private int headAttempts;
+    private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+
+    private JavaMailSender mailSender;
+    private Duration pollInterval;
+    private Duration maxBackoff;
+    private Thread drainer;
+    private volatile boolean running;
+    private Counter appended;
+    private Counter delivered;
+    private Counter discarded;
+    private Counter deliveryFailures;
+
+    @Autowired
+    public MailSpool(JavaMailSender mailSender,
+                     MeterRegistry meterRegistry,
+                     @Value("${notification.mail.spool.enabled:false}") boolean enabled,
+                     @Value("${notification.mail.spool.directory:${java.io.tmpdir}/notification-service/spool}") Path directory,
+                     @Value("${notification.mail.spool.segment-size:67108864}") int segmentSize,
+                     @Value("${notification.mail.spool.max-segments:16}") int maxSegments,
+                     @Value("${notification.mail.spool.force-on-append:true}") boolean forceOnAppend,
+                     @Value("${notification.mail.spool.poll-interval:PT0.2S}") Duration pollInterval,
+                     @Value("${notification.mail.spool.max-backoff:PT1M}") Duration maxBackoff,
+                     @Value("${notification.mail.spool.max-attempts:10}") int maxAttempts) {
+        this(directory, segmentSize, maxSegments, forceOnAppend, enabled);
+        this.mailSender = mailSender;
+        this.maxAttempts = maxAttempts;
+        this.pollInterval = pollInterval;
+        this.maxBackoff = maxBackoff;
+        this.appended = Counter.builder("notification.mail.spool.appended").register(meterRegistry);
+        this.delivered = Counter.builder("notification.mail.spool.delivered").register(meterRegistry);
+        this.discarded = Counter.builder("notification.mail.spool.discarded").register(meterRegistry);
+        this.deliveryFailures = Counter.builder("notification.mail.spool.delivery.failures").register(meterRegistry);
+        Gauge.builder("notification.mail.spool.pending", pending, AtomicLong::get).register(meterRegistry);
+        Gauge.builder("notification.mail.spool.segments", this, MailSpool::segmentCount).register(meterRegistry);
+    }
+
+    MailSpool(Path directory, int segmentSize, int maxSegments, boolean forceOnAppend, boolean enabled) {
+        if (segmentSize <= HEADER_SIZE || maxSegments < 1) {
+            throw new IllegalArgumentException("segment-size and max-segments must be positive");
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxSegments = maxSegments;
+        this.forceOnAppend = forceOnAppend;
+        this.enabled = enabled;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        open();
+        if (mailSender != null) {
+            running = true;
+            drainer = Thread.ofPlatform().name("mail-spool-drainer").daemon().start(this::runDrainer);
+        }
+        log.info("Mail spool enabled: directory={}, pending={}, segments={}", directory, pending.get(), segmentCount());
+    }
+
+    /**
+     * Восстанавливает журнал: позицию доставки, границу записи и число недоставленных писем.
+     */
+    void open() {
+        try {
+            Files.createDirectories(directory);
+            List<Long> sequences = new ArrayList<>();
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "segment-*.spool")) {
+                for (Path file : files) {
+                    Matcher matcher = SEGMENT_FILE.matcher(file.getFileName().toString());
+                    if (matcher.matches()) {
+                        sequences.add(Long.parseLong(matcher.group(1)));
+                    }
+                }
+            }
+            sequences.sort(null);
+
+            checkpointChannel = FileChannel.open(directory.resolve(CHECKPOINT_FILE),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            checkpoint = checkpointChannel.map(FileChannel.MapMode.READ_WRITE, 0, CHECKPOINT_SIZE);
+            long checkpointSequence = checkpoint.getLong(0);
+            int checkpointOffset = checkpoint.getInt(Long.BYTES);
+            if (checkpoint.getInt(Long.BYTES + Integer.BYTES) != checkpointCrc(checkpointSequence, checkpointOffset)) {
+                // Файла позиции нет или он испорчен: доставляем с начала журнала
+                checkpointSequence = -1;
+                checkpointOffset = 0;
+            }
+
+            for (long sequence : sequences) {
+                if (sequence < checkpointSequence) {
+                    Files.deleteIfExists(segmentFile(sequence));
+                    continue;
+                }
+                Segment segment = Segment.open(segmentFile(sequence), sequence, segmentSize);
+                int from = sequence == checkpointSequence ? Math.min(checkpointOffset, segment.limit) : 0;
+                pending.addAndGet(segment.countRecords(from));
+                if (readSegment == null) {
+                    readSegment = segment;
+                    readOffset = from;
+                }
+                segments.addLast(segment);
+            }
+            // Запись продолжается только в последний сегмент; остальные уже запечатаны
+            segments.forEach(segment -> segment.sealed = segment != segments.peekLast());
+            if (!segments.isEmpty()) {
+                segments.peekLast().clearTail();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open mail spool in " + directory, e);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Дописывает письмо в журнал
+     *
+     * @return false, если журнал выключен или заполнен: письмо нужно отправить напрямую
+     */
+    public boolean append(SimpleMailMessage message) {
+        if (!enabled) {
+            return false;
+        }
+        synchronized (writeLock) {
+            ByteBuffer payload = encode(message);
+            int recordSize = HEADER_SIZE + payload.remaining();
+            if (recordSize > segmentSize) {
+                log.warn("Email to {} is too large for the spool, sending directly", recipient(message));
+                return false;
+            }
+            Segment segment = segments.peekLast();
+            if (segment == null || segment.limit + recordSize > segmentSize) {
+                if (segments.size() >= maxSegments) {
+                    return false;
+                }
+                segment = nextSegment(segment);
+            }
+            segment.write(payload, forceOnAppend);
+        }
+        pending.incrementAndGet();
+        if (appended != null) {
+            appended.increment();
+        }
+        return true;
+    }
+
+    public long pending() {
+        return pending.get();
+    }
+
+    public int segmentCount() {
+        synchronized (writeLock) {
+            return segments.size();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        if (drainer != null) {
+            drainer.interrupt();
+            drainer.join(Duration.ofSeconds(10).toMillis());
+        }
+        if (checkpoint != null) {
+            checkpoint.force();
+        }
+        synchronized (writeLock) {
+            segments.forEach(Segment::close);
+        }
+        closeQuietly(checkpointChannel);
+    }
+
+    /**
+     * Отправляет следующее письмо журнала. Вызывается потоком доставки; открыт для тестов.
+     *
+     * @return false, если недоставленных писем нет
+     * @throws MailException временная ошибка SMTP; письмо остаётся первым в очереди
+     */
+    boolean deliverNext(JavaMailSender sender) {
+        SimpleMailMessage message = peek();
+        if (message == null) {
+            return false;
+        }
+        try {
+            sender.send(message);
+            if (delivered != null) {
+                delivered.increment();
+            }
+        } catch (MailParseException | MailPreparationException e) {
+            discard(message, "message cannot be built", e);
+        } catch (MailException e) {
+            if (isPermanent(e)) {
+                discard(message, "rejected by the mail server", e);
+            } else if (++headAttempts >= maxAttempts) {
+                discard(message, "not delivered after " + headAttempts + " attempts", e);
+            } else {
+                throw e;
+            }
+        }
+        advance();
+        return true;
+    }
+
+    private void discard(SimpleMailMessage message, String reason, Exception e) {
+        log.error("Discarding spooled email to {}: {}", recipient(message), reason, e);
+        if (discarded != null) {
+            discarded.increment();
+        }
+    }
+
+    /**
+     * Окончательный отказ сервера: {@link SendFailedException} без временного кода 4xx
+     */
+    static boolean isPermanent(MailException e) {
+        List<Throwable> causes = new ArrayList<>();
+        causes.add(e);
+        if (e instanceof MailSendException sendException) {
+            causes.addAll(sendException.getFailedMessages().values());
+        }
+        boolean permanent = false;
+        for (Throwable root : causes) {
+            for (Throwable cause = root; cause != null; cause = cause.getCause() != cause ? cause.getCause() : null) {
+                int code = returnCode(cause);
+                if (code >= 400 && code < 500) {
+                    return false;
+                }
+                permanent |= cause instanceof SendFailedException;
+            }
+        }
+        return permanent;
+    }
+
+    private static int returnCode(Throwable cause) {
+        return switch (cause) {
+            case SMTPAddressFailedException failed -> failed.getReturnCode();
+            case SMTPSendFailedException failed -> failed.getReturnCode();
+            case SMTPSenderFailedException failed -> failed.getReturnCode();
+            default -> -1;
+        };
+    }
+
+    private void runDrainer() {
+        Duration backoff = INITIAL_BACKOFF;
+        while (running) {
+            try {
+                if (deliverNext(mailSender)) {
+                    backoff = INITIAL_BACKOFF;
+                } else {
+                    Thread.sleep(pollInterval);
+                }
+            } catch (MailException e) {
+                deliveryFailures.increment();
+                log.warn("Failed to deliver spooled email, retrying in {} ms", backoff.toMillis(), e);
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                backoff = backoff.multipliedBy(2).compareTo(maxBackoff) > 0 ? maxBackoff : backoff.multipliedBy(2);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Unexpected error in mail spool drainer", e);
+            }
+        }
+    }
+
+    /**
+     * Первое недоставленное письмо без сдвига позиции
+     */
+    private SimpleMailMessage peek() {
+        while (true) {
+            if (readSegment == null) {
+                synchronized (writeLock) {
+                    readSegment = segments.peekFirst();
+                }
+                readOffset = 0;
+                if (readSegment == null) {
+                    return null;
+                }
+            }
+            // sealed читается до limit: у запечатанного сегмента limit уже окончательный
+            boolean sealed = readSegment.sealed;
+            if (readOffset < readSegment.limit) {
+                return decode(readSegment.read(readOffset));
+            }
+            if (!sealed) {
+                return null;
+            }
+            // Сегмент запечатан и доставлен целиком: переходим к следующему и удаляем его
+            Segment done = readSegment;
+            synchronized (writeLock) {
+                segments.remove(done);
+                readSegment = segments.peekFirst();
+            }
+            readOffset = 0;
+            done.delete();
+            if (readSegment == null) {
+                return null;
+            }
+            saveCheckpoint();
+        }
+    }
+
+    private void advance() {
+        headAttempts = 0;
+        readOffset += HEADER_SIZE + readSegment.recordLength(readOffset);
+        pending.decrementAndGet();
+        saveCheckpoint();
+    }
+
+    private void saveCheckpoint() {
+        checkpoint.putLong(0, readSegment.sequence);
+        checkpoint.putInt(Long.BYTES, readOffset);
+        checkpoint.putInt(Long.BYTES + Integer.BYTES, checkpointCrc(readSegment.sequence, readOffset));
+    }
+
+    private Segment nextSegment(Segment current) {
+        long sequence = current == null ? 0 : current.sequence + 1;
+        if (current != null) {
+            current.seal();
+        }
+        try {
+            Segment segment = Segment.open(segmentFile(sequence), sequence, segmentSize);
+            segments.addLast(segment);
+            return segment;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create mail spool segment " + sequence, e);
+        }
+    }
+
+    private Path segmentFile(long sequence) {
+        return directory.resolve(String.format("segment-%020d.spool", sequence));
+    }
+
+    /**
+     * Тело записи: from, число адресатов, адресаты, тема, текст; строка - длина и UTF-8, null - длина -1.
+     */
+    private ByteBuffer encode(SimpleMailMessage message) {
+        encodeBuffer.clear();
+        putString(message.getFrom());
+        String[] to = message.getTo() != null ? message.getTo() : new String[0];
+        ensureCapacity(Integer.BYTES);
+        encodeBuffer.putInt(to.length);
+        for (String recipient : to) {
+            putString(recipient);
+        }
+        putString(message.getSubject());
+        putString(message.getText());
+        return encodeBuffer.flip();
+    }
+
+    private void putString(String value) {
+        if (value == null) {
+            ensureCapacity(Integer.BYTES);
+            encodeBuffer.putInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        ensureCapacity(Integer.BYTES + bytes.length);
+        encodeBuffer.putInt(bytes.length).put(bytes);
+    }
+
+    private void ensureCapacity(int extra) {
+        if (encodeBuffer.remaining() < extra) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(encodeBuffer.capacity() * 2, encodeBuffer.position() + extra));
+            encodeBuffer.flip();
+            encodeBuffer = larger.put(encodeBuffer);
+        }
+    }
+
+    private static SimpleMailMessage decode(ByteBuffer payload) {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setFrom(getString(payload));
+        String[] to = new String[payload.getInt()];
+        for (int i = 0; i < to.length; i++) {
+            to[i] = getString(payload);
+        }
+        message.setTo(to);
+        message.setSubject(getString(payload));
+        message.setText(getString(payload));
+        return message;
+    }
+
+    private static String getString(ByteBuffer payload) {
+        int length = payload.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(payload.array(), payload.arrayOffset() + payload.position(), length, StandardCharsets.UTF_8);
+        payload.position(payload.position() + length);
+        return value;
+    }
+
+    private static int checkpointCrc(long sequence, int offset) {
+        CRC32C crc = new CRC32C();
+        crc.update(ByteBuffer.allocate(Long.BYTES + Integer.BYTES).putLong(sequence).putInt(offset).flip());
+        return (int) crc.getValue();
+    }
+
+    private static String recipient(SimpleMailMessage message) {
+        return message.getTo() != null && message.getTo().length > 0 ? message.getTo()[0] : "<none>";
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.warn("Failed to close mail spool file", e);
+        }
+    }
+
+    /**
+     * Сегмент журнала, отображённый в память целиком
+     */
+    private static final class Segment {
+
+        final Path file;
+        final long sequence;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        /** Граница записанных данных; публикуется после записи всей записи */
+        volatile int limit;
+        volatile boolean sealed;
+
+        private Segment(Path file, long sequence, FileChannel channel, MappedByteBuffer buffer) {
+            this.file = file;
+            this.sequence = sequence;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        static Segment open(Path file, long sequence, int size) throws IOException {
+            FileChannel channel = FileChannel.open(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            Segment segment = new Segment(file, sequence, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+            segment.limit = segment.recover();
+            return segment;
+        }
+
+        /**
+         * Находит конец целых записей: первую нулевую длину или запись с неверным CRC.
+         */
+        private int recover() {
+            int position = 0;
+            while (position + HEADER_SIZE <= buffer.capacity()) {
+                int length = buffer.getInt(position);
+                if (length <= 0 || position + HEADER_SIZE + length > buffer.capacity()
+                        || buffer.getInt(position + Integer.BYTES) != crc(position + HEADER_SIZE, length)) {
+                    break;
+                }
+                position += HEADER_SIZE + length;
+            }
+            return position;
+        }
+
+        /**
+         * Обнуляет всё за границей записи, чтобы остатки оборванной записи
+         * не прочитались как целые после новых записей.
+         */
+        void clearTail() {
+            for (int i = limit; i < buffer.capacity(); i++) {
+                if (buffer.get(i) != 0) {
+                    buffer.put(i, (byte) 0);
+                }
+            }
+        }
+
+        long countRecords(int from) {
+            long count = 0;
+            for (int position = from; position < limit; position += HEADER_SIZE + recordLength(position)) {
+                count++;
+            }
+            return count;
+        }
+
+        void write(ByteBuffer payload, boolean force) {
+            int position = limit;
+            int length = payload.remaining();
+            buffer.put(position + HEADER_SIZE, payload, payload.position(), length);
+            buffer.putInt(position + Integer.BYTES, crc(position + HEADER_SIZE, length));
+            // Длина последней: до неё запись читается как конец журнала
+            buffer.putInt(position, length);
+            if (force) {
+                buffer.force(position, HEADER_SIZE + length);
+            }
+            limit = position + HEADER_SIZE + length;
+        }
+
+        int recordLength(int position) {
+            return buffer.getInt(position);
+        }
+
+        ByteBuffer read(int position) {
+            int length = buffer.getInt(position);
+            byte[] payload = new byte[length];
+            buffer.get(position + HEADER_SIZE, payload);
+            return ByteBuffer.wrap(payload);
+        }
+
+        void seal() {
+            buffer.force();
+            sealed = true;
+        }
+
+        void close() {
+            closeQuietly(channel);
+        }
+
+        void delete() {
+            close();
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                log.warn("Failed to delete delivered mail spool segment {}", file, e);
+            }
+        }
+
+        private int crc(int position, int length) {
+            CRC32C crc = new CRC32C();
+            crc.update(buffer.slice(position, length));
+            return (int) crc.getValue();
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.notificationservice.mail;
+
+import io.micrometer.core.instrument.Timer;
+import jakarta.mail.AuthenticationFailedException;
+import jakarta.mail.MessagingException;
+import jakarta.mail.NoSuchProviderException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import jakarta.mail.URLName;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.lang.Nullable;
+import org.springframework.mail.MailAuthenticationException;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link JavaMailSenderImpl}, отправляющий письма через {@link SmtpTransportPool}
+ * вместо нового соединения на каждый вызов send().
+ *
+ * <p>Контракт ошибок сохранён: неотправленные письма возвращаются в
+ * {@link MailSendException#getFailedMessages()} с исходными объектами в качестве ключей.
+ * Если переиспользованное соединение оказалось закрыто сервером до передачи тела письма
+ * (см. {@link TrackingSmtpTransport}), письмо один раз повторяется через новое соединение;
+ * сбой после команды DATA не повторяется, чтобы не отправить письмо дважды. Время каждой отправки по SMTP пишется в таймер,
+ * если он задан ({@link #setSendTimer(Timer)}).
+ */
+@Slf4j
+public class PooledJavaMailSender extends JavaMailSenderImpl implements DisposableBean {
+
+    private final SmtpTransportPool pool;
+    @Nullable
+    private Timer sendTimer;
+
+    public PooledJavaMailSender(int maxSize, int maxMessagesPerConnection, Duration idleTimeout,
+                                Duration validateAfterIdle, Duration borrowTimeout) {
+        this.pool = new SmtpTransportPool(this::connectTransport, maxSize, maxMessagesPerConnection,
+                idleTimeout, validateAfterIdle, borrowTimeout);
+    }
+
+    public SmtpTransportPool getPool() {
+        return pool;
+    }
+
+    public void setSendTimer(@Nullable Timer sendTimer) {
+        this.sendTimer = sendTimer;
+    }
+
+    @Override
+    protected void doSend(MimeMessage[] mimeMessages, @Nullable Object[] originalMessages) throws MailException {
+        Map<Object, Exception> failedMessages = new LinkedHashMap<>();
+        PooledTransport transport = null;
+        try {
+            for (int i = 0; i < mimeMessages.length; i++) {
+                Object original = originalMessages != null ? originalMessages[i] : mimeMessages[i];
+                boolean retried = false;
+                while (true) {
+                    if (transport == null) {
+                        transport = borrow(mimeMessages, originalMessages, i, failedMessages);
+                    }
+                    try {
+                        prepare(mimeMessages[i]);
+                        long startedAt = System.nanoTime();
+                        try {
+                            transport.send(mimeMessages[i]);
+                        } finally {
+                            if (sendTimer != null) {
+                                sendTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                            }
+                        }
+                    } catch (SendFailedException ex) {
+                        // Письмо отклонено сервером, соединение при этом исправно
+                        failedMessages.put(original, ex);
+                    } catch (MessagingException | RuntimeException ex) {
+                        boolean stale = transport.reused() && !retried && !transport.payloadStarted();
+                        pool.release(transport, true);
+                        transport = null;
+                        if (stale) {
+                            log.debug("Pooled SMTP connection failed, retrying on a new one", ex);
+                            retried = true;
+                            continue;
+                        }
+                        failedMessages.put(original, ex);
+                    }
+                    break;
+                }
+            }
+        } finally {
+            if (transport != null) {
+                pool.release(transport, false);
+            }
+        }
+
+        if (!failedMessages.isEmpty()) {
+            throw new MailSendException(failedMessages);
+        }
+    }
+
+    /**
+     * Соединения по SMTP и SMTPS создаются как {@link TrackingSmtpTransport}
+     */
+    @Override
+    protected Transport getTransport(Session session) throws NoSuchProviderException {
+        String protocol = getProtocol();
+        if (protocol == null) {
+            protocol = session.getProperty("mail.transport.protocol");
+            if (protocol == null) {
+                protocol = DEFAULT_PROTOCOL;
+            }
+        }
+        URLName url = new URLName(protocol, null, -1, null, null, null);
+        return switch (protocol) {
+            case "smtp" -> new TrackingSmtpTransport(session, url);
+            case "smtps" -> new TrackingSmtpTransport(session, url, "smtps", true);
+            default -> super.getTransport(session);
+        };
+    }
+
+    @Override
+    public void destroy() {
+        pool.close();
+    }
+
+    private PooledTransport borrow(MimeMessage[] mimeMessages, @Nullable Object[] originalMessages, int from,
+                                   Map<Object, Exception> failedMessages) {
+        try {
+            return pool.borrow();
+        } catch (AuthenticationFailedException ex) {
+            throw new MailAuthenticationException(ex);
+        } catch (MessagingException ex) {
+            // Без соединения не уйдёт ни одно из оставшихся писем
+            for (int j = from; j < mimeMessages.length; j++) {
+                failedMessages.put(originalMessages != null ? originalMessages[j] : mimeMessages[j], ex);
+            }
+            throw new MailSendException("Mail server connection failed", ex, failedMessages);
+        }
+    }
+
+    /**
+     * То же, что делает {@link JavaMailSenderImpl} перед отправкой: дата, заголовки, Message-ID.
+     */
+    private static void prepare(MimeMessage mimeMessage) throws MessagingException {
+        if (mimeMessage.getSentDate() == null) {
+            mimeMessage.setSentDate(new Date());
+        }
+        String messageId = mimeMessage.getMessageID();
+        mimeMessage.saveChanges();
+        if (messageId != null) {
+            mimeMessage.setHeader("Message-ID", messageId);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.notificationservice.mail;
+
+import jakarta.mail.Address;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+
+/**
+ * SMTP-соединение из {@link SmtpTransportPool} со счётчиком отправленных писем.
+ * Используется одним потоком между borrow и release.
+ */
+public class PooledTransport {
+
+    private final Transport transport;
+    private int sent;
+    private long lastUsedNanos = System.nanoTime();
+
+    PooledTransport(Transport transport) {
+        this.transport = transport;
+    }
+
+    public void send(MimeMessage message) throws MessagingException {
+        Address[] recipients = message.getAllRecipients();
+        transport.sendMessage(message, recipients != null ? recipients : new Address[0]);
+        sent++;
+    }
+
+    /**
+     * Соединение уже отправляло письма и могло быть закрыто сервером по таймауту.
+     */
+    public boolean reused() {
+        return sent > 0;
+    }
+
+    /**
+     * Последняя отправка могла дойти до сервера: тело письма начало передаваться.
+     * Для транспорта без отслеживания считается, что могла.
+     */
+    public boolean payloadStarted() {
+        return !(transport instanceof TrackingSmtpTransport tracking) || tracking.payloadStarted();
+    }
+
+    int sent() {
+        return sent;
+    }
+
+    Transport transport() {
+        return transport;
+    }
+
+    void touch() {
+        lastUsedNanos = System.nanoTime();
+    }
+
+    long idleNanos() {
+        return System.nanoTime() - lastUsedNanos;
+    }
+}
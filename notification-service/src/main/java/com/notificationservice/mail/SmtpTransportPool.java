@@ -0,0 +1,144 @@
+package com.notificationservice.mail;
+
+import jakarta.mail.MessagingException;
+import jakarta.mail.Transport;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Пул долгоживущих SMTP-соединений.
+ *
+ * <p>Соединение открывается один раз (TCP, TLS, EHLO, AUTH) и переиспользуется для многих писем.
+ * Свободные соединения выдаются в порядке LIFO - самое «тёплое» первым. Перед выдачей соединение,
+ * простоявшее дольше validate-after-idle, проверяется командой NOOP; простоявшее дольше
+ * idle-timeout или отправившее max-messages-per-connection писем закрывается.
+ */
+@Slf4j
+public class SmtpTransportPool implements AutoCloseable {
+
+    /**
+     * Открытие нового соединения с SMTP-сервером.
+     */
+    @FunctionalInterface
+    public interface TransportConnector {
+        Transport connect() throws MessagingException;
+    }
+
+    private final TransportConnector connector;
+    private final int maxMessagesPerConnection;
+    private final long idleTimeoutNanos;
+    private final long validateAfterIdleNanos;
+    private final Duration borrowTimeout;
+    private final Semaphore capacity;
+    private final LinkedBlockingDeque<PooledTransport> idle = new LinkedBlockingDeque<>();
+    private final AtomicLong created = new AtomicLong();
+    private volatile boolean closed;
+
+    public SmtpTransportPool(TransportConnector connector, int maxSize, int maxMessagesPerConnection,
+                             Duration idleTimeout, Duration validateAfterIdle, Duration borrowTimeout) {
+        this.connector = connector;
+        this.maxMessagesPerConnection = maxMessagesPerConnection;
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+        this.validateAfterIdleNanos = validateAfterIdle.toNanos();
+        this.borrowTimeout = borrowTimeout;
+        this.capacity = new Semaphore(maxSize, true);
+    }
+
+    /**
+     * Выдаёт соединение; если все заняты, ждёт не дольше borrow-timeout.
+     * Соединение обязательно вернуть через {@link #release(PooledTransport, boolean)}.
+     */
+    public PooledTransport borrow() throws MessagingException {
+        if (closed) {
+            throw new MessagingException("SMTP transport pool is closed");
+        }
+        try {
+            if (!capacity.tryAcquire(borrowTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                throw new MessagingException("Timed out waiting for a pooled SMTP connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MessagingException("Interrupted while waiting for a pooled SMTP connection", e);
+        }
+
+        try {
+            PooledTransport pooled;
+            while ((pooled = idle.pollFirst()) != null) {
+                if (isUsable(pooled)) {
+                    return pooled;
+                }
+                closeQuietly(pooled);
+            }
+            Transport transport = connector.connect();
+            created.incrementAndGet();
+            return new PooledTransport(transport);
+        } catch (MessagingException | RuntimeException e) {
+            capacity.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Возвращает соединение в пул.
+     *
+     * @param broken соединение в неизвестном состоянии (ошибка протокола, обрыв) и должно быть закрыто
+     */
+    public void release(PooledTransport pooled, boolean broken) {
+        try {
+            if (broken || closed || pooled.sent() >= maxMessagesPerConnection) {
+                closeQuietly(pooled);
+            } else {
+                pooled.touch();
+                idle.offerFirst(pooled);
+            }
+        } finally {
+            capacity.release();
+        }
+    }
+
+    public int maxMessagesPerConnection() {
+        return maxMessagesPerConnection;
+    }
+
+    /**
+     * Сколько соединений было открыто за всё время работы пула.
+     */
+    public long created() {
+        return created.get();
+    }
+
+    public int idle() {
+        return idle.size();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        PooledTransport pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            closeQuietly(pooled);
+        }
+    }
+
+    private boolean isUsable(PooledTransport pooled) {
+        long idleNanos = pooled.idleNanos();
+        if (idleNanos > idleTimeoutNanos) {
+            return false;
+        }
+        // Для SMTP isConnected() отправляет NOOP, поэтому проверяем только давно простаивавшие соединения
+        return idleNanos < validateAfterIdleNanos || pooled.transport().isConnected();
+    }
+
+    private static void closeQuietly(PooledTransport pooled) {
+        try {
+            pooled.transport().close();
+        } catch (MessagingException e) {
+            log.debug("Failed to close SMTP connection", e);
+        }
+    }
+}
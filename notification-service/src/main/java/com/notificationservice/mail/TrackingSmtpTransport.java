@@ -0,0 +1,57 @@
+package com.notificationservice.mail;
+
+import jakarta.mail.Address;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.URLName;
+import org.eclipse.angus.mail.smtp.SMTPTransport;
+
+import java.io.OutputStream;
+
+/**
+ * {@link SMTPTransport}, запоминающий, дошла ли текущая отправка до передачи тела письма.
+ *
+ * <p>До команды DATA (или BDAT) сервер ещё не получил письмо, и сбой можно безопасно повторить
+ * на другом соединении. После неё сервер мог принять письмо, даже если ответ до нас не дошёл,
+ * и повтор рискует отправить его дважды.
+ */
+public class TrackingSmtpTransport extends SMTPTransport {
+
+    private volatile boolean payloadStarted;
+
+    public TrackingSmtpTransport(Session session, URLName urlname) {
+        this(session, urlname, "smtp", false);
+    }
+
+    public TrackingSmtpTransport(Session session, URLName urlname, String name, boolean isSSL) {
+        super(session, urlname, name, isSSL);
+    }
+
+    @Override
+    public synchronized void sendMessage(Message message, Address[] addresses) throws MessagingException {
+        payloadStarted = false;
+        super.sendMessage(message, addresses);
+    }
+
+    /**
+     * Последняя отправка начала передавать тело письма: сервер принял DATA или BDAT
+     */
+    public boolean payloadStarted() {
+        return payloadStarted;
+    }
+
+    @Override
+    protected OutputStream data() throws MessagingException {
+        OutputStream out = super.data();
+        payloadStarted = true;
+        return out;
+    }
+
+    @Override
+    protected OutputStream bdat() throws MessagingException {
+        OutputStream out = super.bdat();
+        payloadStarted = true;
+        return out;
+    }
+}
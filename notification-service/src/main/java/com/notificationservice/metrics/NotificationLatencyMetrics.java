@@ -0,0 +1,112 @@
+package com.notificationservice.metrics;
+
+import com.eventcontracts.dto.UserEventDTO;
+import com.eventcontracts.kafka.UserEventHeaders;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.listener.BatchInterceptor;
+import org.springframework.kafka.listener.RecordInterceptor;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Гистограммы задержки уведомлений, публикуются через {@code /actuator/prometheus}
+ *
+ * <ul>
+ *   <li>{@code notification.latency.consume} (теги topic, partition) - от публикации в user-service
+ *   (заголовок {@code x-produced-at}, без него - timestamp записи) до получения записи listener'ом;</li>
+ *   <li>{@code notification.latency.send} - от получения записи до передачи письма SMTP
+ *   или в журнал отправки;</li>
+ *   <li>{@code notification.latency.total} - от {@code occurredAt} события до передачи письма,
+ *   включая окна debounce и сводок.</li>
+ * </ul>
+ *
+ * <p>Время отправки по SMTP - {@code notification.smtp.send} в {@link com.notificationservice.mail.PooledJavaMailSender},
+ * отставание по партициям - метрика клиента {@code kafka.consumer.fetch.manager.records.lag}.
+ * Отрицательные интервалы (расхождение часов между хостами) учитываются как ноль.
+ */
+@Component
+public class NotificationLatencyMetrics implements RecordInterceptor<String, UserEventDTO>,
+        BatchInterceptor<String, UserEventDTO> {
+
+    private static final Duration MAX_EXPECTED = Duration.ofHours(1);
+
+    private final MeterRegistry meterRegistry;
+    private final Timer send;
+    private final Timer total;
+    private final Map<TopicPartition, Timer> consume = new ConcurrentHashMap<>();
+
+    public NotificationLatencyMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.send = histogram("notification.latency.send", "Time from record receipt to email hand-off")
+                .register(meterRegistry);
+        this.total = histogram("notification.latency.total", "Time from the user event to email hand-off")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public ConsumerRecord<String, UserEventDTO> intercept(ConsumerRecord<String, UserEventDTO> record,
+                                                          Consumer<String, UserEventDTO> consumer) {
+        consumed(record, System.currentTimeMillis());
+        return record;
+    }
+
+    @Override
+    public ConsumerRecords<String, UserEventDTO> intercept(ConsumerRecords<String, UserEventDTO> records,
+                                                           Consumer<String, UserEventDTO> consumer) {
+        long now = System.currentTimeMillis();
+        for (ConsumerRecord<String, UserEventDTO> record : records) {
+            consumed(record, now);
+        }
+        return records;
+    }
+
+    /**
+     * Письмо по событию передано к отправке; receivedNanos - {@link System#nanoTime()} получения записи
+     */
+    public void sent(UserEventDTO event, long receivedNanos) {
+        send.record(Math.max(0, System.nanoTime() - receivedNanos), TimeUnit.NANOSECONDS);
+        sent(event);
+    }
+
+    /**
+     * Письмо по событию передано к отправке вне listener'а (debounce, сводки)
+     */
+    public void sent(UserEventDTO event) {
+        if (event.getOccurredAt() != null) {
+            total.record(Math.max(0, System.currentTimeMillis() - event.getOccurredAt().toEpochMilli()),
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void consumed(ConsumerRecord<?, ?> record, long nowMillis) {
+        long producedAt = UserEventHeaders.producedAt(record.headers());
+        if (producedAt < 0) {
+            producedAt = record.timestamp();
+        }
+        if (producedAt < 0) {
+            return;
+        }
+        consume.computeIfAbsent(new TopicPartition(record.topic(), record.partition()), partition ->
+                        histogram("notification.latency.consume", "Time from publication in user-service to record receipt")
+                                .tag("topic", partition.topic())
+                                .tag("partition", String.valueOf(partition.partition()))
+                                .register(meterRegistry))
+                .record(Math.max(0, nowMillis - producedAt), TimeUnit.MILLISECONDS);
+    }
+
+    private static Timer.Builder histogram(String name, String description) {
+        return Timer.builder(name)
+                .description(description)
+                .publishPercentileHistogram()
+                .maximumExpectedValue(MAX_EXPECTED);
+    }
+}
@@ -0,0 +1,179 @@
+package com.notificationservice.service;
+
+import com.eventcontracts.dto.UserEventDTO;
+import com.notificationservice.dto.DltReplayResultDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Повторная публикация уведомлений из DLT
+ *
+ * <p>DLT читается отдельной группой {@code <group-id>-dlt-replay}, прогресс коммитится
+ * после каждой успешно переотправленной пачки, а при ошибке посреди пачки - до последней
+ * переотправленной записи, поэтому повторный вызов продолжает с места остановки
+ * и не дублирует уже переотправленные записи.
+ */
+@Service
+@Slf4j
+public class DltReplayService {
+
+    /**
+     * Куда переотправлять записи из DLT
+     */
+    public enum ReplayTarget {
+        /** В топик повторов: запись снова пройдёт все уровни retry */
+        RETRY,
+        /** В основной топик: запись увидят все группы consumer'ов основного топика */
+        MAIN
+    }
+
+    static final String REPLAYED_HEADER = "x-replayed-from-dlt";
+
+    private static final Duration POLL_TIMEOUT = Duration.ofMillis(500);
+    private static final long SEND_TIMEOUT_SECONDS = 30;
+
+    private final ConsumerFactory<String, UserEventDTO> consumerFactory;
+    private final KafkaTemplate<String, UserEventDTO> kafkaTemplate;
+    private final String mainTopic;
+    private final String retryTopic;
+    private final String dltTopic;
+    private final String replayGroupId;
+
+    public DltReplayService(ConsumerFactory<String, UserEventDTO> consumerFactory,
+                            KafkaTemplate<String, UserEventDTO> kafkaTemplate,
+                            @Value("${kafka.topic.user-events}") String mainTopic,
+                            @Value("${notification.retry.topic:${kafka.topic.user-events}.failed}") String retryTopic,
+                            @Value("${spring.kafka.consumer.group-id}") String groupId) {
+        this.consumerFactory = consumerFactory;
+        this.kafkaTemplate = kafkaTemplate;
+        this.mainTopic = mainTopic;
+        this.retryTopic = retryTopic;
+        this.dltTopic = retryTopic + "-dlt";
+        this.replayGroupId = groupId + "-dlt-replay";
+    }
+
+    /**
+     * Переотправляет не более {@code limit} ещё не переотправленных записей DLT.
+     */
+    public synchronized DltReplayResultDTO replay(int limit, ReplayTarget target) {
+        String targetTopic = target == ReplayTarget.MAIN ? mainTopic : retryTopic;
+        Properties overrides = new Properties();
+        overrides.setProperty(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
+        overrides.setProperty(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        overrides.setProperty(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, String.valueOf(Math.min(limit, 500)));
+
+        int replayed = 0;
+        try (Consumer<String, UserEventDTO> consumer =
+                     consumerFactory.createConsumer(replayGroupId, "dlt-replay", null, overrides)) {
+            List<PartitionInfo> partitionInfos = consumer.partitionsFor(dltTopic);
+            if (partitionInfos == null || partitionInfos.isEmpty()) {
+                return result(0, targetTopic, 0);
+            }
+            List<TopicPartition> partitions = partitionInfos.stream()
+                    .map(info -> new TopicPartition(info.topic(), info.partition()))
+                    .toList();
+            consumer.assign(partitions);
+            Map<TopicPartition, Long> endOffsets = consumer.endOffsets(partitions);
+
+            while (replayed < limit && !reachedEnd(consumer, endOffsets)) {
+                Map<TopicPartition, OffsetAndMetadata> progress = new HashMap<>();
+                for (ConsumerRecord<String, UserEventDTO> record : consumer.poll(POLL_TIMEOUT)) {
+                    TopicPartition partition = new TopicPartition(record.topic(), record.partition());
+                    if (replayed >= limit || record.offset() >= endOffsets.get(partition)) {
+                        // Записи, пришедшие в DLT после начала повтора, оставляем следующему вызову
+                        continue;
+                    }
+                    if (record.value() == null) {
+                        // Нечитаемую запись повторять бессмысленно, её байты остаются в DLT
+                        log.warn("Skipping undeserializable DLT record {}-{}@{}", record.topic(),
+                                record.partition(), record.offset());
+                    } else {
+                        try {
+                            resend(record, targetTopic);
+                        } catch (RuntimeException e) {
+                            // Уже переотправленное не должно уйти повторно при следующем вызове
+                            commit(consumer, progress);
+                            throw e;
+                        }
+                        replayed++;
+                    }
+                    progress.put(partition, new OffsetAndMetadata(record.offset() + 1));
+                }
+                commit(consumer, progress);
+                if (replayed >= limit) {
+                    break;
+                }
+            }
+            long remaining = remaining(consumer, endOffsets, partitions);
+            log.info("Replayed {} records from {} to {}, {} remaining", replayed, dltTopic, targetTopic, remaining);
+            return result(replayed, targetTopic, remaining);
+        }
+    }
+
+    private void resend(ConsumerRecord<String, UserEventDTO> record, String targetTopic) {
+        ProducerRecord<String, UserEventDTO> replay = new ProducerRecord<>(targetTopic, record.key(), record.value());
+        replay.headers().add(REPLAYED_HEADER,
+                (record.topic() + "-" + record.partition() + "@" + record.offset()).getBytes(StandardCharsets.UTF_8));
+        try {
+            kafkaTemplate.send(replay).get(SEND_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while replaying DLT record", e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new IllegalStateException("Failed to replay DLT record " + record.partition() + "@" + record.offset(), e);
+        }
+    }
+
+    private static void commit(Consumer<?, ?> consumer, Map<TopicPartition, OffsetAndMetadata> progress) {
+        if (!progress.isEmpty()) {
+            consumer.commitSync(progress);
+        }
+    }
+
+    private static boolean reachedEnd(Consumer<?, ?> consumer, Map<TopicPartition, Long> endOffsets) {
+        return endOffsets.entrySet().stream()
+                .allMatch(entry -> consumer.position(entry.getKey()) >= entry.getValue());
+    }
+
+    private long remaining(Consumer<?, ?> consumer, Map<TopicPartition, Long> endOffsets,
+                           List<TopicPartition> partitions) {
+        Map<TopicPartition, OffsetAndMetadata> committed = consumer.committed(new HashSet<>(partitions));
+        long remaining = 0;
+        for (TopicPartition partition : partitions) {
+            OffsetAndMetadata offset = committed.get(partition);
+            long start = offset != null ? offset.offset() : consumer.beginningOffsets(List.of(partition)).get(partition);
+            remaining += Math.max(0, endOffsets.get(partition) - start);
+        }
+        return remaining;
+    }
+
+    private DltReplayResultDTO result(int replayed, String targetTopic, long remaining) {
+        return DltReplayResultDTO.builder()
+                .dltTopic(dltTopic)
+                .targetTopic(targetTopic)
+                .replayed(replayed)
+                .remaining(remaining)
+                .build();
+    }
+}
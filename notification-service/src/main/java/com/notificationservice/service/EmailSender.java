@@ -1,16 +1,28 @@
 package com.notificationservice.service;
 
-import com.notificationservice.dto.UserEventDTO;
+import com.eventcontracts.dto.UserEventDTO;
+import com.notificationservice.mail.MailDispatcher;
+import com.notificationservice.mail.MailSpool;
+import com.notificationservice.template.EmailTemplateCatalog;
+import com.notificationservice.template.RenderedEmail;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Сервис для отправки email уведомлений
+ * При включённом {@link MailSpool} письма дописываются в локальный журнал и доставляются из него
  */
 @Component
 @RequiredArgsConstructor
@@ -18,6 +30,9 @@ import org.springframework.stereotype.Component;
 public class EmailSender {
 
     private final JavaMailSender mailSender;
+    private final MailDispatcher mailDispatcher;
+    private final EmailTemplateCatalog templateCatalog;
+    private final MailSpool mailSpool;
 
     @Value("${notification.from-email}")
     private String fromEmail;
@@ -26,34 +41,119 @@ public class EmailSender {
      * Отправка email на основе события пользователя
      */
     public void sendUserEventEmail(UserEventDTO event) {
-        String subject;
-        String message;
-
-        if (event.getEventType() == UserEventDTO.EventType.CREATED) {
-            subject = "Аккаунт успешно создан";
-            message = "Здравствуйте! Ваш аккаунт на сайте был успешно создан.";
-        } else if (event.getEventType() == UserEventDTO.EventType.DELETED) {
-            subject = "Аккаунт удалён";
-            message = "Здравствуйте! Ваш аккаунт был удалён.";
-        } else {
-            log.warn("Unknown event type: {}", event.getEventType());
+        SimpleMailMessage mailMessage = buildMessage(event);
+        if (mailMessage == null) {
             return;
         }
+        send(mailMessage);
+    }
+
+    /**
+     * Асинхронная отправка email на основе события пользователя
+     * Поток вызывающего не ждёт SMTP; результат и ошибка - в возвращаемом future
+     */
+    public CompletableFuture<Void> sendUserEventEmailAsync(UserEventDTO event) {
+        SimpleMailMessage mailMessage = buildMessage(event);
+        if (mailMessage == null || spool(mailMessage)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return mailDispatcher.dispatch(mailMessage)
+                .whenComplete((result, e) -> {
+                    if (e == null) {
+                        log.info("Email sent successfully to: {}", event.getEmail());
+                    }
+                });
+    }
+
+    /**
+     * Асинхронная отправка одного сводного письма по нескольким событиям одного получателя
+     *
+     * <p>События, для типа которых нет шаблона, в сводку не попадают
+     */
+    public CompletableFuture<Void> sendDigestEmailAsync(String to, List<UserEventDTO> events) {
+        List<UserEventDTO> notified = events.stream()
+                .filter(event -> templateCatalog.hasTemplate(event.getEventType()))
+                .toList();
+        if (notified.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        if (notified.size() == 1) {
+            return sendUserEventEmailAsync(notified.get(0));
+        }
+        RenderedEmail email = templateCatalog.renderDigest(notified);
+        SimpleMailMessage mailMessage = new SimpleMailMessage();
+        mailMessage.setFrom(fromEmail);
+        mailMessage.setTo(to);
+        mailMessage.setSubject(email.subject());
+        mailMessage.setText(email.body());
+        if (spool(mailMessage)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return mailDispatcher.dispatch(mailMessage)
+                .whenComplete((result, e) -> {
+                    if (e == null) {
+                        log.info("Digest of {} events sent successfully to: {}", notified.size(), to);
+                    }
+                });
+    }
+
+    /**
+     * Отправка писем для пакета событий через одно SMTP-соединение
+     *
+     * @return события, письма по которым отправить не удалось
+     */
+    public List<UserEventDTO> sendUserEventEmails(List<UserEventDTO> events) {
+        Map<SimpleMailMessage, UserEventDTO> messages = new IdentityHashMap<>(events.size());
+        for (UserEventDTO event : events) {
+            SimpleMailMessage mailMessage = buildMessage(event);
+            if (mailMessage != null && !spool(mailMessage)) {
+                messages.put(mailMessage, event);
+            }
+        }
+        if (messages.isEmpty()) {
+            return List.of();
+        }
 
-        sendEmail(event.getEmail(), subject, message);
+        try {
+            // JavaMailSenderImpl отправляет все сообщения вызова через одно соединение
+            mailSender.send(messages.keySet().toArray(SimpleMailMessage[]::new));
+            log.info("Sent {} emails in one SMTP session", messages.size());
+            return List.of();
+        } catch (MailSendException e) {
+            List<UserEventDTO> failed = new ArrayList<>();
+            e.getFailedMessages().forEach((message, cause) -> {
+                UserEventDTO event = messages.get(message);
+                if (event != null) {
+                    log.error("Failed to send email to: {}", event.getEmail(), cause);
+                    failed.add(event);
+                }
+            });
+            log.info("Sent {} of {} emails in one SMTP session", messages.size() - failed.size(), messages.size());
+            return failed.isEmpty() ? new ArrayList<>(messages.values()) : failed;
+        } catch (MailException e) {
+            log.error("Failed to send batch of {} emails", messages.size(), e);
+            return new ArrayList<>(messages.values());
+        }
     }
 
     /**
      * Отправка произвольного email
      */
     public void sendEmail(String to, String subject, String message) {
-        try {
-            SimpleMailMessage mailMessage = new SimpleMailMessage();
-            mailMessage.setFrom(fromEmail);
-            mailMessage.setTo(to);
-            mailMessage.setSubject(subject);
-            mailMessage.setText(message);
+        SimpleMailMessage mailMessage = new SimpleMailMessage();
+        mailMessage.setFrom(fromEmail);
+        mailMessage.setTo(to);
+        mailMessage.setSubject(subject);
+        mailMessage.setText(message);
+        send(mailMessage);
+    }
 
+    private void send(SimpleMailMessage mailMessage) {
+        if (spool(mailMessage)) {
+            return;
+        }
+        String to = mailMessage.getTo()[0];
+        try {
             mailSender.send(mailMessage);
             log.info("Email sent successfully to: {}", to);
         } catch (MailException e) {
@@ -61,5 +161,31 @@ public class EmailSender {
             throw new RuntimeException("Failed to send email", e);
         }
     }
-}
 
+    /**
+     * @return true, если письмо принято журналом и будет доставлено из него
+     */
+    private boolean spool(SimpleMailMessage mailMessage) {
+        if (!mailSpool.append(mailMessage)) {
+            return false;
+        }
+        log.debug("Email spooled for delivery to: {}", mailMessage.getTo()[0]);
+        return true;
+    }
+
+    private SimpleMailMessage buildMessage(UserEventDTO event) {
+        RenderedEmail email = templateCatalog.render(event);
+        if (email == null) {
+            // Тип без шаблона - письма по нему не отправляются
+            log.debug("No email template for event type: {}", event.getEventType());
+            return null;
+        }
+
+        SimpleMailMessage mailMessage = new SimpleMailMessage();
+        mailMessage.setFrom(fromEmail);
+        mailMessage.setTo(event.getEmail());
+        mailMessage.setSubject(email.subject());
+        mailMessage.setText(email.body());
+        return mailMessage;
+    }
+}
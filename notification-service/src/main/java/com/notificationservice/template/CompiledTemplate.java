@@ -0,0 +1,159 @@
+package com.notificationservice.template;
+
+import com.eventcontracts.dto.UserEventDTO;
+
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Шаблон, разобранный один раз при загрузке настроек
+ *
+ * <p>Текст хранится как чередование литералов и ссылок на переменные события.
+ * Ссылки {@code {link.<имя>}} подставляются на этапе компиляции и становятся частью
+ * литерала. Отрисовка - один проход с одним StringBuilder нужного размера:
+ * без regex, без Map переменных и без промежуточных строк, кроме форматированного времени.
+ *
+ * <p>Синтаксис: {@code {email}}, {@code {eventId}}, {@code {eventType}},
+ * {@code {occurredAt}}, {@code {link.<имя>}}; {@code {{} - литерал "{".
+ */
+final class CompiledTemplate {
+
+    /**
+     * Переменные, доступные в шаблоне
+     */
+    enum Variable {
+        EMAIL("email"),
+        EVENT_ID("eventId"),
+        EVENT_TYPE("eventType"),
+        OCCURRED_AT("occurredAt");
+
+        private final String placeholder;
+
+        Variable(String placeholder) {
+            this.placeholder = placeholder;
+        }
+
+        static Variable of(String placeholder) {
+            for (Variable variable : values()) {
+                if (variable.placeholder.equals(placeholder)) {
+                    return variable;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final String LINK_PREFIX = "link.";
+    private static final int VARIABLE_ESTIMATE = 36;
+
+    /** Литералы; literals[i] идёт перед variables[i], последний литерал - после всех переменных */
+    private final String[] literals;
+    private final Variable[] variables;
+    private final DateTimeFormatter timeFormatter;
+    private final int estimatedLength;
+
+    /**
+     * Последнее отформатированное время. Шаблон даты точен до секунды, а при потоке
+     * в тысячи писем в секунду соседние события почти всегда попадают в одну секунду.
+     * Гонка между потоками лишь приводит к повторному форматированию.
+     */
+    private volatile FormattedSecond lastFormatted = new FormattedSecond(Long.MIN_VALUE, "");
+
+    private CompiledTemplate(String[] literals, Variable[] variables, DateTimeFormatter timeFormatter) {
+        this.literals = literals;
+        this.variables = variables;
+        this.timeFormatter = timeFormatter;
+        int length = variables.length * VARIABLE_ESTIMATE;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.estimatedLength = length;
+    }
+
+    /**
+     * @throws IllegalArgumentException при неизвестной переменной, ссылке или незакрытой скобке
+     */
+    static CompiledTemplate compile(String source, Map<String, String> links, DateTimeFormatter timeFormatter) {
+        if (source == null) {
+            throw new IllegalArgumentException("Template text is missing");
+        }
+        List<String> literals = new ArrayList<>();
+        List<Variable> variables = new ArrayList<>();
+        StringBuilder literal = new StringBuilder(source.length());
+        int i = 0;
+        while (i < source.length()) {
+            char c = source.charAt(i);
+            if (c != '{') {
+                literal.append(c);
+                i++;
+                continue;
+            }
+            if (i + 1 < source.length() && source.charAt(i + 1) == '{') {
+                literal.append('{');
+                i += 2;
+                continue;
+            }
+            int end = source.indexOf('}', i);
+            if (end < 0) {
+                throw new IllegalArgumentException("Unclosed placeholder at position " + i + " in: " + source);
+            }
+            String name = source.substring(i + 1, end).trim();
+            if (name.startsWith(LINK_PREFIX)) {
+                String link = links.get(name.substring(LINK_PREFIX.length()));
+                if (link == null) {
+                    throw new IllegalArgumentException("Unknown link {" + name + "} in: " + source);
+                }
+                literal.append(link);
+            } else {
+                Variable variable = Variable.of(name);
+                if (variable == null) {
+                    throw new IllegalArgumentException("Unknown variable {" + name + "} in: " + source);
+                }
+                literals.add(literal.toString());
+                literal.setLength(0);
+                variables.add(variable);
+            }
+            i = end + 1;
+        }
+        literals.add(literal.toString());
+        return new CompiledTemplate(literals.toArray(String[]::new), variables.toArray(Variable[]::new), timeFormatter);
+    }
+
+    String render(UserEventDTO event) {
+        if (variables.length == 0) {
+            return literals[0];
+        }
+        StringBuilder out = new StringBuilder(estimatedLength);
+        for (int i = 0; i < variables.length; i++) {
+            out.append(literals[i]);
+            switch (variables[i]) {
+                case EMAIL -> out.append(event.getEmail());
+                case EVENT_ID -> out.append(event.getEventId() == null ? "" : event.getEventId().toString());
+                case EVENT_TYPE -> out.append(event.getEventType().name());
+                case OCCURRED_AT -> {
+                    if (event.getOccurredAt() != null) {
+                        out.append(formatTime(event.getOccurredAt()));
+                    }
+                }
+            }
+        }
+        return out.append(literals[variables.length]).toString();
+    }
+
+    private String formatTime(Instant instant) {
+        long second = instant.getEpochSecond();
+        FormattedSecond cached = lastFormatted;
+        if (cached.epochSecond() == second) {
+            return cached.text();
+        }
+        String text = timeFormatter.format(instant);
+        lastFormatted = new FormattedSecond(second, text);
+        return text;
+    }
+
+    private record FormattedSecond(long epochSecond, String text) {
+    }
+}
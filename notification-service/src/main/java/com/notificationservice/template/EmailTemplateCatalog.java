@@ -0,0 +1,181 @@
+package com.notificationservice.template;
+
+import com.eventcontracts.dto.UserEventDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.time.chrono.IsoChronology;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.FormatStyle;
+import java.util.EnumMap;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Скомпилированные шаблоны писем по типу события и локали
+ *
+ * <p>Шаблоны из {@code notification.templates.*} компилируются при старте и заново при
+ * обновлении конфигурации из config-server ({@link EnvironmentChangeEvent}, например после
+ * {@code /actuator/refresh}). Если новая конфигурация не компилируется, остаются
+ * действующие шаблоны. Поиск шаблона - два обращения к хеш-таблице, без блокировок.
+ */
+@Component
+@Slf4j
+public class EmailTemplateCatalog {
+
+    private final Environment environment;
+    private volatile Catalog catalog;
+
+    public EmailTemplateCatalog(Environment environment) {
+        this.environment = environment;
+        this.catalog = Catalog.compile(bind());
+        log.info("Compiled email templates for locales {}", catalog.locales());
+    }
+
+    /**
+     * Письмо для события на языке получателя
+     *
+     * <p>Локаль подбирается так: точное совпадение, затем язык без региона,
+     * затем default-locale, затем любая локаль, заданная для типа события.
+     *
+     * @return null, если для типа события шаблонов нет
+     */
+    public RenderedEmail render(UserEventDTO event, Locale locale) {
+        Catalog current = catalog;
+        Map<Locale, Pair> byLocale = current.templates.get(event.getEventType());
+        if (byLocale == null) {
+            return null;
+        }
+        Pair pair = byLocale.get(locale);
+        if (pair == null && !locale.getCountry().isEmpty()) {
+            pair = byLocale.get(Locale.of(locale.getLanguage()));
+        }
+        if (pair == null) {
+            pair = byLocale.get(current.defaultLocale);
+        }
+        if (pair == null) {
+            pair = byLocale.values().iterator().next();
+        }
+        return new RenderedEmail(pair.subject.render(event), pair.body.render(event));
+    }
+
+    /**
+     * Для типа события задан хотя бы один шаблон
+     */
+    public boolean hasTemplate(UserEventDTO.EventType eventType) {
+        return catalog.templates.containsKey(eventType);
+    }
+
+    /**
+     * Письмо на языке по умолчанию
+     */
+    public RenderedEmail render(UserEventDTO event) {
+        return render(event, catalog.defaultLocale);
+    }
+
+    /**
+     * Одно письмо по нескольким событиям одного получателя
+     *
+     * <p>Строка события - item и тема письма этого события на default-locale.
+     */
+    public RenderedEmail renderDigest(List<UserEventDTO> events) {
+        Catalog current = catalog;
+        UserEventDTO first = events.get(0);
+        StringBuilder body = new StringBuilder(current.digest.body.render(first));
+        for (UserEventDTO event : events) {
+            RenderedEmail single = render(event, current.defaultLocale);
+            body.append('\n')
+                    .append(current.digest.item.render(event))
+                    .append(single != null ? single.subject() : event.getEventType().name());
+        }
+        return new RenderedEmail(current.digest.subject.render(first), body.toString());
+    }
+
+    @EventListener
+    public void onEnvironmentChange(EnvironmentChangeEvent event) {
+        boolean templatesChanged = event.getKeys().stream().anyMatch(key -> key.startsWith(EmailTemplateProperties.PREFIX));
+        if (!templatesChanged) {
+            return;
+        }
+        try {
+            catalog = Catalog.compile(bind());
+            log.info("Reloaded email templates for locales {}", catalog.locales());
+        } catch (RuntimeException e) {
+            log.error("Failed to reload email templates, keeping the previous version", e);
+        }
+    }
+
+    private EmailTemplateProperties bind() {
+        return Binder.get(environment)
+                .bind(EmailTemplateProperties.PREFIX, Bindable.of(EmailTemplateProperties.class))
+                .orElseGet(EmailTemplateProperties::new);
+    }
+
+    private record Pair(CompiledTemplate subject, CompiledTemplate body) {
+    }
+
+    private record DigestTemplates(CompiledTemplate subject, CompiledTemplate body, CompiledTemplate item) {
+    }
+
+    private record Catalog(Locale defaultLocale, Map<UserEventDTO.EventType, Map<Locale, Pair>> templates,
+                           DigestTemplates digest) {
+
+        static Catalog compile(EmailTemplateProperties properties) {
+            Map<UserEventDTO.EventType, Map<Locale, Pair>> templates = new EnumMap<>(UserEventDTO.EventType.class);
+            properties.getMessages().forEach((eventType, byLocale) -> {
+                Map<Locale, Pair> compiled = new HashMap<>();
+                byLocale.forEach((locale, message) -> {
+                    DateTimeFormatter formatter = formatter(locale, properties.getTimeZone());
+                    try {
+                        compiled.put(locale, new Pair(
+                                CompiledTemplate.compile(message.getSubject(), properties.getLinks(), formatter),
+                                CompiledTemplate.compile(message.getBody(), properties.getLinks(), formatter)));
+                    } catch (IllegalArgumentException e) {
+                        throw new IllegalArgumentException("Invalid template " + eventType + "/" + locale.toLanguageTag()
+                                + ": " + e.getMessage(), e);
+                    }
+                });
+                if (!compiled.isEmpty()) {
+                    templates.put(eventType, Map.copyOf(compiled));
+                }
+            });
+            return new Catalog(properties.getDefaultLocale(), templates, compileDigest(properties));
+        }
+
+        private static DigestTemplates compileDigest(EmailTemplateProperties properties) {
+            EmailTemplateProperties.Digest digest = properties.getDigest();
+            DateTimeFormatter formatter = formatter(properties.getDefaultLocale(), properties.getTimeZone());
+            try {
+                return new DigestTemplates(
+                        CompiledTemplate.compile(digest.getSubject(), properties.getLinks(), formatter),
+                        CompiledTemplate.compile(digest.getBody(), properties.getLinks(), formatter),
+                        CompiledTemplate.compile(digest.getItem(), properties.getLinks(), formatter));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid digest template: " + e.getMessage(), e);
+            }
+        }
+
+        private static DateTimeFormatter formatter(Locale locale, ZoneId timeZone) {
+            // Локализованный шаблон даты разрешается один раз: ofLocalizedDateTime ищет его при каждом вызове
+            String pattern = DateTimeFormatterBuilder.getLocalizedDateTimePattern(
+                    FormatStyle.MEDIUM, FormatStyle.MEDIUM, IsoChronology.INSTANCE, locale);
+            return DateTimeFormatter.ofPattern(pattern, locale).withZone(timeZone);
+        }
+
+        Map<UserEventDTO.EventType, Set<Locale>> locales() {
+            Map<UserEventDTO.EventType, Set<Locale>> locales = new EnumMap<>(UserEventDTO.EventType.class);
+            templates.forEach((eventType, byLocale) -> locales.put(eventType, byLocale.keySet()));
+            return locales;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.notificationservice.template;
+
+import com.eventcontracts.dto.UserEventDTO;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.ZoneId;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Настройки шаблонов писем ({@code notification.templates.*})
+ *
+ * <pre>
+ * notification:
+ *   templates:
+ *     default-locale: ru
+ *     time-zone: Europe/Moscow
+ *     links:
+ *       site: https://example.com
+ *     messages:
+ *       CREATED:
+ *         en:
+ *           subject: "Your account has been created"
+ *           body: "Hello, {email}! Sign in at {link.site}"
+ *     digest:
+ *       subject: "Account activity"
+ *       body: "Hello, {email}! Recent activity:"
+ *       item: "- {occurredAt}: "
+ * </pre>
+ *
+ * <p>Без настроек используются русские тексты по умолчанию для CREATED и DELETED.
+ * Для типа события без шаблона (по умолчанию - UPDATED) письма не отправляются.
+ * Сводное письмо ({@code digest}) выводится на default-locale: после тела идёт
+ * по строке на событие - {@code item}, за которым следует тема письма этого события.
+ */
+@Getter
+@Setter
+public class EmailTemplateProperties {
+
+    public static final String PREFIX = "notification.templates";
+
+    private Locale defaultLocale = Locale.forLanguageTag("ru");
+    private ZoneId timeZone = ZoneId.of("UTC");
+    private Map<String, String> links = new LinkedHashMap<>();
+    private Map<UserEventDTO.EventType, Map<Locale, Message>> messages = defaultMessages();
+    private Digest digest = new Digest();
+
+    /**
+     * Исходный текст шаблона: тема и тело письма
+     */
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Message {
+        private String subject;
+        private String body;
+    }
+
+    /**
+     * Шаблон сводного письма: переменные берутся из первого события сводки
+     */
+    @Getter
+    @Setter
+    public static class Digest {
+        private String subject = "Уведомления по вашему аккаунту";
+        private String body = "Здравствуйте! Последние события по вашему аккаунту:";
+        private String item = "— {occurredAt}: ";
+    }
+
+    private static Map<UserEventDTO.EventType, Map<Locale, Message>> defaultMessages() {
+        Locale ru = Locale.forLanguageTag("ru");
+        Map<UserEventDTO.EventType, Map<Locale, Message>> messages = new EnumMap<>(UserEventDTO.EventType.class);
+        messages.put(UserEventDTO.EventType.CREATED, new LinkedHashMap<>(Map.of(ru,
+                new Message("Аккаунт успешно создан", "Здравствуйте! Ваш аккаунт на сайте был успешно создан."))));
+        messages.put(UserEventDTO.EventType.DELETED, new LinkedHashMap<>(Map.of(ru,
+                new Message("Аккаунт удалён", "Здравствуйте! Ваш аккаунт был удалён."))));
+        return messages;
+    }
+}
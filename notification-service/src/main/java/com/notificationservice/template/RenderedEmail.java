@@ -0,0 +1,7 @@
+package com.notificationservice.template;
+
+/**
+ * Тема и тело письма после подстановки переменных
+ */
+public record RenderedEmail(String subject, String body) {
+}
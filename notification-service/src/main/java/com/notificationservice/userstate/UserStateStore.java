@@ -0,0 +1,291 @@
+package com.notificationservice.userstate;
+
+import com.eventcontracts.dto.UserSnapshot;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.StampedLock;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Локальная копия данных пользователей, построенная по компактируемому топику состояния
+ *
+ * <p>Наполняется {@link com.notificationservice.kafka.UserStateConsumer} (включается свойством
+ * {@code notification.user-state.enabled=true}); поиск по id пользователя идёт в памяти,
+ * без обращения в user-service. Снимки пользователей лежат в {@link LongObjectMap}.
+ * Запись - только из потока consumer'а, чтение - из любого потока: оптимистичное чтение
+ * {@link StampedLock} не берёт блокировку, пока таблица не меняется.
+ *
+ * <p>Раз в {@code snapshot-interval} и при остановке таблица вместе с позициями чтения
+ * партиций сохраняется в файл {@code user-state.snapshot}. После перезапуска consumer
+ * дочитывает топик с сохранённых позиций, а не с начала. Снимок пишется во временный файл
+ * и атомарно переименовывается; файл с неверной контрольной суммой, другой версией
+ * или от другого топика игнорируется, и копия строится заново с начала топика.
+ */
+@Component
+@Slf4j
+public class UserStateStore {
+
+    private static final String SNAPSHOT_FILE = "user-state.snapshot";
+    private static final int MAGIC = 0x55535453;
+    private static final int VERSION = 1;
+
+    private final Path directory;
+    private final String topic;
+    private final long snapshotIntervalNanos;
+
+    private final StampedLock lock = new StampedLock();
+    private final LongObjectMap<UserSnapshot> users = new LongObjectMap<>();
+    /** Следующий offset по партициям; изменяется вместе с таблицей под монитором хранилища */
+    private final Map<Integer, Long> offsets = new HashMap<>();
+    private boolean dirty;
+    private long lastSnapshot = System.nanoTime();
+
+    private Timer snapshotTime;
+
+    @Autowired
+    public UserStateStore(@Value("${notification.user-state.directory:${java.io.tmpdir}/notification-service/user-state}") Path directory,
+                          @Value("${notification.user-state.topic:user-state}") String topic,
+                          @Value("${notification.user-state.snapshot-interval:PT1M}") Duration snapshotInterval,
+                          MeterRegistry meterRegistry) {
+        this(directory, topic, snapshotInterval);
+        this.snapshotTime = Timer.builder("notification.user-state.snapshot")
+                .description("Time to write the user state snapshot to disk")
+                .register(meterRegistry);
+        Gauge.builder("notification.user-state.entries", this, UserStateStore::size).register(meterRegistry);
+    }
+
+    UserStateStore(Path directory, String topic, Duration snapshotInterval) {
+        this.directory = directory;
+        this.topic = topic;
+        this.snapshotIntervalNanos = snapshotInterval.toNanos();
+    }
+
+    @PostConstruct
+    public synchronized void load() {
+        Path file = directory.resolve(SNAPSHOT_FILE);
+        try (CheckedInputStream checked = new CheckedInputStream(
+                new BufferedInputStream(Files.newInputStream(file)), new CRC32C());
+             DataInputStream in = new DataInputStream(checked)) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || !topic.equals(in.readUTF())) {
+                log.warn("Ignoring user state snapshot {}: different version or topic", file);
+                return;
+            }
+            Map<Integer, Long> loadedOffsets = new HashMap<>();
+            for (int i = in.readInt(); i > 0; i--) {
+                loadedOffsets.put(in.readInt(), in.readLong());
+            }
+            int count = in.readInt();
+            LongObjectMap<UserSnapshot> loaded = new LongObjectMap<>(count);
+            for (int i = 0; i < count; i++) {
+                loaded.put(in.readLong(), readUser(in));
+            }
+            long expected = checked.getChecksum().getValue();
+            if (in.readLong() != expected) {
+                log.warn("Ignoring user state snapshot {}: checksum mismatch", file);
+                return;
+            }
+            long stamp = lock.writeLock();
+            try {
+                loaded.forEach(users::put);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+            offsets.putAll(loadedOffsets);
+            log.info("Loaded {} users from snapshot {}, offsets: {}", count, file, offsets);
+        } catch (NoSuchFileException e) {
+            log.info("No user state snapshot in {}, the topic will be read from the beginning", directory);
+        } catch (IOException e) {
+            log.warn("Ignoring unreadable user state snapshot {}", file, e);
+        }
+    }
+
+    /**
+     * Снимок пользователя или null, если пользователь неизвестен или удалён. Вызывается из любого потока.
+     */
+    public UserSnapshot find(long userId) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                UserSnapshot user = users.get(userId);
+                if (lock.validate(stamp)) {
+                    return user;
+                }
+            } catch (RuntimeException e) {
+                // Таблица менялась во время чтения (например, при расширении); повтор под блокировкой
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return users.get(userId);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Применяет запись топика состояния: снимок заменяет прежний, null (tombstone) удаляет пользователя
+     */
+    public synchronized void apply(int partition, long offset, long userId, UserSnapshot user) {
+        long stamp = lock.writeLock();
+        try {
+            if (user != null) {
+                users.put(userId, user);
+            } else {
+                users.remove(userId);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        offsets.put(partition, offset + 1);
+        dirty = true;
+    }
+
+    /**
+     * Запись пропущена (например, нечитаемая): позиция партиции всё равно продвигается
+     */
+    public synchronized void skip(int partition, long offset) {
+        offsets.put(partition, offset + 1);
+        dirty = true;
+    }
+
+    /**
+     * Позиция, с которой продолжить чтение партиции, или -1, если партиции нет в снимке
+     */
+    public synchronized long nextOffset(int partition) {
+        return offsets.getOrDefault(partition, -1L);
+    }
+
+    public String topic() {
+        return topic;
+    }
+
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return users.size();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Сохраняет снимок, если с прошлого прошло snapshot-interval и были изменения
+     */
+    public synchronized void snapshotIfDue() {
+        if (dirty && System.nanoTime() - lastSnapshot >= snapshotIntervalNanos) {
+            snapshot();
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (dirty) {
+            snapshot();
+        }
+    }
+
+    /**
+     * Пишет снимок. Таблицу меняет только держатель монитора, поэтому читатели не блокируются.
+     */
+    synchronized void snapshot() {
+        long startedAt = System.nanoTime();
+        lastSnapshot = startedAt;
+        Path file = directory.resolve(SNAPSHOT_FILE);
+        Path tmp = directory.resolve(SNAPSHOT_FILE + ".tmp");
+        try {
+            Files.createDirectories(directory);
+            try (CheckedOutputStream checked = new CheckedOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tmp)), new CRC32C());
+                 DataOutputStream out = new DataOutputStream(checked)) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeUTF(topic);
+                out.writeInt(offsets.size());
+                for (Map.Entry<Integer, Long> entry : offsets.entrySet()) {
+                    out.writeInt(entry.getKey());
+                    out.writeLong(entry.getValue());
+                }
+                out.writeInt(users.size());
+                users.forEach((userId, user) -> {
+                    try {
+                        out.writeLong(userId);
+                        writeUser(out, user);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                out.flush();
+                out.writeLong(checked.getChecksum().getValue());
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            dirty = false;
+        } catch (IOException | UncheckedIOException e) {
+            // Копия в памяти не пострадала; после перезапуска топик дочитается с прошлого снимка
+            log.error("Failed to write user state snapshot to {}", file, e);
+            return;
+        }
+        long nanos = System.nanoTime() - startedAt;
+        if (snapshotTime != null) {
+            snapshotTime.record(Duration.ofNanos(nanos));
+        }
+        log.debug("User state snapshot of {} users written in {} ms", users.size(), nanos / 1_000_000);
+    }
+
+    private static void writeUser(DataOutputStream out, UserSnapshot user) throws IOException {
+        writeNullableString(out, user.getName());
+        writeNullableString(out, user.getEmail());
+        out.writeBoolean(user.getAge() != null);
+        if (user.getAge() != null) {
+            out.writeInt(user.getAge());
+        }
+        Instant createdAt = user.getCreatedAt();
+        out.writeBoolean(createdAt != null);
+        if (createdAt != null) {
+            out.writeLong(createdAt.getEpochSecond());
+            out.writeInt(createdAt.getNano());
+        }
+    }
+
+    private static UserSnapshot readUser(DataInputStream in) throws IOException {
+        String name = readNullableString(in);
+        String email = readNullableString(in);
+        Integer age = in.readBoolean() ? in.readInt() : null;
+        Instant createdAt = in.readBoolean() ? Instant.ofEpochSecond(in.readLong(), in.readInt()) : null;
+        return new UserSnapshot(name, email, age, createdAt);
+    }
+
+    private static void writeNullableString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullableString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
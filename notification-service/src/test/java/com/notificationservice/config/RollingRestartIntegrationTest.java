@@ -0,0 +1,142 @@
+package com.notificationservice.config;
+
+import com.eventcontracts.dto.UserEventDTO;
+import com.eventcontracts.serialization.UserEventSerializer;
+import com.notificationservice.kafka.PoisonPillQuarantine;
+import com.notificationservice.metrics.NotificationLatencyMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.listener.MessageListener;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.kafka.ConfluentKafkaContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Интеграционный тест: rolling restart одного из двух экземпляров сервиса
+ * со статическим членством и cooperative-sticky не останавливает обработку у второго
+ */
+@Testcontainers
+class RollingRestartIntegrationTest {
+
+    @Container
+    static ConfluentKafkaContainer kafka = new ConfluentKafkaContainer(DockerImageName.parse("confluentinc/cp-kafka:7.6.1"))
+            .withReuse(true);
+
+    private static final String TOPIC = "user.events.rolling-restart";
+    private static final int PARTITIONS = 6;
+
+    private final List<ConcurrentMessageListenerContainer<String, UserEventDTO>> containers = new ArrayList<>();
+
+    @AfterEach
+    void stopContainers() {
+        containers.forEach(ConcurrentMessageListenerContainer::stop);
+    }
+
+    @Test
+    void shouldKeepConsumingOnOtherInstanceWhileOneRestarts() throws Exception {
+        try (Admin admin = Admin.create(Map.of(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, kafka.getBootstrapServers()))) {
+            admin.createTopics(List.of(new NewTopic(TOPIC, PARTITIONS, (short) 1))).all().get();
+        }
+        Set<UUID> consumedByA = ConcurrentHashMap.newKeySet();
+        Set<UUID> consumedByB = ConcurrentHashMap.newKeySet();
+        MeterRegistry metricsA = new SimpleMeterRegistry();
+        ConcurrentMessageListenerContainer<String, UserEventDTO> a = start("pod-a", metricsA, consumedByA);
+        ConcurrentMessageListenerContainer<String, UserEventDTO> b = start("pod-b", new SimpleMeterRegistry(), consumedByB);
+
+        await().atMost(Duration.ofSeconds(60)).until(() ->
+                a.getAssignedPartitions().size() == PARTITIONS / 2 && b.getAssignedPartitions().size() == PARTITIONS / 2);
+        Set<TopicPartition> partitionsA = Set.copyOf(a.getAssignedPartitions());
+
+        // Перезапуск B: статический участник не покидает группу, его партиции ждут его возвращения
+        b.stop();
+        Map<UUID, Integer> sent = produce(60);
+        Set<UUID> forA = new HashSet<>();
+        sent.forEach((id, partition) -> {
+            if (partitionsA.contains(new TopicPartition(TOPIC, partition))) {
+                forA.add(id);
+            }
+        });
+
+        await().atMost(Duration.ofSeconds(20)).untilAsserted(() -> assertThat(consumedByA).containsAll(forA));
+        assertThat(consumedByA).hasSameSizeAs(forA);
+        assertThat(consumedByB).isEmpty();
+
+        b.start();
+        await().atMost(Duration.ofSeconds(30)).untilAsserted(() -> {
+            Set<UUID> consumed = new HashSet<>(consumedByA);
+            consumed.addAll(consumedByB);
+            assertThat(consumed).containsExactlyInAnyOrderElementsOf(sent.keySet());
+        });
+
+        assertThat(a.getAssignedPartitions()).containsExactlyInAnyOrderElementsOf(partitionsA);
+        assertThat(partitionCount(metricsA, "revoked")).isZero();
+        assertThat(partitionCount(metricsA, "lost")).isZero();
+    }
+
+    private ConcurrentMessageListenerContainer<String, UserEventDTO> start(String instanceId, MeterRegistry meterRegistry,
+                                                                           Set<UUID> consumed) {
+        KafkaConsumerConfig config = new KafkaConsumerConfig();
+        ReflectionTestUtils.setField(config, "bootstrapServers", kafka.getBootstrapServers());
+        ReflectionTestUtils.setField(config, "groupId", "rolling-restart-test");
+        ReflectionTestUtils.setField(config, "cooperativeRebalance", true);
+        ReflectionTestUtils.setField(config, "groupInstanceId", instanceId);
+        ReflectionTestUtils.setField(config, "sessionTimeout", Duration.ofSeconds(45));
+
+        ConcurrentKafkaListenerContainerFactory<String, UserEventDTO> factory = config.kafkaListenerContainerFactory(
+                config.consumerFactory(meterRegistry), mock(PoisonPillQuarantine.class),
+                new NotificationLatencyMetrics(meterRegistry), meterRegistry);
+        ConcurrentMessageListenerContainer<String, UserEventDTO> container = factory.createContainer(TOPIC);
+        container.getContainerProperties().setMessageListener(
+                (MessageListener<String, UserEventDTO>) record -> consumed.add(record.value().getEventId()));
+        container.start();
+        containers.add(container);
+        return container;
+    }
+
+    private Map<UUID, Integer> produce(int count) {
+        KafkaTemplate<String, UserEventDTO> template = new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(Map.of(
+                ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, kafka.getBootstrapServers(),
+                ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class,
+                ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, UserEventSerializer.class)));
+        Map<UUID, Integer> sent = new ConcurrentHashMap<>();
+        for (int i = 0; i < count; i++) {
+            UserEventDTO event = UserEventDTO.of(UserEventDTO.EventType.CREATED, "user" + i + "@example.com");
+            int partition = i % PARTITIONS;
+            template.send(TOPIC, partition, event.getEmail(), event);
+            sent.put(event.getEventId(), partition);
+        }
+        template.flush();
+        return sent;
+    }
+
+    private static double partitionCount(MeterRegistry meterRegistry, String change) {
+        return meterRegistry.get("notification.consumer.rebalance.partitions").tag("change", change).counter().count();
+    }
+}
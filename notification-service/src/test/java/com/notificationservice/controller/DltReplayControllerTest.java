@@ -0,0 +1,55 @@
+package com.notificationservice.controller;
+
+import com.notificationservice.dto.DltReplayResultDTO;
+import com.notificationservice.service.DltReplayService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(value = DltReplayController.class, properties = "admin.api-token=secret")
+@DisplayName("DltReplayController Unit Tests")
+class DltReplayControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private DltReplayService dltReplayService;
+
+    @Test
+    @DisplayName("POST /api/v1/admin/notifications/dlt/replay: без токена - 403, DLT не читается")
+    void replay_WithoutToken_Returns403() throws Exception {
+        mockMvc.perform(post("/api/v1/admin/notifications/dlt/replay"))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(post("/api/v1/admin/notifications/dlt/replay").header("X-Admin-Token", "wrong"))
+                .andExpect(status().isForbidden());
+
+        verify(dltReplayService, never()).replay(anyInt(), any());
+    }
+
+    @Test
+    @DisplayName("POST /api/v1/admin/notifications/dlt/replay: с верным токеном записи переотправляются")
+    void replay_WithToken_Returns200() throws Exception {
+        when(dltReplayService.replay(50, DltReplayService.ReplayTarget.MAIN))
+                .thenReturn(DltReplayResultDTO.builder().replayed(3).remaining(0).build());
+
+        mockMvc.perform(post("/api/v1/admin/notifications/dlt/replay")
+                        .header("X-Admin-Token", "secret")
+                        .param("limit", "50")
+                        .param("target", "MAIN"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.replayed").value(3));
+    }
+}
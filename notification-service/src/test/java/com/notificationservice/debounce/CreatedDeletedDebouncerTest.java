@@ -0,0 +1,118 @@
+package com.notificationservice.debounce;
+
+import com.eventcontracts.dto.UserEventDTO;
+import com.notificationservice.dedup.ProcessedEventStore;
+import com.notificationservice.kafka.FailedNotificationPublisher;
+import com.notificationservice.metrics.NotificationLatencyMetrics;
+import com.notificationservice.service.EmailSender;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("CreatedDeletedDebouncer Unit Tests")
+class CreatedDeletedDebouncerTest {
+
+    private static final Duration WINDOW = Duration.ofSeconds(5);
+
+    @Mock
+    private EmailSender emailSender;
+    @Mock
+    private FailedNotificationPublisher failedNotificationPublisher;
+    @Mock
+    private ProcessedEventStore processedEventStore;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    @DisplayName("offer: DELETED в пределах окна отменяет отложенный CREATED, писем нет")
+    void offer_DeletedWithinWindow_CancelsPair() {
+        CreatedDeletedDebouncer debouncer = debouncer(WINDOW, 100);
+        UserEventDTO created = UserEventDTO.of(UserEventDTO.EventType.CREATED, "qa@example.com");
+        UserEventDTO deleted = UserEventDTO.of(UserEventDTO.EventType.DELETED, "QA@example.com");
+
+        assertThat(debouncer.offer(created)).isEqualTo(CreatedDeletedDebouncer.Decision.HELD);
+        assertThat(debouncer.offer(deleted)).isEqualTo(CreatedDeletedDebouncer.Decision.CANCELLED);
+        debouncer.advance(System.nanoTime() + WINDOW.multipliedBy(2).toNanos());
+
+        verifyNoInteractions(emailSender);
+        verify(processedEventStore).markProcessed(created);
+        verify(processedEventStore).markProcessed(deleted);
+        assertThat(debouncer.pending()).isZero();
+        assertThat(meterRegistry.get("notification.debounce.cancelled").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("advance: CREATED без DELETED отправляется по истечении окна")
+    void advance_WindowElapsed_ReleasesCreated() {
+        CreatedDeletedDebouncer debouncer = debouncer(WINDOW, 100);
+        UserEventDTO created = UserEventDTO.of(UserEventDTO.EventType.CREATED, "john@example.com");
+        when(emailSender.sendUserEventEmailAsync(created)).thenReturn(CompletableFuture.completedFuture(null));
+
+        assertThat(debouncer.offer(created)).isEqualTo(CreatedDeletedDebouncer.Decision.HELD);
+        assertThat(debouncer.offer(created)).isEqualTo(CreatedDeletedDebouncer.Decision.HELD);
+        debouncer.advance(System.nanoTime());
+        verify(emailSender, never()).sendUserEventEmailAsync(created);
+
+        debouncer.advance(System.nanoTime() + WINDOW.plusSeconds(1).toNanos());
+
+        verify(emailSender).sendUserEventEmailAsync(created);
+        verify(processedEventStore).markProcessed(created);
+        assertThat(debouncer.offer(UserEventDTO.of(UserEventDTO.EventType.DELETED, "john@example.com")))
+                .isEqualTo(CreatedDeletedDebouncer.Decision.PASS);
+    }
+
+    @Test
+    @DisplayName("offer: future отложенного события завершается только после отправки письма")
+    void offer_Held_CompletesAfterMailSent() {
+        CreatedDeletedDebouncer debouncer = debouncer(WINDOW, 100);
+        UserEventDTO created = UserEventDTO.of(UserEventDTO.EventType.CREATED, "jane@example.com");
+        CompletableFuture<Void> sent = new CompletableFuture<>();
+        when(emailSender.sendUserEventEmailAsync(created)).thenReturn(sent);
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        CompletableFuture<Void> redelivered = new CompletableFuture<>();
+
+        assertThat(debouncer.offer(created, done)).isEqualTo(CreatedDeletedDebouncer.Decision.HELD);
+        assertThat(debouncer.offer(created, redelivered)).isEqualTo(CreatedDeletedDebouncer.Decision.HELD);
+        debouncer.advance(System.nanoTime() + WINDOW.plusSeconds(1).toNanos());
+        assertThat(done).isNotDone();
+
+        sent.complete(null);
+
+        assertThat(done).isCompleted();
+        assertThat(redelivered).isCompleted();
+    }
+
+    @Test
+    @DisplayName("offer: сверх max-pending и при нулевом окне события не задерживаются")
+    void offer_OverflowAndDisabled_Pass() {
+        CreatedDeletedDebouncer limited = debouncer(WINDOW, 1);
+        assertThat(limited.offer(UserEventDTO.of(UserEventDTO.EventType.CREATED, "a@example.com")))
+                .isEqualTo(CreatedDeletedDebouncer.Decision.HELD);
+        assertThat(limited.offer(UserEventDTO.of(UserEventDTO.EventType.CREATED, "b@example.com")))
+                .isEqualTo(CreatedDeletedDebouncer.Decision.PASS);
+        assertThat(meterRegistry.get("notification.debounce.overflow").counter().count()).isEqualTo(1);
+
+        CreatedDeletedDebouncer disabled = debouncer(Duration.ZERO, 100);
+        assertThat(disabled.offer(UserEventDTO.of(UserEventDTO.EventType.CREATED, "c@example.com")))
+                .isEqualTo(CreatedDeletedDebouncer.Decision.PASS);
+    }
+
+    private CreatedDeletedDebouncer debouncer(Duration window, int maxPending) {
+        return new CreatedDeletedDebouncer(emailSender, failedNotificationPublisher, processedEventStore,
+                new NotificationLatencyMetrics(meterRegistry),
+                meterRegistry, window, Duration.ofMillis(100), maxPending);
+    }
+}
@@ -0,0 +1,78 @@
+package com.notificationservice.debounce;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("TimerWheel Unit Tests")
+class TimerWheelTest {
+
+    private static final long TICK = Duration.ofMillis(100).toNanos();
+
+    private final TimerWheel<String> wheel = new TimerWheel<>(Duration.ofMillis(100), 8, 0);
+    private final List<String> fired = new ArrayList<>();
+
+    @Test
+    @DisplayName("advance: таймер срабатывает не раньше срока и не позже следующего такта")
+    void advance_FiresAtDeadline() {
+        wheel.schedule("a", 250_000_000L);
+
+        wheel.advance(2 * TICK, fired::add);
+        assertThat(fired).isEmpty();
+
+        wheel.advance(3 * TICK, fired::add);
+        assertThat(fired).containsExactly("a");
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("advance: срок дальше одного оборота колеса учитывается через число оборотов")
+    void advance_DeadlineBeyondOneRotation() {
+        wheel.schedule("far", 20 * TICK);
+        wheel.schedule("near", 4 * TICK);
+
+        wheel.advance(12 * TICK, fired::add);
+        assertThat(fired).containsExactly("near");
+
+        wheel.advance(19 * TICK, fired::add);
+        assertThat(fired).containsExactly("near");
+
+        wheel.advance(20 * TICK, fired::add);
+        assertThat(fired).containsExactly("near", "far");
+    }
+
+    @Test
+    @DisplayName("advance: повторный вызов в том же такте не сдвигает обороты таймеров")
+    void advance_SameTickTwice() {
+        wheel.advance(TICK, fired::add);
+        wheel.schedule("x", 9 * TICK);
+
+        wheel.advance(TICK, fired::add);
+        wheel.advance(TICK + 1, fired::add);
+        wheel.advance(8 * TICK, fired::add);
+
+        assertThat(fired).isEmpty();
+        wheel.advance(9 * TICK, fired::add);
+        assertThat(fired).containsExactly("x");
+    }
+
+    @Test
+    @DisplayName("cancel: отменённый таймер не срабатывает, повторная отмена возвращает false")
+    void cancel_RemovesTimer() {
+        TimerWheel.Timeout<String> first = wheel.schedule("first", TICK);
+        TimerWheel.Timeout<String> second = wheel.schedule("second", TICK);
+
+        assertThat(wheel.cancel(first)).isTrue();
+        assertThat(wheel.cancel(first)).isFalse();
+        wheel.advance(TICK, fired::add);
+
+        assertThat(fired).containsExactly("second");
+        assertThat(second.isPending()).isFalse();
+        assertThat(wheel.cancel(second)).isFalse();
+    }
+}
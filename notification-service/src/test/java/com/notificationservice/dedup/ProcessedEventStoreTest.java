@@ -0,0 +1,155 @@
+package com.notificationservice.dedup;
+
+import com.eventcontracts.dto.UserEventDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("ProcessedEventStore Unit Tests")
+class ProcessedEventStoreTest {
+
+    private static final Duration RETENTION = Duration.ofHours(2);
+    private static final Duration BUCKET = Duration.ofHours(1);
+
+    @TempDir
+    Path directory;
+
+    private final MutableClock clock = new MutableClock();
+    private final List<ProcessedEventStore> stores = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        stores.forEach(ProcessedEventStore::close);
+    }
+
+    @Test
+    @DisplayName("isDuplicate: событие становится дубликатом только после markProcessed")
+    void markProcessed_MakesEventDuplicate() {
+        ProcessedEventStore store = open();
+        UserEventDTO event = UserEventDTO.of(UserEventDTO.EventType.CREATED, "john@example.com");
+
+        assertThat(store.isDuplicate(event)).isFalse();
+        store.markProcessed(event);
+
+        assertThat(store.isDuplicate(event)).isTrue();
+        assertThat(store.isDuplicate(UserEventDTO.of(UserEventDTO.EventType.CREATED, "john@example.com"))).isFalse();
+    }
+
+    @Test
+    @DisplayName("isDuplicate: события без eventId (схема v1) не отсекаются")
+    void eventWithoutId_IsNeverDuplicate() {
+        ProcessedEventStore store = open();
+        UserEventDTO legacy = UserEventDTO.builder()
+                .eventType(UserEventDTO.EventType.CREATED)
+                .email("legacy@example.com")
+                .build();
+
+        store.markProcessed(legacy);
+
+        assertThat(store.isDuplicate(legacy)).isFalse();
+        assertThat(store.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("load: обработанные id восстанавливаются после перезапуска")
+    void load_RestoresIdsAfterRestart() {
+        ProcessedEventStore store = open();
+        UserEventDTO first = UserEventDTO.of(UserEventDTO.EventType.CREATED, "a@example.com");
+        store.markProcessed(first);
+        clock.advance(BUCKET);
+        UserEventDTO second = UserEventDTO.of(UserEventDTO.EventType.DELETED, "a@example.com");
+        store.markProcessed(second);
+        store.close();
+
+        ProcessedEventStore restarted = open();
+
+        assertThat(restarted.size()).isEqualTo(2);
+        assertThat(restarted.isDuplicate(first)).isTrue();
+        assertThat(restarted.isDuplicate(second)).isTrue();
+    }
+
+    @Test
+    @DisplayName("expire: корзины старше retention удаляются из памяти и с диска")
+    void expire_DropsBucketsOutsideRetention() throws IOException {
+        ProcessedEventStore store = open();
+        UserEventDTO old = UserEventDTO.of(UserEventDTO.EventType.CREATED, "old@example.com");
+        store.markProcessed(old);
+        clock.advance(BUCKET);
+        UserEventDTO recent = UserEventDTO.of(UserEventDTO.EventType.CREATED, "recent@example.com");
+        store.markProcessed(recent);
+
+        clock.advance(RETENTION);
+
+        assertThat(store.isDuplicate(old)).isFalse();
+        assertThat(store.isDuplicate(recent)).isTrue();
+        assertThat(segments()).hasSize(1);
+    }
+
+    @Test
+    @DisplayName("load: оборванная последняя запись сегмента отбрасывается")
+    void load_TruncatesTornRecord() throws IOException {
+        ProcessedEventStore store = open();
+        UserEventDTO event = UserEventDTO.of(UserEventDTO.EventType.CREATED, "john@example.com");
+        store.markProcessed(event);
+        store.close();
+        Path segment = segments().get(0);
+        Files.write(segment, new byte[]{1, 2, 3}, StandardOpenOption.APPEND);
+
+        ProcessedEventStore restarted = open();
+
+        assertThat(restarted.isDuplicate(event)).isTrue();
+        assertThat(Files.size(segment)).isEqualTo(16);
+    }
+
+    private ProcessedEventStore open() {
+        ProcessedEventStore store = new ProcessedEventStore(directory, RETENTION, BUCKET, clock);
+        store.load();
+        stores.add(store);
+        return store;
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.toList();
+        }
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant now = Instant.parse("2024-01-01T12:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
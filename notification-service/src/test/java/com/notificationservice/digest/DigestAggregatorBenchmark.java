@@ -0,0 +1,71 @@
+package com.notificationservice.digest;
+
+import com.eventcontracts.dto.UserEventDTO;
+import com.notificationservice.dedup.ProcessedEventStore;
+import com.notificationservice.kafka.FailedNotificationPublisher;
+import com.notificationservice.metrics.NotificationLatencyMetrics;
+import com.notificationservice.service.EmailSender;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Locale;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Память открытых сводок при большом числе разных получателей.
+ *
+ * <p>{@code bench.recipients} получателей получают по {@code bench.events} событий;
+ * окно не истекает, поэтому все сводки остаются в памяти. Отчёт - байт кучи
+ * на получателя и на событие, включая таблицу по email и таймеры колеса,
+ * но без самих строк email (они общие с исходными событиями).
+ *
+ * <p>Не входит в обычную сборку (шаблон surefire {@code *Test}). Запуск:
+ * <pre>
+ * mvn -pl notification-service test -Dtest=DigestAggregatorBenchmark -Dbench.recipients=2000000
+ * </pre>
+ */
+@DisplayName("Digest Aggregator Memory Benchmark")
+class DigestAggregatorBenchmark {
+
+    private static final int RECIPIENTS = Integer.getInteger("bench.recipients", 1_000_000);
+    private static final int EVENTS = Integer.getInteger("bench.events", 3);
+
+    @Test
+    @DisplayName("Heap per open digest")
+    void heapPerRecipient() {
+        String[] emails = new String[RECIPIENTS];
+        for (int i = 0; i < RECIPIENTS; i++) {
+            emails[i] = ("user" + i + "@example.com").toLowerCase(Locale.ROOT);
+        }
+        DigestAggregator aggregator = new DigestAggregator(mock(EmailSender.class),
+                mock(FailedNotificationPublisher.class), mock(ProcessedEventStore.class),
+                new NotificationLatencyMetrics(new SimpleMeterRegistry()), new SimpleMeterRegistry(),
+                true, Duration.ofHours(1), Duration.ofSeconds(1), EVENTS + 1, RECIPIENTS);
+
+        long before = usedHeap();
+        for (int round = 0; round < EVENTS; round++) {
+            UserEventDTO.EventType type = round % 2 == 0 ? UserEventDTO.EventType.CREATED : UserEventDTO.EventType.DELETED;
+            for (String email : emails) {
+                aggregator.offer(UserEventDTO.of(type, email));
+            }
+        }
+        long used = usedHeap() - before;
+
+        assertThat(aggregator.openDigests()).isEqualTo(RECIPIENTS);
+        System.out.printf(Locale.ROOT, "%n| recipients | events/recipient | heap MB | bytes/recipient | bytes/event |%n"
+                        + "|---:|---:|---:|---:|---:|%n| %,d | %d | %.1f | %d | %d |%n",
+                RECIPIENTS, EVENTS, used / 1024.0 / 1024.0, used / RECIPIENTS, used / ((long) RECIPIENTS * EVENTS));
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
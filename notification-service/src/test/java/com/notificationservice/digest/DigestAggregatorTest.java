@@ -0,0 +1,152 @@
+package com.notificationservice.digest;
+
+import com.eventcontracts.dto.UserEventDTO;
+import com.notificationservice.dedup.ProcessedEventStore;
+import com.notificationservice.kafka.FailedNotificationPublisher;
+import com.notificationservice.metrics.NotificationLatencyMetrics;
+import com.notificationservice.service.EmailSender;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("DigestAggregator Unit Tests")
+class DigestAggregatorTest {
+
+    private static final Duration WINDOW = Duration.ofMinutes(1);
+
+    @Mock
+    private EmailSender emailSender;
+    @Mock
+    private FailedNotificationPublisher failedNotificationPublisher;
+    @Mock
+    private ProcessedEventStore processedEventStore;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    @DisplayName("advance: события одного получателя за окно уходят одним письмом")
+    @SuppressWarnings("unchecked")
+    void advance_WindowElapsed_SendsOneDigest() {
+        DigestAggregator aggregator = aggregator(true, 10, 100);
+        when(emailSender.sendDigestEmailAsync(eq("john@example.com"), anyList()))
+                .thenReturn(CompletableFuture.completedFuture(null));
+        UserEventDTO first = UserEventDTO.of(UserEventDTO.EventType.CREATED, "john@example.com");
+        UserEventDTO second = UserEventDTO.of(UserEventDTO.EventType.DELETED, "John@example.com");
+
+        assertThat(aggregator.offer(first)).isTrue();
+        assertThat(aggregator.offer(second)).isTrue();
+        assertThat(aggregator.offer(first)).isTrue();
+        assertThat(aggregator.openDigests()).isEqualTo(1);
+        assertThat(aggregator.heldEvents()).isEqualTo(2);
+        verifyNoInteractions(emailSender);
+
+        aggregator.advance(System.nanoTime() + WINDOW.plusSeconds(2).toNanos());
+
+        ArgumentCaptor<List<UserEventDTO>> events = ArgumentCaptor.forClass(List.class);
+        verify(emailSender).sendDigestEmailAsync(eq("john@example.com"), events.capture());
+        assertThat(events.getValue())
+                .extracting(UserEventDTO::getEventId, UserEventDTO::getEventType, UserEventDTO::getOccurredAt)
+                .containsExactly(
+                        tuple(first.getEventId(), first.getEventType(), first.getOccurredAt().truncatedTo(ChronoUnit.MILLIS)),
+                        tuple(second.getEventId(), second.getEventType(), second.getOccurredAt().truncatedTo(ChronoUnit.MILLIS)));
+        verify(processedEventStore, times(2)).markProcessed(any(UserEventDTO.class));
+        assertThat(aggregator.openDigests()).isZero();
+        assertThat(aggregator.heldEvents()).isZero();
+        assertThat(meterRegistry.get("notification.digest.events").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("offer: сводка отправляется сразу при достижении max-events, одиночное событие - обычным письмом")
+    void offer_SizeThresholdAndSingleEvent() {
+        DigestAggregator aggregator = aggregator(true, 2, 100);
+        when(emailSender.sendDigestEmailAsync(eq("a@example.com"), anyList()))
+                .thenReturn(CompletableFuture.completedFuture(null));
+        UserEventDTO single = UserEventDTO.of(UserEventDTO.EventType.CREATED, "b@example.com");
+        when(emailSender.sendUserEventEmailAsync(any(UserEventDTO.class)))
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        aggregator.offer(UserEventDTO.of(UserEventDTO.EventType.CREATED, "a@example.com"));
+        aggregator.offer(single);
+        aggregator.offer(UserEventDTO.of(UserEventDTO.EventType.DELETED, "a@example.com"));
+
+        verify(emailSender).sendDigestEmailAsync(eq("a@example.com"), anyList());
+        assertThat(aggregator.openDigests()).isEqualTo(1);
+
+        aggregator.advance(System.nanoTime() + WINDOW.plusSeconds(2).toNanos());
+        verify(emailSender).sendUserEventEmailAsync(any(UserEventDTO.class));
+    }
+
+    @Test
+    @DisplayName("flush: открытые сводки уходят при отзыве партиций, не дожидаясь окна")
+    void flush_SendsOpenDigestsAndCompletesCallers() {
+        DigestAggregator aggregator = aggregator(true, 10, 100);
+        when(emailSender.sendDigestEmailAsync(eq("a@example.com"), anyList()))
+                .thenReturn(CompletableFuture.completedFuture(null));
+        CompletableFuture<Void> first = new CompletableFuture<>();
+        CompletableFuture<Void> second = new CompletableFuture<>();
+        aggregator.offer(UserEventDTO.of(UserEventDTO.EventType.CREATED, "a@example.com"), first);
+        aggregator.offer(UserEventDTO.of(UserEventDTO.EventType.DELETED, "a@example.com"), second);
+        assertThat(first).isNotDone();
+
+        aggregator.flush();
+
+        verify(emailSender).sendDigestEmailAsync(eq("a@example.com"), anyList());
+        assertThat(first).isDone();
+        assertThat(second).isDone();
+        assertThat(aggregator.openDigests()).isZero();
+        assertThat(aggregator.heldEvents()).isZero();
+    }
+
+    @Test
+    @DisplayName("send failure: события неотправленной сводки по одному уходят в топик повторов")
+    void sendFailure_PublishesEachEvent() {
+        DigestAggregator aggregator = aggregator(true, 2, 100);
+        IllegalStateException failure = new IllegalStateException("SMTP down");
+        when(emailSender.sendDigestEmailAsync(eq("a@example.com"), anyList()))
+                .thenReturn(CompletableFuture.failedFuture(failure));
+
+        aggregator.offer(UserEventDTO.of(UserEventDTO.EventType.CREATED, "a@example.com"));
+        aggregator.offer(UserEventDTO.of(UserEventDTO.EventType.DELETED, "a@example.com"));
+
+        verify(failedNotificationPublisher, times(2)).publish(any(UserEventDTO.class), eq(failure));
+        verifyNoInteractions(processedEventStore);
+    }
+
+    @Test
+    @DisplayName("offer: выключенный режим и превышение max-recipients не задерживают события")
+    void offer_DisabledAndOverflow_Pass() {
+        assertThat(aggregator(false, 10, 100).offer(UserEventDTO.of(UserEventDTO.EventType.CREATED, "a@example.com")))
+                .isFalse();
+
+        DigestAggregator limited = aggregator(true, 10, 1);
+        assertThat(limited.offer(UserEventDTO.of(UserEventDTO.EventType.CREATED, "a@example.com"))).isTrue();
+        assertThat(limited.offer(UserEventDTO.of(UserEventDTO.EventType.CREATED, "b@example.com"))).isFalse();
+        assertThat(meterRegistry.get("notification.digest.overflow").counter().count()).isEqualTo(1);
+    }
+
+    private DigestAggregator aggregator(boolean enabled, int maxEvents, int maxRecipients) {
+        return new DigestAggregator(emailSender, failedNotificationPublisher, processedEventStore,
+                new NotificationLatencyMetrics(meterRegistry), meterRegistry,
+                enabled, WINDOW, Duration.ofSeconds(1), maxEvents, maxRecipients);
+    }
+}
@@ -0,0 +1,126 @@
+package com.notificationservice.kafka;
+
+import com.notificationservice.debounce.CreatedDeletedDebouncer;
+import com.notificationservice.digest.DigestAggregator;
+import com.notificationservice.mail.MailDispatcher;
+import com.notificationservice.mail.MailSpool;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.MessageListenerContainer;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("BackpressureController Unit Tests")
+class BackpressureControllerTest {
+
+    private static final String TOPIC = "user-events";
+
+    @Mock
+    private KafkaListenerEndpointRegistry registry;
+    @Mock
+    private MailDispatcher mailDispatcher;
+    @Mock
+    private MailSpool mailSpool;
+    @Mock
+    private CreatedDeletedDebouncer debouncer;
+    @Mock
+    private DigestAggregator digestAggregator;
+    @Mock
+    private ObjectProvider<ParallelUserEventConsumer> parallelConsumer;
+    @Mock
+    private MessageListenerContainer mainContainer;
+    @Mock
+    private MessageListenerContainer retryContainer;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private BackpressureController controller;
+
+    @BeforeEach
+    void setUp() {
+        controller = new BackpressureController(registry, mailDispatcher, mailSpool, debouncer, digestAggregator, parallelConsumer, meterRegistry,
+                TOPIC, 100, 20, Duration.ofMillis(100));
+    }
+
+    @Test
+    @DisplayName("check: пауза на high-watermark, возобновление только после low-watermark")
+    void check_PausesAndResumesWithHysteresis() {
+        when(registry.getListenerContainers()).thenReturn(List.of(mainContainer, retryContainer));
+        when(mainContainer.getContainerProperties()).thenReturn(new ContainerProperties(TOPIC));
+        when(retryContainer.getContainerProperties()).thenReturn(new ContainerProperties(TOPIC + ".failed"));
+        when(mailDispatcher.pending()).thenReturn(99, 100, 50, 20);
+
+        controller.check();
+        verify(mainContainer, never()).pause();
+
+        controller.check();
+        verify(mainContainer).pause();
+        assertThat(controller.isPaused()).isTrue();
+        assertThat(meterRegistry.get("notification.backpressure.paused").gauge().value()).isEqualTo(1);
+
+        controller.check();
+        verify(mainContainer, never()).resume();
+
+        controller.check();
+        verify(mainContainer).resume();
+        verify(retryContainer, never()).pause();
+        assertThat(controller.isPaused()).isFalse();
+        assertThat(meterRegistry.get("notification.backpressure.pause.time").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("check: повторное превышение порога не ставит паузу второй раз")
+    void check_AlreadyPaused_DoesNotPauseAgain() {
+        when(registry.getListenerContainers()).thenReturn(List.of(mainContainer));
+        when(mainContainer.getContainerProperties()).thenReturn(new ContainerProperties(TOPIC));
+        when(mailDispatcher.pending()).thenReturn(150);
+
+        controller.check();
+        controller.check();
+
+        verify(mainContainer, times(1)).pause();
+        assertThat(controller.backlog()).isEqualTo(150);
+    }
+
+    @Test
+    @DisplayName("check: хвост журнала писем и отложенные события ставят паузу при пустом диспетчере")
+    void check_SpoolBacklog_Pauses() {
+        when(registry.getListenerContainers()).thenReturn(List.of(mainContainer));
+        when(mainContainer.getContainerProperties()).thenReturn(new ContainerProperties(TOPIC));
+        when(mailDispatcher.pending()).thenReturn(0);
+        when(mailSpool.pending()).thenReturn(90L, 500L);
+        when(debouncer.pending()).thenReturn(5);
+        when(digestAggregator.heldEvents()).thenReturn(4);
+
+        controller.check();
+        verify(mainContainer, never()).pause();
+
+        controller.check();
+        verify(mainContainer).pause();
+        assertThat(controller.backlog()).isEqualTo(509);
+    }
+
+    @Test
+    @DisplayName("constructor: low-watermark не ниже high-watermark отклоняется")
+    void constructor_RejectsInvertedWatermarks() {
+        assertThatThrownBy(() -> new BackpressureController(registry, mailDispatcher, mailSpool, debouncer, digestAggregator, parallelConsumer, meterRegistry,
+                TOPIC, 100, 100, Duration.ofMillis(100)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,109 @@
+package com.notificationservice.kafka;
+
+import com.eventcontracts.dto.UserEventDTO;
+import com.notificationservice.debounce.CreatedDeletedDebouncer;
+import com.notificationservice.dedup.ProcessedEventStore;
+import com.notificationservice.digest.DigestAggregator;
+import com.notificationservice.metrics.NotificationLatencyMetrics;
+import com.notificationservice.service.EmailSender;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("BatchUserEventConsumer Unit Tests")
+class BatchUserEventConsumerTest {
+
+    private static final TopicPartition PARTITION = new TopicPartition("user.events", 0);
+
+    @Mock
+    private EmailSender emailSender;
+    @Mock
+    private FailedNotificationPublisher failedNotificationPublisher;
+    @Mock
+    private ProcessedEventStore processedEventStore;
+    @Mock
+    private CreatedDeletedDebouncer debouncer;
+    @Mock
+    private DigestAggregator digestAggregator;
+    @Mock
+    private NotificationLatencyMetrics latencyMetrics;
+    @Mock
+    private Acknowledgment acknowledgment;
+    @Mock
+    private Consumer<String, UserEventDTO> consumer;
+
+    @Test
+    @DisplayName("consumeUserEvents: offset отложенного события не коммитится до отправки его письма")
+    void consumeUserEvents_HeldEvent_OffsetCommittedAfterSend() {
+        BatchedOffsetCommitter committer = new BatchedOffsetCommitter(true, 500, Duration.ZERO);
+        BatchUserEventConsumer batchConsumer = consumer(committer);
+        when(consumer.assignment()).thenReturn(Set.of(PARTITION));
+        UserEventDTO created = UserEventDTO.of(UserEventDTO.EventType.CREATED, "john@example.com");
+        UserEventDTO deleted = UserEventDTO.of(UserEventDTO.EventType.DELETED, "jane@example.com");
+        AtomicReference<CompletableFuture<Void>> held = new AtomicReference<>();
+        when(debouncer.offer(any(), any())).thenAnswer(invocation -> {
+            if (invocation.getArgument(0) != created) {
+                return CreatedDeletedDebouncer.Decision.PASS;
+            }
+            held.set(invocation.getArgument(1));
+            return CreatedDeletedDebouncer.Decision.HELD;
+        });
+        when(emailSender.sendUserEventEmails(List.of(deleted))).thenReturn(List.of());
+
+        batchConsumer.consumeUserEvents(List.of(record(10, created), record(11, deleted)), acknowledgment, consumer);
+
+        // Пакет не подтверждается целиком: коммитится только offset перед отложенной записью
+        verify(acknowledgment, never()).acknowledge();
+        verify(consumer).commitAsync(eq(Map.of(PARTITION, new OffsetAndMetadata(10))), any());
+        verify(processedEventStore).markProcessed(deleted);
+
+        held.get().complete(null);
+        batchConsumer.consumeUserEvents(List.of(), acknowledgment, consumer);
+
+        verify(consumer).commitAsync(eq(Map.of(PARTITION, new OffsetAndMetadata(12))), any());
+    }
+
+    @Test
+    @DisplayName("consumeUserEvents: без ручного коммита пакет подтверждается целиком")
+    void consumeUserEvents_ManualCommitDisabled_AcknowledgesBatch() {
+        BatchUserEventConsumer batchConsumer = consumer(new BatchedOffsetCommitter(false, 1, Duration.ZERO));
+        UserEventDTO created = UserEventDTO.of(UserEventDTO.EventType.CREATED, "john@example.com");
+        when(debouncer.offer(eq(created), any())).thenReturn(CreatedDeletedDebouncer.Decision.HELD);
+
+        batchConsumer.consumeUserEvents(List.of(record(10, created), record(11, null)), acknowledgment, consumer);
+
+        verify(acknowledgment).acknowledge();
+        verifyNoInteractions(consumer);
+    }
+
+    private BatchUserEventConsumer consumer(BatchedOffsetCommitter committer) {
+        return new BatchUserEventConsumer(emailSender, failedNotificationPublisher, processedEventStore,
+                debouncer, digestAggregator, latencyMetrics, committer);
+    }
+
+    private static ConsumerRecord<String, UserEventDTO> record(long offset, UserEventDTO event) {
+        return new ConsumerRecord<>(PARTITION.topic(), PARTITION.partition(), offset, "key", event);
+    }
+}
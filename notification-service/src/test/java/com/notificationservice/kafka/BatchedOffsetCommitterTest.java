@@ -0,0 +1,77 @@
+package com.notificationservice.kafka;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@DisplayName("BatchedOffsetCommitter Unit Tests")
+class BatchedOffsetCommitterTest {
+
+    private static final TopicPartition PARTITION = new TopicPartition("user.events", 0);
+
+    @SuppressWarnings("unchecked")
+    private final Consumer<String, String> consumer = mock(Consumer.class);
+
+    @Test
+    @DisplayName("commitIfDue: коммит после max-records записей и только завершённых offset'ов")
+    void commitIfDue_CommitsCompletedOffsetsAfterMaxRecords() {
+        when(consumer.assignment()).thenReturn(Set.of(PARTITION));
+        BatchedOffsetCommitter committer = new BatchedOffsetCommitter(true, 3, Duration.ofHours(1));
+
+        committer.register(record(10));
+        committer.register(record(11));
+        committer.complete(record(10));
+        committer.commitIfDue(consumer);
+        verify(consumer, never()).commitAsync(any(), any());
+
+        committer.register(record(12));
+        committer.complete(record(12));
+        committer.commitIfDue(consumer);
+
+        // 11 ещё отправляется: коммитится offset, перед которым всё завершено
+        verify(consumer).commitAsync(eq(Map.of(PARTITION, new OffsetAndMetadata(11))), any());
+    }
+
+    @Test
+    @DisplayName("commitIfDue: коммит по истечении interval")
+    void commitIfDue_CommitsWhenIntervalElapsed() {
+        when(consumer.assignment()).thenReturn(Set.of(PARTITION));
+        BatchedOffsetCommitter committer = new BatchedOffsetCommitter(true, 500, Duration.ZERO);
+
+        committer.register(record(5));
+        committer.complete(record(5));
+        committer.commitIfDue(consumer);
+
+        verify(consumer).commitAsync(eq(Map.of(PARTITION, new OffsetAndMetadata(6))), any());
+    }
+
+    @Test
+    @DisplayName("Выключенный режим ничего не коммитит")
+    void disabled_DoesNothing() {
+        BatchedOffsetCommitter committer = new BatchedOffsetCommitter(false, 1, Duration.ZERO);
+
+        committer.register(record(1));
+        committer.complete(record(1));
+        committer.commitIfDue(consumer);
+
+        verify(consumer, never()).commitAsync(any(), any());
+    }
+
+    private static ConsumerRecord<String, String> record(long offset) {
+        return new ConsumerRecord<>(PARTITION.topic(), PARTITION.partition(), offset, "key", "value");
+    }
+}
@@ -0,0 +1,84 @@
+package com.notificationservice.kafka;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+@DisplayName("KeyOrderedExecutor Unit Tests")
+class KeyOrderedExecutorTest {
+
+    private final KeyOrderedExecutor executor = new KeyOrderedExecutor(16);
+
+    @AfterEach
+    void tearDown() {
+        executor.close();
+    }
+
+    @Test
+    @DisplayName("submit: задачи одного ключа выполняются по порядку, даже после ошибки")
+    void submit_PreservesOrderPerKey() throws Exception {
+        Map<String, List<Integer>> seen = new ConcurrentHashMap<>();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            int sequence = i;
+            String key = "user" + (i % 5) + "@example.com";
+            futures.add(executor.submit(key, () -> {
+                seen.computeIfAbsent(key, k -> Collections.synchronizedList(new ArrayList<>())).add(sequence);
+                sleep(1);
+                if (sequence == 7) {
+                    throw new IllegalStateException("SMTP failure");
+                }
+            }));
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).exceptionally(e -> null)
+                .get(10, TimeUnit.SECONDS);
+
+        assertThat(seen).hasSize(5);
+        seen.values().forEach(sequence -> assertThat(sequence).isSorted().hasSize(40));
+        assertThat(futures.get(7)).isCompletedExceptionally();
+        await().atMost(Duration.ofSeconds(1)).until(() -> executor.activeKeys() == 0);
+    }
+
+    @Test
+    @DisplayName("submit: разные ключи обрабатываются параллельно в пределах workers")
+    void submit_RunsDifferentKeysInParallel() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            futures.add(executor.submit("user" + i, () -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                sleep(50);
+                running.decrementAndGet();
+            }));
+        }
+
+        long start = System.nanoTime();
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(10, TimeUnit.SECONDS);
+
+        assertThat(maxRunning.get()).isGreaterThan(1).isLessThanOrEqualTo(16);
+        // 64 задачи по 50 мс на 16 workers - около 200 мс, последовательно было бы 3.2 с
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(2000);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.notificationservice.kafka;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.consumer.OffsetCommitCallback;
+import org.apache.kafka.clients.consumer.RetriableCommitFailedException;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@DisplayName("PartitionOffsetTracker Unit Tests")
+class PartitionOffsetTrackerTest {
+
+    private static final TopicPartition PARTITION = new TopicPartition("user.events", 0);
+
+    private final PartitionOffsetTracker tracker = new PartitionOffsetTracker();
+
+    @Test
+    @DisplayName("committable: коммитится наименьший незавершённый offset")
+    void committable_StopsAtLowestInProgressOffset() {
+        for (long offset = 10; offset < 15; offset++) {
+            tracker.register(PARTITION, offset);
+        }
+        tracker.complete(PARTITION, 10);
+        tracker.complete(PARTITION, 12);
+        tracker.complete(PARTITION, 13);
+
+        Map<TopicPartition, OffsetAndMetadata> offsets = tracker.committable(List.of(PARTITION));
+        assertThat(offsets).containsExactly(Map.entry(PARTITION, new OffsetAndMetadata(11)));
+        tracker.committed(offsets);
+        assertThat(tracker.committable(List.of(PARTITION))).isEmpty();
+
+        tracker.complete(PARTITION, 11);
+        tracker.complete(PARTITION, 14);
+
+        assertThat(tracker.committable(List.of(PARTITION)))
+                .containsExactly(Map.entry(PARTITION, new OffsetAndMetadata(15)));
+        assertThat(tracker.pending(List.of(PARTITION))).isZero();
+    }
+
+    @Test
+    @DisplayName("commit: offset считается закоммиченным только после подтверждения, неудачный коммит повторяется")
+    @SuppressWarnings("unchecked")
+    void commit_AdvancesOnlyAfterSuccessfulCallback() {
+        Consumer<String, String> consumer = mock(Consumer.class);
+        when(consumer.assignment()).thenReturn(Set.of(PARTITION));
+        tracker.register(PARTITION, 10);
+        tracker.complete(PARTITION, 10);
+        Map<TopicPartition, OffsetAndMetadata> expected = Map.of(PARTITION, new OffsetAndMetadata(11));
+
+        doAnswer(invocation -> {
+            invocation.<OffsetCommitCallback>getArgument(1)
+                    .onComplete(invocation.getArgument(0), new RetriableCommitFailedException("coordinator moved"));
+            return null;
+        }).when(consumer).commitAsync(any(), any());
+        tracker.commit(consumer);
+        assertThat(tracker.committable(List.of(PARTITION))).isEqualTo(expected);
+
+        doAnswer(invocation -> {
+            invocation.<OffsetCommitCallback>getArgument(1).onComplete(invocation.getArgument(0), null);
+            return null;
+        }).when(consumer).commitAsync(any(), any());
+        tracker.commit(consumer);
+        assertThat(tracker.committable(List.of(PARTITION))).isEmpty();
+        verify(consumer, times(2)).commitAsync(eq(expected), any());
+    }
+
+    @Test
+    @DisplayName("committable: неизвестные партиции пропускаются")
+    void committable_IgnoresUnknownPartitions() {
+        assertThat(tracker.committable(List.of(new TopicPartition("user.events", 3)))).isEmpty();
+    }
+
+    @Test
+    @DisplayName("forget: потерянная партиция забывается без коммита")
+    void forget_DropsPartitionWithoutCommit() {
+        tracker.register(PARTITION, 10);
+        tracker.complete(PARTITION, 10);
+
+        tracker.forget(List.of(PARTITION));
+
+        assertThat(tracker.committable(List.of(PARTITION))).isEmpty();
+        assertThat(tracker.pending(List.of(PARTITION))).isZero();
+    }
+}
@@ -0,0 +1,139 @@
+package com.notificationservice.kafka;
+
+import com.eventcontracts.dto.UserEventDTO;
+import com.eventcontracts.serialization.UserEventSerializer;
+import com.icegreen.greenmail.configuration.GreenMailConfiguration;
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.mail.internet.MimeMessage;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.kafka.ConfluentKafkaContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Интеграционный тест: нечитаемая запись уходит в карантин и не блокирует партицию
+ */
+@SpringBootTest
+@Testcontainers
+class PoisonPillIntegrationTest {
+
+    @Container
+    static ConfluentKafkaContainer kafka = new ConfluentKafkaContainer(DockerImageName.parse("confluentinc/cp-kafka:7.6.1"))
+            .withReuse(true);
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP)
+            .withConfiguration(GreenMailConfiguration.aConfig().withUser("test", "test"))
+            .withPerMethodLifecycle(false);
+
+    private static final String TOPIC = "user.events.poison";
+    private static final String QUARANTINE_TOPIC = TOPIC + ".quarantine";
+    private static final byte[] GARBAGE = "definitely not avro".getBytes(StandardCharsets.UTF_8);
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @DynamicPropertySource
+    static void overrideProperties(DynamicPropertyRegistry registry) {
+
+        registry.add("spring.kafka.bootstrap-servers", kafka::getBootstrapServers);
+        registry.add("spring.kafka.consumer.group-id", () -> "poison-pill-test");
+        registry.add("kafka.topic.user-events", () -> TOPIC);
+
+        registry.add("spring.mail.host", () -> "localhost");
+        registry.add("spring.mail.port", () -> greenMail.getSmtp().getPort());
+        registry.add("spring.mail.username", () -> "test");
+        registry.add("spring.mail.password", () -> "test");
+        registry.add("spring.mail.properties.mail.smtp.auth", () -> false);
+        registry.add("spring.mail.properties.mail.transport.protocol", () -> "smtp");
+        registry.add("notification.from-email", () -> "noreply@test.com");
+    }
+
+    @Test
+    void shouldQuarantineGarbageAndKeepConsumingPartition() {
+        ProducerRecord<String, byte[]> poison = new ProducerRecord<>(TOPIC, 0, "poison@example.com", GARBAGE);
+        poison.headers().add("trace-id", "abc-123".getBytes(StandardCharsets.UTF_8));
+        rawTemplate().send(poison);
+
+        UserEventDTO event = UserEventDTO.builder()
+                .email("after-poison@example.com")
+                .eventType(UserEventDTO.EventType.CREATED)
+                .build();
+        eventTemplate().send(TOPIC, 0, event.getEmail(), event);
+
+        await().atMost(Duration.ofSeconds(20))
+                .untilAsserted(() -> {
+                    MimeMessage[] receivedMessages = greenMail.getReceivedMessages();
+                    assertThat(receivedMessages).hasSize(1);
+                    assertThat(receivedMessages[0].getAllRecipients()[0].toString())
+                            .isEqualTo("after-poison@example.com");
+                });
+
+        try (Consumer<byte[], byte[]> consumer = quarantineConsumer()) {
+            consumer.subscribe(List.of(QUARANTINE_TOPIC));
+            ConsumerRecord<byte[], byte[]> quarantined =
+                    KafkaTestUtils.getSingleRecord(consumer, QUARANTINE_TOPIC, Duration.ofSeconds(20));
+
+            assertThat(quarantined.value()).isEqualTo(GARBAGE);
+            assertThat(new String(quarantined.key(), StandardCharsets.UTF_8)).isEqualTo("poison@example.com");
+            assertThat(quarantined.headers().lastHeader("trace-id").value())
+                    .isEqualTo("abc-123".getBytes(StandardCharsets.UTF_8));
+            assertThat(new String(quarantined.headers().lastHeader(PoisonPillQuarantine.ORIGINAL_TOPIC_HEADER).value(),
+                    StandardCharsets.UTF_8)).isEqualTo(TOPIC);
+        }
+
+        assertThat(meterRegistry.get("notification.events.quarantined")
+                .tag("target", "topic").tag("part", "value").counter().count()).isEqualTo(1);
+    }
+
+    private KafkaTemplate<String, byte[]> rawTemplate() {
+        return new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(Map.of(
+                ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, kafka.getBootstrapServers(),
+                ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class,
+                ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class)));
+    }
+
+    private KafkaTemplate<String, UserEventDTO> eventTemplate() {
+        return new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(Map.of(
+                ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, kafka.getBootstrapServers(),
+                ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class,
+                ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, UserEventSerializer.class)));
+    }
+
+    private Consumer<byte[], byte[]> quarantineConsumer() {
+        return new KafkaConsumer<>(Map.of(
+                ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, kafka.getBootstrapServers(),
+                ConsumerConfig.GROUP_ID_CONFIG, "quarantine-reader",
+                ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest",
+                ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class,
+                ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class));
+    }
+}
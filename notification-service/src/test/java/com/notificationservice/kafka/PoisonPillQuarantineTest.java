@@ -0,0 +1,144 @@
+package com.notificationservice.kafka;
+
+import com.eventcontracts.dto.UserEventDTO;
+import com.eventcontracts.serialization.UserEventSerializer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.serializer.SerializationUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("PoisonPillQuarantine Unit Tests")
+class PoisonPillQuarantineTest {
+
+    private static final TopicPartition PARTITION = new TopicPartition("user.events", 0);
+    private static final byte[] GARBAGE = {0x13, 0x37, 0x00};
+
+    @Mock
+    private KafkaTemplate<byte[], byte[]> quarantineKafkaTemplate;
+
+    @TempDir
+    Path tempDir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    @DisplayName("intercept: нечитаемая запись остаётся в пакете без значения, чтобы её offset подтвердился")
+    void intercept_KeepsPoisonPillWithoutValue() {
+        PoisonPillQuarantine quarantine = quarantine(PoisonPillQuarantine.Target.FILE);
+        ConsumerRecord<String, UserEventDTO> first = readable(0);
+        ConsumerRecord<String, UserEventDTO> last = poisonPill(2);
+
+        ConsumerRecords<String, UserEventDTO> result = quarantine.intercept(
+                new ConsumerRecords<>(Map.of(PARTITION, List.of(first, poisonPill(1), last))), null);
+
+        assertThat(result.records(PARTITION)).extracting(ConsumerRecord::offset).containsExactly(0L, 1L, 2L);
+        assertThat(result.records(PARTITION)).extracting(ConsumerRecord::value)
+                .containsExactly(first.value(), null, null);
+        assertThat(meterRegistry.get("notification.events.quarantined")
+                .tag("target", "file").tag("part", "value").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("intercept: при нечитаемом ключе в карантин уходит и значение, а до listener'а оно не доходит")
+    void intercept_KeyOnlyPoisonPill_QuarantinesValueBytes() throws Exception {
+        PoisonPillQuarantine quarantine = quarantine(PoisonPillQuarantine.Target.FILE);
+        UserEventDTO event = UserEventDTO.of(UserEventDTO.EventType.CREATED, "key@example.com");
+        ConsumerRecord<String, UserEventDTO> record =
+                new ConsumerRecord<>(PARTITION.topic(), PARTITION.partition(), 3, null, event);
+        SerializationUtils.deserializationException(record.headers(), GARBAGE,
+                new IllegalArgumentException("Malformed key"), true);
+
+        ConsumerRecord<String, UserEventDTO> first = readable(2);
+
+        ConsumerRecords<String, UserEventDTO> result = quarantine.intercept(
+                new ConsumerRecords<>(Map.of(PARTITION, List.of(first, record))), null);
+
+        assertThat(result.records(PARTITION)).extracting(ConsumerRecord::value).containsExactly(first.value(), null);
+        JsonNode line = objectMapper.readTree(Files.readAllLines(tempDir.resolve("quarantine.jsonl")).get(0));
+        assertThat(Base64.getDecoder().decode(line.get("key").asText())).isEqualTo(GARBAGE);
+        assertThat(Base64.getDecoder().decode(line.get("value").asText()))
+                .isEqualTo(new UserEventSerializer().serialize(PARTITION.topic(), event));
+        assertThat(meterRegistry.get("notification.events.quarantined")
+                .tag("target", "file").tag("part", "key").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("intercept: пакет без нечитаемых записей возвращается как есть")
+    void intercept_NoPoisonPill_ReturnsSameRecords() {
+        PoisonPillQuarantine quarantine = quarantine(PoisonPillQuarantine.Target.FILE);
+        ConsumerRecords<String, UserEventDTO> records = new ConsumerRecords<>(Map.of(PARTITION, List.of(readable(0))));
+
+        assertThat(quarantine.intercept(records, null)).isSameAs(records);
+    }
+
+    @Test
+    @DisplayName("accept: при недоступном карантинном топике запись с исходными байтами пишется в файл")
+    void accept_TopicUnavailable_FallsBackToFile() throws Exception {
+        when(quarantineKafkaTemplate.send(any(ProducerRecord.class)))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")));
+        PoisonPillQuarantine quarantine = quarantine(PoisonPillQuarantine.Target.TOPIC);
+
+        quarantine.accept(poisonPill(7), new IllegalStateException("listener failed"));
+
+        List<String> lines = Files.readAllLines(tempDir.resolve("quarantine.jsonl"));
+        assertThat(lines).hasSize(1);
+        JsonNode line = objectMapper.readTree(lines.get(0));
+        assertThat(line.get("offset").asLong()).isEqualTo(7);
+        assertThat(Base64.getDecoder().decode(line.get("value").asText())).isEqualTo(GARBAGE);
+        assertThat(line.get("key").asText())
+                .isEqualTo(Base64.getEncoder().encodeToString("poison@example.com".getBytes(StandardCharsets.UTF_8)));
+        assertThat(line.get("headers").has("trace-id")).isTrue();
+        assertThat(line.get("headers").has(SerializationUtils.VALUE_DESERIALIZER_EXCEPTION_HEADER)).isFalse();
+        assertThat(meterRegistry.get("notification.events.quarantined")
+                .tag("target", "file").counter().count()).isEqualTo(1);
+    }
+
+    private PoisonPillQuarantine quarantine(PoisonPillQuarantine.Target target) {
+        return new PoisonPillQuarantine(quarantineKafkaTemplate, objectMapper, meterRegistry, target,
+                "user.events.quarantine", tempDir.resolve("quarantine.jsonl"), Duration.ofSeconds(1));
+    }
+
+    private static ConsumerRecord<String, UserEventDTO> readable(long offset) {
+        String email = offset + "@example.com";
+        return new ConsumerRecord<>(PARTITION.topic(), PARTITION.partition(), offset, email,
+                UserEventDTO.of(UserEventDTO.EventType.CREATED, email));
+    }
+
+    /**
+     * Запись в том виде, в котором её отдаёт ErrorHandlingDeserializer при ошибке значения
+     */
+    private static ConsumerRecord<String, UserEventDTO> poisonPill(long offset) {
+        ConsumerRecord<String, UserEventDTO> record =
+                new ConsumerRecord<>(PARTITION.topic(), PARTITION.partition(), offset, "poison@example.com", null);
+        record.headers().add("trace-id", "abc-123".getBytes(StandardCharsets.UTF_8));
+        SerializationUtils.deserializationException(record.headers(), GARBAGE,
+                new IllegalArgumentException("Unknown magic byte"), false);
+        return record;
+    }
+}
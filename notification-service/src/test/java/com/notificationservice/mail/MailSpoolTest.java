@@ -0,0 +1,216 @@
+package com.notificationservice.mail;
+
+import jakarta.mail.Address;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.internet.InternetAddress;
+import org.eclipse.angus.mail.smtp.SMTPAddressFailedException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("MailSpool Unit Tests")
+class MailSpoolTest {
+
+    @Mock
+    private JavaMailSender mailSender;
+
+    @TempDir
+    Path tempDir;
+
+    private final List<MailSpool> opened = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        for (MailSpool spool : opened) {
+            spool.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("deliverNext: письма доставляются по порядку, позиция доставки переживает перезапуск")
+    void deliverNext_InOrderAndResumesAfterRestart() throws InterruptedException {
+        MailSpool spool = open(1 << 16, 4);
+        for (int i = 0; i < 3; i++) {
+            assertThat(spool.append(message(i + "@example.com", "Тема " + i))).isTrue();
+        }
+        assertThat(spool.deliverNext(mailSender)).isTrue();
+        spool.shutdown();
+        opened.remove(spool);
+
+        MailSpool reopened = open(1 << 16, 4);
+        assertThat(reopened.pending()).isEqualTo(2);
+        while (reopened.deliverNext(mailSender)) {
+            // доставляем всё
+        }
+
+        assertThat(sentRecipients()).containsExactly("0@example.com", "1@example.com", "2@example.com");
+        assertThat(reopened.pending()).isZero();
+    }
+
+    @Test
+    @DisplayName("deliverNext: при ошибке SMTP письмо остаётся первым и повторяется")
+    void deliverNext_SmtpFailure_KeepsMessage() {
+        MailSpool spool = open(1 << 16, 4);
+        spool.append(message("a@example.com", "A"));
+        doThrow(new MailSendException("SMTP down")).doNothing().when(mailSender).send(any(SimpleMailMessage.class));
+
+        assertThatThrownBy(() -> spool.deliverNext(mailSender)).isInstanceOf(MailSendException.class);
+        assertThat(spool.pending()).isEqualTo(1);
+        assertThat(spool.deliverNext(mailSender)).isTrue();
+
+        assertThat(sentRecipients()).containsExactly("a@example.com", "a@example.com");
+        assertThat(spool.deliverNext(mailSender)).isFalse();
+    }
+
+    @Test
+    @DisplayName("deliverNext: окончательный отказ сервера отбрасывает письмо, следующие доставляются")
+    void deliverNext_PermanentRejection_DiscardsAndContinues() throws Exception {
+        MailSpool spool = open(1 << 16, 4);
+        spool.append(message("bad@example.com", "A"));
+        spool.append(message("ok@example.com", "B"));
+        InternetAddress bad = new InternetAddress("bad@example.com");
+        SendFailedException rejected = new SendFailedException("Invalid Addresses",
+                new SMTPAddressFailedException(bad, "RCPT TO", 550, "5.1.1 User unknown"),
+                new Address[0], new Address[0], new Address[]{bad});
+        doThrow(new MailSendException("Failed messages", rejected)).doNothing()
+                .when(mailSender).send(any(SimpleMailMessage.class));
+
+        assertThat(spool.deliverNext(mailSender)).isTrue();
+        assertThat(spool.deliverNext(mailSender)).isTrue();
+
+        assertThat(sentRecipients()).containsExactly("bad@example.com", "ok@example.com");
+        assertThat(spool.pending()).isZero();
+    }
+
+    @Test
+    @DisplayName("deliverNext: временный отказ 4xx повторяется, но не дольше max-attempts попыток")
+    void deliverNext_TransientFailure_DiscardedAfterMaxAttempts() throws Exception {
+        MailSpool spool = open(1 << 16, 4);
+        spool.append(message("busy@example.com", "A"));
+        spool.append(message("ok@example.com", "B"));
+        InternetAddress busy = new InternetAddress("busy@example.com");
+        MailSendException mailboxBusy = new MailSendException("Failed messages", new SendFailedException("Invalid Addresses",
+                new SMTPAddressFailedException(busy, "RCPT TO", 450, "4.2.1 Mailbox busy")));
+        doAnswer(invocation -> {
+            if (invocation.<SimpleMailMessage>getArgument(0).getTo()[0].startsWith("busy")) {
+                throw mailboxBusy;
+            }
+            return null;
+        }).when(mailSender).send(any(SimpleMailMessage.class));
+
+        for (int attempt = 1; attempt < MailSpool.DEFAULT_MAX_ATTEMPTS; attempt++) {
+            assertThatThrownBy(() -> spool.deliverNext(mailSender)).isSameAs(mailboxBusy);
+        }
+        assertThat(spool.deliverNext(mailSender)).isTrue();
+        assertThat(spool.deliverNext(mailSender)).isTrue();
+
+        assertThat(sentRecipients()).endsWith("ok@example.com");
+        assertThat(spool.pending()).isZero();
+    }
+
+    @Test
+    @DisplayName("append: журнал переходит на новые сегменты, доставленные удаляются, при заполнении - отказ")
+    void append_RollsSegmentsAndRejectsWhenFull() throws Exception {
+        MailSpool spool = open(256, 2);
+        doNothing().when(mailSender).send(any(SimpleMailMessage.class));
+        int accepted = 0;
+        while (spool.append(message(accepted + "@example.com", "x".repeat(10)))) {
+            accepted++;
+        }
+        assertThat(accepted).isGreaterThan(2);
+        assertThat(spool.segmentCount()).isEqualTo(2);
+
+        while (spool.deliverNext(mailSender)) {
+            // доставляем всё
+        }
+
+        assertThat(spool.segmentCount()).isEqualTo(1);
+        assertThat(segmentFiles()).hasSize(1);
+        assertThat(spool.append(message("next@example.com", "y"))).isTrue();
+    }
+
+    @Test
+    @DisplayName("open: запись с неверной CRC отсекается, новые письма пишутся на её место")
+    void open_CorruptRecord_TruncatesTail() throws Exception {
+        MailSpool spool = open(1 << 16, 4);
+        spool.append(message("ok@example.com", "ok"));
+        spool.append(message("torn@example.com", "torn"));
+        spool.shutdown();
+        opened.remove(spool);
+
+        Path segment = segmentFiles().get(0);
+        int secondRecord = 8 + firstRecordLength(segment);
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.seek(secondRecord + 8);
+            file.write(file.read() ^ 0xFF);
+        }
+
+        MailSpool reopened = open(1 << 16, 4);
+        assertThat(reopened.pending()).isEqualTo(1);
+        reopened.append(message("new@example.com", "new"));
+        while (reopened.deliverNext(mailSender)) {
+            // доставляем всё
+        }
+
+        assertThat(sentRecipients()).containsExactly("ok@example.com", "new@example.com");
+    }
+
+    private MailSpool open(int segmentSize, int maxSegments) {
+        MailSpool spool = new MailSpool(tempDir, segmentSize, maxSegments, false, true);
+        spool.open();
+        opened.add(spool);
+        return spool;
+    }
+
+    private List<String> sentRecipients() {
+        ArgumentCaptor<SimpleMailMessage> captor = ArgumentCaptor.forClass(SimpleMailMessage.class);
+        verify(mailSender, atLeastOnce()).send(captor.capture());
+        return captor.getAllValues().stream().map(message -> message.getTo()[0]).toList();
+    }
+
+    private List<Path> segmentFiles() throws Exception {
+        try (Stream<Path> files = Files.list(tempDir)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".spool")).sorted().toList();
+        }
+    }
+
+    private static int firstRecordLength(Path segment) throws Exception {
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "r")) {
+            return file.readInt();
+        }
+    }
+
+    private static SimpleMailMessage message(String to, String subject) {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setFrom("noreply@example.com");
+        message.setTo(to);
+        message.setSubject(subject);
+        message.setText("Здравствуйте! " + subject);
+        return message;
+    }
+}
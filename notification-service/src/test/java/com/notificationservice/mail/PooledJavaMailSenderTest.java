@@ -0,0 +1,174 @@
+package com.notificationservice.mail;
+
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Пул SMTP-соединений и асинхронная отправка против GreenMail
+ */
+@DisplayName("PooledJavaMailSender Tests")
+class PooledJavaMailSenderTest {
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    private PooledJavaMailSender sender;
+
+    @AfterEach
+    void tearDown() {
+        if (sender != null) {
+            sender.destroy();
+        }
+    }
+
+    @Test
+    @DisplayName("send: последовательные письма идут через одно долгоживущее соединение")
+    void send_ReusesConnection() {
+        sender = sender(2, 100, Duration.ofSeconds(2));
+
+        for (int i = 0; i < 30; i++) {
+            sender.send(message(i));
+        }
+
+        assertThat(greenMail.getReceivedMessages()).hasSize(30);
+        assertThat(sender.getPool().created()).isEqualTo(1);
+        assertThat(sender.getPool().idle()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("send: соединение закрывается после max-messages-per-connection писем")
+    void send_RotatesConnectionAfterMaxMessages() {
+        sender = sender(2, 5, Duration.ofSeconds(2));
+
+        for (int i = 0; i < 20; i++) {
+            sender.send(message(i));
+        }
+
+        assertThat(greenMail.getReceivedMessages()).hasSize(20);
+        assertThat(sender.getPool().created()).isEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("send: соединение, закрытое сервером, заменяется новым без потери письма")
+    void send_RecoversFromStaleConnection() {
+        // Проверка NOOP отключена, чтобы сработал повтор отправки на новом соединении
+        sender = sender(2, 100, Duration.ofHours(1));
+        sender.send(message(0));
+
+        greenMail.stop();
+        greenMail.start();
+        sender.send(message(1));
+
+        assertThat(greenMail.getReceivedMessages()).hasSize(1);
+        assertThat(sender.getPool().created()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("send: соединение отслеживает, дошла ли отправка до DATA")
+    void send_TracksPayloadStart() throws Exception {
+        sender = sender(1, 100, Duration.ofSeconds(2));
+        sender.send(message(0));
+
+        PooledTransport transport = sender.getPool().borrow();
+        try {
+            assertThat(transport.transport()).isInstanceOf(TrackingSmtpTransport.class);
+            assertThat(transport.payloadStarted()).isTrue();
+        } finally {
+            sender.getPool().release(transport, false);
+        }
+    }
+
+    @Test
+    @DisplayName("dispatch: письма отправляются асинхронно, соединений не больше размера пула")
+    void dispatch_SendsAsyncWithBoundedConcurrency() throws Exception {
+        sender = sender(4, 100, Duration.ofSeconds(2));
+        MailDispatcher dispatcher = new MailDispatcher(sender, 4, 1000, Duration.ofSeconds(5));
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            futures.add(dispatcher.dispatch(message(i)));
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(10, TimeUnit.SECONDS);
+        dispatcher.shutdown();
+
+        assertThat(greenMail.getReceivedMessages()).hasSize(40);
+        assertThat(sender.getPool().created()).isBetween(1L, 4L);
+        assertThat(dispatcher.pending()).isZero();
+    }
+
+    @Test
+    @DisplayName("dispatch: сверх max-pending письмо ждёт свободного места, а не отклоняется")
+    void dispatch_WaitsForFreeSlot() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        JavaMailSender slowSender = mock(JavaMailSender.class);
+        doAnswer(invocation -> release.await(5, TimeUnit.SECONDS)).when(slowSender).send(any(SimpleMailMessage.class));
+        MailDispatcher dispatcher = new MailDispatcher(slowSender, 1, 1, Duration.ofSeconds(5));
+
+        CompletableFuture<Void> first = dispatcher.dispatch(message(0));
+        CompletableFuture<CompletableFuture<Void>> second = CompletableFuture.supplyAsync(() -> dispatcher.dispatch(message(1)));
+
+        Thread.sleep(200);
+        assertThat(second).isNotDone();
+        release.countDown();
+        first.get(5, TimeUnit.SECONDS);
+        second.get(5, TimeUnit.SECONDS).get(5, TimeUnit.SECONDS);
+        verify(slowSender, times(2)).send(any(SimpleMailMessage.class));
+        dispatcher.shutdown();
+    }
+
+    @Test
+    @DisplayName("dispatch: если место не освободилось за offer-timeout, письмо отклоняется")
+    void dispatch_RejectsAfterOfferTimeout() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        JavaMailSender slowSender = mock(JavaMailSender.class);
+        doAnswer(invocation -> release.await(5, TimeUnit.SECONDS)).when(slowSender).send(any(SimpleMailMessage.class));
+        MailDispatcher dispatcher = new MailDispatcher(slowSender, 1, 1, Duration.ofMillis(50));
+
+        CompletableFuture<Void> first = dispatcher.dispatch(message(0));
+        CompletableFuture<Void> second = dispatcher.dispatch(message(1));
+
+        assertThatThrownBy(second::join).hasCauseInstanceOf(RejectedExecutionException.class);
+        release.countDown();
+        first.get(5, TimeUnit.SECONDS);
+        dispatcher.shutdown();
+    }
+
+    private static PooledJavaMailSender sender(int poolSize, int maxMessages, Duration validateAfterIdle) {
+        PooledJavaMailSender sender = new PooledJavaMailSender(
+                poolSize, maxMessages, Duration.ofMinutes(1), validateAfterIdle, Duration.ofSeconds(5));
+        sender.setHost("localhost");
+        sender.setPort(greenMail.getSmtp().getPort());
+        return sender;
+    }
+
+    private static SimpleMailMessage message(int index) {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setFrom("noreply@test.com");
+        message.setTo("user" + index + "@example.com");
+        message.setSubject("Аккаунт успешно создан");
+        message.setText("Здравствуйте! Ваш аккаунт на сайте был успешно создан.");
+        return message;
+    }
+}
@@ -0,0 +1,66 @@
+package com.notificationservice.metrics;
+
+import com.eventcontracts.dto.UserEventDTO;
+import com.eventcontracts.kafka.UserEventHeaders;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.record.TimestampType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("NotificationLatencyMetrics Unit Tests")
+class NotificationLatencyMetricsTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final NotificationLatencyMetrics metrics = new NotificationLatencyMetrics(meterRegistry);
+
+    @Test
+    @DisplayName("intercept: задержка считается от x-produced-at, без заголовка - от timestamp записи")
+    void intercept_RecordsConsumeLatencyPerPartition() {
+        long now = System.currentTimeMillis();
+        RecordHeaders headers = new RecordHeaders();
+        headers.add(UserEventHeaders.PRODUCED_AT, UserEventHeaders.encodeTimestamp(now - 5_000));
+
+        metrics.intercept(record(1, now - 60_000, headers), null);
+        metrics.intercept(record(2, now - 2_000, new RecordHeaders()), null);
+
+        Timer partition1 = meterRegistry.get("notification.latency.consume").tag("partition", "1").timer();
+        Timer partition2 = meterRegistry.get("notification.latency.consume").tag("partition", "2").timer();
+        assertThat(partition1.max(TimeUnit.MILLISECONDS)).isBetween(5_000.0, 6_000.0);
+        assertThat(partition2.max(TimeUnit.MILLISECONDS)).isBetween(2_000.0, 3_000.0);
+    }
+
+    @Test
+    @DisplayName("sent: записываются время от получения и полная задержка от occurredAt")
+    void sent_RecordsSendAndTotal() {
+        UserEventDTO event = UserEventDTO.builder()
+                .eventType(UserEventDTO.EventType.CREATED)
+                .email("john@example.com")
+                .eventId(UUID.randomUUID())
+                .occurredAt(Instant.now().minusSeconds(3))
+                .build();
+
+        metrics.sent(event, System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(200));
+        metrics.sent(UserEventDTO.builder().eventType(UserEventDTO.EventType.DELETED).email("a@example.com").build());
+
+        assertThat(meterRegistry.get("notification.latency.send").timer().max(TimeUnit.MILLISECONDS))
+                .isGreaterThanOrEqualTo(200.0);
+        Timer total = meterRegistry.get("notification.latency.total").timer();
+        assertThat(total.count()).isEqualTo(1);
+        assertThat(total.max(TimeUnit.MILLISECONDS)).isGreaterThanOrEqualTo(3_000.0);
+    }
+
+    private static ConsumerRecord<String, UserEventDTO> record(int partition, long timestamp, RecordHeaders headers) {
+        return new ConsumerRecord<>("user-events", partition, 0L, timestamp, TimestampType.CREATE_TIME,
+                0, 0, "key", UserEventDTO.of(UserEventDTO.EventType.CREATED, "key"), headers, Optional.empty());
+    }
+}
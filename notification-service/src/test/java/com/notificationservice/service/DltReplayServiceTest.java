@@ -0,0 +1,126 @@
+package com.notificationservice.service;
+
+import com.eventcontracts.dto.UserEventDTO;
+import com.notificationservice.dto.DltReplayResultDTO;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("DltReplayService Unit Tests")
+class DltReplayServiceTest {
+
+    private static final String MAIN_TOPIC = "user.events";
+    private static final String RETRY_TOPIC = "user.events.failed";
+    private static final String DLT_TOPIC = RETRY_TOPIC + "-dlt";
+    private static final TopicPartition DLT_PARTITION = new TopicPartition(DLT_TOPIC, 0);
+
+    @Mock
+    private ConsumerFactory<String, UserEventDTO> consumerFactory;
+    @Mock
+    private KafkaTemplate<String, UserEventDTO> kafkaTemplate;
+
+    private MockConsumer<String, UserEventDTO> consumer;
+    private DltReplayService service;
+
+    @BeforeEach
+    void setUp() {
+        consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST) {
+            @Override
+            public synchronized void close() {
+                // Сервис закрывает consumer; закоммиченные offset'ы проверяются после вызова
+            }
+        };
+        consumer.updatePartitions(DLT_TOPIC,
+                List.of(new PartitionInfo(DLT_TOPIC, 0, Node.noNode(), new Node[0], new Node[0])));
+        consumer.updateBeginningOffsets(Map.of(DLT_PARTITION, 0L));
+        consumer.updateEndOffsets(Map.of(DLT_PARTITION, 3L));
+        consumer.schedulePollTask(() -> {
+            for (int offset = 0; offset < 3; offset++) {
+                String email = offset + "@example.com";
+                consumer.addRecord(new ConsumerRecord<>(DLT_TOPIC, 0, offset, email,
+                        UserEventDTO.of(UserEventDTO.EventType.CREATED, email)));
+            }
+        });
+
+        when(consumerFactory.createConsumer(eq("notification-group-dlt-replay"), eq("dlt-replay"), isNull(),
+                any(Properties.class))).thenReturn(consumer);
+        service = new DltReplayService(consumerFactory, kafkaTemplate, MAIN_TOPIC, RETRY_TOPIC, "notification-group");
+    }
+
+    @Test
+    @DisplayName("replay: записи переотправляются в топик повторов с заголовком источника")
+    void replay_Retry_ResendsAllRecords() {
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenReturn(CompletableFuture.completedFuture(null));
+
+        DltReplayResultDTO result = service.replay(100, DltReplayService.ReplayTarget.RETRY);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<ProducerRecord<String, UserEventDTO>> sent = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(kafkaTemplate, times(3)).send(sent.capture());
+        assertThat(sent.getAllValues())
+                .extracting(ProducerRecord::topic, ProducerRecord::key)
+                .containsExactly(
+                        tuple(RETRY_TOPIC, "0@example.com"),
+                        tuple(RETRY_TOPIC, "1@example.com"),
+                        tuple(RETRY_TOPIC, "2@example.com"));
+        assertThat(sent.getValue().headers().lastHeader(DltReplayService.REPLAYED_HEADER)).isNotNull();
+        assertThat(result.getReplayed()).isEqualTo(3);
+        assertThat(result.getRemaining()).isZero();
+    }
+
+    @Test
+    @DisplayName("replay: limit ограничивает число записей, прогресс коммитится для следующего вызова")
+    void replay_Limit_CommitsProgress() {
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenReturn(CompletableFuture.completedFuture(null));
+
+        DltReplayResultDTO result = service.replay(2, DltReplayService.ReplayTarget.MAIN);
+
+        verify(kafkaTemplate, times(2)).send(any(ProducerRecord.class));
+        assertThat(result.getTargetTopic()).isEqualTo(MAIN_TOPIC);
+        assertThat(result.getReplayed()).isEqualTo(2);
+        assertThat(result.getRemaining()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("replay: при ошибке посреди пачки коммитится прогресс до последней переотправленной записи")
+    void replay_FailureMidBatch_CommitsResentRecords() {
+        when(kafkaTemplate.send(any(ProducerRecord.class)))
+                .thenReturn(CompletableFuture.completedFuture(null))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker unavailable")));
+
+        assertThatThrownBy(() -> service.replay(100, DltReplayService.ReplayTarget.RETRY))
+                .isInstanceOf(IllegalStateException.class);
+
+        assertThat(consumer.committed(Set.of(DLT_PARTITION)).get(DLT_PARTITION).offset()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,110 @@
+package com.notificationservice.service;
+
+import com.eventcontracts.dto.UserEventDTO;
+import com.notificationservice.mail.MailDispatcher;
+import com.notificationservice.mail.MailSpool;
+import com.notificationservice.template.EmailTemplateCatalog;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("EmailSender Unit Tests")
+class EmailSenderTest {
+
+    @Mock
+    private JavaMailSender mailSender;
+
+    @Mock
+    private MailDispatcher mailDispatcher;
+
+    @Mock
+    private MailSpool mailSpool;
+
+    @Spy
+    private EmailTemplateCatalog templateCatalog = new EmailTemplateCatalog(new MockEnvironment());
+
+    @InjectMocks
+    private EmailSender emailSender;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(emailSender, "fromEmail", "noreply@test.com");
+    }
+
+    @Test
+    @DisplayName("sendUserEventEmails: все письма пакета отправляются одним вызовом")
+    void sendUserEventEmails_SendsBatchInOneCall() {
+        List<UserEventDTO> failed = emailSender.sendUserEventEmails(List.of(
+                UserEventDTO.of(UserEventDTO.EventType.CREATED, "a@example.com"),
+                UserEventDTO.of(UserEventDTO.EventType.DELETED, "b@example.com")));
+
+        ArgumentCaptor<SimpleMailMessage[]> captor = ArgumentCaptor.forClass(SimpleMailMessage[].class);
+        verify(mailSender, times(1)).send(captor.capture());
+        assertThat(captor.getValue())
+                .extracting(SimpleMailMessage::getSubject)
+                .containsExactlyInAnyOrder("Аккаунт успешно создан", "Аккаунт удалён");
+        assertThat(failed).isEmpty();
+    }
+
+    @Test
+    @DisplayName("sendUserEventEmails: возвращаются только события с неотправленными письмами")
+    void sendUserEventEmails_ReturnsFailedEvents() {
+        UserEventDTO ok = UserEventDTO.of(UserEventDTO.EventType.CREATED, "ok@example.com");
+        UserEventDTO bad = UserEventDTO.of(UserEventDTO.EventType.CREATED, "bad@example.com");
+        doAnswer(invocation -> {
+            // Как JavaMailSenderImpl: ключи failedMessages - исходные объекты сообщений
+            Map<Object, Exception> failures = new LinkedHashMap<>();
+            for (Object message : invocation.getArguments()) {
+                if (((SimpleMailMessage) message).getTo()[0].equals("bad@example.com")) {
+                    failures.put(message, new IllegalStateException("550 mailbox unavailable"));
+                }
+            }
+            throw new MailSendException(failures);
+        }).when(mailSender).send(any(SimpleMailMessage[].class));
+
+        List<UserEventDTO> failed = emailSender.sendUserEventEmails(List.of(ok, bad));
+
+        assertThat(failed).containsExactly(bad);
+    }
+
+    @Test
+    @DisplayName("sendDigestEmailAsync: события без шаблона в сводку не попадают")
+    void sendDigestEmailAsync_SkipsEventsWithoutTemplate() {
+        when(mailDispatcher.dispatch(any())).thenReturn(CompletableFuture.completedFuture(null));
+        UserEventDTO created = UserEventDTO.of(UserEventDTO.EventType.CREATED, "a@example.com");
+        UserEventDTO updated = UserEventDTO.of(UserEventDTO.EventType.UPDATED, "a@example.com");
+
+        emailSender.sendDigestEmailAsync("a@example.com", List.of(updated, updated)).join();
+        verify(mailDispatcher, never()).dispatch(any());
+
+        emailSender.sendDigestEmailAsync("a@example.com", List.of(created, updated)).join();
+        ArgumentCaptor<SimpleMailMessage> captor = ArgumentCaptor.forClass(SimpleMailMessage.class);
+        verify(mailDispatcher).dispatch(captor.capture());
+        assertThat(captor.getValue().getSubject()).isEqualTo("Аккаунт успешно создан");
+    }
+}
@@ -0,0 +1,117 @@
+package com.notificationservice.template;
+
+import com.eventcontracts.dto.UserEventDTO;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("EmailTemplateCatalog Unit Tests")
+class EmailTemplateCatalogTest {
+
+    private static final UserEventDTO EVENT = UserEventDTO.builder()
+            .eventType(UserEventDTO.EventType.CREATED)
+            .email("john@example.com")
+            .eventId(UUID.fromString("00000000-0000-0000-0000-000000000042"))
+            .occurredAt(Instant.parse("2024-01-01T12:00:00Z"))
+            .build();
+
+    @Test
+    @DisplayName("render: без настроек используются прежние русские тексты")
+    void render_Defaults() {
+        EmailTemplateCatalog catalog = new EmailTemplateCatalog(new MockEnvironment());
+
+        RenderedEmail created = catalog.render(EVENT);
+        RenderedEmail deleted = catalog.render(UserEventDTO.of(UserEventDTO.EventType.DELETED, "john@example.com"));
+        RenderedEmail updated = catalog.render(UserEventDTO.of(UserEventDTO.EventType.UPDATED, "john@example.com"));
+
+        assertThat(created.subject()).isEqualTo("Аккаунт успешно создан");
+        assertThat(created.body()).isEqualTo("Здравствуйте! Ваш аккаунт на сайте был успешно создан.");
+        assertThat(deleted.subject()).isEqualTo("Аккаунт удалён");
+        assertThat(deleted.body()).isEqualTo("Здравствуйте! Ваш аккаунт был удалён.");
+        assertThat(updated).isNull();
+    }
+
+    @Test
+    @DisplayName("render: переменные события и ссылки подставляются, локаль выбирается с откатом к языку")
+    void render_VariablesAndLocaleFallback() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("notification.templates.default-locale", "ru")
+                .withProperty("notification.templates.links.site", "https://example.com")
+                .withProperty("notification.templates.messages.CREATED.en.subject", "Welcome, {email}")
+                .withProperty("notification.templates.messages.CREATED.en.body",
+                        "Created at {occurredAt} ({eventId}), sign in: {link.site}/login {{literal}")
+                .withProperty("notification.templates.messages.CREATED.ru.subject", "Добро пожаловать")
+                .withProperty("notification.templates.messages.CREATED.ru.body", "{eventType}");
+        EmailTemplateCatalog catalog = new EmailTemplateCatalog(environment);
+
+        RenderedEmail english = catalog.render(EVENT, Locale.forLanguageTag("en-GB"));
+        RenderedEmail fallback = catalog.render(EVENT, Locale.forLanguageTag("de"));
+
+        assertThat(english.subject()).isEqualTo("Welcome, john@example.com");
+        assertThat(english.body())
+                .startsWith("Created at ")
+                .contains("2024", "(00000000-0000-0000-0000-000000000042)")
+                .endsWith(", sign in: https://example.com/login {literal}");
+        assertThat(fallback.subject()).isEqualTo("Добро пожаловать");
+        assertThat(fallback.body()).isEqualTo("CREATED");
+    }
+
+    @Test
+    @DisplayName("renderDigest: тело сводки содержит строку с темой письма на каждое событие")
+    void renderDigest_ListsEvents() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("notification.templates.digest.subject", "Сводка для {email}")
+                .withProperty("notification.templates.digest.item", "* {eventType}: ");
+        EmailTemplateCatalog catalog = new EmailTemplateCatalog(environment);
+
+        RenderedEmail digest = catalog.renderDigest(List.of(EVENT,
+                UserEventDTO.of(UserEventDTO.EventType.DELETED, "john@example.com")));
+
+        assertThat(digest.subject()).isEqualTo("Сводка для john@example.com");
+        assertThat(digest.body()).isEqualTo("""
+                Здравствуйте! Последние события по вашему аккаунту:
+                * CREATED: Аккаунт успешно создан
+                * DELETED: Аккаунт удалён""");
+    }
+
+    @Test
+    @DisplayName("compile: неизвестная переменная отклоняется при старте")
+    void compile_RejectsUnknownVariable() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("notification.templates.messages.CREATED.en.subject", "Hi {name}")
+                .withProperty("notification.templates.messages.CREATED.en.body", "body");
+
+        assertThatThrownBy(() -> new EmailTemplateCatalog(environment))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("{name}");
+    }
+
+    @Test
+    @DisplayName("onEnvironmentChange: шаблоны перекомпилируются, ошибочная конфигурация не применяется")
+    void onEnvironmentChange_ReloadsTemplates() {
+        MockEnvironment environment = new MockEnvironment();
+        EmailTemplateCatalog catalog = new EmailTemplateCatalog(environment);
+
+        environment.setProperty("notification.templates.messages.CREATED.ru.subject", "Новая тема");
+        environment.setProperty("notification.templates.messages.CREATED.ru.body", "Новый текст для {email}");
+        catalog.onEnvironmentChange(new EnvironmentChangeEvent(Set.of("notification.templates.messages.CREATED.ru.subject")));
+
+        assertThat(catalog.render(EVENT).subject()).isEqualTo("Новая тема");
+        assertThat(catalog.render(EVENT).body()).isEqualTo("Новый текст для john@example.com");
+
+        environment.setProperty("notification.templates.messages.CREATED.ru.body", "Сломано {unknown");
+        catalog.onEnvironmentChange(new EnvironmentChangeEvent(Set.of("notification.templates.messages.CREATED.ru.body")));
+
+        assertThat(catalog.render(EVENT).body()).isEqualTo("Новый текст для john@example.com");
+    }
+}
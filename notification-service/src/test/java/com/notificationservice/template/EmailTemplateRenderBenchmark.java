@@ -0,0 +1,91 @@
+package com.notificationservice.template;
+
+import com.eventcontracts.dto.UserEventDTO;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Стоимость отрисовки письма: время и выделенная память на сообщение.
+ *
+ * <p>Сравниваются текст без переменных (прежние русские шаблоны) и шаблон с email,
+ * eventId, временем события и ссылкой. Для сравнения приведена отрисовка того же
+ * шаблона через цепочку {@code String.replace}.
+ *
+ * <p>Не входит в обычную сборку (шаблон surefire {@code *Test}). Запуск:
+ * <pre>
+ * mvn -pl notification-service test -Dtest=EmailTemplateRenderBenchmark -Dbench.iterations=5000000
+ * </pre>
+ */
+@DisplayName("Email Template Render Benchmark")
+class EmailTemplateRenderBenchmark {
+
+    private static final int ITERATIONS = Integer.getInteger("bench.iterations", 2_000_000);
+    private static final int EVENTS = 1024;
+    private static final String SUBJECT = "Welcome, {email}";
+    private static final String BODY = "Hello! Your account {email} was created at {occurredAt} (event {eventId}). "
+            + "Sign in: {link.site}/login";
+
+    @Test
+    @DisplayName("Compiled templates vs String.replace")
+    void renderCost() {
+        UserEventDTO[] events = new UserEventDTO[EVENTS];
+        for (int i = 0; i < EVENTS; i++) {
+            events[i] = UserEventDTO.of(UserEventDTO.EventType.CREATED, "user" + i + "@example.com");
+        }
+        EmailTemplateCatalog defaults = new EmailTemplateCatalog(new MockEnvironment());
+        EmailTemplateCatalog variables = new EmailTemplateCatalog(new MockEnvironment()
+                .withProperty("notification.templates.links.site", "https://example.com")
+                .withProperty("notification.templates.messages.CREATED.en.subject", SUBJECT)
+                .withProperty("notification.templates.messages.CREATED.en.body", BODY));
+
+        StringBuilder report = new StringBuilder("\n| template | ns/op | bytes allocated/op |\n|---|---:|---:|\n");
+        report.append(run("static text (default ru)", events, event -> defaults.render(event)));
+        report.append(run("compiled, 4 variables + link", events, event -> variables.render(event, Locale.ENGLISH)));
+        report.append(run("String.replace, same template", events, EmailTemplateRenderBenchmark::replaceChain));
+        System.out.println(report);
+    }
+
+    private static String run(String name, UserEventDTO[] events, Renderer renderer) {
+        measure(renderer, events, ITERATIONS / 4);
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+        measure(renderer, events, ITERATIONS);
+        long elapsed = System.nanoTime() - start;
+        long allocated = allocatedBytes() - allocatedBefore;
+        return String.format(Locale.ROOT, "| %s | %.1f | %.0f |%n", name,
+                (double) elapsed / ITERATIONS, (double) allocated / ITERATIONS);
+    }
+
+    private static void measure(Renderer renderer, UserEventDTO[] events, int iterations) {
+        long sink = 0;
+        for (int i = 0; i < iterations; i++) {
+            RenderedEmail email = renderer.render(events[i & (EVENTS - 1)]);
+            sink += email.subject().length() + email.body().length();
+        }
+        assertThat(sink).isPositive();
+    }
+
+    private static RenderedEmail replaceChain(UserEventDTO event) {
+        return new RenderedEmail(SUBJECT.replace("{email}", event.getEmail()), BODY
+                .replace("{email}", event.getEmail())
+                .replace("{occurredAt}", event.getOccurredAt().toString())
+                .replace("{eventId}", event.getEventId().toString())
+                .replace("{link.site}", "https://example.com"));
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().threadId());
+    }
+
+    @FunctionalInterface
+    private interface Renderer {
+        RenderedEmail render(UserEventDTO event);
+    }
+}
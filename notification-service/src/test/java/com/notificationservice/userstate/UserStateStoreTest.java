@@ -0,0 +1,137 @@
+package com.notificationservice.userstate;
+
+import com.eventcontracts.dto.UserSnapshot;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("UserStateStore Unit Tests")
+class UserStateStoreTest {
+
+    private static final String TOPIC = "user-state";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("apply: снимок заменяет прежний, tombstone удаляет пользователя")
+    void apply_ReplacesAndRemoves() {
+        UserStateStore store = new UserStateStore(directory, TOPIC, Duration.ofHours(1));
+
+        store.apply(0, 10, 42L, user("John"));
+        store.apply(0, 11, 42L, user("Johnny"));
+        store.apply(1, 5, 7L, user("Jane"));
+        assertThat(store.find(42L).getName()).isEqualTo("Johnny");
+        assertThat(store.size()).isEqualTo(2);
+
+        store.apply(1, 6, 7L, null);
+
+        assertThat(store.find(7L)).isNull();
+        assertThat(store.find(1L)).isNull();
+        assertThat(store.size()).isEqualTo(1);
+        assertThat(store.nextOffset(0)).isEqualTo(12);
+        assertThat(store.nextOffset(1)).isEqualTo(7);
+        assertThat(store.nextOffset(2)).isEqualTo(-1);
+    }
+
+    @Test
+    @DisplayName("Таблица совпадает с HashMap при случайных вставках и удалениях")
+    void randomOperations_MatchHashMap() {
+        UserStateStore store = new UserStateStore(directory, TOPIC, Duration.ofHours(1));
+        Map<Long, UserSnapshot> expected = new HashMap<>();
+        Random random = new Random(1);
+
+        for (int i = 0; i < 50_000; i++) {
+            long userId = random.nextInt(5_000);
+            UserSnapshot user = random.nextInt(3) == 0 ? null : user("user" + i);
+            store.apply(0, i, userId, user);
+            if (user != null) {
+                expected.put(userId, user);
+            } else {
+                expected.remove(userId);
+            }
+        }
+
+        assertThat(store.size()).isEqualTo(expected.size());
+        for (long userId = 0; userId < 5_000; userId++) {
+            assertThat(store.find(userId)).isSameAs(expected.get(userId));
+        }
+    }
+
+    @Test
+    @DisplayName("Снимок восстанавливает пользователей и позиции партиций после перезапуска")
+    void snapshot_RestoresStateAndOffsets() {
+        UserStateStore store = new UserStateStore(directory, TOPIC, Duration.ofHours(1));
+        Instant createdAt = Instant.parse("2024-05-01T10:15:30.123456Z");
+        store.apply(0, 3, 42L, new UserSnapshot("John", "john@example.com", 30, createdAt));
+        store.apply(2, 8, 0L, new UserSnapshot(null, "nobody@example.com", null, null));
+        store.close();
+
+        UserStateStore restored = new UserStateStore(directory, TOPIC, Duration.ofHours(1));
+        restored.load();
+
+        UserSnapshot john = restored.find(42L);
+        assertThat(john.getName()).isEqualTo("John");
+        assertThat(john.getEmail()).isEqualTo("john@example.com");
+        assertThat(john.getAge()).isEqualTo(30);
+        assertThat(john.getCreatedAt()).isEqualTo(createdAt);
+        UserSnapshot nobody = restored.find(0L);
+        assertThat(nobody.getName()).isNull();
+        assertThat(nobody.getAge()).isNull();
+        assertThat(restored.nextOffset(0)).isEqualTo(4);
+        assertThat(restored.nextOffset(2)).isEqualTo(9);
+    }
+
+    @Test
+    @DisplayName("Испорченный снимок или снимок другого топика игнорируется")
+    void load_IgnoresCorruptedOrForeignSnapshot() throws Exception {
+        UserStateStore store = new UserStateStore(directory, TOPIC, Duration.ofHours(1));
+        store.apply(0, 0, 42L, user("John"));
+        store.close();
+
+        UserStateStore otherTopic = new UserStateStore(directory, "other-topic", Duration.ofHours(1));
+        otherTopic.load();
+        assertThat(otherTopic.size()).isZero();
+        assertThat(otherTopic.nextOffset(0)).isEqualTo(-1);
+
+        Path file = directory.resolve("user-state.snapshot");
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length - 12] ^= 1;
+        Files.write(file, bytes);
+
+        UserStateStore corrupted = new UserStateStore(directory, TOPIC, Duration.ofHours(1));
+        corrupted.load();
+        assertThat(corrupted.size()).isZero();
+        assertThat(corrupted.nextOffset(0)).isEqualTo(-1);
+    }
+
+    @Test
+    @DisplayName("snapshotIfDue: снимок пишется только при изменениях и по истечении интервала")
+    void snapshotIfDue_WritesOnlyWhenDirtyAndDue() {
+        UserStateStore hourly = new UserStateStore(directory, TOPIC, Duration.ofHours(1));
+        hourly.apply(0, 0, 42L, user("John"));
+        hourly.snapshotIfDue();
+        assertThat(directory.resolve("user-state.snapshot")).doesNotExist();
+
+        UserStateStore immediate = new UserStateStore(directory, TOPIC, Duration.ZERO);
+        immediate.snapshotIfDue();
+        assertThat(directory.resolve("user-state.snapshot")).doesNotExist();
+        immediate.apply(0, 0, 42L, user("John"));
+        immediate.snapshotIfDue();
+        assertThat(directory.resolve("user-state.snapshot")).exists();
+    }
+
+    private static UserSnapshot user(String name) {
+        return new UserSnapshot(name, name.toLowerCase() + "@example.com", 30, null);
+    }
+}
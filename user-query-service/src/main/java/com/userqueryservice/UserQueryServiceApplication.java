@@ -0,0 +1,15 @@
+package com.userqueryservice;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.cloud.client.discovery.EnableDiscoveryClient;
+
+@SpringBootApplication
+@EnableDiscoveryClient
+public class UserQueryServiceApplication {
+
+    public static void main(String[] args) {
+        SpringApplication.run(UserQueryServiceApplication.class, args);
+    }
+
+}
@@ -0,0 +1,106 @@
+package com.userqueryservice.controller;
+
+import com.userqueryservice.dto.UserResponseDTO;
+import com.userqueryservice.exception.ResourceNotFoundException;
+import com.userqueryservice.hateoas.UserModelAssembler;
+import com.userqueryservice.store.OffHeapUserStore;
+import com.userqueryservice.store.StoredUser;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
+
+/**
+ * Чтение пользователей из read-модели: GET-операции UserControllerApi user-service
+ * с тем же форматом ответов.
+ *
+ * <p>Данные согласованы в конечном счёте: изменение видно здесь после того, как user-service
+ * опубликует его в топик состояния. Проверка email ({@code /exists}) остаётся в user-service:
+ * её вызывают перед созданием пользователя, и она должна видеть последнюю запись.
+ *
+ * <p>Список пользователей отдаётся постранично: в хранилище десятки миллионов записей,
+ * и полный список занял бы кучу и держал блокировку хранилища на весь обход.
+ */
+@RestController
+@RequestMapping("/api/v1/users")
+@RequiredArgsConstructor
+@Slf4j
+public class UserQueryController {
+
+    static final int DEFAULT_PAGE_SIZE = 100;
+    static final int MAX_PAGE_SIZE = 1000;
+
+    private final OffHeapUserStore store;
+    private final UserModelAssembler userModelAssembler;
+
+    /**
+     * Получить пользователя по ID
+     * GET /api/v1/users/{id}
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<EntityModel<UserResponseDTO>> getUserById(@PathVariable Long id) {
+
+        log.debug("REST request to get user by id: {}", id);
+        StoredUser user = store.find(id);
+        if (user == null) {
+            throw new ResourceNotFoundException("User not found with id: " + id);
+        }
+
+        return ResponseEntity.ok(userModelAssembler.toModel(toDto(user)));
+    }
+
+    /**
+     * Получить страницу пользователей по возрастанию id
+     * GET /api/v1/users?after={id}&size={size}
+     *
+     * @param after курсор: id последнего пользователя предыдущей страницы; без него - первая страница
+     * @param size  размер страницы, по умолчанию {@value #DEFAULT_PAGE_SIZE}, не больше {@value #MAX_PAGE_SIZE}
+     */
+    @GetMapping
+    public ResponseEntity<CollectionModel<EntityModel<UserResponseDTO>>> getAllUsers(
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) Integer size) {
+
+        int pageSize = size != null ? Math.clamp(size, 1, MAX_PAGE_SIZE) : DEFAULT_PAGE_SIZE;
+        log.debug("REST request to get users after id: {}, size: {}", after, pageSize);
+        List<StoredUser> page = store.findPage(after != null ? after : Long.MIN_VALUE, pageSize);
+        List<EntityModel<UserResponseDTO>> users = page.stream()
+                .map(user -> userModelAssembler.toModel(toDto(user)))
+                .toList();
+
+        CollectionModel<EntityModel<UserResponseDTO>> model = CollectionModel.of(users,
+                linkTo(methodOn(UserQueryController.class).getAllUsers(after, size)).withSelfRel().expand());
+        if (page.size() == pageSize) {
+            model.add(linkTo(methodOn(UserQueryController.class).getAllUsers(page.getLast().id(), pageSize))
+                    .withRel("next"));
+        }
+        return ResponseEntity.ok(model);
+    }
+
+    /**
+     * createdAt в user-service - LocalDateTime в часовом поясе сервиса, в событие он попадает
+     * как Instant; обратное преобразование - в поясе этого сервиса, пояса должны совпадать.
+     */
+    private static UserResponseDTO toDto(StoredUser user) {
+        return UserResponseDTO.builder()
+                .id(user.id())
+                .name(user.name())
+                .email(user.email())
+                .age(user.age())
+                .createdAt(user.createdAt() != null ? LocalDateTime.ofInstant(user.createdAt(), ZoneId.systemDefault()) : null)
+                .build();
+    }
+}
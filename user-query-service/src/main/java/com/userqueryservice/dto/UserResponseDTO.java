@@ -0,0 +1,34 @@
+package com.userqueryservice.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO для ответа API с данными пользователя. Формат совпадает с ответом user-service.
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Getter
+public class UserResponseDTO {
+
+    private Long id;
+
+    private String name;
+
+    private String email;
+
+    private Integer age;
+
+    /**
+     * Дата и время создания пользователя.
+     * <p>Форматируется в JSON как {@code yyyy-MM-dd'T'HH:mm:ss}.</p>
+     */
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,12 @@
+package com.userqueryservice.exception;
+
+/**
+ * Исключение для случаев когда ресурс не найден (404)
+ */
+public class ResourceNotFoundException extends RuntimeException {
+
+    public ResourceNotFoundException(String message) {
+        super(message);
+    }
+
+}
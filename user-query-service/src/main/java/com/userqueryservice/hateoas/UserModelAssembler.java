@@ -0,0 +1,40 @@
+package com.userqueryservice.hateoas;
+
+import com.userqueryservice.controller.UserQueryController;
+import com.userqueryservice.dto.UserResponseDTO;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.server.RepresentationModelAssembler;
+import org.springframework.stereotype.Component;
+
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
+
+/**
+ * Ассемблер модели пользователя для HATEOAS.
+ * Ссылки те же, что у user-service: update, delete и check-email ведут на пути
+ * /api/v1/users, которые api-gateway направляет в user-service.
+ */
+@Component
+public class UserModelAssembler implements RepresentationModelAssembler<UserResponseDTO, EntityModel<UserResponseDTO>> {
+
+    /**
+     * Преобразует DTO пользователя в HATEOAS-модель.
+     */
+    @Override
+    public EntityModel<UserResponseDTO> toModel(UserResponseDTO user) {
+        Link self = linkTo(methodOn(UserQueryController.class).getUserById(user.getId())).withSelfRel();
+        Link users = linkTo(methodOn(UserQueryController.class).getAllUsers(null, null)).withRel("users");
+        return EntityModel.of(user,
+                self,
+                users,
+                self.withRel("update"),
+                self.withRel("delete"),
+                Link.of(linkTo(UserQueryController.class).toUriComponentsBuilder()
+                        .path("/exists")
+                        .queryParam("email", user.getEmail())
+                        .encode()
+                        .toUriString(), "check-email")
+        );
+    }
+}
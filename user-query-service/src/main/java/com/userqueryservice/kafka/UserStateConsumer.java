@@ -0,0 +1,107 @@
+package com.userqueryservice.kafka;
+
+import com.eventcontracts.dto.UserEventDTO;
+import com.userqueryservice.store.OffHeapUserStore;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.context.event.EventListener;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.event.ListenerContainerIdleEvent;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.OptionalLong;
+
+/**
+ * Kafka consumer компактируемого топика состояния пользователей, наполняющий {@link OffHeapUserStore}
+ *
+ * <p>Каждому экземпляру нужна полная копия, поэтому группа у consumer'а своя на каждый запуск,
+ * offset'ы не коммитятся, а топик читается с начала. Пока топик не дочитан, экземпляр
+ * не готов принимать запросы, см. {@link UserStoreHealthIndicator}.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class UserStateConsumer implements ConsumerSeekAware {
+
+    static final String LISTENER_ID = "user-state";
+
+    private final OffHeapUserStore store;
+
+    /** Следующий offset по партициям, чтобы повторное назначение не перечитывало топик; только поток consumer'а */
+    private final Map<TopicPartition, Long> positions = new HashMap<>();
+    private volatile boolean caughtUp;
+
+    @KafkaListener(
+            id = LISTENER_ID,
+            idIsGroup = false,
+            topics = "${kafka.topic.user-state:user-state}",
+            groupId = "${spring.application.name}-${random.uuid}"
+    )
+    public void consumeUserState(ConsumerRecord<String, UserEventDTO> record, Consumer<?, ?> consumer) {
+        TopicPartition partition = new TopicPartition(record.topic(), record.partition());
+        positions.put(partition, record.offset() + 1);
+        apply(record);
+        if (!caughtUp && consumer.assignment().stream().allMatch(tp -> lag(consumer, tp) == 0)) {
+            markCaughtUp();
+        }
+    }
+
+    /**
+     * Нет новых записей за idle-interval - топик дочитан, в том числе пустой
+     */
+    @EventListener(condition = "event.listenerId.startsWith('" + LISTENER_ID + "')")
+    public void onIdle(ListenerContainerIdleEvent event) {
+        if (!caughtUp) {
+            markCaughtUp();
+        }
+    }
+
+    @Override
+    public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        for (TopicPartition partition : assignments.keySet()) {
+            Long position = positions.get(partition);
+            if (position != null) {
+                callback.seek(partition.topic(), partition.partition(), position);
+            } else {
+                callback.seekToBeginning(partition.topic(), partition.partition());
+            }
+        }
+    }
+
+    public boolean isCaughtUp() {
+        return caughtUp;
+    }
+
+    private void apply(ConsumerRecord<String, UserEventDTO> record) {
+        long userId;
+        try {
+            userId = Long.parseLong(record.key());
+        } catch (NumberFormatException e) {
+            log.warn("Skipping user state record with invalid key {} at {}-{}@{}",
+                    record.key(), record.topic(), record.partition(), record.offset());
+            return;
+        }
+        UserEventDTO state = record.value();
+        if (state == null) {
+            store.remove(userId);
+        } else if (state.getUser() != null) {
+            store.put(userId, state.getUser());
+        }
+    }
+
+    private static long lag(Consumer<?, ?> consumer, TopicPartition partition) {
+        OptionalLong lag = consumer.currentLag(partition);
+        return lag.isPresent() ? lag.getAsLong() : -1;
+    }
+
+    private void markCaughtUp() {
+        caughtUp = true;
+        log.info("User state topic caught up: {} users loaded", store.size());
+    }
+}
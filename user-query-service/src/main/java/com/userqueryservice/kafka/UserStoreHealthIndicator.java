@@ -0,0 +1,29 @@
+package com.userqueryservice.kafka;
+
+import com.userqueryservice.store.OffHeapUserStore;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Готовность read-модели: OUT_OF_SERVICE, пока {@link UserStateConsumer} не дочитал топик
+ * состояния. Без этого после перезапуска экземпляр отвечал бы 404 на существующих пользователей.
+ */
+@Component("userStore")
+@RequiredArgsConstructor
+public class UserStoreHealthIndicator implements HealthIndicator {
+
+    private final UserStateConsumer consumer;
+    private final OffHeapUserStore store;
+
+    @Override
+    public Health health() {
+        Health.Builder builder = consumer.isCaughtUp() ? Health.up() : Health.outOfService();
+        return builder
+                .withDetail("users", store.size())
+                .withDetail("mappedBytes", store.mappedBytes())
+                .withDetail("liveBytes", store.liveBytes())
+                .build();
+    }
+}
@@ -0,0 +1,209 @@
+package com.userqueryservice.store;
+
+import java.util.Arrays;
+
+/**
+ * Отображение long -> long на двух примитивных массивах с открытой адресацией.
+ *
+ * <p>Около 21-32 байт на запись при заполнении до 3/4 и ни одного объекта на запись:
+ * сборщику мусора нечего обходить, сколько бы миллионов ключей ни хранилось.
+ * Ключ 0 служит маркером пустой ячейки и хранится отдельно, отсутствие значения -
+ * {@link #MISSING}, поэтому значения должны быть неотрицательными. Удаление сдвигает
+ * следующие записи цепочки назад, без маркеров удалённых ячеек. Не потокобезопасно.
+ */
+final class LongLongMap {
+
+    static final long MISSING = -1;
+
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private long[] values;
+    private int size;
+    private long zeroValue = MISSING;
+
+    LongLongMap(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(MIN_CAPACITY, expected * 4 / 3 + 1) - 1) << 1;
+        this.keys = new long[capacity];
+        this.values = new long[capacity];
+    }
+
+    long get(long key) {
+        if (key == 0) {
+            return zeroValue;
+        }
+        long[] keys = this.keys;
+        int mask = keys.length - 1;
+        for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+            long current = keys[slot];
+            if (current == key) {
+                return values[slot];
+            }
+            if (current == 0) {
+                return MISSING;
+            }
+        }
+    }
+
+    /**
+     * @return прежнее значение или {@link #MISSING}
+     */
+    long put(long key, long value) {
+        if (key == 0) {
+            long previous = zeroValue;
+            if (previous == MISSING) {
+                size++;
+            }
+            zeroValue = value;
+            return previous;
+        }
+        if ((size + 1) * 4L > keys.length * 3L) {
+            resize(keys.length * 2);
+        }
+        int mask = keys.length - 1;
+        for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                long previous = values[slot];
+                values[slot] = value;
+                return previous;
+            }
+            if (keys[slot] == 0) {
+                keys[slot] = key;
+                values[slot] = value;
+                size++;
+                return MISSING;
+            }
+        }
+    }
+
+    /**
+     * @return удалённое значение или {@link #MISSING}
+     */
+    long remove(long key) {
+        if (key == 0) {
+            long previous = zeroValue;
+            if (previous != MISSING) {
+                zeroValue = MISSING;
+                size--;
+            }
+            return previous;
+        }
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (keys[slot] != key) {
+            if (keys[slot] == 0) {
+                return MISSING;
+            }
+            slot = (slot + 1) & mask;
+        }
+        long previous = values[slot];
+        size--;
+        // Сдвиг назад: запись, чья исходная ячейка не лежит между освобождённой и текущей, переезжает в освобождённую
+        int free = slot;
+        for (int next = (slot + 1) & mask; keys[next] != 0; next = (next + 1) & mask) {
+            int home = hash(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - free) & mask)) {
+                keys[free] = keys[next];
+                values[free] = values[next];
+                free = next;
+            }
+        }
+        keys[free] = 0;
+        values[free] = 0;
+        return previous;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Наименьшие ключи больше after по возрастанию. Обходит всю таблицу, но держит
+     * не больше out.length ключей: куча с наибольшим из отобранных в корне.
+     *
+     * @return число ключей, записанных в начало out
+     */
+    int keysAfter(long after, long[] out) {
+        int count = 0;
+        if (out.length == 0) {
+            return 0;
+        }
+        if (zeroValue != MISSING && after < 0) {
+            count = offer(out, count, 0);
+        }
+        for (long key : keys) {
+            if (key != 0 && key > after) {
+                count = offer(out, count, key);
+            }
+        }
+        Arrays.sort(out, 0, count);
+        return count;
+    }
+
+    private static int offer(long[] heap, int count, long key) {
+        if (count < heap.length) {
+            int child = count;
+            while (child > 0) {
+                int parent = (child - 1) >>> 1;
+                if (heap[parent] >= key) {
+                    break;
+                }
+                heap[child] = heap[parent];
+                child = parent;
+            }
+            heap[child] = key;
+            return count + 1;
+        }
+        if (key >= heap[0]) {
+            return count;
+        }
+        int parent = 0;
+        while (true) {
+            int child = 2 * parent + 1;
+            if (child >= count) {
+                break;
+            }
+            if (child + 1 < count && heap[child + 1] > heap[child]) {
+                child++;
+            }
+            if (heap[child] <= key) {
+                break;
+            }
+            heap[parent] = heap[child];
+            parent = child;
+        }
+        heap[parent] = key;
+        return count;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        long[] newKeys = new long[capacity];
+        long[] newValues = new long[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int slot = hash(oldKeys[i]) & mask;
+                while (newKeys[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                newKeys[slot] = oldKeys[i];
+                newValues[slot] = oldValues[i];
+            }
+        }
+        values = newValues;
+        keys = newKeys;
+    }
+
+    private static int hash(long key) {
+        // id из последовательности идут подряд; перемешивание разносит их по таблице
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        return "LongLongMap[size=" + size + ", capacity=" + keys.length + "]";
+    }
+}
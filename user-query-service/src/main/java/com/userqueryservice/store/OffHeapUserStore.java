@@ -0,0 +1,403 @@
+package com.userqueryservice.store;
+
+import com.eventcontracts.dto.UserSnapshot;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Хранилище пользователей вне кучи для read-модели
+ *
+ * <p>Записи пользователей лежат в сегментах {@code segment-<номер>.data} фиксированного размера,
+ * отображённых в память; в куче только индекс {@link LongLongMap} id -> адрес записи
+ * (номер сегмента и смещение). Десятки миллионов пользователей занимают память страничного
+ * кэша, а не кучи: сборщик мусора их не видит, а холодные страницы ядро может вытеснить на диск.
+ *
+ * <p>Запись: длина, id, createdAt (мс), age, длины и UTF-8 байты name и email - около 60 байт
+ * на пользователя. Изменение дописывает новую запись и переставляет индекс, удаление убирает
+ * id из индекса. Когда живых байт в заполненном сегменте остаётся меньше
+ * {@code compaction-threshold}, живые записи переносятся в текущий сегмент, а файл удаляется.
+ *
+ * <p>Пишет один поток (consumer топика состояния), читают потоки запросов. Чтение идёт без
+ * блокировки под оптимистичным штампом {@link StampedLock} и повторяется под блокировкой
+ * чтения, если в это время была запись. Сегменты - рабочие файлы, а не журнал: при старте
+ * остатки прошлого запуска удаляются, и хранилище заново строится по компактируемому топику.
+ */
+@Component
+@Slf4j
+public class OffHeapUserStore {
+
+    private static final int HEADER_SIZE = Integer.BYTES + 2 * Long.BYTES + Integer.BYTES + 2 * Short.BYTES;
+    private static final long NO_TIME = Long.MIN_VALUE;
+    private static final int NO_AGE = Integer.MIN_VALUE;
+    private static final short NO_STRING = -1;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final double compactionThreshold;
+
+    private final StampedLock lock = new StampedLock();
+    private final LongLongMap index;
+    /** Сегменты по номеру; удалённые сжатием - null */
+    private Segment[] segments = new Segment[16];
+    private Segment active;
+    private int nextSegment;
+    private long mappedBytes;
+    private long liveBytes;
+
+    private Counter compactions;
+
+    @Autowired
+    public OffHeapUserStore(@Value("${user-query.store.directory:${java.io.tmpdir}/user-query-service/store}") Path directory,
+                            @Value("${user-query.store.segment-size:64MB}") DataSize segmentSize,
+                            @Value("${user-query.store.expected-users:1000000}") int expectedUsers,
+                            @Value("${user-query.store.compaction-threshold:0.5}") double compactionThreshold,
+                            MeterRegistry meterRegistry) {
+        this(directory, Math.toIntExact(segmentSize.toBytes()), expectedUsers, compactionThreshold);
+        this.compactions = Counter.builder("user.query.store.compactions")
+                .description("Segments rewritten to reclaim space of updated and deleted users")
+                .register(meterRegistry);
+        Gauge.builder("user.query.store.users", this, OffHeapUserStore::size).register(meterRegistry);
+        Gauge.builder("user.query.store.mapped.bytes", this, OffHeapUserStore::mappedBytes).register(meterRegistry);
+        Gauge.builder("user.query.store.live.bytes", this, OffHeapUserStore::liveBytes).register(meterRegistry);
+    }
+
+    OffHeapUserStore(Path directory, int segmentSize, int expectedUsers, double compactionThreshold) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.compactionThreshold = compactionThreshold;
+        this.index = new LongLongMap(expectedUsers);
+    }
+
+    @PostConstruct
+    public void open() {
+        long stamp = lock.writeLock();
+        try {
+            Files.createDirectories(directory);
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "segment-*.data")) {
+                for (Path file : files) {
+                    Files.delete(file);
+                }
+            }
+            roll();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open user store in " + directory, e);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        log.info("Off-heap user store opened in {}: segmentSize={}MB", directory, segmentSize >> 20);
+    }
+
+    /**
+     * Сохраняет состояние пользователя, заменяя прежнее. Вызывается только потоком записи.
+     */
+    public void put(long userId, UserSnapshot user) {
+        byte[] name = encode(user.getName());
+        byte[] email = encode(user.getEmail());
+        int length = HEADER_SIZE + (name != null ? name.length : 0) + (email != null ? email.length : 0);
+        if (length > segmentSize) {
+            throw new IllegalArgumentException("User record of " + length + " bytes exceeds segment size");
+        }
+        long stamp = lock.writeLock();
+        try {
+            ensureCapacity(length);
+            long address = address(active.number, active.position);
+            write(active, userId, user, name, email, length);
+            liveBytes += length;
+            long previous = index.put(userId, address);
+            if (previous != LongLongMap.MISSING) {
+                release(previous);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Удаляет пользователя. Вызывается только потоком записи.
+     */
+    public void remove(long userId) {
+        long stamp = lock.writeLock();
+        try {
+            long previous = index.remove(userId);
+            if (previous != LongLongMap.MISSING) {
+                release(previous);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Пользователь или null, если его нет. Вызывается из любого потока.
+     */
+    public StoredUser find(long userId) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                StoredUser user = read(userId);
+                if (lock.validate(stamp)) {
+                    return user;
+                }
+            } catch (RuntimeException e) {
+                // Индекс или сегменты менялись во время чтения; повтор под блокировкой
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return read(userId);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Страница пользователей с id больше afterId по возрастанию id. Под блокировкой чтения
+     * индекс обходится без разбора записей, а в кучу декодируется не больше limit пользователей.
+     */
+    public List<StoredUser> findPage(long afterId, int limit) {
+        long[] ids = new long[limit];
+        long stamp = lock.readLock();
+        try {
+            int count = index.keysAfter(afterId, ids);
+            List<StoredUser> users = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                users.add(decode(index.get(ids[i])));
+            }
+            return users;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return index.size();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public long mappedBytes() {
+        long stamp = lock.readLock();
+        try {
+            return mappedBytes;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public long liveBytes() {
+        long stamp = lock.readLock();
+        try {
+            return liveBytes;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        long stamp = lock.writeLock();
+        try {
+            for (Segment segment : segments) {
+                if (segment != null) {
+                    deleteFile(segment);
+                }
+            }
+            Arrays.fill(segments, null);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private StoredUser read(long userId) {
+        long address = index.get(userId);
+        return address == LongLongMap.MISSING ? null : decode(address);
+    }
+
+    private StoredUser decode(long address) {
+        Segment segment = segments[segmentOf(address)];
+        MappedByteBuffer buffer = segment.buffer;
+        int offset = offsetOf(address);
+        long id = buffer.getLong(offset + Integer.BYTES);
+        long createdAt = buffer.getLong(offset + Integer.BYTES + Long.BYTES);
+        int age = buffer.getInt(offset + Integer.BYTES + 2 * Long.BYTES);
+        int position = offset + HEADER_SIZE - 2 * Short.BYTES;
+        short nameLength = buffer.getShort(position);
+        short emailLength = buffer.getShort(position + Short.BYTES);
+        position += 2 * Short.BYTES;
+        String name = decode(buffer, position, nameLength);
+        String email = decode(buffer, position + Math.max(0, nameLength), emailLength);
+        return new StoredUser(id, name, email,
+                age == NO_AGE ? null : age,
+                createdAt == NO_TIME ? null : Instant.ofEpochMilli(createdAt));
+    }
+
+    private static String decode(MappedByteBuffer buffer, int position, short length) {
+        if (length == NO_STRING) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(position, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void write(Segment segment, long userId, UserSnapshot user, byte[] name, byte[] email, int length) {
+        MappedByteBuffer buffer = segment.buffer;
+        int position = segment.position;
+        buffer.putInt(position, length);
+        buffer.putLong(position + Integer.BYTES, userId);
+        buffer.putLong(position + Integer.BYTES + Long.BYTES,
+                user.getCreatedAt() != null ? user.getCreatedAt().toEpochMilli() : NO_TIME);
+        buffer.putInt(position + Integer.BYTES + 2 * Long.BYTES, user.getAge() != null ? user.getAge() : NO_AGE);
+        int strings = position + HEADER_SIZE - 2 * Short.BYTES;
+        buffer.putShort(strings, name != null ? (short) name.length : NO_STRING);
+        buffer.putShort(strings + Short.BYTES, email != null ? (short) email.length : NO_STRING);
+        strings += 2 * Short.BYTES;
+        if (name != null) {
+            buffer.put(strings, name);
+            strings += name.length;
+        }
+        if (email != null) {
+            buffer.put(strings, email);
+        }
+        segment.position += length;
+        segment.live += length;
+    }
+
+    private static byte[] encode(String value) {
+        if (value == null) {
+            return null;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("String of " + bytes.length + " bytes is too long for the user store");
+        }
+        return bytes;
+    }
+
+    /**
+     * Прежняя запись больше не нужна: её байты становятся мусором, и сегмент сжимается,
+     * если живых байт в нём осталось меньше порога
+     */
+    private void release(long address) {
+        Segment segment = segments[segmentOf(address)];
+        int length = segment.buffer.getInt(offsetOf(address));
+        segment.live -= length;
+        liveBytes -= length;
+        if (segment != active && segment.live < segment.position * compactionThreshold) {
+            compact(segment);
+        }
+    }
+
+    private void compact(Segment segment) {
+        int moved = 0;
+        for (int offset = 0; offset < segment.position; ) {
+            int length = segment.buffer.getInt(offset);
+            long userId = segment.buffer.getLong(offset + Integer.BYTES);
+            if (index.get(userId) == address(segment.number, offset)) {
+                ensureCapacity(length);
+                active.buffer.put(active.position, segment.buffer, offset, length);
+                index.put(userId, address(active.number, active.position));
+                active.position += length;
+                active.live += length;
+                moved++;
+            }
+            offset += length;
+        }
+        segments[segment.number] = null;
+        mappedBytes -= segmentSize;
+        deleteFile(segment);
+        if (compactions != null) {
+            compactions.increment();
+        }
+        log.debug("Compacted user store segment {}: {} live records moved", segment.number, moved);
+    }
+
+    private void ensureCapacity(int length) {
+        if (segmentSize - active.position < length) {
+            roll();
+        }
+    }
+
+    private void roll() {
+        int number = nextSegment++;
+        Path file = directory.resolve("segment-" + number + ".data");
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // Отображение остаётся действительным и после закрытия канала
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create user store segment " + file, e);
+        }
+        if (number == segments.length) {
+            segments = Arrays.copyOf(segments, segments.length * 2);
+        }
+        active = new Segment(number, file, buffer);
+        segments[number] = active;
+        mappedBytes += segmentSize;
+    }
+
+    private static void deleteFile(Segment segment) {
+        // Память отображения освобождается, когда буфер соберёт GC; читатель со старым адресом ещё может его читать
+        try {
+            Files.deleteIfExists(segment.file);
+        } catch (IOException e) {
+            log.warn("Failed to delete user store segment {}", segment.file, e);
+        }
+    }
+
+    private static long address(int segment, int offset) {
+        return (long) segment << 32 | offset;
+    }
+
+    private static int segmentOf(long address) {
+        return (int) (address >>> 32);
+    }
+
+    private static int offsetOf(long address) {
+        return (int) address;
+    }
+
+    private static final class Segment {
+
+        final int number;
+        final Path file;
+        final MappedByteBuffer buffer;
+        /** Конец записанных данных */
+        int position;
+        /** Байты записей, на которые ссылается индекс */
+        long live;
+
+        Segment(int number, Path file, MappedByteBuffer buffer) {
+            this.number = number;
+            this.file = file;
+            this.buffer = buffer;
+        }
+    }
+}
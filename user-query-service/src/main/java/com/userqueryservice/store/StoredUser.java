@@ -0,0 +1,15 @@
+package com.userqueryservice.store;
+
+import java.time.Instant;
+
+/**
+ * Пользователь, прочитанный из {@link OffHeapUserStore}
+ *
+ * @param id        id пользователя в user-service
+ * @param name      имя
+ * @param email     электронная почта
+ * @param age       возраст или null
+ * @param createdAt момент создания с точностью до миллисекунды или null
+ */
+public record StoredUser(long id, String name, String email, Integer age, Instant createdAt) {
+}
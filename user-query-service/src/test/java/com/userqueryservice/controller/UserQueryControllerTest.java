@@ -0,0 +1,98 @@
+package com.userqueryservice.controller;
+
+import com.userqueryservice.hateoas.UserModelAssembler;
+import com.userqueryservice.store.OffHeapUserStore;
+import com.userqueryservice.store.StoredUser;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+import static org.hamcrest.Matchers.endsWith;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(UserQueryController.class)
+@Import(UserModelAssembler.class)
+@DisplayName("UserQueryController Unit Tests")
+class UserQueryControllerTest {
+
+    private static final LocalDateTime CREATED_AT = LocalDateTime.of(2025, 11, 20, 20, 0, 0);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private OffHeapUserStore store;
+
+    @Test
+    @DisplayName("GET /api/v1/users/{id} - пользователь в формате user-service")
+    void getUserById_Success() throws Exception {
+        when(store.find(1L)).thenReturn(user(1L, "john@example.com"));
+
+        mockMvc.perform(get("/api/v1/users/1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id", is(1)))
+                .andExpect(jsonPath("$.name", is("John")))
+                .andExpect(jsonPath("$.email", is("john@example.com")))
+                .andExpect(jsonPath("$.age", is(30)))
+                .andExpect(jsonPath("$.createdAt", is("2025-11-20T20:00:00")))
+                .andExpect(jsonPath("$._links.self.href", endsWith("/api/v1/users/1")))
+                .andExpect(jsonPath("$._links.check-email.href", endsWith("/api/v1/users/exists?email=john@example.com")));
+    }
+
+    @Test
+    @DisplayName("GET /api/v1/users/{id} - 404, если пользователя нет")
+    void getUserById_NotFound() throws Exception {
+        mockMvc.perform(get("/api/v1/users/99"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.status", is(404)))
+                .andExpect(jsonPath("$.message", is("User not found with id: 99")));
+    }
+
+    @Test
+    @DisplayName("GET /api/v1/users - первая страница пользователей")
+    void getAllUsers_Success() throws Exception {
+        when(store.findPage(Long.MIN_VALUE, UserQueryController.DEFAULT_PAGE_SIZE))
+                .thenReturn(List.of(user(1L, "john@example.com"), user(2L, "jane@example.com")));
+
+        mockMvc.perform(get("/api/v1/users"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$._embedded.userResponseDTOList", hasSize(2)))
+                .andExpect(jsonPath("$._embedded.userResponseDTOList[1].email", is("jane@example.com")))
+                .andExpect(jsonPath("$._links.self.href", endsWith("/api/v1/users")))
+                .andExpect(jsonPath("$._links.next").doesNotExist());
+    }
+
+    @Test
+    @DisplayName("GET /api/v1/users?after=&size= - страница по курсору со ссылкой на следующую, размер ограничен")
+    void getAllUsers_Page_LinksNextPage() throws Exception {
+        when(store.findPage(5L, 2)).thenReturn(List.of(user(6L, "john@example.com"), user(9L, "jane@example.com")));
+        when(store.findPage(Long.MIN_VALUE, UserQueryController.MAX_PAGE_SIZE)).thenReturn(List.of());
+
+        mockMvc.perform(get("/api/v1/users").param("after", "5").param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$._embedded.userResponseDTOList", hasSize(2)))
+                .andExpect(jsonPath("$._links.next.href", endsWith("/api/v1/users?after=9&size=2")));
+
+        mockMvc.perform(get("/api/v1/users").param("size", "1000000"))
+                .andExpect(status().isOk());
+        verify(store).findPage(Long.MIN_VALUE, UserQueryController.MAX_PAGE_SIZE);
+    }
+
+    private static StoredUser user(long id, String email) {
+        return new StoredUser(id, "John", email, 30, CREATED_AT.atZone(ZoneId.systemDefault()).toInstant());
+    }
+}
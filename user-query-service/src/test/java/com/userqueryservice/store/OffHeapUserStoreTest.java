@@ -0,0 +1,137 @@
+package com.userqueryservice.store;
+
+import com.eventcontracts.dto.UserSnapshot;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("OffHeapUserStore Unit Tests")
+class OffHeapUserStoreTest {
+
+    @TempDir
+    Path directory;
+
+    private OffHeapUserStore store;
+
+    @AfterEach
+    void tearDown() {
+        if (store != null) {
+            store.close();
+        }
+    }
+
+    @Test
+    @DisplayName("put/find: все поля, в том числе null и не-ASCII, читаются как записаны")
+    void put_RoundTripsAllFields() {
+        store = open(1 << 20);
+        Instant createdAt = Instant.parse("2024-05-01T10:15:30.123Z");
+
+        store.put(42L, new UserSnapshot("Иван", "ivan@example.com", 30, createdAt));
+        store.put(7L, new UserSnapshot("Jane", null, null, null));
+
+        assertThat(store.find(42L)).isEqualTo(new StoredUser(42L, "Иван", "ivan@example.com", 30, createdAt));
+        assertThat(store.find(7L)).isEqualTo(new StoredUser(7L, "Jane", null, null, null));
+        assertThat(store.find(1L)).isNull();
+    }
+
+    @Test
+    @DisplayName("put заменяет прежнее состояние, remove удаляет пользователя")
+    void put_ReplacesAndRemoveDeletes() {
+        store = open(1 << 20);
+
+        store.put(42L, user("John", 30));
+        store.put(42L, user("Johnny", 31));
+        store.put(0L, user("Zero", 1));
+        assertThat(store.find(42L).name()).isEqualTo("Johnny");
+        assertThat(store.size()).isEqualTo(2);
+
+        store.remove(42L);
+        store.remove(100L);
+
+        assertThat(store.find(42L)).isNull();
+        assertThat(store.find(0L).name()).isEqualTo("Zero");
+        assertThat(store.findPage(Long.MIN_VALUE, 10)).extracting(StoredUser::id).containsExactly(0L);
+    }
+
+    @Test
+    @DisplayName("Сжатие удаляет сегменты с мусором и сохраняет живые записи")
+    void compaction_ReclaimsSegmentsAndKeepsLiveUsers() throws Exception {
+        store = open(4096);
+        Map<Long, String> expected = new HashMap<>();
+        Random random = new Random(1);
+
+        for (int i = 0; i < 20_000; i++) {
+            long userId = random.nextInt(200);
+            if (random.nextInt(4) == 0) {
+                store.remove(userId);
+                expected.remove(userId);
+            } else {
+                String name = "user-" + i;
+                store.put(userId, user(name, i % 100));
+                expected.put(userId, name);
+            }
+        }
+
+        assertThat(store.size()).isEqualTo(expected.size());
+        expected.forEach((userId, name) -> assertThat(store.find(userId).name()).isEqualTo(name));
+        assertThat(allPages(7)).containsExactlyElementsOf(expected.keySet().stream().sorted().toList());
+        // Без сжатия 20 000 записей заняли бы сотни сегментов
+        try (Stream<Path> files = Files.list(directory)) {
+            assertThat(files.count()).isLessThan(20);
+        }
+        assertThat(store.mappedBytes()).isLessThan(20 * 4096L);
+        assertThat(store.liveBytes()).isLessThanOrEqualTo(store.mappedBytes());
+    }
+
+    @Test
+    @DisplayName("open удаляет сегменты прошлого запуска")
+    void open_DeletesLeftoverSegments() throws Exception {
+        Files.createDirectories(directory);
+        Files.write(directory.resolve("segment-5.data"), new byte[]{1, 2, 3});
+
+        store = open(4096);
+
+        assertThat(directory.resolve("segment-5.data")).doesNotExist();
+        assertThat(store.size()).isZero();
+    }
+
+    private OffHeapUserStore open(int segmentSize) {
+        OffHeapUserStore userStore = new OffHeapUserStore(directory, segmentSize, 16, 0.5);
+        userStore.open();
+        return userStore;
+    }
+
+    /**
+     * id всех пользователей, прочитанные страницами по курсору
+     */
+    private List<Long> allPages(int pageSize) {
+        List<Long> ids = new ArrayList<>();
+        long after = Long.MIN_VALUE;
+        while (true) {
+            List<StoredUser> page = store.findPage(after, pageSize);
+            assertThat(page.size()).isLessThanOrEqualTo(pageSize);
+            page.forEach(user -> ids.add(user.id()));
+            if (page.size() < pageSize) {
+                return ids;
+            }
+            after = page.getLast().id();
+        }
+    }
+
+    private static UserSnapshot user(String name, int age) {
+        return new UserSnapshot(name, name + "@example.com", age, Instant.ofEpochMilli(1_700_000_000_000L));
+    }
+}
@@ -0,0 +1,105 @@
+package com.userservice.backfill;
+
+import com.eventcontracts.dto.UserSnapshot;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.ZoneId;
+import java.util.List;
+
+/**
+ * Доступ к данным задачи backfill: постраничное чтение пользователей и checkpoint'ы диапазонов
+ *
+ * <p>Пользователи читаются через JDBC, а не JPA: миллионам строк не нужен persistence context,
+ * достаточно keyset-пагинации по первичному ключу. Checkpoint - строка на диапазон в таблице
+ * {@code user_backfill_ranges}; её переживает и рестарт сервиса, и запуск на другом экземпляре.
+ */
+@Repository
+@RequiredArgsConstructor
+public class BackfillRepository {
+
+    private static final String CREATE_TABLE = """
+            CREATE TABLE IF NOT EXISTS user_backfill_ranges (
+                range_from BIGINT  PRIMARY KEY,
+                range_to   BIGINT  NOT NULL,
+                last_id    BIGINT  NOT NULL,
+                completed  BOOLEAN NOT NULL
+            )""";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void createTable() {
+        jdbcTemplate.execute(CREATE_TABLE);
+    }
+
+    /**
+     * Наименьший и наибольший id пользователей или null, если пользователей нет
+     */
+    public long[] idBounds() {
+        return jdbcTemplate.queryForObject("SELECT MIN(id), MAX(id) FROM users",
+                (rs, rowNum) -> rs.getObject(1) == null ? null : new long[]{rs.getLong(1), rs.getLong(2)});
+    }
+
+    /**
+     * Заменяет checkpoint'ы прошлого запуска новым набором диапазонов
+     */
+    public void replaceRanges(List<IdRange> ranges) {
+        jdbcTemplate.update("DELETE FROM user_backfill_ranges");
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO user_backfill_ranges (range_from, range_to, last_id, completed) VALUES (?, ?, ?, FALSE)",
+                ranges, 1000, (ps, range) -> {
+                    ps.setLong(1, range.from());
+                    ps.setLong(2, range.to());
+                    ps.setLong(3, range.lastId());
+                });
+    }
+
+    public List<IdRange> pendingRanges() {
+        return jdbcTemplate.query("""
+                        SELECT range_from, range_to, last_id
+                        FROM user_backfill_ranges
+                        WHERE NOT completed
+                        ORDER BY range_from""",
+                (rs, rowNum) -> new IdRange(rs.getLong(1), rs.getLong(2), rs.getLong(3)));
+    }
+
+    public int countRanges() {
+        Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM user_backfill_ranges", Integer.class);
+        return count != null ? count : 0;
+    }
+
+    public void checkpoint(IdRange range, boolean completed) {
+        jdbcTemplate.update("UPDATE user_backfill_ranges SET last_id = ?, completed = ? WHERE range_from = ?",
+                range.lastId(), completed, range.from());
+    }
+
+    /**
+     * Следующая страница пользователей диапазона по возрастанию id
+     */
+    public List<UserRow> page(IdRange range, int limit) {
+        return jdbcTemplate.query("""
+                        SELECT id, name, email, age, created_at
+                        FROM users
+                        WHERE id > ? AND id <= ?
+                        ORDER BY id
+                        LIMIT ?""",
+                (rs, rowNum) -> {
+                    Timestamp createdAt = rs.getTimestamp("created_at");
+                    return new UserRow(rs.getLong("id"), new UserSnapshot(
+                            rs.getString("name"),
+                            rs.getString("email"),
+                            rs.getObject("age", Integer.class),
+                            // Как в UserMapper: локальное время сервера -> момент времени
+                            createdAt != null ? createdAt.toLocalDateTime().atZone(ZoneId.systemDefault()).toInstant() : null));
+                },
+                range.lastId(), range.to(), limit);
+    }
+
+    /**
+     * Строка таблицы users в виде снимка для события
+     */
+    public record UserRow(long id, UserSnapshot snapshot) {
+    }
+}
@@ -0,0 +1,15 @@
+package com.userservice.backfill;
+
+/**
+ * Диапазон id пользователей {@code (lastId, to]}, ещё не переопубликованный задачей backfill
+ *
+ * @param from   первый id диапазона, ключ checkpoint'а
+ * @param to     последний id диапазона включительно
+ * @param lastId последний опубликованный id; до начала - {@code from - 1}
+ */
+public record IdRange(long from, long to, long lastId) {
+
+    public IdRange withLastId(long lastId) {
+        return new IdRange(from, to, lastId);
+    }
+}
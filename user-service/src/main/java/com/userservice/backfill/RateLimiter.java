@@ -0,0 +1,37 @@
+package com.userservice.backfill;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ограничение скорости публикации, общее для всех потоков backfill
+ *
+ * <p>Каждый вызов резервирует время под свои разрешения и спит до начала своего окна,
+ * поэтому средняя скорость не превышает {@code permitsPerSecond} при любом числе потоков.
+ * Неиспользованное время не накапливается. Скорость 0 - без ограничения.
+ */
+final class RateLimiter {
+
+    private final long nanosPerPermit;
+    private long nextFree = System.nanoTime();
+
+    RateLimiter(int permitsPerSecond) {
+        this.nanosPerPermit = permitsPerSecond > 0 ? TimeUnit.SECONDS.toNanos(1) / permitsPerSecond : 0;
+    }
+
+    void acquire(int permits) throws InterruptedException {
+        if (nanosPerPermit == 0) {
+            return;
+        }
+        long wait = reserve(permits);
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+
+    private synchronized long reserve(int permits) {
+        long now = System.nanoTime();
+        long start = Math.max(now, nextFree);
+        nextFree = start + permits * nanosPerPermit;
+        return start - now;
+    }
+}
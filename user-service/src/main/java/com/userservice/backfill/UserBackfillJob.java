@@ -0,0 +1,280 @@
+package com.userservice.backfill;
+
+import com.eventcontracts.dto.UserEventDTO;
+import com.userservice.dto.BackfillStatusDTO;
+import com.userservice.kafka.UserStatePublisher;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Полная перепубликация пользователей в топик состояния {@code kafka.topic.user-state}
+ *
+ * <p>Нужна после потери или пересоздания топика и при подключении нового получателя к уже
+ * заполненной базе: на каждого пользователя публикуется событие UPDATED со снимком и пустым
+ * списком изменений. В основной топик событий ничего не пишется, поэтому уведомления не рассылаются.
+ *
+ * <p>Пространство id делится на диапазоны по {@code backfill.range-size}, диапазоны обходятся
+ * параллельно на отдельном {@link ForkJoinPool} из {@code backfill.parallelism} потоков.
+ * Внутри диапазона пользователи читаются страницами по возрастанию id; после подтверждения
+ * брокером всей страницы в {@link BackfillRepository} сохраняется последний опубликованный id.
+ * Запуск с {@code resume=true} продолжает прерванный обход с этих checkpoint'ов, поэтому
+ * повторно публикуется не больше страницы на диапазон - для компактируемого топика это безвредно.
+ * Общая скорость публикации ограничена {@code backfill.rate} событиями в секунду.
+ *
+ * <p>Страница читается и отдаётся в Kafka внутри {@link UserStatePublisher#inOrder}, а живые
+ * изменения публикуются после коммита под той же блокировкой. Снимок, прочитанный до изменения,
+ * уходит в топик раньше него, поэтому обход не перезаписывает более новое состояние
+ * и не воскрешает удалённых пользователей.
+ */
+@Component
+@Slf4j
+public class UserBackfillJob {
+
+    public enum State {IDLE, RUNNING, COMPLETED, FAILED, CANCELLED}
+
+    private final BackfillRepository repository;
+    private final UserStatePublisher publisher;
+    private final long rangeSize;
+    private final int parallelism;
+    private final int pageSize;
+    private final int rate;
+    private final Duration sendTimeout;
+    private final Counter publishedCounter;
+
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicInteger completedRanges = new AtomicInteger();
+    private volatile State state = State.IDLE;
+    private volatile int totalRanges;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile String failure;
+    private volatile boolean cancelled;
+    private volatile RateLimiter rateLimiter;
+    private volatile Thread runner;
+
+    public UserBackfillJob(BackfillRepository repository,
+                           UserStatePublisher publisher,
+                           MeterRegistry meterRegistry,
+                           @Value("${backfill.range-size:100000}") long rangeSize,
+                           @Value("${backfill.parallelism:4}") int parallelism,
+                           @Value("${backfill.page-size:1000}") int pageSize,
+                           @Value("${backfill.rate:20000}") int rate,
+                           @Value("${backfill.send-timeout:PT30S}") Duration sendTimeout) {
+        this.repository = repository;
+        this.publisher = publisher;
+        this.rangeSize = rangeSize;
+        this.parallelism = parallelism;
+        this.pageSize = pageSize;
+        this.rate = rate;
+        this.sendTimeout = sendTimeout;
+        this.publishedCounter = Counter.builder("user.backfill.published").register(meterRegistry);
+    }
+
+    /**
+     * Запускает обход в фоновом потоке
+     *
+     * @param resume продолжить с checkpoint'ов прошлого запуска вместо обхода с начала
+     * @return false, если обход уже выполняется
+     */
+    public synchronized boolean start(boolean resume) {
+        if (state == State.RUNNING) {
+            return false;
+        }
+        if (!publisher.isEnabled()) {
+            throw new IllegalStateException("User state topic is disabled, nothing to backfill");
+        }
+        state = State.RUNNING;
+        // Сбрасывается здесь, а не в run(): отмена сразу после запуска не теряется
+        cancelled = false;
+        runner = Thread.ofPlatform().name("user-backfill").daemon().start(() -> run(resume));
+        return true;
+    }
+
+    /**
+     * Просит остановить обход; страницы, уже отданные в Kafka, дописываются в checkpoint
+     */
+    public boolean cancel() {
+        if (state != State.RUNNING) {
+            return false;
+        }
+        cancelled = true;
+        return true;
+    }
+
+    public BackfillStatusDTO status() {
+        Instant started = startedAt;
+        Instant finished = finishedAt;
+        long count = published.get();
+        double seconds = started == null ? 0
+                : Duration.between(started, finished != null ? finished : Instant.now()).toMillis() / 1000.0;
+        return BackfillStatusDTO.builder()
+                .state(state)
+                .totalRanges(totalRanges)
+                .completedRanges(completedRanges.get())
+                .published(count)
+                .eventsPerSecond(seconds > 0 ? Math.round(count / seconds) : 0)
+                .startedAt(started)
+                .finishedAt(finished)
+                .failure(failure)
+                .build();
+    }
+
+    /**
+     * Обход целиком в вызывающем потоке; открыт для тестов
+     */
+    void run(boolean resume) {
+        state = State.RUNNING;
+        failure = null;
+        published.set(0);
+        completedRanges.set(0);
+        startedAt = Instant.now();
+        finishedAt = null;
+        rateLimiter = new RateLimiter(rate);
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            repository.createTable();
+            List<IdRange> ranges = resume ? repository.pendingRanges() : List.of();
+            if (ranges.isEmpty()) {
+                ranges = split(repository.idBounds());
+                repository.replaceRanges(ranges);
+                totalRanges = ranges.size();
+            } else {
+                totalRanges = repository.countRanges();
+                completedRanges.set(totalRanges - ranges.size());
+            }
+            log.info("User backfill started: {} of {} ranges pending, parallelism={}, rate={}/s",
+                    ranges.size(), totalRanges, parallelism, rate);
+            pool.invoke(new RangeTask(ranges));
+            state = cancelled ? State.CANCELLED : State.COMPLETED;
+            log.info("User backfill {}: {} users published, {}/{} ranges done",
+                    state, published.get(), completedRanges.get(), totalRanges);
+        } catch (RuntimeException e) {
+            failure = e.getMessage();
+            state = State.FAILED;
+            log.error("User backfill failed after {} users", published.get(), e);
+        } finally {
+            pool.shutdownNow();
+            finishedAt = Instant.now();
+        }
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        Thread thread = runner;
+        if (thread != null && thread.isAlive()) {
+            cancelled = true;
+            thread.join(sendTimeout.toMillis());
+        }
+    }
+
+    private List<IdRange> split(long[] bounds) {
+        List<IdRange> ranges = new ArrayList<>();
+        if (bounds == null) {
+            return ranges;
+        }
+        for (long from = bounds[0]; from <= bounds[1]; from += rangeSize) {
+            long to = Math.min(bounds[1], from + rangeSize - 1);
+            ranges.add(new IdRange(from, to, from - 1));
+            if (to == Long.MAX_VALUE) {
+                break;
+            }
+        }
+        return ranges;
+    }
+
+    private void backfill(IdRange range) {
+        while (!cancelled) {
+            acquire(pageSize);
+            IdRange current = range;
+            List<CompletableFuture<Void>> sends = new ArrayList<>(pageSize);
+            List<BackfillRepository.UserRow> page = publisher.inOrder(() -> {
+                List<BackfillRepository.UserRow> rows = repository.page(current, pageSize);
+                for (BackfillRepository.UserRow row : rows) {
+                    sends.add(publisher.publish(UserEventDTO.of(
+                            UserEventDTO.EventType.UPDATED, row.id(), row.snapshot(), List.of())));
+                }
+                return rows;
+            });
+            if (page.isEmpty()) {
+                repository.checkpoint(range, true);
+                completedRanges.incrementAndGet();
+                return;
+            }
+            await(CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new)));
+            range = range.withLastId(page.getLast().id());
+            boolean last = page.size() < pageSize || range.lastId() >= range.to();
+            repository.checkpoint(range, last);
+            published.addAndGet(page.size());
+            publishedCounter.increment(page.size());
+            if (last) {
+                completedRanges.incrementAndGet();
+                return;
+            }
+        }
+    }
+
+    private void acquire(int permits) {
+        try {
+            rateLimiter.acquire(permits);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("User backfill interrupted");
+        }
+    }
+
+    private void await(CompletableFuture<Void> sends) {
+        try {
+            sends.get(sendTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("User backfill interrupted");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to publish user state: " + e.getCause().getMessage(), e.getCause());
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("User state publish not acknowledged within " + sendTimeout, e);
+        }
+    }
+
+    /**
+     * Делит список диапазонов пополам, пока не останется по одному на задачу
+     */
+    private final class RangeTask extends RecursiveAction {
+
+        private final List<IdRange> ranges;
+
+        private RangeTask(List<IdRange> ranges) {
+            this.ranges = ranges;
+        }
+
+        @Override
+        protected void compute() {
+            if (ranges.isEmpty() || cancelled) {
+                return;
+            }
+            if (ranges.size() == 1) {
+                backfill(ranges.getFirst());
+                return;
+            }
+            int middle = ranges.size() / 2;
+            invokeAll(new RangeTask(ranges.subList(0, middle)), new RangeTask(ranges.subList(middle, ranges.size())));
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.userservice.bulkimport;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Поток CSV-строк для COPY из записей входа с полями name, email, age, created_at
+ *
+ * <p>В памяти одновременно только текущая строка, поэтому размер импорта не ограничен.
+ * Поле null становится пустым значением без кавычек, которое COPY читает как NULL; строки
+ * всегда в кавычках, чтобы пустая строка осталась пустой строкой, прочие значения пишутся как есть.
+ * Запись, отклонённая {@link ImportRowValidator}, в поток не попадает.
+ */
+abstract class ImportCsvReader extends Reader {
+
+    static final int COLUMNS = 4;
+
+    private final ImportRowValidator validator;
+    private final StringBuilder row = new StringBuilder(256);
+    private int position;
+
+    /**
+     * @param validator проверка записей; null - записи не проверяются
+     */
+    ImportCsvReader(ImportRowValidator validator) {
+        this.validator = validator;
+    }
+
+    /**
+     * Следующая запись входа
+     *
+     * @return поля записи или null в конце входа
+     */
+    abstract Object[] nextRecord() throws IOException;
+
+    /**
+     * Номер строки входа, с которой началась последняя запись; считается с единицы
+     */
+    abstract long recordLine();
+
+    @Override
+    public int read(char[] buffer, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        while (position == row.length()) {
+            if (!nextRow()) {
+                return -1;
+            }
+        }
+        int count = Math.min(length, row.length() - position);
+        row.getChars(position, position + count, buffer, offset);
+        position += count;
+        return count;
+    }
+
+    private boolean nextRow() throws IOException {
+        Object[] fields;
+        do {
+            fields = nextRecord();
+            if (fields == null) {
+                return false;
+            }
+        } while (validator != null && !validator.accept(recordLine(), fields));
+
+        row.setLength(0);
+        position = 0;
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                row.append(',');
+            }
+            append(fields[i]);
+        }
+        row.append('\n');
+        return true;
+    }
+
+    private void append(Object value) {
+        if (value == null) {
+            return;
+        }
+        if (!(value instanceof String text)) {
+            row.append(value);
+            return;
+        }
+        row.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"') {
+                row.append('"');
+            }
+            row.append(c);
+        }
+        row.append('"');
+    }
+
+    /**
+     * Вход, который нельзя разобрать; номер строки считается с единицы
+     */
+    static final class MalformedLineException extends IOException {
+
+        MalformedLineException(String format, long lineNumber, String reason) {
+            super("Malformed " + format + " at line " + lineNumber + ": " + reason);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.userservice.bulkimport;
+
+/**
+ * Формат тела запроса массового импорта
+ */
+public enum ImportFormat {
+
+    /**
+     * CSV с заголовком и колонками {@code name,email,age,created_at} в этом порядке
+     */
+    CSV,
+
+    /**
+     * Объект на строку с полями {@code name}, {@code email}, {@code age}, {@code createdAt};
+     * на лету перекодируется в CSV
+     */
+    NDJSON
+}
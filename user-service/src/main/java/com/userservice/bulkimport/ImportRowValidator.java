@@ -0,0 +1,83 @@
+package com.userservice.bulkimport;
+
+import com.userservice.dto.UserCreateDTO;
+import jakarta.validation.Validator;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Проверка строк импорта теми же ограничениями, что и {@link UserCreateDTO} в REST API
+ *
+ * <p>Строка с нарушением в COPY не попадает, а считается отклонённой; в отчёт идут первые
+ * {@code sampleSize} причин с номерами строк. Возраст приводится к целому числу.
+ */
+final class ImportRowValidator {
+
+    private final Validator validator;
+    private final int sampleSize;
+    private final List<String> samples = new ArrayList<>();
+    private long rejected;
+
+    ImportRowValidator(Validator validator, int sampleSize) {
+        this.validator = validator;
+        this.sampleSize = sampleSize;
+    }
+
+    /**
+     * @return true, если строку можно импортировать
+     */
+    boolean accept(long lineNumber, Object[] fields) {
+        String reason = check(fields);
+        if (reason == null) {
+            return true;
+        }
+        rejected++;
+        if (samples.size() < sampleSize) {
+            samples.add("line " + lineNumber + ": " + reason);
+        }
+        return false;
+    }
+
+    long rejected() {
+        return rejected;
+    }
+
+    List<String> samples() {
+        return samples;
+    }
+
+    private String check(Object[] fields) {
+        if (fields.length != ImportCsvReader.COLUMNS) {
+            return "expected " + ImportCsvReader.COLUMNS + " columns, got " + fields.length;
+        }
+        Integer age;
+        try {
+            age = age(fields[2]);
+        } catch (NumberFormatException | ArithmeticException e) {
+            return "age: Age must be an integer";
+        }
+        fields[2] = age;
+        UserCreateDTO user = new UserCreateDTO(text(fields[0]), text(fields[1]), age);
+        return validator.validate(user).stream()
+                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.collectingAndThen(Collectors.joining("; "), joined -> joined.isEmpty() ? null : joined));
+    }
+
+    private static Integer age(Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof Number number) {
+            return new BigDecimal(number.toString()).intValueExact();
+        }
+        return Integer.parseInt(value.toString().strip());
+    }
+
+    private static String text(Object value) {
+        return value != null ? value.toString() : null;
+    }
+}
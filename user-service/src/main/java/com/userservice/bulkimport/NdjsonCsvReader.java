@@ -0,0 +1,81 @@
+package com.userservice.bulkimport;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Поток CSV-строк для COPY, построчно получаемый из NDJSON
+ *
+ * <p>Отсутствующее поле или null становится NULL, числа пишутся без кавычек.
+ * Пустые строки входа пропускаются.
+ */
+final class NdjsonCsvReader extends ImportCsvReader {
+
+    private static final String[] FIELDS = {"name", "email", "age", "createdAt"};
+
+    private final BufferedReader source;
+    private final ObjectMapper objectMapper;
+    private long lineNumber;
+
+    NdjsonCsvReader(Reader source, ObjectMapper objectMapper) {
+        this(source, objectMapper, null);
+    }
+
+    NdjsonCsvReader(Reader source, ObjectMapper objectMapper, ImportRowValidator validator) {
+        super(validator);
+        this.source = source instanceof BufferedReader buffered ? buffered : new BufferedReader(source, 64 * 1024);
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void close() throws IOException {
+        source.close();
+    }
+
+    @Override
+    Object[] nextRecord() throws IOException {
+        String line;
+        do {
+            line = source.readLine();
+            if (line == null) {
+                return null;
+            }
+            lineNumber++;
+        } while (line.isBlank());
+
+        JsonNode node;
+        try {
+            node = objectMapper.readTree(line);
+        } catch (JsonProcessingException e) {
+            throw new MalformedLineException("NDJSON", lineNumber, e.getOriginalMessage());
+        }
+        if (!node.isObject()) {
+            throw new MalformedLineException("NDJSON", lineNumber, "JSON object expected");
+        }
+        Object[] fields = new Object[FIELDS.length];
+        for (int i = 0; i < FIELDS.length; i++) {
+            fields[i] = value(node.get(FIELDS[i]));
+        }
+        return fields;
+    }
+
+    @Override
+    long recordLine() {
+        return lineNumber;
+    }
+
+    private static Object value(JsonNode value) {
+        if (value == null || value.isNull()) {
+            return null;
+        }
+        if (value.isNumber()) {
+            return value.numberValue();
+        }
+        return value.isValueNode() ? value.asText() : value.toString();
+    }
+}
@@ -0,0 +1,300 @@
+package com.userservice.bulkimport;
+
+import com.eventcontracts.dto.UserEventDTO;
+import com.eventcontracts.dto.UserSnapshot;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.userservice.dto.ImportReportDTO;
+import com.userservice.exception.InvalidImportDataException;
+import com.userservice.kafka.UserStatePublisher;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.UncategorizedSQLException;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Массовый импорт пользователей через протокол COPY PostgreSQL
+ *
+ * <p>Тело запроса потоком разбирается построчно и уходит в COPY во временную таблицу
+ * {@code user_import_staging}, минуя JPA и построчные INSERT'ы, после чего одним запросом
+ * переносится в {@code users}. Каждая строка проверяется ограничениями {@link com.userservice.dto.UserCreateDTO};
+ * не прошедшие проверку строки пропускаются, в отчёт попадают их число и первые
+ * {@code bulk-import.rejected-sample-size} причин с номерами строк.
+ * Из повторов email внутри файла берётся первая строка, email'ы, уже занятые в {@code users},
+ * пропускаются; в отчёт попадают их число и первые {@code bulk-import.duplicate-sample-size}
+ * адресов. Весь импорт - одна транзакция: неразбираемый вход или ошибка COPY откатывают его целиком.
+ *
+ * <p>После коммита импортированные пользователи публикуются в топик состояния событиями CREATED
+ * пачками по {@code bulk-import.event-batch-size} с ожиданием подтверждения брокера. Временная
+ * таблица хранит только id вставленных строк: каждая пачка заново читается из {@code users}
+ * внутри {@link UserStatePublisher#inOrder}, как у {@link com.userservice.backfill.UserBackfillJob},
+ * поэтому снимок не перекрывает изменения и удаления, сделанные после импорта.
+ * В топик событий они не попадают, чтобы миграция не разослала приветственные письма.
+ * Если публикация прервалась, недостающее восстанавливает {@link com.userservice.backfill.UserBackfillJob}.
+ */
+@Component
+@Slf4j
+public class UserBulkImporter {
+
+    private static final String CREATE_STAGING = """
+            CREATE TEMP TABLE user_import_staging (
+                row_no     BIGINT       GENERATED ALWAYS AS IDENTITY,
+                name       VARCHAR(100) NOT NULL,
+                email      VARCHAR(150) NOT NULL,
+                age        INTEGER,
+                created_at TIMESTAMP
+            ) ON COMMIT DROP""";
+
+    private static final String CREATE_INSERTED = """
+            CREATE TEMP TABLE user_import_inserted (
+                id BIGINT PRIMARY KEY
+            )""";
+
+    private static final String COPY =
+            "COPY user_import_staging (name, email, age, created_at) FROM STDIN WITH (FORMAT csv)";
+
+    private static final String SELECT_DUPLICATES = """
+            SELECT s.email
+            FROM (SELECT email, row_no, row_number() OVER (PARTITION BY email ORDER BY row_no) AS occurrence
+                  FROM user_import_staging) s
+            WHERE s.occurrence > 1 OR EXISTS (SELECT 1 FROM users u WHERE u.email = s.email)
+            ORDER BY s.row_no
+            LIMIT ?""";
+
+    private static final String MERGE = """
+            WITH inserted AS (
+                INSERT INTO users (name, email, age, created_at)
+                SELECT DISTINCT ON (email) name, email, age, COALESCE(created_at, LOCALTIMESTAMP)
+                FROM user_import_staging
+                ORDER BY email, row_no
+                ON CONFLICT (email) DO NOTHING
+                RETURNING id
+            )
+            INSERT INTO user_import_inserted SELECT id FROM inserted""";
+
+    private static final String SELECT_INSERTED = """
+            SELECT u.id, u.name, u.email, u.age, u.created_at
+            FROM user_import_inserted i
+            JOIN users u ON u.id = i.id
+            WHERE i.id > ?
+            ORDER BY i.id
+            LIMIT ?""";
+
+    private final DataSource dataSource;
+    private final UserStatePublisher publisher;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final int eventBatchSize;
+    private final int duplicateSampleSize;
+    private final int rejectedSampleSize;
+    private final Duration sendTimeout;
+    private final Counter importedCounter;
+
+    public UserBulkImporter(DataSource dataSource,
+                            UserStatePublisher publisher,
+                            ObjectMapper objectMapper,
+                            Validator validator,
+                            MeterRegistry meterRegistry,
+                            @Value("${bulk-import.event-batch-size:5000}") int eventBatchSize,
+                            @Value("${bulk-import.duplicate-sample-size:100}") int duplicateSampleSize,
+                            @Value("${bulk-import.rejected-sample-size:100}") int rejectedSampleSize,
+                            @Value("${bulk-import.send-timeout:PT30S}") Duration sendTimeout) {
+        this.dataSource = dataSource;
+        this.publisher = publisher;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.eventBatchSize = eventBatchSize;
+        this.duplicateSampleSize = duplicateSampleSize;
+        this.rejectedSampleSize = rejectedSampleSize;
+        this.sendTimeout = sendTimeout;
+        this.importedCounter = Counter.builder("user.import.rows").register(meterRegistry);
+    }
+
+    /**
+     * Импортирует пользователей из тела запроса
+     *
+     * @throws InvalidImportDataException вход не разбирается или строка нарушает ограничения таблицы
+     */
+    public ImportReportDTO importUsers(InputStream body, ImportFormat format) {
+        long started = System.nanoTime();
+        try (Connection connection = dataSource.getConnection()) {
+            try {
+                connection.setAutoCommit(false);
+                ImportReportDTO.ImportReportDTOBuilder report = merge(connection, body, format);
+                connection.commit();
+                connection.setAutoCommit(true);
+
+                ImportReportDTO merged = report.build();
+                importedCounter.increment(merged.getImported());
+                long published = publisher.isEnabled() ? publishInserted(connection) : 0;
+                long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+                log.info("Bulk import finished: received={}, imported={}, rejected={}, duplicates={}, published={}, elapsed={} ms",
+                        merged.getReceived(), merged.getImported(), merged.getRejected(), merged.getDuplicates(),
+                        published, elapsedMillis);
+                return report
+                        .published(published)
+                        .elapsedMillis(elapsedMillis)
+                        .rowsPerSecond(elapsedMillis > 0 ? merged.getReceived() * 1000 / elapsedMillis : merged.getReceived())
+                        .build();
+            } catch (SQLException | IOException | RuntimeException e) {
+                if (!connection.getAutoCommit()) {
+                    connection.rollback();
+                    connection.setAutoCommit(true);
+                }
+                throw e;
+            } finally {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("DROP TABLE IF EXISTS user_import_inserted, user_import_staging");
+                }
+            }
+        } catch (ImportCsvReader.MalformedLineException e) {
+            throw new InvalidImportDataException(e.getMessage(), e);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read bulk import body", e);
+        } catch (SQLException e) {
+            if (isDataError(e)) {
+                throw new InvalidImportDataException(e.getMessage(), e);
+            }
+            throw new UncategorizedSQLException("User bulk import", null, e);
+        }
+    }
+
+    private ImportReportDTO.ImportReportDTOBuilder merge(Connection connection, InputStream body, ImportFormat format)
+            throws SQLException, IOException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(CREATE_STAGING);
+            statement.execute(CREATE_INSERTED);
+        }
+
+        CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+        ImportRowValidator rowValidator = new ImportRowValidator(validator, rejectedSampleSize);
+        Reader source = new InputStreamReader(body, StandardCharsets.UTF_8);
+        long copied = copyManager.copyIn(COPY, format == ImportFormat.CSV
+                ? new CsvImportReader(source, rowValidator)
+                : new NdjsonCsvReader(source, objectMapper, rowValidator));
+
+        List<String> duplicateEmails = new ArrayList<>();
+        long imported;
+        try (Statement statement = connection.createStatement()) {
+            // Автоочистка не анализирует временные таблицы, без статистики план слияния угадывается
+            statement.execute("ANALYZE user_import_staging");
+            try (PreparedStatement select = connection.prepareStatement(SELECT_DUPLICATES)) {
+                select.setInt(1, duplicateSampleSize);
+                try (ResultSet rs = select.executeQuery()) {
+                    while (rs.next()) {
+                        duplicateEmails.add(rs.getString(1));
+                    }
+                }
+            }
+            imported = statement.executeLargeUpdate(MERGE);
+        }
+        return ImportReportDTO.builder()
+                .received(copied + rowValidator.rejected())
+                .imported(imported)
+                .rejected(rowValidator.rejected())
+                .rejectedLines(rowValidator.samples())
+                .duplicates(copied - imported)
+                .duplicateEmails(duplicateEmails);
+    }
+
+    /**
+     * Публикует импортированных пользователей пачками по возрастанию id. Уже удалённые
+     * пользователи пропускаются.
+     *
+     * @return число подтверждённых брокером событий; ошибка публикации не отменяет импорт
+     */
+    private long publishInserted(Connection connection) throws SQLException {
+        long published = 0;
+        long lastId = 0;
+        try (PreparedStatement select = connection.prepareStatement(SELECT_INSERTED)) {
+            while (true) {
+                List<CompletableFuture<Void>> sends = new ArrayList<>(eventBatchSize);
+                long afterId = lastId;
+                lastId = publisher.inOrder(() -> publishPage(select, afterId, sends));
+                if (sends.isEmpty()) {
+                    return published;
+                }
+                try {
+                    CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new))
+                            .get(sendTimeout.toMillis(), TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    log.error("Bulk import event publishing interrupted after {} events", published);
+                    return published;
+                } catch (ExecutionException | TimeoutException e) {
+                    log.error("Bulk import event publishing stopped after {} events; run the user backfill to resync",
+                            published, e);
+                    return published;
+                }
+                published += sends.size();
+            }
+        }
+    }
+
+    /**
+     * Читает из {@code users} следующую пачку импортированных пользователей и отдаёт её в Kafka
+     *
+     * @return id последнего отправленного пользователя
+     */
+    private long publishPage(PreparedStatement select, long afterId, List<CompletableFuture<Void>> sends) {
+        long lastId = afterId;
+        try {
+            select.setLong(1, afterId);
+            select.setInt(2, eventBatchSize);
+            try (ResultSet rs = select.executeQuery()) {
+                while (rs.next()) {
+                    lastId = rs.getLong("id");
+                    sends.add(publisher.publish(UserEventDTO.of(UserEventDTO.EventType.CREATED, lastId,
+                            snapshot(rs), List.of())));
+                }
+            }
+        } catch (SQLException e) {
+            throw new UncategorizedSQLException("User bulk import publishing", SELECT_INSERTED, e);
+        }
+        return lastId;
+    }
+
+    private static UserSnapshot snapshot(ResultSet rs) throws SQLException {
+        Timestamp createdAt = rs.getTimestamp("created_at");
+        return new UserSnapshot(
+                rs.getString("name"),
+                rs.getString("email"),
+                rs.getObject("age", Integer.class),
+                // Как в UserMapper: локальное время сервера -> момент времени
+                createdAt != null ? createdAt.toLocalDateTime().atZone(ZoneId.systemDefault()).toInstant() : null);
+    }
+
+    /**
+     * Класс 22 - данные не разбираются (формат, длина, тип), класс 23 - нарушены ограничения (NOT NULL)
+     */
+    private static boolean isDataError(SQLException e) {
+        String state = e.getSQLState();
+        return state != null && (state.startsWith("22") || state.startsWith("23"));
+    }
+}
@@ -0,0 +1,53 @@
+package com.userservice.config;
+
+import com.userservice.exception.AdminAccessDeniedException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Доступ к административному API {@code /api/v1/admin/**} (импорт и backfill пользователей)
+ *
+ * <p>Запрос должен нести заголовок {@value #TOKEN_HEADER} со значением {@code admin.api-token}.
+ * Пока токен не задан, административный API закрыт целиком. Через api-gateway эти пути
+ * не маршрутизируются, вызывать их нужно напрямую из внутренней сети.
+ */
+@Configuration
+public class AdminApiConfig implements WebMvcConfigurer {
+
+    static final String TOKEN_HEADER = "X-Admin-Token";
+
+    private final byte[] token;
+
+    public AdminApiConfig(@Value("${admin.api-token:}") String token) {
+        this.token = token.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new TokenInterceptor()).addPathPatterns("/api/v1/admin/**");
+    }
+
+    private final class TokenInterceptor implements HandlerInterceptor {
+
+        @Override
+        public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+            if (token.length == 0) {
+                throw new AdminAccessDeniedException("Admin API is disabled: admin.api-token is not set");
+            }
+            String presented = request.getHeader(TOKEN_HEADER);
+            // Сравнение за постоянное время, чтобы токен нельзя было подобрать по задержке ответа
+            if (presented == null || !MessageDigest.isEqual(token, presented.getBytes(StandardCharsets.UTF_8))) {
+                throw new AdminAccessDeniedException("Missing or invalid " + TOKEN_HEADER + " header");
+            }
+            return true;
+        }
+    }
+}
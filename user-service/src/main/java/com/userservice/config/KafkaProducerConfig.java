@@ -1,18 +1,22 @@
 package com.userservice.config;
 
-import com.userservice.dto.UserEventDTO;
+import com.eventcontracts.dto.UserEventDTO;
+import com.eventcontracts.kafka.ProducedAtInterceptor;
+import com.eventcontracts.serialization.UserEventSerializer;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.kafka.clients.admin.NewTopic;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
 import org.springframework.kafka.config.TopicBuilder;
 import org.springframework.kafka.core.DefaultKafkaProducerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.MicrometerProducerListener;
 import org.springframework.kafka.core.ProducerFactory;
-import org.springframework.kafka.support.serializer.JsonSerializer;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -31,16 +35,44 @@ public class KafkaProducerConfig {
     private int partitionCount;
     @Value("${kafka.topic.user-events.replication-factor}")
     private int replicaCount;
+    @Value("${kafka.topic.user-state:user-state}")
+    private String stateTopicName;
+    @Value("${kafka.producer.profile:DEFAULT}")
+    private KafkaProducerProfile profile;
+    @Value("${kafka.producer.throughput.linger-ms:20}")
+    private int lingerMs;
+    @Value("${kafka.producer.throughput.batch-size:131072}")
+    private int batchSize;
+    @Value("${kafka.producer.throughput.compression-type:lz4}")
+    private String compressionType;
+    @Value("${kafka.producer.writer-schema-id:}")
+    private String writerSchemaId;
 
+    /**
+     * Фабрика producer'ов. Метрики клиента (kafka.producer.batch.size.avg,
+     * kafka.producer.record.queue.time.avg, kafka.producer.compression.rate.avg и др.)
+     * публикуются в Micrometer. Каждая запись получает заголовок x-produced-at
+     * для замера задержки доставки в notification-service.
+     *
+     * <p>{@code kafka.producer.writer-schema-id} закрепляет версию схемы событий на время
+     * выкатки новой схемы, см. {@link com.eventcontracts.serialization.UserEventCodec}.
+     */
     @Bean
-    public ProducerFactory<String, UserEventDTO> producerFactory() {
+    public ProducerFactory<String, UserEventDTO> producerFactory(MeterRegistry meterRegistry) {
         Map<String, Object> config = new HashMap<>();
 
         config.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         config.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-        config.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
-        config.put(JsonSerializer.ADD_TYPE_INFO_HEADERS, false);
-        return new DefaultKafkaProducerFactory<>(config);
+        config.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, UserEventSerializer.class);
+        config.put(ProducerConfig.INTERCEPTOR_CLASSES_CONFIG, ProducedAtInterceptor.class.getName());
+        if (!writerSchemaId.isBlank()) {
+            config.put(UserEventSerializer.WRITER_SCHEMA_ID_CONFIG, writerSchemaId);
+        }
+        profile.applyTo(config, lingerMs, batchSize, compressionType);
+
+        DefaultKafkaProducerFactory<String, UserEventDTO> factory = new DefaultKafkaProducerFactory<>(config);
+        factory.addListener(new MicrometerProducerListener<>(meterRegistry));
+        return factory;
     }
 
     @Bean
@@ -58,4 +90,19 @@ public class KafkaProducerConfig {
                 .build();
     }
 
+    /**
+     * Топик состояния пользователей, см. {@link com.userservice.kafka.UserStatePublisher}.
+     * Компактируемый: хранится последняя запись по каждому ключу, tombstone'ы удаляются
+     * по истечении delete.retention.ms.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "kafka.topic.user-state.enabled", havingValue = "true", matchIfMissing = true)
+    public NewTopic userStateTopic() {
+        return TopicBuilder.name(stateTopicName)
+                .partitions(partitionCount)
+                .replicas(replicaCount)
+                .compact()
+                .build();
+    }
+
 }
@@ -0,0 +1,44 @@
+package com.userservice.config;
+
+import org.apache.kafka.clients.producer.ProducerConfig;
+
+import java.util.Map;
+
+/**
+ * Именованные профили настроек Kafka Producer.
+ *
+ * <p>Выбирается свойством {@code kafka.producer.profile} в config-server.
+ */
+public enum KafkaProducerProfile {
+
+    /**
+     * Настройки клиента по умолчанию: запись уходит сразу, без сжатия.
+     */
+    DEFAULT,
+
+    /**
+     * Идемпотентный producer с накоплением батчей и сжатием.
+     * Добавляет до linger.ms задержки к отправке, взамен заметно уменьшает число запросов к брокеру.
+     */
+    THROUGHPUT;
+
+    /**
+     * Дописывает настройки профиля в конфигурацию producer.
+     *
+     * @param lingerMs        сколько ждать наполнения батча, мс
+     * @param batchSize       размер батча на партицию, байт
+     * @param compressionType lz4, zstd, snappy или gzip
+     */
+    public void applyTo(Map<String, Object> config, int lingerMs, int batchSize, String compressionType) {
+        if (this == DEFAULT) {
+            return;
+        }
+        config.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        config.put(ProducerConfig.ACKS_CONFIG, "all");
+        // Идемпотентность гарантирует порядок при не более чем 5 запросах в полёте
+        config.put(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, 5);
+        config.put(ProducerConfig.LINGER_MS_CONFIG, lingerMs);
+        config.put(ProducerConfig.BATCH_SIZE_CONFIG, batchSize);
+        config.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, compressionType);
+    }
+}
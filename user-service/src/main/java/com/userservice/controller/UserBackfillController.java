@@ -0,0 +1,58 @@
+package com.userservice.controller;
+
+import com.userservice.backfill.UserBackfillJob;
+import com.userservice.dto.BackfillStatusDTO;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Административный API перепубликации всех пользователей в топик состояния
+ */
+@RestController
+@RequestMapping("/api/v1/admin/users/backfill")
+@RequiredArgsConstructor
+@Slf4j
+public class UserBackfillController {
+
+    private final UserBackfillJob backfillJob;
+
+    /**
+     * Запустить перепубликацию
+     *
+     * @param resume продолжить прерванный обход с checkpoint'ов; false - начать заново
+     */
+    @PostMapping
+    public ResponseEntity<BackfillStatusDTO> start(@RequestParam(defaultValue = "true") boolean resume) {
+        log.info("REST request to start user backfill: resume={}", resume);
+        try {
+            HttpStatus status = backfillJob.start(resume) ? HttpStatus.ACCEPTED : HttpStatus.CONFLICT;
+            return ResponseEntity.status(status).body(backfillJob.status());
+        } catch (IllegalStateException e) {
+            log.warn("User backfill rejected: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(backfillJob.status());
+        }
+    }
+
+    @GetMapping
+    public ResponseEntity<BackfillStatusDTO> status() {
+        return ResponseEntity.ok(backfillJob.status());
+    }
+
+    /**
+     * Остановить перепубликацию; следующий запуск с resume=true продолжит с места остановки
+     */
+    @DeleteMapping
+    public ResponseEntity<BackfillStatusDTO> cancel() {
+        log.info("REST request to cancel user backfill");
+        HttpStatus status = backfillJob.cancel() ? HttpStatus.ACCEPTED : HttpStatus.CONFLICT;
+        return ResponseEntity.status(status).body(backfillJob.status());
+    }
+}
@@ -4,18 +4,24 @@ import com.userservice.dto.UserCreateDTO;
 import com.userservice.dto.UserResponseDTO;
 import com.userservice.dto.UserUpdateDTO;
 import com.userservice.hateoas.UserModelAssembler;
+import com.userservice.idempotency.IdempotencyService;
+import com.userservice.idempotency.IdempotentResult;
+import com.userservice.idempotency.StoredResponse;
 import com.userservice.service.UserService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.hateoas.CollectionModel;
 import org.springframework.hateoas.EntityModel;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.net.URI;
 import java.util.List;
 
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
@@ -30,19 +36,36 @@ import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
 @Slf4j
 public class UserController implements UserControllerApi {
 
+    static final String IDEMPOTENT_REPLAYED_HEADER = "Idempotent-Replayed";
+
     private final UserService userService;
     private final UserModelAssembler userModelAssembler;
+    private final IdempotencyService idempotencyService;
 
     public ResponseEntity<EntityModel<UserResponseDTO>> createUser(
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
             @Valid @RequestBody UserCreateDTO request) {
 
         log.debug("REST request to create user: {}", request.getEmail());
-        UserResponseDTO created = userService.createUser(request);
-        EntityModel<UserResponseDTO> model = userModelAssembler.toModel(created);
-
-        return ResponseEntity
-                .created(linkTo(methodOn(UserController.class).getUserById(created.getId())).toUri())
-                .body(model);
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            UserResponseDTO created = userService.createUser(request);
+            return ResponseEntity
+                    .created(locationOf(created))
+                    .body(userModelAssembler.toModel(created));
+        }
+
+        long fingerprint = IdempotencyService.fingerprint(request.getName(), request.getEmail(), request.getAge());
+        IdempotentResult result = idempotencyService.execute(idempotencyKey, fingerprint, () -> {
+            UserResponseDTO created = userService.createUser(request);
+            return new StoredResponse(fingerprint, HttpStatus.CREATED.value(),
+                    locationOf(created).toString(), created);
+        });
+
+        StoredResponse response = result.response();
+        return ResponseEntity.status(response.status())
+                .location(URI.create(response.location()))
+                .header(IDEMPOTENT_REPLAYED_HEADER, String.valueOf(result.replayed()))
+                .body(userModelAssembler.toModel(response.body()));
     }
 
     public ResponseEntity<EntityModel<UserResponseDTO>> getUserById(
@@ -93,4 +116,8 @@ public class UserController implements UserControllerApi {
 
         return ResponseEntity.ok(exists);
     }
+
+    private URI locationOf(UserResponseDTO user) {
+        return linkTo(methodOn(UserController.class).getUserById(user.getId())).toUri();
+    }
 }
@@ -4,6 +4,7 @@ import com.userservice.dto.UserCreateDTO;
 import com.userservice.dto.UserResponseDTO;
 import com.userservice.dto.UserUpdateDTO;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.springframework.hateoas.CollectionModel;
@@ -15,6 +16,7 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 
@@ -27,13 +29,19 @@ import org.springframework.web.bind.annotation.RequestParam;
 @RequestMapping("/api/v1/users")
 public interface UserControllerApi {
 
+    String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
     /**
      * Создать нового пользователя
      * POST /api/v1/users
+     * С заголовком Idempotency-Key повтор запроса возвращает исходный ответ,
+     * а не 409 Conflict.
      */
     @Operation(summary = "Создать нового пользователя")
     @PostMapping
     ResponseEntity<EntityModel<UserResponseDTO>> createUser(
+            @Parameter(description = "Ключ идемпотентности для безопасных повторов запроса")
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
             @Valid @RequestBody UserCreateDTO request);
 
     /**
@@ -0,0 +1,50 @@
+package com.userservice.controller;
+
+import com.userservice.bulkimport.ImportFormat;
+import com.userservice.bulkimport.UserBulkImporter;
+import com.userservice.dto.ImportReportDTO;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+
+/**
+ * Административный API массового импорта пользователей при миграции
+ *
+ * <p>Тело читается потоком и не буферизуется, поэтому размер файла ограничен только базой.
+ * Строки проверяются так же, как тело POST /api/v1/users; отклонённые перечисляются в отчёте.
+ * Доступ - по токену администратора, см. {@link com.userservice.config.AdminApiConfig}.
+ */
+@RestController
+@RequestMapping("/api/v1/admin/users/import")
+@RequiredArgsConstructor
+@Slf4j
+public class UserImportController {
+
+    static final String NDJSON = "application/x-ndjson";
+
+    private final UserBulkImporter importer;
+
+    /**
+     * Импорт из CSV с заголовком {@code name,email,age,created_at}
+     */
+    @PostMapping(consumes = "text/csv")
+    public ResponseEntity<ImportReportDTO> importCsv(HttpServletRequest request) throws IOException {
+        log.info("REST request to bulk import users: format=CSV, contentLength={}", request.getContentLengthLong());
+        return ResponseEntity.ok(importer.importUsers(request.getInputStream(), ImportFormat.CSV));
+    }
+
+    /**
+     * Импорт из NDJSON: по объекту {@code {"name", "email", "age", "createdAt"}} на строку
+     */
+    @PostMapping(consumes = NDJSON)
+    public ResponseEntity<ImportReportDTO> importNdjson(HttpServletRequest request) throws IOException {
+        log.info("REST request to bulk import users: format=NDJSON, contentLength={}", request.getContentLengthLong());
+        return ResponseEntity.ok(importer.importUsers(request.getInputStream(), ImportFormat.NDJSON));
+    }
+}
@@ -0,0 +1,43 @@
+package com.userservice.dto;
+
+import com.userservice.backfill.UserBackfillJob;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Ход перепубликации пользователей в топик состояния
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Getter
+@Schema(description = "Состояние задачи backfill")
+public class BackfillStatusDTO {
+
+    @Schema(description = "Состояние задачи", example = "RUNNING")
+    private UserBackfillJob.State state;
+
+    @Schema(description = "Всего диапазонов id", example = "12")
+    private int totalRanges;
+
+    @Schema(description = "Обработано диапазонов", example = "5")
+    private int completedRanges;
+
+    @Schema(description = "Опубликовано пользователей в этом запуске", example = "480000")
+    private long published;
+
+    @Schema(description = "Средняя скорость публикации за запуск", example = "19870")
+    private long eventsPerSecond;
+
+    private Instant startedAt;
+
+    private Instant finishedAt;
+
+    @Schema(description = "Причина ошибки для состояния FAILED")
+    private String failure;
+}
@@ -0,0 +1,47 @@
+package com.userservice.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Результат массового импорта пользователей
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Getter
+@Schema(description = "Отчёт о массовом импорте")
+public class ImportReportDTO {
+
+    @Schema(description = "Строк получено", example = "1000000")
+    private long received;
+
+    @Schema(description = "Пользователей создано", example = "999120")
+    private long imported;
+
+    @Schema(description = "Строк отклонено проверкой полей, как при создании пользователя", example = "12")
+    private long rejected;
+
+    @Schema(description = "Первые отклонённые строки: номер строки и причина")
+    private List<String> rejectedLines;
+
+    @Schema(description = "Строк пропущено из-за занятого или повторного email", example = "880")
+    private long duplicates;
+
+    @Schema(description = "Первые пропущенные email в порядке строк файла")
+    private List<String> duplicateEmails;
+
+    @Schema(description = "Событий опубликовано в топик состояния", example = "999120")
+    private long published;
+
+    @Schema(description = "Длительность импорта вместе с публикацией событий", example = "5400")
+    private long elapsedMillis;
+
+    @Schema(description = "Средняя скорость по полученным строкам", example = "185185")
+    private long rowsPerSecond;
+}
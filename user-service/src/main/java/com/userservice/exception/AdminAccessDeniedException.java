@@ -0,0 +1,12 @@
+package com.userservice.exception;
+
+/**
+ * Исключение для запроса к административному API без действующего токена (403 Forbidden)
+ */
+public class AdminAccessDeniedException extends RuntimeException {
+
+    public AdminAccessDeniedException(String message) {
+        super(message);
+    }
+
+}
@@ -0,0 +1,14 @@
+package com.userservice.exception;
+
+/**
+ * Исключение для конфликтов Idempotency-Key (409 Conflict):
+ * ключ повторно использован с другим телом запроса
+ * либо первый запрос с этим ключом всё ещё выполняется.
+ */
+public class IdempotencyConflictException extends RuntimeException {
+
+    public IdempotencyConflictException(String message) {
+        super(message);
+    }
+
+}
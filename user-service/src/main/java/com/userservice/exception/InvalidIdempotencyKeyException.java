@@ -0,0 +1,12 @@
+package com.userservice.exception;
+
+/**
+ * Исключение для недопустимого значения Idempotency-Key (400 Bad Request)
+ */
+public class InvalidIdempotencyKeyException extends RuntimeException {
+
+    public InvalidIdempotencyKeyException(String message) {
+        super(message);
+    }
+
+}
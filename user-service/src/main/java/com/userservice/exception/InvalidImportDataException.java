@@ -0,0 +1,12 @@
+package com.userservice.exception;
+
+/**
+ * Исключение для некорректных данных массового импорта (400 Bad Request)
+ */
+public class InvalidImportDataException extends RuntimeException {
+
+    public InvalidImportDataException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+}
@@ -0,0 +1,177 @@
+package com.userservice.idempotency;
+
+import com.userservice.exception.IdempotencyConflictException;
+import com.userservice.exception.InvalidIdempotencyKeyException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Выполнение запросов с заголовком Idempotency-Key.
+ *
+ * <p>Первый запрос с ключом выполняется, его ответ сохраняется; повторы получают
+ * сохранённый ответ без обращения к бизнес-логике. Одновременные дубликаты
+ * не выполняются параллельно, а ждут завершения первого запроса.
+ *
+ * <p>Запись в {@link JdbcIdempotencyStore} выполняется после того, как действие уже
+ * отработало, поэтому её ошибка не превращает успешный запрос в 500: ответ отдаётся,
+ * ошибка логируется и учитывается в {@code idempotency.persist.failures}. Ключ при этом
+ * остаётся только в памяти этого экземпляра.
+ */
+@Service
+@Slf4j
+public class IdempotencyService {
+
+    /**
+     * Длина колонки {@code idempotency_keys.idempotency_key} в {@link JdbcIdempotencyStore}
+     */
+    public static final int MAX_KEY_LENGTH = 255;
+
+    private final InMemoryIdempotencyStore memoryStore;
+    private final IdempotencyStore persistentStore;
+    private final Duration waitTimeout;
+    private final Counter persistFailures;
+    private final ConcurrentHashMap<String, CompletableFuture<StoredResponse>> inFlight = new ConcurrentHashMap<>();
+
+    public IdempotencyService(InMemoryIdempotencyStore memoryStore,
+                              ObjectProvider<JdbcIdempotencyStore> jdbcStore,
+                              @Value("${idempotency.wait-timeout:PT10S}") Duration waitTimeout,
+                              MeterRegistry meterRegistry) {
+        this.memoryStore = memoryStore;
+        this.persistentStore = jdbcStore.getIfAvailable();
+        this.waitTimeout = waitTimeout;
+        this.persistFailures = Counter.builder("idempotency.persist.failures")
+                .description("Responses executed but not saved to the persistent idempotency store")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Выполняет действие не более одного раза для данного ключа.
+     *
+     * @param key         значение заголовка Idempotency-Key
+     * @param fingerprint отпечаток тела запроса, см. {@link #fingerprint(Object...)}
+     * @param action      действие, формирующее ответ
+     * @throws InvalidIdempotencyKeyException ключ длиннее {@link #MAX_KEY_LENGTH}; действие не выполняется,
+     *                                        иначе сохранить ответ не удалось бы уже после создания пользователя
+     * @throws IdempotencyConflictException    если ключ уже использован с другим телом запроса
+     *                                         или первый запрос не завершился за wait-timeout
+     */
+    public IdempotentResult execute(String key, long fingerprint, Supplier<StoredResponse> action) {
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new InvalidIdempotencyKeyException(
+                    "Idempotency-Key must not be longer than " + MAX_KEY_LENGTH + " characters");
+        }
+        Optional<StoredResponse> stored = lookup(key);
+        if (stored.isPresent()) {
+            return replay(key, fingerprint, stored.get());
+        }
+
+        CompletableFuture<StoredResponse> mine = new CompletableFuture<>();
+        CompletableFuture<StoredResponse> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            return replay(key, fingerprint, await(key, existing));
+        }
+
+        try {
+            // Повторная проверка: первый запрос мог завершиться между lookup и putIfAbsent
+            stored = lookup(key);
+            if (stored.isPresent()) {
+                mine.complete(stored.get());
+                return replay(key, fingerprint, stored.get());
+            }
+
+            StoredResponse response = action.get();
+            memoryStore.save(key, response);
+            mine.complete(response);
+            persist(key, response);
+            return new IdempotentResult(response, false);
+        } catch (RuntimeException e) {
+            // Ошибки не кэшируются: ждущие дубликаты получат то же исключение, следующий повтор выполнится заново
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    /**
+     * 64-битный отпечаток (FNV-1a) значимых полей запроса.
+     */
+    public static long fingerprint(Object... fields) {
+        long hash = 0xcbf29ce484222325L;
+        for (Object field : fields) {
+            byte[] bytes = String.valueOf(field).getBytes(StandardCharsets.UTF_8);
+            for (byte b : bytes) {
+                hash ^= b & 0xff;
+                hash *= 0x100000001b3L;
+            }
+            // Разделитель полей, чтобы ("ab", "c") и ("a", "bc") давали разные отпечатки
+            hash ^= 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private void persist(String key, StoredResponse response) {
+        if (persistentStore == null) {
+            return;
+        }
+        try {
+            persistentStore.save(key, response);
+        } catch (RuntimeException e) {
+            // Действие уже выполнено: ответ важнее записи ключа, повтор на этом экземпляре найдёт его в памяти
+            persistFailures.increment();
+            log.error("Failed to persist response for idempotency key: {}", key, e);
+        }
+    }
+
+    private Optional<StoredResponse> lookup(String key) {
+        Optional<StoredResponse> stored = memoryStore.find(key);
+        if (stored.isEmpty() && persistentStore != null) {
+            stored = persistentStore.find(key);
+            stored.ifPresent(response -> memoryStore.save(key, response));
+        }
+        return stored;
+    }
+
+    private IdempotentResult replay(String key, long fingerprint, StoredResponse stored) {
+        if (stored.fingerprint() != fingerprint) {
+            log.warn("Idempotency key reused with a different request body: {}", key);
+            throw new IdempotencyConflictException(
+                    "Idempotency-Key " + key + " was already used with a different request body");
+        }
+        log.debug("Replaying stored response for idempotency key: {}", key);
+        return new IdempotentResult(stored, true);
+    }
+
+    private StoredResponse await(String key, CompletableFuture<StoredResponse> first) {
+        try {
+            return first.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new IdempotencyConflictException(
+                    "Request with Idempotency-Key " + key + " is still in progress");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IdempotencyConflictException(
+                    "Interrupted while waiting for request with Idempotency-Key " + key);
+        }
+    }
+}
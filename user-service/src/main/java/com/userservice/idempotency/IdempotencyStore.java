@@ -0,0 +1,19 @@
+package com.userservice.idempotency;
+
+import java.util.Optional;
+
+/**
+ * Хранилище завершённых ответов, индексированное по Idempotency-Key.
+ */
+public interface IdempotencyStore {
+
+    /**
+     * Возвращает сохранённый ответ, если ключ известен и срок хранения не истёк.
+     */
+    Optional<StoredResponse> find(String key);
+
+    /**
+     * Сохраняет ответ. Повторное сохранение того же ключа не перезаписывает исходный ответ.
+     */
+    void save(String key, StoredResponse response);
+}
@@ -0,0 +1,10 @@
+package com.userservice.idempotency;
+
+/**
+ * Результат выполнения идемпотентного запроса.
+ *
+ * @param response сохранённый ответ
+ * @param replayed true, если ответ взят из хранилища, а не получен новым выполнением
+ */
+public record IdempotentResult(StoredResponse response, boolean replayed) {
+}
@@ -0,0 +1,82 @@
+package com.userservice.idempotency;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Ограниченное in-memory хранилище ответов с вытеснением по TTL.
+ *
+ * <p>Записи хранятся в порядке вставки. TTL у всех записей одинаковый,
+ * поэтому самые старые записи всегда в голове - просроченные удаляются
+ * с головы за O(1) на запись, а при переполнении вытесняется самая старая.
+ */
+@Component
+public class InMemoryIdempotencyStore implements IdempotencyStore {
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final Clock clock;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>();
+
+    @Autowired
+    public InMemoryIdempotencyStore(@Value("${idempotency.max-entries:100000}") int maxEntries,
+                                    @Value("${idempotency.ttl:PT24H}") Duration ttl) {
+        this(maxEntries, ttl, Clock.systemUTC());
+    }
+
+    InMemoryIdempotencyStore(int maxEntries, Duration ttl, Clock clock) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttl.toMillis();
+        this.clock = clock;
+    }
+
+    @Override
+    public synchronized Optional<StoredResponse> find(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        if (entry.expiresAt <= clock.millis()) {
+            entries.remove(key);
+            return Optional.empty();
+        }
+        return Optional.of(entry.response);
+    }
+
+    @Override
+    public synchronized void save(String key, StoredResponse response) {
+        long now = clock.millis();
+        evictExpired(now);
+        if (entries.containsKey(key)) {
+            return;
+        }
+        if (entries.size() >= maxEntries) {
+            Iterator<String> eldest = entries.keySet().iterator();
+            eldest.next();
+            eldest.remove();
+        }
+        entries.put(key, new Entry(response, now + ttlMillis));
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    private void evictExpired(long now) {
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext() && iterator.next().getValue().expiresAt <= now) {
+            iterator.remove();
+        }
+    }
+
+    private record Entry(StoredResponse response, long expiresAt) {
+    }
+}
@@ -0,0 +1,104 @@
+package com.userservice.idempotency;
+
+import com.userservice.dto.UserResponseDTO;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Хранилище ответов в таблице PostgreSQL.
+ *
+ * <p>Включается свойством {@code idempotency.jdbc.enabled=true} и работает вторым уровнем
+ * за {@link InMemoryIdempotencyStore}: переживает рестарт и виден всем экземплярам сервиса.
+ * Ответ хранится по колонкам, без JSON, чтобы запись оставалась компактной.
+ */
+@Component
+@ConditionalOnProperty(name = "idempotency.jdbc.enabled", havingValue = "true")
+@Slf4j
+public class JdbcIdempotencyStore implements IdempotencyStore {
+
+    private static final String CREATE_TABLE = """
+            CREATE TABLE IF NOT EXISTS idempotency_keys (
+                idempotency_key VARCHAR(255) PRIMARY KEY,
+                fingerprint     BIGINT       NOT NULL,
+                status          SMALLINT     NOT NULL,
+                location        VARCHAR(512),
+                user_id         BIGINT,
+                name            VARCHAR(100),
+                email           VARCHAR(150),
+                age             INTEGER,
+                created_at      TIMESTAMP,
+                expires_at      TIMESTAMP    NOT NULL
+            )""";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Duration ttl;
+
+    public JdbcIdempotencyStore(JdbcTemplate jdbcTemplate,
+                                @Value("${idempotency.ttl:PT24H}") Duration ttl) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.ttl = ttl;
+    }
+
+    @PostConstruct
+    void createTable() {
+        jdbcTemplate.execute(CREATE_TABLE);
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_idempotency_keys_expires_at ON idempotency_keys (expires_at)");
+    }
+
+    @Override
+    public Optional<StoredResponse> find(String key) {
+        return jdbcTemplate.query("""
+                        SELECT fingerprint, status, location, user_id, name, email, age, created_at
+                        FROM idempotency_keys
+                        WHERE idempotency_key = ? AND expires_at > ?""",
+                (rs, rowNum) -> new StoredResponse(
+                        rs.getLong("fingerprint"),
+                        rs.getInt("status"),
+                        rs.getString("location"),
+                        UserResponseDTO.builder()
+                                .id(rs.getObject("user_id", Long.class))
+                                .name(rs.getString("name"))
+                                .email(rs.getString("email"))
+                                .age(rs.getObject("age", Integer.class))
+                                .createdAt(rs.getObject("created_at", LocalDateTime.class))
+                                .build()),
+                key, Timestamp.valueOf(LocalDateTime.now())
+        ).stream().findFirst();
+    }
+
+    @Override
+    public void save(String key, StoredResponse response) {
+        UserResponseDTO body = response.body();
+        jdbcTemplate.update("""
+                        INSERT INTO idempotency_keys
+                            (idempotency_key, fingerprint, status, location, user_id, name, email, age, created_at, expires_at)
+                        VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+                        ON CONFLICT (idempotency_key) DO NOTHING""",
+                key, response.fingerprint(), response.status(), response.location(),
+                body.getId(), body.getName(), body.getEmail(), body.getAge(),
+                body.getCreatedAt() == null ? null : Timestamp.valueOf(body.getCreatedAt()),
+                Timestamp.valueOf(LocalDateTime.now().plus(ttl)));
+    }
+
+    /**
+     * Удаляет просроченные ключи, чтобы таблица не росла бесконечно.
+     */
+    @Scheduled(fixedDelayString = "${idempotency.jdbc.purge-interval:PT10M}")
+    void purgeExpired() {
+        int removed = jdbcTemplate.update("DELETE FROM idempotency_keys WHERE expires_at <= ?",
+                Timestamp.valueOf(LocalDateTime.now()));
+        if (removed > 0) {
+            log.debug("Purged {} expired idempotency keys", removed);
+        }
+    }
+}
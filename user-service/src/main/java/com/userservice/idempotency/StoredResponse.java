@@ -0,0 +1,15 @@
+package com.userservice.idempotency;
+
+import com.userservice.dto.UserResponseDTO;
+
+/**
+ * Компактная запись завершённого ответа на запрос с Idempotency-Key.
+ *
+ * @param fingerprint отпечаток тела исходного запроса - повтор с тем же ключом,
+ *                    но другим телом отклоняется
+ * @param status      HTTP-статус исходного ответа
+ * @param location    заголовок Location исходного ответа
+ * @param body        данные созданного пользователя
+ */
+public record StoredResponse(long fingerprint, int status, String location, UserResponseDTO body) {
+}
@@ -1,38 +1,394 @@
 package com.userservice.kafka;
 
 
-import com.userservice.dto.UserEventDTO;
-import lombok.RequiredArgsConstructor;
+import com.eventcontracts.dto.UserEventDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Producer для отправки событий пользователей в Kafka
+ *
+ * <p>{@link #sendUserEvent(UserEventDTO)} не обращается к Kafka на потоке запроса:
+ * событие кладётся в ограниченную очередь, которую разбирает отдельный поток отправки.
+ * Если брокер недоступен и очередь заполнена, срабатывает {@link OverflowPolicy}.
+ * Внутри транзакции событие ставится в очередь только после её коммита: в Kafka не попадают
+ * изменения откаченных транзакций, а состояние пользователя публикуется не раньше, чем его
+ * увидит {@link com.userservice.backfill.UserBackfillJob}.
+ *
+ * <p>Ключ записи - id пользователя: события одного пользователя попадают в одну партицию
+ * и сохраняют порядок и после смены email. Для событий без id (из старых spill-файлов) - email.
+ * После подтверждения события брокером тот же поток публикует состояние пользователя через
+ * {@link UserStatePublisher}; событие, которое брокер не принял, состояние не публикует.
+ * Событие, переотправленное из журнала после ошибки, уходит позже более новых событий того же
+ * пользователя: если состояние более нового события уже опубликовано, снимок повтора пропускается,
+ * иначе устаревший снимок остался бы в компактируемом топике последним. Это отслеживается
+ * в памяти: события из журнала прошлого запуска публикуют состояние как есть.
  */
 @Service
 @Slf4j
-@RequiredArgsConstructor
 public class KafkaProducer {
+
+    /**
+     * Поведение при заполненной очереди отправки.
+     */
+    public enum OverflowPolicy {
+        /** Ждать места в очереди не дольше block-timeout, затем отбросить событие */
+        BLOCK,
+        /** Сразу отбросить событие */
+        DROP,
+        /**
+         * Дописать событие в локальный журнал и отправить его, когда очередь освободится.
+         * События, прошедшие через журнал, отправляются в порядке поступления; событие,
+         * не принятое брокером, дописывается в конец журнала и уходит позже более новых
+         */
+        SPILL
+    }
+
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(100);
+
     private final KafkaTemplate<String, UserEventDTO> kafkaTemplateNotification;
+    private final String topic;
+    private final BlockingQueue<UserEventDTO> queue;
+    private final int queueCapacity;
+    private final OverflowPolicy overflowPolicy;
+    private final Duration blockTimeout;
+    private final Duration shutdownTimeout;
+    private final SpillFile spillFile;
+    private final UserStatePublisher statePublisher;
+    /** События, подтверждённые брокером; их состояние публикует поток отправки */
+    private final ConcurrentLinkedQueue<UserEventDTO> confirmed = new ConcurrentLinkedQueue<>();
+    /** Пользователи с неподтверждёнными или ушедшими в журнал после ошибки событиями; под собственной блокировкой */
+    private final Map<Long, PendingUser> pendingUsers = new HashMap<>();
 
-    @Value("${kafka.topic.user-events}")
-    private String topic;
+    private final MeterRegistry meterRegistry;
+    private final Timer sendLatency;
+    private final Counter sendFailures;
+    private final Counter spilled;
+    private final Counter staleStates;
+
+    private final Thread sender;
+    private volatile boolean running;
+
+    public KafkaProducer(KafkaTemplate<String, UserEventDTO> kafkaTemplateNotification,
+                         UserStatePublisher statePublisher,
+                         MeterRegistry meterRegistry,
+                         ObjectMapper objectMapper,
+                         @Value("${kafka.topic.user-events}") String topic,
+                         @Value("${kafka.producer.async.queue-capacity:10000}") int queueCapacity,
+                         @Value("${kafka.producer.async.overflow-policy:BLOCK}") OverflowPolicy overflowPolicy,
+                         @Value("${kafka.producer.async.block-timeout:PT0.1S}") Duration blockTimeout,
+                         @Value("${kafka.producer.async.spill-path:${java.io.tmpdir}/user-service/user-events.spill}") Path spillPath,
+                         @Value("${kafka.producer.async.shutdown-timeout:PT10S}") Duration shutdownTimeout) {
+        this.kafkaTemplateNotification = kafkaTemplateNotification;
+        this.statePublisher = statePublisher;
+        this.topic = topic;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.queueCapacity = queueCapacity;
+        this.overflowPolicy = overflowPolicy;
+        this.blockTimeout = blockTimeout;
+        this.shutdownTimeout = shutdownTimeout;
+        this.spillFile = overflowPolicy == OverflowPolicy.SPILL ? new SpillFile(spillPath, objectMapper) : null;
+
+        this.meterRegistry = meterRegistry;
+        this.sendLatency = Timer.builder("user.events.send.latency")
+                .description("Time from dequeue to broker acknowledgement")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.sendFailures = Counter.builder("user.events.send.failures").register(meterRegistry);
+        this.spilled = Counter.builder("user.events.spilled").register(meterRegistry);
+        this.staleStates = Counter.builder("user.state.stale.skipped")
+                .description("User states of retried events skipped because a newer state was already published")
+                .register(meterRegistry);
+        Gauge.builder("user.events.queue.depth", queue, BlockingQueue::size).register(meterRegistry);
+        if (spillFile != null) {
+            Gauge.builder("user.events.spill.pending", spillFile, SpillFile::pending).register(meterRegistry);
+            Gauge.builder("user.events.spill.quarantined", spillFile, SpillFile::quarantined).register(meterRegistry);
+        }
+
+        this.sender = Thread.ofPlatform().name("kafka-user-event-sender").daemon().unstarted(this::runSender);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        sender.start();
+        log.info("Kafka user event sender started: capacity={}, overflowPolicy={}", queueCapacity, overflowPolicy);
+    }
 
     /**
-     * Публикация события в Kafka
+     * Постановка события в очередь на публикацию в Kafka; внутри транзакции - после её коммита.
+     * Вызывающий поток блокируется не дольше block-timeout и только при политике BLOCK.
      */
     public void sendUserEvent(UserEventDTO event) {
-        log.debug("Sending event to Kafka: email={}, type={}", event.getEmail(), event.getEventType());
-
-        kafkaTemplateNotification.send(topic, event.getEmail(), event)
-                .whenComplete((result, ex) -> {
-                    if (ex != null) {
-                        log.error("Failed to send event to Kafka: {}", event, ex);
-                    } else {
-                        log.info("Event sent successfully: {}", event.getEventType());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(event);
+                }
+            });
+            return;
+        }
+        enqueue(event);
+    }
+
+    private void enqueue(UserEventDTO event) {
+        log.debug("Queueing event for Kafka: email={}, type={}", event.getEmail(), event.getEventType());
+
+        switch (overflowPolicy) {
+            case DROP -> {
+                if (!queue.offer(event)) {
+                    drop(event, "queue_full");
+                }
+            }
+            case BLOCK -> {
+                try {
+                    if (!queue.offer(event, blockTimeout.toNanos(), TimeUnit.NANOSECONDS)) {
+                        drop(event, "block_timeout");
                     }
-                });
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    drop(event, "interrupted");
+                }
+            }
+            case SPILL -> {
+                // Пока в файле есть события, новые тоже идут в файл, чтобы сохранить порядок
+                if (spillFile.hasPending() || !queue.offer(event)) {
+                    spill(event);
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        sender.join(shutdownTimeout.toMillis());
+        if (sender.isAlive()) {
+            sender.interrupt();
+        }
+        // Ждём ответы брокера на уже отправленные события: колбэк ошибки дописывает событие
+        // в журнал, поэтому журнал закрывается только после них
+        try {
+            kafkaTemplateNotification.flush();
+        } catch (RuntimeException e) {
+            log.warn("Failed to flush in-flight user events on shutdown", e);
+        }
+        publishConfirmedStates();
+
+        List<UserEventDTO> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (spillFile != null) {
+            remaining.forEach(this::spill);
+            if (!remaining.isEmpty()) {
+                log.warn("Spilled {} unsent user events on shutdown", remaining.size());
+            }
+            spillFile.close();
+        } else {
+            remaining.forEach(event -> drop(event, "shutdown"));
+        }
+    }
+
+    private void runSender() {
+        while (running || !queue.isEmpty()) {
+            try {
+                UserEventDTO event = queue.poll(POLL_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+                if (event != null) {
+                    send(event);
+                } else if (running && spillFile != null && spillFile.hasPending()) {
+                    refillFromSpill();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Unexpected error in Kafka user event sender", e);
+            }
+            publishConfirmedStates();
+        }
+    }
+
+    private void send(UserEventDTO event) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        if (event.getUserId() != null) {
+            synchronized (pendingUsers) {
+                pendingUsers.computeIfAbsent(event.getUserId(), id -> new PendingUser()).inFlight++;
+            }
+        }
+        try {
+            kafkaTemplateNotification.send(topic, key(event), event)
+                    .whenComplete((result, ex) -> {
+                        sample.stop(sendLatency);
+                        if (ex != null) {
+                            // Состояние опубликуется, когда событие будет переотправлено из журнала
+                            onSendFailure(event, ex);
+                        } else {
+                            log.info("Event sent successfully: {}", event.getEventType());
+                            // Колбэк выполняется потоком ввода-вывода producer'а: ему нельзя ждать блокировку
+                            // UserStatePublisher, её держит backfill на время своих отправок
+                            confirmed.add(event);
+                        }
+                    });
+        } catch (RuntimeException e) {
+            // send() бросает синхронно, например, по истечении max.block.ms при недоступном брокере
+            sample.stop(sendLatency);
+            onSendFailure(event, e);
+        }
+    }
+
+    private void publishConfirmedStates() {
+        UserEventDTO event;
+        while ((event = confirmed.poll()) != null) {
+            if (isStale(event)) {
+                staleStates.increment();
+                log.info("Skipped stale user state of a retried event: type={}", event.getEventType());
+                continue;
+            }
+            try {
+                statePublisher.publish(event);
+            } catch (RuntimeException e) {
+                // Уведомление уже отправлено: его нельзя повторять из-за ошибки публикации состояния
+                log.error("Failed to publish user state: type={}", event.getEventType(), e);
+            }
+        }
+    }
+
+    /**
+     * Событие - повтор из журнала, а состояние более нового события пользователя уже опубликовано
+     */
+    private boolean isStale(UserEventDTO event) {
+        if (event.getUserId() == null) {
+            return false;
+        }
+        synchronized (pendingUsers) {
+            PendingUser user = pendingUsers.get(event.getUserId());
+            if (user == null) {
+                return false;
+            }
+            user.inFlight--;
+            user.retried.remove(event.getEventId());
+            Instant occurredAt = event.getOccurredAt();
+            boolean stale = occurredAt != null && user.newest != null && occurredAt.isBefore(user.newest);
+            if (!stale && occurredAt != null) {
+                user.newest = occurredAt;
+            }
+            forgetIfDone(event.getUserId(), user);
+            return stale;
+        }
+    }
+
+    /**
+     * Событие не отправлено; при retry оно переотправится из журнала
+     */
+    private void unconfirmed(UserEventDTO event, boolean retry) {
+        if (event.getUserId() == null) {
+            return;
+        }
+        synchronized (pendingUsers) {
+            PendingUser user = pendingUsers.get(event.getUserId());
+            if (user == null) {
+                return;
+            }
+            user.inFlight--;
+            if (retry && event.getEventId() != null) {
+                user.retried.add(event.getEventId());
+            }
+            forgetIfDone(event.getUserId(), user);
+        }
+    }
+
+    private void forgetIfDone(Long userId, PendingUser user) {
+        if (user.inFlight <= 0 && user.retried.isEmpty()) {
+            pendingUsers.remove(userId);
+        }
+    }
+
+    private static String key(UserEventDTO event) {
+        return event.getUserId() != null ? event.getUserId().toString() : event.getEmail();
+    }
+
+    private void onSendFailure(UserEventDTO event, Throwable ex) {
+        sendFailures.increment();
+        if (spillFile != null) {
+            log.warn("Failed to send event to Kafka, spilling for retry: type={}", event.getEventType(), ex);
+            unconfirmed(event, true);
+            spill(event);
+        } else {
+            log.error("Failed to send event to Kafka: type={}", event.getEventType(), ex);
+            unconfirmed(event, false);
+        }
+    }
+
+    private void refillFromSpill() {
+        // Берём не больше свободного места: пока журнал не пуст, новые события идут в журнал, а не в очередь
+        int free = Math.min(queue.remainingCapacity(), Math.max(1, queueCapacity / 2));
+        List<UserEventDTO> events = spillFile.take(free);
+        for (UserEventDTO event : events) {
+            if (!queue.offer(event)) {
+                // Место занял конкурентный sendUserEvent; событие не теряется, но уходит в конец журнала
+                spill(event);
+            }
+        }
+        if (!events.isEmpty()) {
+            log.info("Re-queued {} spilled user events", events.size());
+        }
+    }
+
+    private void spill(UserEventDTO event) {
+        try {
+            spillFile.append(event);
+            spilled.increment();
+        } catch (RuntimeException e) {
+            log.error("Failed to spill user event", e);
+            drop(event, "spill_failed");
+        }
+    }
+
+    private void drop(UserEventDTO event, String reason) {
+        meterRegistry.counter("user.events.dropped", "reason", reason).increment();
+        log.warn("Dropped user event: type={}, reason={}", event.getEventType(), reason);
+        if (event.getUserId() != null) {
+            synchronized (pendingUsers) {
+                PendingUser user = pendingUsers.get(event.getUserId());
+                if (user != null && user.retried.remove(event.getEventId())) {
+                    forgetIfDone(event.getUserId(), user);
+                }
+            }
+        }
+    }
+
+    /**
+     * Неподтверждённые и ожидающие повтора события пользователя и время самого нового опубликованного состояния
+     */
+    private static final class PendingUser {
+        int inFlight;
+        final Set<UUID> retried = new HashSet<>();
+        Instant newest;
     }
 }
@@ -0,0 +1,346 @@
+package com.userservice.kafka;
+
+import com.eventcontracts.dto.UserEventDTO;
+import com.fasterxml.jackson.core.JacksonException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Локальный журнал для событий, не поместившихся в очередь отправки.
+ *
+ * <p>Формат - JSON Lines, по событию на строку, в сегментах {@code <path>.<номер>} размером
+ * до {@code segmentSize}. Запись только дописывает в открытый хвостовой сегмент, чтение идёт
+ * с сохранённой позиции головного сегмента ({@code <path>.offset}), поэтому стоимость обеих
+ * операций не зависит от объёма журнала. Прочитанный сегмент удаляется целиком.
+ *
+ * <p>Строка, которую не удаётся разобрать, и недописанная при падении процесса последняя строка
+ * переносятся в {@code <path>.corrupt} и пропускаются, чтобы не останавливать разбор журнала.
+ * Позиция сохраняется при выдаче событий, поэтому при падении до их отправки
+ * из журнала теряется не больше одной выдачи, а до сохранения - она повторяется.
+ */
+@Slf4j
+public class SpillFile implements Closeable {
+
+    static final long DEFAULT_SEGMENT_SIZE = 16L * 1024 * 1024;
+
+    private final Path path;
+    private final Path offsetFile;
+    private final Path corruptFile;
+    private final ObjectMapper objectMapper;
+    private final long segmentSize;
+
+    private long headSegment;
+    private long readPosition;
+    private long tailSegment;
+    private long tailSize;
+    private OutputStream writer;
+    private volatile long pending;
+    private volatile long quarantined;
+
+    public SpillFile(Path path, ObjectMapper objectMapper) {
+        this(path, objectMapper, DEFAULT_SEGMENT_SIZE);
+    }
+
+    SpillFile(Path path, ObjectMapper objectMapper, long segmentSize) {
+        this.path = path.toAbsolutePath();
+        this.offsetFile = sibling(".offset");
+        this.corruptFile = sibling(".corrupt");
+        this.objectMapper = objectMapper;
+        this.segmentSize = segmentSize;
+        try {
+            recover();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open spill file " + path, e);
+        }
+        if (pending > 0) {
+            log.info("Found {} spilled user events from previous run in {}", pending, path);
+        }
+    }
+
+    public synchronized void append(UserEventDTO event) {
+        try {
+            byte[] line = objectMapper.writeValueAsBytes(event);
+            if (writer != null && tailSize > 0 && tailSize + line.length + 1 > segmentSize) {
+                writer.close();
+                writer = null;
+                tailSegment++;
+                tailSize = 0;
+            }
+            if (writer == null) {
+                Files.createDirectories(path.getParent());
+                writer = new BufferedOutputStream(Files.newOutputStream(segment(tailSegment),
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND), 64 * 1024);
+            }
+            writer.write(line);
+            writer.write('\n');
+            // Без fsync: переживаем падение процесса, но не узла
+            writer.flush();
+            tailSize += line.length + 1;
+            pending++;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to spill user event to " + path, e);
+        }
+    }
+
+    /**
+     * Извлекает из журнала не более {@code max} самых старых событий.
+     */
+    public synchronized List<UserEventDTO> take(int max) {
+        if (pending == 0 || max <= 0) {
+            return List.of();
+        }
+        List<UserEventDTO> events = new ArrayList<>(Math.min(max, (int) Math.min(pending, Integer.MAX_VALUE)));
+        try {
+            while (events.size() < max && pending > 0) {
+                Path head = segment(headSegment);
+                if (Files.exists(head) && !readLines(head, max, events)) {
+                    break;
+                }
+                if (headSegment >= tailSegment) {
+                    break;
+                }
+                Files.deleteIfExists(head);
+                headSegment++;
+                readPosition = 0;
+            }
+            if (headSegment == tailSegment && readPosition > 0 && readPosition >= tailSize) {
+                // Читатель догнал писателя: журнал пуст, следующая запись начнёт новый сегмент
+                closeWriter();
+                Files.deleteIfExists(segment(headSegment));
+                tailSegment++;
+                headSegment = tailSegment;
+                readPosition = 0;
+                tailSize = 0;
+            }
+            saveOffset();
+            return events;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read spilled user events from " + path, e);
+        }
+    }
+
+    public boolean hasPending() {
+        return pending > 0;
+    }
+
+    public long pending() {
+        return pending;
+    }
+
+    /**
+     * Число строк, перенесённых в {@code <path>.corrupt} за время работы
+     */
+    public long quarantined() {
+        return quarantined;
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            closeWriter();
+        } catch (IOException e) {
+            log.warn("Failed to close spill file {}", path, e);
+        }
+    }
+
+    /**
+     * Читает строки головного сегмента с {@link #readPosition} до конца сегмента или до {@code max} событий
+     *
+     * @return true, если сегмент дочитан до конца
+     */
+    private boolean readLines(Path head, int max, List<UserEventDTO> events) throws IOException {
+        try (FileChannel channel = FileChannel.open(head, StandardOpenOption.READ)) {
+            channel.position(readPosition);
+            InputStream in = new BufferedInputStream(Channels.newInputStream(channel), 64 * 1024);
+            ByteArrayOutputStream line = new ByteArrayOutputStream(512);
+            while (events.size() < max) {
+                int b = in.read();
+                if (b == -1) {
+                    return true;
+                }
+                if (b != '\n') {
+                    line.write(b);
+                    continue;
+                }
+                readPosition += line.size() + 1;
+                pending--;
+                UserEventDTO event = parse(line.toByteArray());
+                if (event != null) {
+                    events.add(event);
+                }
+                line.reset();
+            }
+            return false;
+        }
+    }
+
+    private UserEventDTO parse(byte[] line) throws IOException {
+        try {
+            return objectMapper.readValue(line, UserEventDTO.class);
+        } catch (JacksonException e) {
+            quarantine(line, e.getOriginalMessage());
+            return null;
+        }
+    }
+
+    private void quarantine(byte[] line, String reason) throws IOException {
+        try (OutputStream out = Files.newOutputStream(corruptFile, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            out.write(line);
+            out.write('\n');
+        }
+        quarantined++;
+        log.warn("Moved corrupted spilled user event to {}: {}", corruptFile, reason);
+    }
+
+    /**
+     * Восстанавливает позицию чтения и хвост журнала после рестарта
+     */
+    private void recover() throws IOException {
+        List<Long> segments = listSegments();
+        if (segments.isEmpty() && Files.isRegularFile(path)) {
+            // Файл прежнего формата без сегментов становится первым сегментом
+            Files.move(path, segment(0), StandardCopyOption.ATOMIC_MOVE);
+            segments.add(0L);
+        }
+        if (segments.isEmpty()) {
+            Files.deleteIfExists(offsetFile);
+            return;
+        }
+
+        headSegment = segments.getFirst();
+        tailSegment = segments.getLast();
+        if (Files.exists(offsetFile)) {
+            String saved = Files.readString(offsetFile, StandardCharsets.US_ASCII).trim();
+            try {
+                String[] parts = saved.split(" ");
+                long segment = Long.parseLong(parts[0]);
+                if (segment >= headSegment && segment <= tailSegment && Files.exists(segment(segment))) {
+                    headSegment = segment;
+                    readPosition = Math.min(Long.parseLong(parts[1]), Files.size(segment(segment)));
+                }
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                // События могут повториться, но не потеряются
+                log.warn("Ignoring unreadable spill offset '{}', reading {} from the first segment", saved, path);
+            }
+        }
+        for (long segment : segments) {
+            if (segment < headSegment) {
+                Files.deleteIfExists(segment(segment));
+            }
+        }
+
+        repairTail();
+        tailSize = Files.size(segment(tailSegment));
+        for (long segment = headSegment; segment <= tailSegment; segment++) {
+            Path file = segment(segment);
+            if (Files.exists(file)) {
+                pending += countLines(file, segment == headSegment ? readPosition : 0);
+            }
+        }
+    }
+
+    /**
+     * Отрезает недописанную при падении последнюю строку хвостового сегмента
+     */
+    private void repairTail() throws IOException {
+        Path tail = segment(tailSegment);
+        try (FileChannel channel = FileChannel.open(tail, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            long end = size;
+            ByteBuffer one = ByteBuffer.allocate(1);
+            while (end > 0) {
+                one.clear();
+                channel.read(one, end - 1);
+                if (one.get(0) == '\n') {
+                    break;
+                }
+                end--;
+            }
+            if (end == size) {
+                return;
+            }
+            ByteBuffer torn = ByteBuffer.allocate((int) (size - end));
+            channel.read(torn, end);
+            quarantine(torn.array(), "incomplete line at the end of " + tail.getFileName());
+            channel.truncate(end);
+            if (tailSegment == headSegment) {
+                readPosition = Math.min(readPosition, end);
+            }
+        }
+    }
+
+    private long countLines(Path file, long from) throws IOException {
+        long lines = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            channel.position(from);
+            InputStream in = new BufferedInputStream(Channels.newInputStream(channel), 64 * 1024);
+            for (int b; (b = in.read()) != -1; ) {
+                if (b == '\n') {
+                    lines++;
+                }
+            }
+        }
+        return lines;
+    }
+
+    private List<Long> listSegments() throws IOException {
+        if (!Files.isDirectory(path.getParent())) {
+            return new ArrayList<>();
+        }
+        String prefix = path.getFileName() + ".";
+        try (Stream<Path> files = Files.list(path.getParent())) {
+            return new ArrayList<>(files
+                    .map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith(prefix) && name.length() > prefix.length()
+                            && name.substring(prefix.length()).chars().allMatch(Character::isDigit))
+                    .map(name -> Long.parseLong(name.substring(prefix.length())))
+                    .sorted()
+                    .toList());
+        }
+    }
+
+    private void saveOffset() throws IOException {
+        if (pending == 0 && !Files.exists(segment(headSegment))) {
+            Files.deleteIfExists(offsetFile);
+            return;
+        }
+        Path tmp = sibling(".offset.tmp");
+        Files.writeString(tmp, headSegment + " " + readPosition, StandardCharsets.US_ASCII);
+        Files.move(tmp, offsetFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void closeWriter() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+    }
+
+    private Path segment(long number) {
+        return sibling("." + String.format("%06d", number));
+    }
+
+    private Path sibling(String suffix) {
+        return path.resolveSibling(path.getFileName() + suffix);
+    }
+}
@@ -0,0 +1,101 @@
+package com.userservice.kafka;
+
+import com.eventcontracts.dto.UserEventDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Публикация текущего состояния пользователей в компактируемый топик {@code kafka.topic.user-state}
+ *
+ * <p>Ключ записи - id пользователя, значение - последнее событие пользователя со снимком
+ * {@link UserEventDTO#getUser()}; удаление публикуется tombstone-записью (значение null).
+ * После компактирования в топике остаётся по одной записи на живого пользователя, и получатели
+ * строят по нему локальную копию данных пользователей, не обращаясь в user-service.
+ *
+ * <p>Вызывается потоком отправки {@link KafkaProducer} сразу после публикации события,
+ * поэтому записи одного пользователя идут в топик в порядке изменений. События без id
+ * (из старых spill-файлов) пропускаются. Ошибка отправки только считается: следующее
+ * изменение пользователя перезапишет состояние. Полную перепубликацию выполняет
+ * {@link com.userservice.backfill.UserBackfillJob}.
+ *
+ * <p>Отправка идёт под общей блокировкой. {@link #inOrder(Supplier)} держит её на время чтения
+ * снимков из базы и их отправки, поэтому живое событие, закоммиченное после чтения, уходит
+ * в топик после снимка и перекрывает его: устаревший снимок не переживает компактирование,
+ * а удалённый пользователь не воскресает.
+ */
+@Component
+@Slf4j
+public class UserStatePublisher {
+
+    private final KafkaTemplate<String, UserEventDTO> kafkaTemplate;
+    private final String topic;
+    private final boolean enabled;
+    private final Counter sendFailures;
+    // Справедливая: поток отправки KafkaProducer не ждёт, пока все потоки backfill отправят по странице
+    private final ReentrantLock order = new ReentrantLock(true);
+
+    public UserStatePublisher(KafkaTemplate<String, UserEventDTO> kafkaTemplate,
+                              MeterRegistry meterRegistry,
+                              @Value("${kafka.topic.user-state:user-state}") String topic,
+                              @Value("${kafka.topic.user-state.enabled:true}") boolean enabled) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.topic = topic;
+        this.enabled = enabled;
+        this.sendFailures = Counter.builder("user.state.send.failures").register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return future, завершающийся подтверждением брокера; ошибка уже посчитана и залогирована
+     */
+    public CompletableFuture<Void> publish(UserEventDTO event) {
+        if (!enabled || event.getUserId() == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        String key = event.getUserId().toString();
+        UserEventDTO state = event.getEventType() == UserEventDTO.EventType.DELETED ? null : event;
+        order.lock();
+        try {
+            return kafkaTemplate.send(topic, key, state)
+                    .whenComplete((result, ex) -> {
+                        if (ex != null) {
+                            onFailure(key, ex);
+                        }
+                    })
+                    .thenApply(result -> null);
+        } catch (RuntimeException e) {
+            onFailure(key, e);
+            return CompletableFuture.failedFuture(e);
+        } finally {
+            order.unlock();
+        }
+    }
+
+    /**
+     * Выполняет чтение и публикацию снимков так, что между ними в топик не попадёт ни одна другая запись
+     */
+    public <T> T inOrder(Supplier<T> readAndPublish) {
+        order.lock();
+        try {
+            return readAndPublish.get();
+        } finally {
+            order.unlock();
+        }
+    }
+
+    private void onFailure(String key, Throwable ex) {
+        sendFailures.increment();
+        log.error("Failed to publish user state: userId={}", key, ex);
+    }
+}
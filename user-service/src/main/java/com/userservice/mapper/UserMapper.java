@@ -1,5 +1,6 @@
 package com.userservice.mapper;
 
+import com.eventcontracts.dto.UserSnapshot;
 import com.userservice.dto.UserCreateDTO;
 import com.userservice.dto.UserResponseDTO;
 import com.userservice.dto.UserUpdateDTO;
@@ -9,6 +10,10 @@ import org.mapstruct.Mapper;
 import org.mapstruct.MappingTarget;
 import org.mapstruct.NullValuePropertyMappingStrategy;
 
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
 /**
  * Mapper для преобразования между Entity и DTO
  */
@@ -30,4 +35,16 @@ public interface UserMapper {
      */
     @BeanMapping(nullValuePropertyMappingStrategy = NullValuePropertyMappingStrategy.IGNORE)
     void updateEntityFromDTO(UserUpdateDTO dto, @MappingTarget UserEntity user);
+
+    /**
+     * Преобразование Entity → снимок пользователя для событий Kafka
+     */
+    UserSnapshot toSnapshot(UserEntity user);
+
+    /**
+     * createdAt хранится в локальном времени сервера, в событиях - момент времени
+     */
+    default Instant toInstant(LocalDateTime dateTime) {
+        return dateTime != null ? dateTime.atZone(ZoneId.systemDefault()).toInstant() : null;
+    }
 }
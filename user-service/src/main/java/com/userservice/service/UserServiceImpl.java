@@ -1,7 +1,9 @@
 package com.userservice.service;
 
+import com.eventcontracts.dto.FieldChange;
+import com.eventcontracts.dto.UserEventDTO;
+import com.eventcontracts.dto.UserSnapshot;
 import com.userservice.dto.UserCreateDTO;
-import com.userservice.dto.UserEventDTO;
 import com.userservice.dto.UserResponseDTO;
 import com.userservice.dto.UserUpdateDTO;
 import com.userservice.entity.UserEntity;
@@ -47,10 +49,8 @@ public class UserServiceImpl implements UserService {
 
         log.info("User created successfully with id: {}", savedUser.getId());
 
-        UserEventDTO event = UserEventDTO.builder()
-                .email(savedUser.getEmail())
-                .eventType(UserEventDTO.EventType.CREATED)
-                .build();
+        UserEventDTO event = UserEventDTO.of(UserEventDTO.EventType.CREATED, savedUser.getId(),
+                userMapper.toSnapshot(savedUser), List.of());
         eventProducer.sendUserEvent(event);
 
         return userMapper.ofEntity(savedUser);
@@ -91,10 +91,18 @@ public class UserServiceImpl implements UserService {
             }
         }
 
+        UserSnapshot before = userMapper.toSnapshot(existingUser);
         userMapper.updateEntityFromDTO(request, existingUser);
         UserEntity updatedUser = userRepository.save(existingUser);
 
         log.info("User updated successfully with id: {}", id);
+
+        // Событие только при реальных изменениях: повторный PUT с теми же данными ничего не публикует
+        UserSnapshot after = userMapper.toSnapshot(updatedUser);
+        List<FieldChange> changes = UserSnapshot.diff(before, after);
+        if (!changes.isEmpty()) {
+            eventProducer.sendUserEvent(UserEventDTO.of(UserEventDTO.EventType.UPDATED, id, after, changes));
+        }
         return userMapper.ofEntity(updatedUser);
     }
 
@@ -106,14 +114,11 @@ public class UserServiceImpl implements UserService {
         UserEntity user = userRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + id));
 
-        String userEmail = user.getEmail();
+        UserSnapshot snapshot = userMapper.toSnapshot(user);
         userRepository.delete(user);
         log.info("User deleted successfully with id: {}", id);
 
-        UserEventDTO event = UserEventDTO.builder()
-                .email(userEmail)
-                .eventType(UserEventDTO.EventType.DELETED)
-                .build();
+        UserEventDTO event = UserEventDTO.of(UserEventDTO.EventType.DELETED, id, snapshot, List.of());
         eventProducer.sendUserEvent(event);
     }
 
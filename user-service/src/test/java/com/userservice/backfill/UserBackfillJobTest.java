@@ -0,0 +1,282 @@
+package com.userservice.backfill;
+
+import com.eventcontracts.dto.UserEventDTO;
+import com.eventcontracts.dto.UserSnapshot;
+import com.userservice.kafka.UserStatePublisher;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("UserBackfillJob Unit Tests")
+class UserBackfillJobTest {
+
+    private static final String STATE_TOPIC = "user-state";
+
+    @Mock
+    private KafkaTemplate<String, UserEventDTO> kafkaTemplate;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final InMemoryBackfillRepository repository = new InMemoryBackfillRepository();
+    private final Map<String, AtomicInteger> sent = new ConcurrentHashMap<>();
+    private UserStatePublisher publisher;
+
+    @BeforeEach
+    void setUp() {
+        // Id с пропусками: часть диапазонов пустая
+        for (long id = 1; id <= 2_500; id++) {
+            if (id % 7 != 0 && (id < 1_000 || id > 1_400)) {
+                repository.users.put(id, new UserSnapshot("user" + id, "user" + id + "@example.com", 30, null));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("run: каждый пользователь публикуется в топик состояния ровно один раз")
+    void run_PublishesEveryUserOnce() {
+        countSends();
+        UserBackfillJob job = job(true);
+
+        job.run(false);
+
+        assertThat(job.status().getState()).isEqualTo(UserBackfillJob.State.COMPLETED);
+        assertThat(sent).hasSize(repository.users.size());
+        assertThat(sent.values()).allMatch(count -> count.get() == 1);
+        assertThat(job.status().getPublished()).isEqualTo(repository.users.size());
+        assertThat(job.status().getTotalRanges()).isEqualTo(10);
+        assertThat(job.status().getCompletedRanges()).isEqualTo(10);
+        assertThat(repository.pendingRanges()).isEmpty();
+        assertThat(meterRegistry.get("user.backfill.published").counter().count()).isEqualTo(repository.users.size());
+    }
+
+    @Test
+    @DisplayName("run: resume продолжает с checkpoint'ов и пропускает завершённые диапазоны")
+    void run_ResumesFromCheckpoints() {
+        countSends();
+        repository.replaceRanges(List.of(
+                new IdRange(1, 1_250, 0),
+                new IdRange(1_251, 2_500, 1_250)));
+        repository.checkpoint(new IdRange(1, 1_250, 1_250), true);
+        repository.checkpoint(new IdRange(1_251, 2_500, 2_000), false);
+        UserBackfillJob job = job(true);
+
+        job.run(true);
+
+        assertThat(sent.keySet()).allMatch(key -> Long.parseLong(key) > 2_000);
+        assertThat(sent).hasSize((int) repository.users.keySet().stream().filter(id -> id > 2_000).count());
+        assertThat(job.status().getTotalRanges()).isEqualTo(2);
+        assertThat(job.status().getCompletedRanges()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("run: неподтверждённая брокером страница не попадает в checkpoint")
+    void run_FailedSendKeepsCheckpoint() {
+        when(kafkaTemplate.send(eq(STATE_TOPIC), anyString(), any())).thenAnswer(invocation ->
+                "1500".equals(invocation.getArgument(1))
+                        ? CompletableFuture.failedFuture(new IllegalStateException("broker unavailable"))
+                        : acknowledged());
+        UserBackfillJob job = job(true);
+
+        job.run(false);
+
+        assertThat(job.status().getState()).isEqualTo(UserBackfillJob.State.FAILED);
+        assertThat(job.status().getFailure()).contains("broker unavailable");
+        assertThat(repository.pendingRanges())
+                .filteredOn(range -> range.from() == 1_251)
+                .singleElement()
+                .satisfies(range -> assertThat(range.lastId()).isLessThan(1_500));
+    }
+
+    @Test
+    @DisplayName("start: отмена до начала обхода не теряется")
+    void start_CancelBeforeRun_IsKept() {
+        UserBackfillJob job = job(true);
+        repository.opened = new CountDownLatch(1);
+
+        assertThat(job.start(false)).isTrue();
+        assertThat(job.cancel()).isTrue();
+        repository.opened.countDown();
+        for (int i = 0; i < 100 && job.status().getState() == UserBackfillJob.State.RUNNING; i++) {
+            sleep(50);
+        }
+
+        assertThat(job.status().getState()).isEqualTo(UserBackfillJob.State.CANCELLED);
+        verifyNoInteractions(kafkaTemplate);
+    }
+
+    @Test
+    @DisplayName("run: живое удаление во время чтения страницы уходит в топик после снимка")
+    void run_LiveDeleteDuringPageRead_PublishedAfterSnapshot() {
+        List<UserEventDTO> userOne = Collections.synchronizedList(new ArrayList<>());
+        when(kafkaTemplate.send(eq(STATE_TOPIC), anyString(), any())).thenAnswer(invocation -> {
+            if ("1".equals(invocation.getArgument(1))) {
+                userOne.add(invocation.getArgument(2));
+            }
+            return acknowledged();
+        });
+        UserBackfillJob job = job(true);
+        Thread[] live = new Thread[1];
+        repository.onPage = range -> {
+            if (range.from() == 1 && range.lastId() == 0) {
+                live[0] = Thread.ofPlatform().start(() -> publisher.publish(UserEventDTO.of(
+                        UserEventDTO.EventType.DELETED, 1L, repository.users.get(1L), List.of())));
+                sleep(200);
+            }
+        };
+
+        job.run(false);
+        join(live[0]);
+
+        assertThat(userOne).hasSize(2);
+        assertThat(userOne.getFirst()).isNotNull();
+        assertThat(userOne.getLast()).isNull();
+    }
+
+    @Test
+    @DisplayName("start: выключенный топик состояния не даёт запустить обход")
+    void start_RejectedWhenStateTopicDisabled() {
+        UserBackfillJob job = job(false);
+
+        assertThatThrownBy(() -> job.start(false))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(job.status().getState()).isEqualTo(UserBackfillJob.State.IDLE);
+    }
+
+    private UserBackfillJob job(boolean stateTopicEnabled) {
+        publisher = new UserStatePublisher(kafkaTemplate, meterRegistry, STATE_TOPIC, stateTopicEnabled);
+        return new UserBackfillJob(repository, publisher, meterRegistry,
+                250, 3, 40, 0, Duration.ofSeconds(5));
+    }
+
+    private void countSends() {
+        when(kafkaTemplate.send(eq(STATE_TOPIC), anyString(), any())).thenAnswer(invocation -> {
+            UserEventDTO event = invocation.getArgument(2);
+            assertThat(event.getEventType()).isEqualTo(UserEventDTO.EventType.UPDATED);
+            assertThat(event.getChanges()).isEmpty();
+            sent.computeIfAbsent(invocation.getArgument(1), key -> new AtomicInteger()).incrementAndGet();
+            return acknowledged();
+        });
+    }
+
+    private static CompletableFuture<SendResult<String, UserEventDTO>> acknowledged() {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void join(Thread thread) {
+        try {
+            thread.join(5_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Таблицы users и user_backfill_ranges в памяти
+     */
+    private static final class InMemoryBackfillRepository extends BackfillRepository {
+
+        private final TreeMap<Long, UserSnapshot> users = new TreeMap<>();
+        private final Map<Long, IdRange> ranges = Collections.synchronizedMap(new TreeMap<>());
+        private final Map<Long, Boolean> completed = new ConcurrentHashMap<>();
+        private volatile CountDownLatch opened = new CountDownLatch(0);
+        private volatile Consumer<IdRange> onPage = range -> {
+        };
+
+        private InMemoryBackfillRepository() {
+            super(null);
+        }
+
+        @Override
+        public void createTable() {
+            try {
+                opened.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public long[] idBounds() {
+            return users.isEmpty() ? null : new long[]{users.firstKey(), users.lastKey()};
+        }
+
+        @Override
+        public void replaceRanges(List<IdRange> newRanges) {
+            ranges.clear();
+            completed.clear();
+            newRanges.forEach(range -> {
+                ranges.put(range.from(), range);
+                completed.put(range.from(), false);
+            });
+        }
+
+        @Override
+        public List<IdRange> pendingRanges() {
+            synchronized (ranges) {
+                return ranges.values().stream().filter(range -> !completed.get(range.from())).toList();
+            }
+        }
+
+        @Override
+        public int countRanges() {
+            return ranges.size();
+        }
+
+        @Override
+        public void checkpoint(IdRange range, boolean done) {
+            ranges.put(range.from(), range);
+            completed.put(range.from(), done);
+        }
+
+        @Override
+        public List<UserRow> page(IdRange range, int limit) {
+            onPage.accept(range);
+            List<UserRow> page = new ArrayList<>();
+            synchronized (users) {
+                for (Map.Entry<Long, UserSnapshot> entry
+                        : users.subMap(range.lastId(), false, range.to(), true).entrySet()) {
+                    if (page.size() == limit) {
+                        break;
+                    }
+                    page.add(new UserRow(entry.getKey(), entry.getValue()));
+                }
+            }
+            return page;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.userservice.bulkimport;
+
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("CsvImportReader Unit Tests")
+class CsvImportReaderTest {
+
+    private final Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+    @Test
+    @DisplayName("Заголовок пропускается, кавычки, запятые и переводы строк в полях сохраняются")
+    void read_ParsesQuotedFields() throws IOException {
+        String csv = "name,email,age,created_at\r\n"
+                + "John,john@example.com,30,2024-05-01T10:15:30\r\n"
+                + "\r\n"
+                + "\"Jane \"\"JJ\"\",\nDoe\",jane@example.com,,\n"
+                + "\"\",empty@example.com,\" 41 \",";
+
+        assertThat(readAll(new CsvImportReader(new StringReader(csv), null))).isEqualTo("""
+                "John","john@example.com","30","2024-05-01T10:15:30"
+                "Jane ""JJ"",
+                Doe","jane@example.com",,
+                "","empty@example.com"," 41 ",
+                """);
+    }
+
+    @Test
+    @DisplayName("Строки, нарушающие ограничения UserCreateDTO, отклоняются с номером строки")
+    void read_RejectsInvalidRows() throws IOException {
+        String csv = """
+                name,email,age,created_at
+                John,john@example.com,30,
+                Bad,not-an-email,20,
+                "Old",old@example.com,151,
+                ,blank@example.com,,
+                "Multi
+                line",multi@example.com,abc,
+                Short,short@example.com
+                Jane,jane@example.com," 25 ",
+                """;
+        ImportRowValidator rowValidator = new ImportRowValidator(validator, 3);
+
+        String copied = readAll(new CsvImportReader(new StringReader(csv), rowValidator));
+
+        assertThat(copied).isEqualTo("""
+                "John","john@example.com",30,
+                "Jane","jane@example.com",25,
+                """);
+        assertThat(rowValidator.rejected()).isEqualTo(5);
+        assertThat(rowValidator.samples()).containsExactly(
+                "line 3: email: Email must be valid",
+                "line 4: age: Age must be at most 150",
+                "line 5: name: Name cannot be empty");
+    }
+
+    @Test
+    @DisplayName("Незакрытая кавычка сообщает номер строки записи")
+    void read_UnterminatedQuoteReportsLineNumber() {
+        String csv = """
+                name,email,age,created_at
+                John,john@example.com,30,
+                "Jane,jane@example.com,,
+                """;
+
+        assertThatThrownBy(() -> readAll(new CsvImportReader(new StringReader(csv), null)))
+                .isInstanceOf(ImportCsvReader.MalformedLineException.class)
+                .hasMessageContaining("line 3");
+    }
+
+    private static String readAll(Reader reader) throws IOException {
+        StringWriter writer = new StringWriter();
+        reader.transferTo(writer);
+        return writer.toString();
+    }
+}
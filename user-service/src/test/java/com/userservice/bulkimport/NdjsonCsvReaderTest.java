@@ -0,0 +1,100 @@
+package com.userservice.bulkimport;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("NdjsonCsvReader Unit Tests")
+class NdjsonCsvReaderTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    @DisplayName("Строки NDJSON перекодируются в CSV с колонками name,email,age,created_at")
+    void read_ConvertsLinesToCsv() throws IOException {
+        String ndjson = """
+                {"name":"John","email":"john@example.com","age":30,"createdAt":"2024-05-01T10:15:30"}
+
+                {"email":"jane@example.com","name":"Jane \\"JJ\\", Doe"}
+                {"name":"","email":"empty@example.com","age":null}
+                """;
+
+        assertThat(readAll(new NdjsonCsvReader(new StringReader(ndjson), objectMapper))).isEqualTo("""
+                "John","john@example.com",30,"2024-05-01T10:15:30"
+                "Jane ""JJ"", Doe","jane@example.com",,
+                "","empty@example.com",,
+                """);
+    }
+
+    @Test
+    @DisplayName("Чтение маленьким буфером не теряет и не дублирует символы")
+    void read_SmallBuffer() throws IOException {
+        StringBuilder ndjson = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 1_000; i++) {
+            ndjson.append("{\"name\":\"user").append(i).append("\",\"email\":\"user").append(i).append("@example.com\"}\n");
+            expected.append("\"user").append(i).append("\",\"user").append(i).append("@example.com\",,\n");
+        }
+        Reader reader = new NdjsonCsvReader(new StringReader(ndjson.toString()), objectMapper);
+        StringBuilder actual = new StringBuilder();
+        char[] buffer = new char[7];
+        for (int count; (count = reader.read(buffer, 0, buffer.length)) != -1; ) {
+            actual.append(buffer, 0, count);
+        }
+
+        assertThat(actual.toString()).isEqualTo(expected.toString());
+    }
+
+    @Test
+    @DisplayName("Неразбираемая строка сообщает свой номер")
+    void read_MalformedLineReportsLineNumber() {
+        String ndjson = """
+                {"name":"John","email":"john@example.com"}
+
+                {"name":"Jane",
+                """;
+
+        assertThatThrownBy(() -> readAll(new NdjsonCsvReader(new StringReader(ndjson), objectMapper)))
+                .isInstanceOf(NdjsonCsvReader.MalformedLineException.class)
+                .hasMessageContaining("line 3");
+        assertThatThrownBy(() -> readAll(new NdjsonCsvReader(new StringReader("[1, 2]\n"), objectMapper)))
+                .isInstanceOf(NdjsonCsvReader.MalformedLineException.class)
+                .hasMessageContaining("line 1");
+    }
+
+    @Test
+    @DisplayName("Строки, нарушающие ограничения UserCreateDTO, не попадают в COPY")
+    void read_SkipsRejectedRows() throws IOException {
+        String ndjson = """
+                {"name":"John","email":"john@example.com","age":"30"}
+                {"name":"Bad","email":"not-an-email"}
+                {"name":"Frac","email":"frac@example.com","age":30.5}
+                {"email":"noname@example.com"}
+                """;
+        ImportRowValidator rowValidator = new ImportRowValidator(
+                Validation.buildDefaultValidatorFactory().getValidator(), 100);
+
+        assertThat(readAll(new NdjsonCsvReader(new StringReader(ndjson), objectMapper, rowValidator))).isEqualTo("""
+                "John","john@example.com",30,
+                """);
+        assertThat(rowValidator.samples()).containsExactly(
+                "line 2: email: Email must be valid",
+                "line 3: age: Age must be an integer",
+                "line 4: name: Name cannot be empty");
+    }
+
+    private static String readAll(Reader reader) throws IOException {
+        StringWriter writer = new StringWriter();
+        reader.transferTo(writer);
+        return writer.toString();
+    }
+}
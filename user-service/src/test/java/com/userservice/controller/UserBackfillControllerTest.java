@@ -0,0 +1,52 @@
+package com.userservice.controller;
+
+import com.userservice.backfill.UserBackfillJob;
+import com.userservice.dto.BackfillStatusDTO;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(value = UserBackfillController.class, properties = "admin.api-token=secret")
+@DisplayName("UserBackfillController Unit Tests")
+class UserBackfillControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private UserBackfillJob backfillJob;
+
+    @Test
+    @DisplayName("POST /api/v1/admin/users/backfill: без токена - 403, обход не запускается")
+    void start_WithoutToken_Returns403() throws Exception {
+        mockMvc.perform(post("/api/v1/admin/users/backfill"))
+                .andExpect(status().isForbidden())
+                .andExpect(jsonPath("$.error").value("Forbidden"));
+        mockMvc.perform(post("/api/v1/admin/users/backfill").header("X-Admin-Token", "wrong"))
+                .andExpect(status().isForbidden());
+
+        verify(backfillJob, never()).start(anyBoolean());
+    }
+
+    @Test
+    @DisplayName("POST /api/v1/admin/users/backfill: с верным токеном обход запускается")
+    void start_WithToken_Returns202() throws Exception {
+        when(backfillJob.start(true)).thenReturn(true);
+        when(backfillJob.status()).thenReturn(BackfillStatusDTO.builder().state(UserBackfillJob.State.RUNNING).build());
+
+        mockMvc.perform(post("/api/v1/admin/users/backfill").header("X-Admin-Token", "secret"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.state").value("RUNNING"));
+    }
+}
@@ -6,12 +6,17 @@ import com.userservice.dto.UserResponseDTO;
 import com.userservice.dto.UserUpdateDTO;
 import com.userservice.exception.DuplicateResourceException;
 import com.userservice.exception.ResourceNotFoundException;
+import com.userservice.hateoas.UserModelAssembler;
+import com.userservice.idempotency.IdempotencyService;
+import com.userservice.idempotency.InMemoryIdempotencyStore;
 import com.userservice.service.UserService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
@@ -26,6 +31,7 @@ import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
@@ -33,10 +39,13 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(UserController.class)
+@Import({UserModelAssembler.class, IdempotencyService.class, InMemoryIdempotencyStore.class,
+        SimpleMeterRegistry.class})
 @DisplayName("UserController Unit Tests")
 class UserControllerTest {
 
@@ -92,6 +101,64 @@ class UserControllerTest {
         verify(userService).createUser(any(UserCreateDTO.class));
     }
 
+    @Test
+    @DisplayName("POST /api/v1/users - повтор с тем же Idempotency-Key возвращает исходный ответ")
+    void createUser_IdempotencyKey_ReplaysOriginalResponse() throws Exception {
+        when(userService.createUser(any(UserCreateDTO.class))).thenReturn(responseDTO);
+
+        for (String replayed : new String[]{"false", "true"}) {
+            mockMvc.perform(post("/api/v1/users")
+                            .header("Idempotency-Key", "retry-key-1")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(createDTO)))
+                    .andExpect(status().isCreated())
+                    .andExpect(header().string("Idempotent-Replayed", replayed))
+                    .andExpect(header().exists("Location"))
+                    .andExpect(jsonPath("$.id", is(1)));
+        }
+
+        verify(userService, times(1)).createUser(any(UserCreateDTO.class));
+    }
+
+    @Test
+    @DisplayName("POST /api/v1/users - Idempotency-Key с другим телом запроса возвращает 409")
+    void createUser_IdempotencyKeyReusedWithDifferentBody_Conflict() throws Exception {
+        when(userService.createUser(any(UserCreateDTO.class))).thenReturn(responseDTO);
+
+        mockMvc.perform(post("/api/v1/users")
+                        .header("Idempotency-Key", "retry-key-2")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(createDTO)))
+                .andExpect(status().isCreated());
+
+        UserCreateDTO otherBody = UserCreateDTO.builder()
+                .name("Other")
+                .email("other@example.com")
+                .age(40)
+                .build();
+
+        mockMvc.perform(post("/api/v1/users")
+                        .header("Idempotency-Key", "retry-key-2")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(otherBody)))
+                .andExpect(status().isConflict());
+
+        verify(userService, times(1)).createUser(any(UserCreateDTO.class));
+    }
+
+    @Test
+    @DisplayName("POST /api/v1/users - Idempotency-Key длиннее 255 символов отклоняется до создания пользователя")
+    void createUser_IdempotencyKeyTooLong_BadRequest() throws Exception {
+        mockMvc.perform(post("/api/v1/users")
+                        .header("Idempotency-Key", "k".repeat(256))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(createDTO)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.status", is(400)));
+
+        verify(userService, never()).createUser(any(UserCreateDTO.class));
+    }
+
     @Test
     @DisplayName("POST /api/v1/users - валидация: пустое имя")
     void createUser_ValidationFailure_EmptyName() throws Exception {
@@ -0,0 +1,60 @@
+package com.userservice.controller;
+
+import com.userservice.bulkimport.ImportFormat;
+import com.userservice.bulkimport.UserBulkImporter;
+import com.userservice.dto.ImportReportDTO;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(value = UserImportController.class, properties = "admin.api-token=secret")
+@DisplayName("UserImportController Unit Tests")
+class UserImportControllerTest {
+
+    private static final String CSV = "name,email,age,created_at\nJohn,john@example.com,30,\n";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private UserBulkImporter importer;
+
+    @Test
+    @DisplayName("POST /api/v1/admin/users/import: без токена - 403, импорт не выполняется")
+    void importCsv_WithoutToken_Returns403() throws Exception {
+        mockMvc.perform(post("/api/v1/admin/users/import").contentType("text/csv").content(CSV))
+                .andExpect(status().isForbidden());
+
+        verifyNoInteractions(importer);
+    }
+
+    @Test
+    @DisplayName("POST /api/v1/admin/users/import: отчёт содержит отклонённые строки")
+    void importCsv_WithToken_ReturnsReport() throws Exception {
+        when(importer.importUsers(any(), eq(ImportFormat.CSV))).thenReturn(ImportReportDTO.builder()
+                .received(2)
+                .imported(1)
+                .rejected(1)
+                .rejectedLines(List.of("line 3: email: Email must be valid"))
+                .build());
+
+        mockMvc.perform(post("/api/v1/admin/users/import").contentType("text/csv").content(CSV)
+                        .header("X-Admin-Token", "secret"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.rejected").value(1))
+                .andExpect(jsonPath("$.rejectedLines[0]").value("line 3: email: Email must be valid"));
+    }
+}
@@ -4,7 +4,11 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.userservice.controller.UserController;
 import com.userservice.dto.UserCreateDTO;
 import com.userservice.dto.UserUpdateDTO;
+import com.userservice.hateoas.UserModelAssembler;
+import com.userservice.idempotency.IdempotencyService;
+import com.userservice.idempotency.InMemoryIdempotencyStore;
 import com.userservice.service.UserService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -28,7 +32,8 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(UserController.class)
-@Import(GlobalExceptionHandler.class)
+@Import({GlobalExceptionHandler.class, UserModelAssembler.class, IdempotencyService.class, InMemoryIdempotencyStore.class,
+        SimpleMeterRegistry.class})
 @DisplayName("GlobalExceptionHandler Unit Tests")
 class GlobalExceptionHandlerTest {
 
@@ -0,0 +1,199 @@
+package com.userservice.idempotency;
+
+import com.userservice.dto.UserResponseDTO;
+import com.userservice.exception.DuplicateResourceException;
+import com.userservice.exception.IdempotencyConflictException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("IdempotencyService Unit Tests")
+class IdempotencyServiceTest {
+
+    @Mock
+    private ObjectProvider<JdbcIdempotencyStore> jdbcStore;
+
+    @Mock
+    private JdbcIdempotencyStore persistentStore;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private IdempotencyService service;
+    private final AtomicInteger executions = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        service = new IdempotencyService(
+                new InMemoryIdempotencyStore(100, Duration.ofHours(1)), jdbcStore, Duration.ofSeconds(5), meterRegistry);
+    }
+
+    @Test
+    @DisplayName("execute: повтор с тем же ключом возвращает сохранённый ответ без повторного выполнения")
+    void execute_Repeat_ReplaysStoredResponse() {
+        IdempotentResult first = service.execute("key", 1L, () -> created(1L));
+        IdempotentResult second = service.execute("key", 1L, () -> created(2L));
+
+        assertThat(first.replayed()).isFalse();
+        assertThat(second.replayed()).isTrue();
+        assertThat(second.response().body().getId()).isEqualTo(1L);
+        assertThat(executions).hasValue(1);
+    }
+
+    @Test
+    @DisplayName("execute: ключ с другим отпечатком запроса отклоняется")
+    void execute_DifferentFingerprint_ThrowsConflict() {
+        service.execute("key", 1L, () -> created(1L));
+
+        assertThatThrownBy(() -> service.execute("key", 2L, () -> created(2L)))
+                .isInstanceOf(IdempotencyConflictException.class);
+        assertThat(executions).hasValue(1);
+    }
+
+    @Test
+    @DisplayName("execute: ошибка не кэшируется, следующий повтор выполняется заново")
+    void execute_Failure_IsNotStored() {
+        assertThatThrownBy(() -> service.execute("key", 1L, () -> {
+            throw new DuplicateResourceException("exists");
+        })).isInstanceOf(DuplicateResourceException.class);
+
+        IdempotentResult retry = service.execute("key", 1L, () -> created(1L));
+
+        assertThat(retry.replayed()).isFalse();
+    }
+
+    @Test
+    @DisplayName("execute: ошибка записи в БД после выполнения не превращает ответ в ошибку")
+    void execute_PersistFailure_ReturnsResponse() {
+        when(jdbcStore.getIfAvailable()).thenReturn(persistentStore);
+        when(persistentStore.find("key")).thenReturn(Optional.empty());
+        doThrow(new DataAccessResourceFailureException("db down")).when(persistentStore).save(eq("key"), any());
+        service = new IdempotencyService(
+                new InMemoryIdempotencyStore(100, Duration.ofHours(1)), jdbcStore, Duration.ofSeconds(5), meterRegistry);
+
+        IdempotentResult first = service.execute("key", 1L, () -> created(1L));
+        IdempotentResult retry = service.execute("key", 1L, () -> created(2L));
+
+        assertThat(first.replayed()).isFalse();
+        assertThat(first.response().body().getId()).isEqualTo(1L);
+        assertThat(retry.replayed()).isTrue();
+        assertThat(executions).hasValue(1);
+        assertThat(meterRegistry.get("idempotency.persist.failures").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("execute: одновременные дубликаты ждут первое выполнение")
+    void execute_ConcurrentDuplicates_ExecuteOnce() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            Future<IdempotentResult> firstCall = pool.submit(() -> service.execute("key", 1L, () -> {
+                started.countDown();
+                await(release);
+                return created(1L);
+            }));
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+            List<Future<IdempotentResult>> duplicates = new ArrayList<>();
+            for (int i = 0; i < 7; i++) {
+                duplicates.add(pool.submit(() -> service.execute("key", 1L, () -> created(2L))));
+            }
+            release.countDown();
+
+            assertThat(firstCall.get(5, TimeUnit.SECONDS).replayed()).isFalse();
+            for (Future<IdempotentResult> duplicate : duplicates) {
+                IdempotentResult result = duplicate.get(5, TimeUnit.SECONDS);
+                assertThat(result.replayed()).isTrue();
+                assertThat(result.response().body().getId()).isEqualTo(1L);
+            }
+            assertThat(executions).hasValue(1);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("InMemoryIdempotencyStore: записи вытесняются по TTL и по лимиту размера")
+    void inMemoryStore_EvictsByTtlAndSize() {
+        MutableClock clock = new MutableClock();
+        InMemoryIdempotencyStore store = new InMemoryIdempotencyStore(2, Duration.ofMinutes(1), clock);
+
+        store.save("a", created(1L));
+        store.save("b", created(2L));
+        store.save("c", created(3L));
+
+        assertThat(store.find("a")).isEmpty();
+        assertThat(store.find("b")).isPresent();
+        assertThat(store.size()).isEqualTo(2);
+
+        clock.advance(Duration.ofMinutes(2));
+
+        assertThat(store.find("b")).isEmpty();
+        assertThat(store.find("c")).isEmpty();
+    }
+
+    private StoredResponse created(long id) {
+        executions.incrementAndGet();
+        return new StoredResponse(1L, 201, "http://localhost/api/v1/users/" + id,
+                UserResponseDTO.builder().id(id).name("John").email("john@example.com").age(30).build());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant now = Instant.parse("2024-01-01T12:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
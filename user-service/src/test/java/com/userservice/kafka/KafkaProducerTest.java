@@ -0,0 +1,323 @@
+package com.userservice.kafka;
+
+import com.eventcontracts.dto.UserEventDTO;
+import com.eventcontracts.dto.UserSnapshot;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("KafkaProducer Unit Tests")
+class KafkaProducerTest {
+
+    private static final String TOPIC = "user-events";
+    private static final String STATE_TOPIC = "user-state";
+
+    @Mock
+    private KafkaTemplate<String, UserEventDTO> kafkaTemplate;
+
+    @TempDir
+    Path tempDir;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CountDownLatch brokerAvailable = new CountDownLatch(1);
+    private KafkaProducer producer;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        brokerAvailable.countDown();
+        if (producer != null) {
+            producer.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("sendUserEvent: событие отправляется отдельным потоком с email в качестве ключа")
+    void sendUserEvent_SendsFromSenderThread() {
+        when(kafkaTemplate.send(anyString(), anyString(), any())).thenReturn(acknowledged());
+        producer = start(10, KafkaProducer.OverflowPolicy.DROP);
+
+        producer.sendUserEvent(event("john@example.com"));
+
+        verify(kafkaTemplate, timeout(5000)).send(eq(TOPIC), eq("john@example.com"), any(UserEventDTO.class));
+        assertThat(meterRegistry.get("user.events.send.latency").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("sendUserEvent: событие с id пользователя отправляется с id в качестве ключа")
+    void sendUserEvent_KeysByUserId() {
+        when(kafkaTemplate.send(anyString(), anyString(), any())).thenReturn(acknowledged());
+        producer = start(10, KafkaProducer.OverflowPolicy.DROP);
+
+        producer.sendUserEvent(UserEventDTO.of(UserEventDTO.EventType.UPDATED, 42L,
+                new UserSnapshot("John", "john@example.com", 30, null), List.of()));
+
+        verify(kafkaTemplate, timeout(5000)).send(eq(TOPIC), eq("42"), any(UserEventDTO.class));
+    }
+
+    @Test
+    @DisplayName("sendUserEvent: состояние пользователя публикуется в топик состояния, удаление - tombstone")
+    void sendUserEvent_PublishesUserState() {
+        when(kafkaTemplate.send(anyString(), anyString(), any())).thenReturn(acknowledged());
+        producer = start(10, KafkaProducer.OverflowPolicy.DROP);
+        UserSnapshot user = new UserSnapshot("John", "john@example.com", 30, null);
+        UserEventDTO updated = UserEventDTO.of(UserEventDTO.EventType.UPDATED, 42L, user, List.of());
+
+        producer.sendUserEvent(updated);
+        producer.sendUserEvent(UserEventDTO.of(UserEventDTO.EventType.DELETED, 42L, user, List.of()));
+        producer.sendUserEvent(event("legacy@example.com"));
+
+        verify(kafkaTemplate, timeout(5000).times(3)).send(eq(TOPIC), anyString(), any(UserEventDTO.class));
+        verify(kafkaTemplate, timeout(5000)).send(STATE_TOPIC, "42", updated);
+        verify(kafkaTemplate, timeout(5000)).send(STATE_TOPIC, "42", null);
+        verify(kafkaTemplate, after(300).times(2)).send(eq(STATE_TOPIC), anyString(), any());
+    }
+
+    @Test
+    @DisplayName("send failure: состояние не публикуется, пока брокер не принял событие")
+    void sendFailure_StateNotPublished() {
+        when(kafkaTemplate.send(anyString(), anyString(), any()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")));
+        producer = start(10, KafkaProducer.OverflowPolicy.DROP);
+
+        producer.sendUserEvent(UserEventDTO.of(UserEventDTO.EventType.UPDATED, 42L,
+                new UserSnapshot("John", "john@example.com", 30, null), List.of()));
+
+        verify(kafkaTemplate, timeout(5000)).send(eq(TOPIC), eq("42"), any(UserEventDTO.class));
+        verify(kafkaTemplate, after(300).never()).send(eq(STATE_TOPIC), anyString(), any());
+    }
+
+    @Test
+    @DisplayName("send failure: повтор из журнала не перекрывает состояние более нового события")
+    void sendFailure_Spill_RetriedEventDoesNotOverwriteNewerState() {
+        CompletableFuture<SendResult<String, UserEventDTO>> firstSend = new CompletableFuture<>();
+        when(kafkaTemplate.send(eq(TOPIC), eq("42"), any())).thenReturn(firstSend).thenReturn(acknowledged());
+        when(kafkaTemplate.send(eq(STATE_TOPIC), eq("42"), any())).thenReturn(acknowledged());
+        producer = start(10, KafkaProducer.OverflowPolicy.SPILL);
+        Instant now = Instant.now();
+        UserEventDTO older = updated(42L, "old@example.com", now.minusSeconds(1));
+        UserEventDTO newer = updated(42L, "new@example.com", now);
+
+        producer.sendUserEvent(older);
+        producer.sendUserEvent(newer);
+        verify(kafkaTemplate, timeout(5000)).send(STATE_TOPIC, "42", newer);
+        firstSend.completeExceptionally(new IllegalStateException("broker down"));
+
+        verify(kafkaTemplate, timeout(5000).times(3)).send(eq(TOPIC), eq("42"), any(UserEventDTO.class));
+        verify(kafkaTemplate, after(300).times(1)).send(eq(STATE_TOPIC), anyString(), any());
+        assertThat(meterRegistry.get("user.state.stale.skipped").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("sendUserEvent: при заполненной очереди и политике DROP событие отбрасывается без блокировки")
+    void sendUserEvent_QueueFull_DropsEvent() throws Exception {
+        CountDownLatch sending = blockingBroker();
+        producer = start(1, KafkaProducer.OverflowPolicy.DROP);
+
+        producer.sendUserEvent(event("first@example.com"));
+        assertThat(sending.await(5, TimeUnit.SECONDS)).isTrue();
+        producer.sendUserEvent(event("second@example.com"));
+
+        long startedAt = System.nanoTime();
+        producer.sendUserEvent(event("third@example.com"));
+
+        assertThat(Duration.ofNanos(System.nanoTime() - startedAt)).isLessThan(Duration.ofSeconds(1));
+        assertThat(meterRegistry.get("user.events.dropped").tag("reason", "queue_full").counter().count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.get("user.events.queue.depth").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("sendUserEvent: при политике BLOCK вызывающий поток ждёт не дольше block-timeout")
+    void sendUserEvent_QueueFull_BlocksUpToTimeout() throws Exception {
+        CountDownLatch sending = blockingBroker();
+        producer = start(1, KafkaProducer.OverflowPolicy.BLOCK);
+
+        producer.sendUserEvent(event("first@example.com"));
+        assertThat(sending.await(5, TimeUnit.SECONDS)).isTrue();
+        producer.sendUserEvent(event("second@example.com"));
+
+        long startedAt = System.nanoTime();
+        producer.sendUserEvent(event("third@example.com"));
+
+        assertThat(Duration.ofNanos(System.nanoTime() - startedAt)).isGreaterThanOrEqualTo(Duration.ofMillis(50));
+        assertThat(meterRegistry.get("user.events.dropped").tag("reason", "block_timeout").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("sendUserEvent: при политике SPILL события уходят в файл и отправляются в исходном порядке")
+    void sendUserEvent_QueueFull_SpillsAndPreservesOrder() throws Exception {
+        CountDownLatch sending = blockingBroker();
+        producer = start(1, KafkaProducer.OverflowPolicy.SPILL);
+
+        producer.sendUserEvent(event("0@example.com"));
+        assertThat(sending.await(5, TimeUnit.SECONDS)).isTrue();
+        for (int i = 1; i <= 4; i++) {
+            producer.sendUserEvent(event(i + "@example.com"));
+        }
+        assertThat(meterRegistry.get("user.events.spilled").counter().count()).isEqualTo(3);
+
+        brokerAvailable.countDown();
+
+        ArgumentCaptor<String> keys = ArgumentCaptor.forClass(String.class);
+        verify(kafkaTemplate, timeout(5000).times(5)).send(eq(TOPIC), keys.capture(), any(UserEventDTO.class));
+        assertThat(keys.getAllValues())
+                .containsExactly("0@example.com", "1@example.com", "2@example.com", "3@example.com", "4@example.com");
+    }
+
+    @Test
+    @DisplayName("send failure: при политике SPILL неотправленное событие повторяется из файла")
+    void sendFailure_Spill_RetriesEvent() {
+        when(kafkaTemplate.send(anyString(), anyString(), any()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")))
+                .thenReturn(acknowledged());
+        producer = start(10, KafkaProducer.OverflowPolicy.SPILL);
+
+        producer.sendUserEvent(event("john@example.com"));
+
+        verify(kafkaTemplate, timeout(5000).times(2)).send(eq(TOPIC), eq("john@example.com"), any(UserEventDTO.class));
+        assertThat(meterRegistry.get("user.events.send.failures").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("send: ошибка публикации состояния не повторяет уже отправленное уведомление")
+    void sendUserEvent_StatePublishFailure_DoesNotResend() {
+        when(kafkaTemplate.send(anyString(), anyString(), any())).thenReturn(acknowledged());
+        UserStatePublisher statePublisher = mock(UserStatePublisher.class);
+        when(statePublisher.publish(any())).thenThrow(new IllegalStateException("state topic unavailable"));
+        producer = new KafkaProducer(kafkaTemplate, statePublisher, meterRegistry,
+                new ObjectMapper().findAndRegisterModules(), TOPIC, 10, KafkaProducer.OverflowPolicy.SPILL,
+                Duration.ofMillis(100), tempDir.resolve("events.spill"), Duration.ofSeconds(5));
+        producer.start();
+
+        producer.sendUserEvent(event("john@example.com"));
+
+        verify(statePublisher, timeout(5000)).publish(any());
+        verify(kafkaTemplate, after(500).times(1)).send(eq(TOPIC), eq("john@example.com"), any(UserEventDTO.class));
+        assertThat(meterRegistry.get("user.events.send.failures").counter().count()).isZero();
+    }
+
+    @Test
+    @DisplayName("sendUserEvent: внутри транзакции событие уходит только после коммита")
+    void sendUserEvent_InTransaction_QueuedAfterCommit() {
+        when(kafkaTemplate.send(anyString(), anyString(), any())).thenReturn(acknowledged());
+        producer = start(10, KafkaProducer.OverflowPolicy.DROP);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            producer.sendUserEvent(event("john@example.com"));
+            verify(kafkaTemplate, after(300).never()).send(anyString(), anyString(), any());
+
+            TransactionSynchronizationUtils.invokeAfterCommit(TransactionSynchronizationManager.getSynchronizations());
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        verify(kafkaTemplate, timeout(5000)).send(eq(TOPIC), eq("john@example.com"), any(UserEventDTO.class));
+    }
+
+    @Test
+    @DisplayName("shutdown: ответы на отправленные события дожидаются до закрытия журнала")
+    void shutdown_FlushesInFlightSendsBeforeClosingSpill() throws InterruptedException {
+        CompletableFuture<SendResult<String, UserEventDTO>> acknowledgedLate = new CompletableFuture<>();
+        CompletableFuture<SendResult<String, UserEventDTO>> failedLate = new CompletableFuture<>();
+        when(kafkaTemplate.send(eq(TOPIC), eq("42"), any())).thenReturn(acknowledgedLate);
+        when(kafkaTemplate.send(eq(TOPIC), eq("john@example.com"), any())).thenReturn(failedLate);
+        when(kafkaTemplate.send(eq(STATE_TOPIC), eq("42"), any())).thenReturn(acknowledged());
+        doAnswer(invocation -> {
+            acknowledgedLate.complete(null);
+            failedLate.completeExceptionally(new IllegalStateException("broker down"));
+            return null;
+        }).when(kafkaTemplate).flush();
+        producer = start(10, KafkaProducer.OverflowPolicy.SPILL);
+        UserEventDTO updated = updated(42L, "new@example.com", Instant.now());
+
+        producer.sendUserEvent(updated);
+        producer.sendUserEvent(event("john@example.com"));
+        verify(kafkaTemplate, timeout(5000).times(2)).send(eq(TOPIC), anyString(), any(UserEventDTO.class));
+        producer.shutdown();
+        producer = null;
+
+        verify(kafkaTemplate).send(STATE_TOPIC, "42", updated);
+        assertThat(meterRegistry.get("user.events.spilled").counter().count()).isEqualTo(1);
+        try (SpillFile spillFile = new SpillFile(tempDir.resolve("events.spill"),
+                new ObjectMapper().findAndRegisterModules())) {
+            assertThat(spillFile.take(10)).extracting(UserEventDTO::getEmail).containsExactly("john@example.com");
+        }
+    }
+
+    private KafkaProducer start(int capacity, KafkaProducer.OverflowPolicy policy) {
+        KafkaProducer kafkaProducer = new KafkaProducer(kafkaTemplate,
+                new UserStatePublisher(kafkaTemplate, meterRegistry, STATE_TOPIC, true), meterRegistry,
+                new ObjectMapper().findAndRegisterModules(), TOPIC, capacity, policy, Duration.ofMillis(100),
+                tempDir.resolve("events.spill"), Duration.ofSeconds(5));
+        kafkaProducer.start();
+        return kafkaProducer;
+    }
+
+    /**
+     * Брокер, который отвечает только после {@link #brokerAvailable}. Возвращает латч,
+     * срабатывающий, когда поток отправки занят первым событием.
+     */
+    private CountDownLatch blockingBroker() {
+        CountDownLatch sending = new CountDownLatch(1);
+        when(kafkaTemplate.send(anyString(), anyString(), any())).thenAnswer(invocation -> {
+            sending.countDown();
+            brokerAvailable.await(10, TimeUnit.SECONDS);
+            return acknowledged();
+        });
+        return sending;
+    }
+
+    private static CompletableFuture<SendResult<String, UserEventDTO>> acknowledged() {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    private static UserEventDTO updated(long userId, String email, Instant occurredAt) {
+        return UserEventDTO.builder()
+                .eventType(UserEventDTO.EventType.UPDATED)
+                .email(email)
+                .eventId(UUID.randomUUID())
+                .occurredAt(occurredAt)
+                .userId(userId)
+                .user(new UserSnapshot("John", email, 30, null))
+                .build();
+    }
+
+    private static UserEventDTO event(String email) {
+        return UserEventDTO.of(UserEventDTO.EventType.CREATED, email);
+    }
+}
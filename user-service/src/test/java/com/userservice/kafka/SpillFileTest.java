@@ -0,0 +1,114 @@
+package com.userservice.kafka;
+
+import com.eventcontracts.dto.UserEventDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("SpillFile Unit Tests")
+class SpillFileTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("take: события выдаются по порядку через границы сегментов, прочитанные сегменты удаляются")
+    void take_ReadsAcrossSegmentsInOrder() throws Exception {
+        SpillFile spill = new SpillFile(directory.resolve("events.spill"), objectMapper, 512);
+        for (int i = 0; i < 100; i++) {
+            spill.append(event(i));
+        }
+        assertThat(segments()).hasSizeGreaterThan(5);
+        assertThat(spill.pending()).isEqualTo(100);
+
+        List<String> emails = new ArrayList<>();
+        for (List<UserEventDTO> batch; !(batch = spill.take(7)).isEmpty(); ) {
+            assertThat(batch).hasSizeLessThanOrEqualTo(7);
+            batch.forEach(event -> emails.add(event.getEmail()));
+        }
+
+        assertThat(emails).hasSize(100);
+        for (int i = 0; i < 100; i++) {
+            assertThat(emails.get(i)).isEqualTo(i + "@example.com");
+        }
+        assertThat(spill.hasPending()).isFalse();
+        assertThat(segments()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Позиция чтения и непрочитанные события переживают перезапуск")
+    void restart_ResumesFromSavedOffset() {
+        SpillFile spill = new SpillFile(directory.resolve("events.spill"), objectMapper, 512);
+        for (int i = 0; i < 20; i++) {
+            spill.append(event(i));
+        }
+        assertThat(spill.take(8)).extracting(UserEventDTO::getEmail).startsWith("0@example.com").endsWith("7@example.com");
+        spill.close();
+
+        SpillFile restarted = new SpillFile(directory.resolve("events.spill"), objectMapper, 512);
+        assertThat(restarted.pending()).isEqualTo(12);
+        restarted.append(event(20));
+
+        assertThat(restarted.take(100)).extracting(UserEventDTO::getEmail)
+                .startsWith("8@example.com")
+                .endsWith("20@example.com")
+                .hasSize(13);
+    }
+
+    @Test
+    @DisplayName("Неразбираемая строка и недописанный хвост переносятся в .corrupt и не останавливают чтение")
+    void take_QuarantinesCorruptedLines() throws Exception {
+        Path path = directory.resolve("events.spill");
+        SpillFile spill = new SpillFile(path, objectMapper, 1024 * 1024);
+        spill.append(event(0));
+        spill.close();
+        Path segment = segments().getFirst();
+        Files.writeString(segment, "{not json\n", StandardOpenOption.APPEND);
+        Files.writeString(segment, objectMapper.writeValueAsString(event(1)) + "\n", StandardOpenOption.APPEND);
+        Files.writeString(segment, "{\"eventType\":\"CRE", StandardOpenOption.APPEND);
+
+        SpillFile restarted = new SpillFile(path, objectMapper, 1024 * 1024);
+
+        assertThat(restarted.pending()).isEqualTo(3);
+        assertThat(restarted.take(10)).extracting(UserEventDTO::getEmail)
+                .containsExactly("0@example.com", "1@example.com");
+        assertThat(restarted.quarantined()).isEqualTo(2);
+        assertThat(Files.readAllLines(directory.resolve("events.spill.corrupt"), StandardCharsets.UTF_8))
+                .containsExactly("{\"eventType\":\"CRE", "{not json");
+    }
+
+    @Test
+    @DisplayName("Файл прежнего формата подхватывается как первый сегмент")
+    void legacyFile_IsReadAsFirstSegment() throws Exception {
+        Path path = directory.resolve("events.spill");
+        Files.write(path, List.of(objectMapper.writeValueAsString(event(0)), objectMapper.writeValueAsString(event(1))));
+
+        SpillFile spill = new SpillFile(path, objectMapper);
+
+        assertThat(spill.take(10)).extracting(UserEventDTO::getEmail).containsExactly("0@example.com", "1@example.com");
+        assertThat(path).doesNotExist();
+    }
+
+    private List<Path> segments() throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().matches("events\\.spill\\.\\d+")).sorted().toList();
+        }
+    }
+
+    private static UserEventDTO event(int i) {
+        return UserEventDTO.of(UserEventDTO.EventType.CREATED, i + "@example.com");
+    }
+}
@@ -0,0 +1,157 @@
+package com.userservice.scale;
+
+import com.eventcontracts.dto.UserEventDTO;
+import com.eventcontracts.serialization.UserEventSerializer;
+import com.userservice.config.KafkaProducerProfile;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.kafka.ConfluentKafkaContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Сравнение профилей {@link KafkaProducerProfile} на локальном брокере.
+ *
+ * <p>Для каждого профиля в отдельный топик отправляется {@code kafka.bench.events} событий
+ * без ожидания подтверждений; снимаются пропускная способность, задержка от send() до ack
+ * и метрики клиента (средний размер батча, время ожидания в буфере, степень сжатия).
+ * Отчёт пишется в {@code target/scale-report}.
+ *
+ * <p>Запуск:
+ * <pre>
+ * mvn -pl user-service test -Dtest=KafkaProducerProfileBenchmark -Dkafka.bench.events=500000
+ * </pre>
+ */
+@Testcontainers
+@DisplayName("Kafka Producer Profile Benchmark")
+@Slf4j
+class KafkaProducerProfileBenchmark {
+
+    private static final int EVENTS = Integer.getInteger("kafka.bench.events", 200_000);
+    private static final int WARMUP_EVENTS = 10_000;
+    private static final int PARTITIONS = 6;
+    private static final List<String> CLIENT_METRICS =
+            List.of("batch-size-avg", "record-queue-time-avg", "compression-rate-avg", "request-rate");
+
+    @Container
+    static ConfluentKafkaContainer kafka = new ConfluentKafkaContainer(DockerImageName.parse("confluentinc/cp-kafka:7.6.1"));
+
+    @Test
+    @DisplayName("Пропускная способность и задержка профилей DEFAULT и THROUGHPUT")
+    void compareProfiles() throws Exception {
+        StringBuilder report = new StringBuilder("# Kafka producer profiles\n\n")
+                .append("Events per profile: ").append(EVENTS).append(", partitions: ").append(PARTITIONS).append("\n\n")
+                .append("| profile | events/s | p50 ms | p95 ms | p99 ms | max ms | ")
+                .append(String.join(" | ", CLIENT_METRICS)).append(" |\n")
+                .append("|---|---:|---:|---:|---:|---:|").append("---:|".repeat(CLIENT_METRICS.size())).append("\n");
+
+        for (KafkaProducerProfile profile : KafkaProducerProfile.values()) {
+            String topic = "bench-" + profile.name().toLowerCase(Locale.ROOT);
+            createTopic(topic);
+            report.append(run(profile, topic)).append("\n");
+        }
+
+        Path dir = Path.of("target", "scale-report");
+        Files.createDirectories(dir);
+        Path file = dir.resolve("kafka-producer-profiles-" + Instant.now().toEpochMilli() + ".md");
+        Files.writeString(file, report);
+        log.info("Kafka producer profile report written to {}\n{}", file.toAbsolutePath(), report);
+    }
+
+    private String run(KafkaProducerProfile profile, String topic) throws InterruptedException {
+        Map<String, Object> config = new HashMap<>();
+        config.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, kafka.getBootstrapServers());
+        config.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        config.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, UserEventSerializer.class);
+        profile.applyTo(config, 20, 131072, "lz4");
+
+        DefaultKafkaProducerFactory<String, UserEventDTO> factory = new DefaultKafkaProducerFactory<>(config);
+        try {
+            KafkaTemplate<String, UserEventDTO> template = new KafkaTemplate<>(factory);
+            send(template, topic, WARMUP_EVENTS, null);
+
+            LatencySample sample = new LatencySample(EVENTS);
+            long start = System.nanoTime();
+            send(template, topic, EVENTS, sample);
+            double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+            Map<MetricName, ? extends Metric> metrics = template.metrics();
+            StringBuilder row = new StringBuilder("| ").append(profile).append(" | ")
+                    .append(String.format(Locale.ROOT, "%,.0f", EVENTS / seconds)).append(" | ")
+                    .append(sample.summary()).append(" |");
+            for (String name : CLIENT_METRICS) {
+                row.append(' ').append(clientMetric(metrics, name)).append(" |");
+            }
+            return row.toString();
+        } finally {
+            factory.destroy();
+        }
+    }
+
+    /**
+     * Отправляет события без ожидания и дожидается подтверждения всех.
+     * Колбэки выполняются одним I/O-потоком producer'а, поэтому запись в sample не требует синхронизации.
+     */
+    private void send(KafkaTemplate<String, UserEventDTO> template, String topic, int count, LatencySample sample)
+            throws InterruptedException {
+        CountDownLatch acked = new CountDownLatch(count);
+        AtomicInteger failures = new AtomicInteger();
+        for (int i = 0; i < count; i++) {
+            String email = "user" + (i % 50_000) + "@example.com";
+            UserEventDTO event = UserEventDTO.of(
+                    i % 10 == 0 ? UserEventDTO.EventType.DELETED : UserEventDTO.EventType.CREATED, email);
+            long sentAt = System.nanoTime();
+            template.send(topic, email, event).whenComplete((result, ex) -> {
+                if (ex != null) {
+                    failures.incrementAndGet();
+                } else if (sample != null) {
+                    sample.record(System.nanoTime() - sentAt);
+                }
+                acked.countDown();
+            });
+        }
+        assertThat(acked.await(5, TimeUnit.MINUTES)).isTrue();
+        assertThat(failures).hasValue(0);
+    }
+
+    private static String clientMetric(Map<MetricName, ? extends Metric> metrics, String name) {
+        return metrics.entrySet().stream()
+                .filter(entry -> entry.getKey().name().equals(name) && entry.getKey().group().equals("producer-metrics"))
+                .map(entry -> entry.getValue().metricValue())
+                .filter(Number.class::isInstance)
+                .map(value -> String.format(Locale.ROOT, "%.2f", ((Number) value).doubleValue()))
+                .findFirst()
+                .orElse("n/a");
+    }
+
+    private static void createTopic(String topic) throws Exception {
+        try (AdminClient admin = AdminClient.create(
+                Map.of(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, kafka.getBootstrapServers()))) {
+            admin.createTopics(List.of(new NewTopic(topic, PARTITIONS, (short) 1))).all().get(30, TimeUnit.SECONDS);
+        }
+    }
+}
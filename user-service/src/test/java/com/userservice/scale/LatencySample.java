@@ -0,0 +1,38 @@
+package com.userservice.scale;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Замеры задержки одной операции на одном размере таблицы.
+ */
+class LatencySample {
+
+    private final long[] nanos;
+    private int size;
+
+    LatencySample(int capacity) {
+        this.nanos = new long[capacity];
+    }
+
+    void record(long elapsedNanos) {
+        nanos[size++] = elapsedNanos;
+    }
+
+    String summary() {
+        long[] sorted = Arrays.copyOf(nanos, size);
+        Arrays.sort(sorted);
+        return String.format(Locale.ROOT, "%.3f | %.3f | %.3f | %.3f",
+                millis(percentile(sorted, 50)), millis(percentile(sorted, 95)),
+                millis(percentile(sorted, 99)), millis(sorted[sorted.length - 1]));
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        int index = (int) Math.ceil(p / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, index)];
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
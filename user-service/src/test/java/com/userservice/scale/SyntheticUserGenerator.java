@@ -0,0 +1,149 @@
+package com.userservice.scale;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.SplittableRandom;
+
+/**
+ * Генератор синтетических пользователей для таблицы users.
+ *
+ * <p>Данные грузятся через COPY FROM STDIN порциями по {@link #CHUNK_BYTES},
+ * минуя JPA, - это на два порядка быстрее INSERT и позволяет заполнить
+ * десятки миллионов строк за минуты.
+ * Email уникален за счёт порядкового номера строки; имена, домены,
+ * возраст и дата создания распределены примерно как в реальных данных.
+ */
+@Slf4j
+public class SyntheticUserGenerator {
+
+    private static final int CHUNK_BYTES = 1 << 20;
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static final String[] FIRST_NAMES = {
+            "Alexander", "Maria", "Dmitry", "Anna", "Ivan", "Elena", "Sergey", "Olga", "Andrey", "Natalia",
+            "Mikhail", "Tatiana", "Nikolai", "Irina", "Pavel", "Ekaterina", "Vladimir", "Svetlana", "Alexei", "Yulia",
+            "John", "Emma", "Michael", "Olivia", "David", "Sophia", "James", "Isabella", "Robert", "Mia"
+    };
+    private static final String[] LAST_NAMES = {
+            "Ivanov", "Smirnov", "Kuznetsov", "Popov", "Vasiliev", "Petrov", "Sokolov", "Mikhailov", "Novikov",
+            "Fedorov", "Morozov", "Volkov", "Alekseev", "Lebedev", "Semenov", "Egorov", "Pavlov", "Kozlov",
+            "Smith", "Johnson", "Williams", "Brown", "Jones", "Miller", "Davis", "Wilson", "Taylor", "Clark"
+    };
+    /**
+     * Домены с весами: несколько крупных почтовых сервисов и длинный хвост корпоративных.
+     */
+    private static final String[] DOMAINS = {
+            "gmail.com", "gmail.com", "gmail.com", "mail.ru", "mail.ru", "yandex.ru", "yandex.ru",
+            "inbox.ru", "outlook.com", "example.com", "corp.example.org", "company.io"
+    };
+
+    private static final String COPY_SQL =
+            "COPY users (name, email, age, created_at) FROM STDIN WITH (FORMAT csv)";
+
+    private final DataSource dataSource;
+    private final SplittableRandom random;
+    private final LocalDateTime now = LocalDateTime.now().withNano(0);
+
+    /**
+     * Сколько строк этот генератор уже создал - используется как суффикс email.
+     */
+    @Getter
+    private long generated;
+
+    public SyntheticUserGenerator(DataSource dataSource, long seed) {
+        this.dataSource = dataSource;
+        this.random = new SplittableRandom(seed);
+    }
+
+    /**
+     * Догружает {@code count} пользователей одной операцией COPY.
+     *
+     * @return скорость загрузки, строк в секунду
+     */
+    public double load(long count) throws SQLException {
+        long start = System.nanoTime();
+
+        try (Connection connection = dataSource.getConnection()) {
+            CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_SQL);
+            try {
+                StringBuilder chunk = new StringBuilder(CHUNK_BYTES + 256);
+                for (long i = 0; i < count; i++) {
+                    appendRow(chunk, generated + i);
+                    if (chunk.length() >= CHUNK_BYTES) {
+                        write(copyIn, chunk);
+                    }
+                }
+                write(copyIn, chunk);
+                copyIn.endCopy();
+            } finally {
+                if (copyIn.isActive()) {
+                    copyIn.cancelCopy();
+                }
+            }
+        }
+        generated += count;
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        double rate = count / seconds;
+        log.info("Loaded {} users in {}s ({} rows/s)", count, String.format("%.1f", seconds), (long) rate);
+        return rate;
+    }
+
+    /**
+     * Email, гарантированно присутствующий в таблице (если строку не удаляли).
+     */
+    public String emailOf(long index) {
+        long seed = mix(index);
+        String first = FIRST_NAMES[(int) Long.remainderUnsigned(seed, FIRST_NAMES.length)];
+        String last = LAST_NAMES[(int) Long.remainderUnsigned(seed >>> 16, LAST_NAMES.length)];
+        String domain = DOMAINS[(int) Long.remainderUnsigned(seed >>> 32, DOMAINS.length)];
+        return first.toLowerCase() + "." + last.toLowerCase() + "." + index + "@" + domain;
+    }
+
+    private void appendRow(StringBuilder sb, long index) {
+        long seed = mix(index);
+        String first = FIRST_NAMES[(int) Long.remainderUnsigned(seed, FIRST_NAMES.length)];
+        String last = LAST_NAMES[(int) Long.remainderUnsigned(seed >>> 16, LAST_NAMES.length)];
+
+        // Возраст: нормальное распределение вокруг 35 лет, обрезанное до 14..90; у ~5% возраст не указан
+        int ageRoll = random.nextInt(100);
+        int age = (int) Math.round(35 + random.nextDouble(-1, 1) * 12 + random.nextDouble(-1, 1) * 12);
+        LocalDateTime createdAt = now.minusSeconds(random.nextLong(5L * 365 * 24 * 3600));
+
+        sb.append(first).append(' ').append(last).append(',')
+                .append(emailOf(index)).append(',');
+        if (ageRoll >= 5) {
+            sb.append(Math.max(14, Math.min(90, age)));
+        }
+        sb.append(',').append(TIMESTAMP.format(createdAt)).append('\n');
+    }
+
+    private static void write(CopyIn copyIn, StringBuilder chunk) throws SQLException {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        byte[] bytes = chunk.toString().getBytes(StandardCharsets.UTF_8);
+        copyIn.writeToCopy(bytes, 0, bytes.length);
+        chunk.setLength(0);
+    }
+
+    /**
+     * Детерминированное перемешивание индекса (SplitMix64), чтобы имя и домен
+     * восстанавливались по номеру строки без хранения сгенерированных данных.
+     */
+    private static long mix(long index) {
+        long z = index + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,187 @@
+package com.userservice.scale;
+
+import com.userservice.base.BaseRepositoryTest;
+import com.userservice.entity.UserEntity;
+import com.userservice.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.function.LongConsumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Масштабные тесты UserRepository на больших таблицах.
+ *
+ * <p>Таблица последовательно наполняется до каждого из размеров {@code scale.sizes}
+ * генератором {@link SyntheticUserGenerator}; на каждом размере снимаются задержки
+ * методов репозитория и планы эквивалентных SQL-запросов (EXPLAIN ANALYZE).
+ * Отчёт пишется в {@code target/scale-report}.
+ *
+ * <p>Имя класса не попадает под шаблон surefire {@code *Test}, поэтому в обычной сборке
+ * набор не запускается. Запуск:
+ * <pre>
+ * mvn -pl user-service test -Dtest=UserRepositoryScaleBenchmark -Dscale.sizes=1000000,10000000,50000000
+ * </pre>
+ */
+@DataJpaTest(showSql = false, properties = "spring.jpa.hibernate.ddl-auto=create")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@DisplayName("UserRepository Scale Tests")
+@Slf4j
+class UserRepositoryScaleBenchmark extends BaseRepositoryTest {
+
+    private static final int ITERATIONS = Integer.getInteger("scale.iterations", 200);
+    private static final int SCAN_ITERATIONS = Math.max(3, ITERATIONS / 20);
+    private static final int WARMUP_ITERATIONS = 20;
+    private static final int PAGE_SIZE = 50;
+    /**
+     * Выше этого размера findAll() без пагинации не замеряется - он материализует всю таблицу в heap.
+     */
+    private static final long FIND_ALL_MAX_ROWS = Long.getLong("scale.findall-max-rows", 1_000_000L);
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final SplittableRandom random = new SplittableRandom(7);
+
+    @Test
+    @DisplayName("Задержки и планы запросов UserRepository на 1M..50M строк")
+    void repositoryMethodsAtScale() throws Exception {
+        long[] sizes = Arrays.stream(System.getProperty("scale.sizes", "1000000,5000000,10000000").split(","))
+                .map(String::trim)
+                .mapToLong(Long::parseLong)
+                .sorted()
+                .toArray();
+
+        SyntheticUserGenerator generator = new SyntheticUserGenerator(dataSource, 42);
+        StringBuilder report = new StringBuilder("# UserRepository scale report\n\n")
+                .append("Iterations per method: ").append(ITERATIONS).append("\n");
+
+        for (long size : sizes) {
+            double rowsPerSecond = generator.load(size - generator.getGenerated());
+            jdbcTemplate.execute("VACUUM ANALYZE users");
+            assertThat(userRepository.count()).isGreaterThanOrEqualTo(size - ITERATIONS * (long) sizes.length);
+
+            report.append("\n## ").append(String.format("%,d", size)).append(" rows\n\n")
+                    .append("Load rate: ").append((long) rowsPerSecond).append(" rows/s\n\n")
+                    .append("| method | p50 ms | p95 ms | p99 ms | max ms |\n|---|---:|---:|---:|---:|\n");
+            measureAll(generator).forEach((method, sample) ->
+                    report.append("| ").append(method).append(" | ").append(sample.summary()).append(" |\n"));
+
+            report.append("\n### Plans\n");
+            explainAll(generator).forEach((query, plan) ->
+                    report.append("\n`").append(query).append("`\n```\n").append(plan).append("```\n"));
+        }
+
+        Path dir = Path.of("target", "scale-report");
+        Files.createDirectories(dir);
+        Path file = dir.resolve("user-repository-" + Instant.now().toEpochMilli() + ".md");
+        Files.writeString(file, report);
+        log.info("Scale report written to {}", file.toAbsolutePath());
+    }
+
+    private Map<String, LatencySample> measureAll(SyntheticUserGenerator generator) {
+        long minId = jdbcTemplate.queryForObject("SELECT min(id) FROM users", Long.class);
+        long maxId = jdbcTemplate.queryForObject("SELECT max(id) FROM users", Long.class);
+        long rows = generator.getGenerated();
+        long lastPage = Math.max(0, rows / PAGE_SIZE - 1);
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+        Map<String, LatencySample> results = new LinkedHashMap<>();
+        results.put("findById", measure(i -> userRepository.findById(randomId(minId, maxId))));
+        results.put("existsByEmail (hit)", measure(i ->
+                userRepository.existsByEmail(generator.emailOf(random.nextLong(rows)))));
+        results.put("existsByEmail (miss)", measure(i ->
+                userRepository.existsByEmail("missing." + random.nextLong() + "@example.com")));
+        results.put("findAll(page 0)", measure(i -> userRepository.findAll(PageRequest.of(0, PAGE_SIZE))));
+        // OFFSET и count() сканируют таблицу целиком - замеряем их меньшим числом итераций
+        results.put("findAll(last page, OFFSET)", measure(SCAN_ITERATIONS, i ->
+                userRepository.findAll(PageRequest.of((int) Math.min(lastPage, Integer.MAX_VALUE), PAGE_SIZE))));
+        results.put("count", measure(SCAN_ITERATIONS, i -> userRepository.count()));
+        results.put("update (findById + save)", measure(i -> tx.executeWithoutResult(status ->
+                userRepository.findById(randomId(minId, maxId)).ifPresent(user -> {
+                    user.setName("Renamed " + random.nextInt(1_000_000));
+                    userRepository.saveAndFlush(user);
+                }))));
+        results.put("deleteById", measure(i -> userRepository.deleteById(randomId(minId, maxId))));
+        if (rows <= FIND_ALL_MAX_ROWS) {
+            results.put("findAll (unpaged)", measure(SCAN_ITERATIONS, i -> {
+                List<UserEntity> all = userRepository.findAll();
+                assertThat(all).isNotEmpty();
+            }));
+        }
+        return results;
+    }
+
+    private Map<String, String> explainAll(SyntheticUserGenerator generator) {
+        long rows = generator.getGenerated();
+        long maxId = jdbcTemplate.queryForObject("SELECT max(id) FROM users", Long.class);
+        String email = generator.emailOf(rows / 2);
+
+        Map<String, String> queries = new LinkedHashMap<>();
+        queries.put("findById", "SELECT * FROM users WHERE id = " + maxId / 2);
+        queries.put("existsByEmail", "SELECT id FROM users WHERE email = '" + email + "' FETCH FIRST 1 ROWS ONLY");
+        queries.put("findAll(last page)", "SELECT * FROM users OFFSET " + Math.max(0, rows - PAGE_SIZE)
+                + " ROWS FETCH FIRST " + PAGE_SIZE + " ROWS ONLY");
+        queries.put("count", "SELECT count(*) FROM users");
+
+        Map<String, String> plans = new LinkedHashMap<>();
+        queries.forEach((name, sql) -> {
+            StringBuilder plan = new StringBuilder();
+            jdbcTemplate.query("EXPLAIN (ANALYZE, BUFFERS) " + sql,
+                    rs -> {
+                        plan.append(rs.getString(1)).append('\n');
+                    });
+            plans.put(name + ": " + sql, plan.toString());
+        });
+        return plans;
+    }
+
+    private LatencySample measure(LongConsumer operation) {
+        return measure(ITERATIONS, operation);
+    }
+
+    private LatencySample measure(int iterations, LongConsumer operation) {
+        for (int i = 0; i < Math.min(WARMUP_ITERATIONS, iterations); i++) {
+            operation.accept(i);
+        }
+        LatencySample sample = new LatencySample(iterations);
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            operation.accept(i);
+            sample.record(System.nanoTime() - start);
+        }
+        return sample;
+    }
+
+    private long randomId(long minId, long maxId) {
+        return minId + random.nextLong(maxId - minId + 1);
+    }
+}
@@ -1,17 +1,22 @@
 package com.userservice.service;
 
+import com.eventcontracts.dto.FieldChange;
+import com.eventcontracts.dto.UserEventDTO;
+import com.eventcontracts.dto.UserSnapshot;
 import com.userservice.dto.UserCreateDTO;
 import com.userservice.dto.UserResponseDTO;
 import com.userservice.dto.UserUpdateDTO;
 import com.userservice.entity.UserEntity;
 import com.userservice.exception.DuplicateResourceException;
 import com.userservice.exception.ResourceNotFoundException;
+import com.userservice.kafka.KafkaProducer;
 import com.userservice.mapper.UserMapper;
 import com.userservice.repository.UserRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -22,6 +27,7 @@ import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
@@ -41,6 +47,9 @@ class UserServiceImplTest {
     @Mock
     private UserMapper userMapper;
 
+    @Mock
+    private KafkaProducer eventProducer;
+
     @InjectMocks
     private UserServiceImpl userService;
 
@@ -48,6 +57,8 @@ class UserServiceImplTest {
     private UserUpdateDTO updateDTO;
     private UserEntity userEntity;
     private UserResponseDTO responseDTO;
+    private UserSnapshot snapshot;
+    private UserSnapshot updatedSnapshot;
 
     @BeforeEach
     void setUp() {
@@ -69,6 +80,9 @@ class UserServiceImplTest {
                 .age(30)
                 .createdAt(LocalDateTime.now())
                 .build();
+
+        snapshot = new UserSnapshot("John Doe", "john@example.com", 30, null);
+        updatedSnapshot = new UserSnapshot("Jane Doe", "jane@example.com", 25, null);
     }
 
     @Test
@@ -78,6 +92,7 @@ class UserServiceImplTest {
         when(userMapper.ofDTO(createDTO)).thenReturn(userEntity);
         when(userRepository.save(any(UserEntity.class))).thenReturn(userEntity);
         when(userMapper.ofEntity(userEntity)).thenReturn(responseDTO);
+        when(userMapper.toSnapshot(userEntity)).thenReturn(snapshot);
 
         UserResponseDTO result = userService.createUser(createDTO);
 
@@ -89,6 +104,12 @@ class UserServiceImplTest {
         verify(userMapper).ofDTO(createDTO);
         verify(userRepository).save(any(UserEntity.class));
         verify(userMapper).ofEntity(userEntity);
+
+        UserEventDTO event = publishedEvent();
+        assertThat(event.getEventType()).isEqualTo(UserEventDTO.EventType.CREATED);
+        assertThat(event.getUserId()).isEqualTo(1L);
+        assertThat(event.getUser()).isSameAs(snapshot);
+        assertThat(event.getChanges()).isEmpty();
     }
 
     @Test
@@ -178,6 +199,7 @@ class UserServiceImplTest {
         when(userRepository.existsByEmail(updateDTO.getEmail())).thenReturn(false);
         when(userRepository.save(any(UserEntity.class))).thenReturn(userEntity);
         when(userMapper.ofEntity(userEntity)).thenReturn(responseDTO);
+        when(userMapper.toSnapshot(userEntity)).thenReturn(snapshot, updatedSnapshot);
 
         UserResponseDTO result = userService.updateUser(1L, updateDTO);
 
@@ -187,6 +209,32 @@ class UserServiceImplTest {
         verify(userMapper).updateEntityFromDTO(eq(updateDTO), eq(userEntity));
         verify(userRepository).save(userEntity);
         verify(userMapper).ofEntity(userEntity);
+
+        UserEventDTO event = publishedEvent();
+        assertThat(event.getEventType()).isEqualTo(UserEventDTO.EventType.UPDATED);
+        assertThat(event.getUserId()).isEqualTo(1L);
+        assertThat(event.getEmail()).isEqualTo("jane@example.com");
+        assertThat(event.getUser()).isSameAs(updatedSnapshot);
+        assertThat(event.getChanges())
+                .extracting(FieldChange::getField, FieldChange::getOldValue, FieldChange::getNewValue)
+                .containsExactly(
+                        tuple("name", "John Doe", "Jane Doe"),
+                        tuple("email", "john@example.com", "jane@example.com"),
+                        tuple("age", "30", "25"));
+    }
+
+    @Test
+    @DisplayName("updateUser: без изменённых полей событие не публикуется")
+    void updateUser_NoEventWhenNothingChanged() {
+        updateDTO = new UserUpdateDTO("John Doe", "john@example.com", 30);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(userEntity));
+        when(userRepository.save(any(UserEntity.class))).thenReturn(userEntity);
+        when(userMapper.ofEntity(userEntity)).thenReturn(responseDTO);
+        when(userMapper.toSnapshot(userEntity)).thenReturn(snapshot, snapshot);
+
+        userService.updateUser(1L, updateDTO);
+
+        verify(eventProducer, never()).sendUserEvent(any());
     }
 
     @Test
@@ -196,6 +244,7 @@ class UserServiceImplTest {
         when(userRepository.findById(1L)).thenReturn(Optional.of(userEntity));
         when(userRepository.save(any(UserEntity.class))).thenReturn(userEntity);
         when(userMapper.ofEntity(userEntity)).thenReturn(responseDTO);
+        when(userMapper.toSnapshot(userEntity)).thenReturn(snapshot, updatedSnapshot);
 
         UserResponseDTO result = userService.updateUser(1L, updateDTO);
 
@@ -213,6 +262,7 @@ class UserServiceImplTest {
         when(userRepository.findById(1L)).thenReturn(Optional.of(userEntity));
         when(userRepository.save(any(UserEntity.class))).thenReturn(userEntity);
         when(userMapper.ofEntity(userEntity)).thenReturn(responseDTO);
+        when(userMapper.toSnapshot(userEntity)).thenReturn(snapshot, updatedSnapshot);
 
         UserResponseDTO result = userService.updateUser(1L, updateDTO);
 
@@ -255,10 +305,16 @@ class UserServiceImplTest {
     void deleteUser_Success() {
         when(userRepository.findById(1L)).thenReturn(Optional.of(userEntity));
         doNothing().when(userRepository).delete(userEntity);
+        when(userMapper.toSnapshot(userEntity)).thenReturn(snapshot);
         userService.deleteUser(1L);
 
         verify(userRepository).findById(1L);
         verify(userRepository).delete(userEntity);
+
+        UserEventDTO event = publishedEvent();
+        assertThat(event.getEventType()).isEqualTo(UserEventDTO.EventType.DELETED);
+        assertThat(event.getUserId()).isEqualTo(1L);
+        assertThat(event.getUser()).isSameAs(snapshot);
     }
 
     @Test
@@ -295,4 +351,10 @@ class UserServiceImplTest {
         assertThat(result).isFalse();
         verify(userRepository).existsByEmail("nonexistent@example.com");
     }
+
+    private UserEventDTO publishedEvent() {
+        ArgumentCaptor<UserEventDTO> captor = ArgumentCaptor.forClass(UserEventDTO.class);
+        verify(eventProducer).sendUserEvent(captor.capture());
+        return captor.getValue();
+    }
 }